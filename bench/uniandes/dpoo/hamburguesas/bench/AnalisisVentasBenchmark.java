@@ -0,0 +1,85 @@
+package uniandes.dpoo.hamburguesas.bench;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import uniandes.dpoo.hamburguesas.mundo.Combo;
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.Producto;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+import uniandes.dpoo.hamburguesas.mundo.VentasColumnares;
+
+/**
+ * Mide cuánto tardan las consultas de VentasColumnares sobre varios millones de líneas de pedidos cerrados.
+ *
+ * Las líneas se reparten en un día, con 30 productos y 10 combos. Cada consulta se repite varias veces y se reporta la mejor, que es la que no incluye
+ * la compilación del JIT ni pausas del recolector de basura.
+ *
+ * Uso: AnalisisVentasBenchmark [líneas]. Por defecto usa 5.000.000 de líneas.
+ */
+public class AnalisisVentasBenchmark
+{
+    private static final int REPETICIONES = 15;
+
+    private static final long DIA = 24L * 60 * 60 * 1000;
+
+    public static void main( String[] args )
+    {
+        int lineas = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 5_000_000;
+        VentasColumnares ventas = generar( lineas );
+        System.out.printf( "%d líneas de %d productos%n", ventas.getCantidadLineas( ), ventas.getCantidadProductos( ) );
+        System.out.println( "consulta;ms;millones de líneas/s" );
+
+        medir( "sumarPorProducto", lineas, ( ) -> ventas.sumarPorProducto( 0, DIA )[ 0 ] );
+        medir( "sumarPorCombo", lineas, ( ) -> ventas.sumarPorCombo( 0, DIA )[ 0 ] );
+        medir( "contarPorProducto", lineas, ( ) -> ventas.contarPorProducto( 0, DIA )[ 0 ] );
+        medir( "sumarPorHora", lineas, ( ) -> ventas.sumarPorHora( 0, DIA, ZoneOffset.ofHours( -5 ) )[ 12 ] );
+        medir( "sumarIVA", lineas, ( ) -> ventas.sumarIVA( 0, DIA ) );
+    }
+
+    private interface Consulta
+    {
+        long ejecutar( );
+    }
+
+    private static void medir( String nombre, int lineas, Consulta consulta )
+    {
+        long mejor = Long.MAX_VALUE;
+        long sumidero = 0;
+        for( int i = 0; i < REPETICIONES; i++ )
+        {
+            long inicio = System.nanoTime( );
+            sumidero += consulta.ejecutar( );
+            mejor = Math.min( mejor, System.nanoTime( ) - inicio );
+        }
+        // Se imprime el resultado para que el JIT no pueda descartar las consultas
+        System.out.printf( "%s;%.2f;%.0f (%d)%n", nombre, mejor / 1e6, lineas / ( mejor / 1e3 ), sumidero );
+    }
+
+    private static VentasColumnares generar( int lineas )
+    {
+        Random random = new Random( 42 );
+        ProductoMenu[] menu = new ProductoMenu[30];
+        for( int i = 0; i < menu.length; i++ )
+            menu[ i ] = new ProductoMenu( "producto " + i, 5000 + 500 * i );
+        Producto[] productos = new Producto[40];
+        System.arraycopy( menu, 0, productos, 0, menu.length );
+        for( int i = 0; i < 10; i++ )
+            productos[ menu.length + i ] = new Combo( "combo " + i, 0.1, new ArrayList<ProductoMenu>( List.of( menu[ i ], menu[ i + 10 ] ) ) );
+
+        VentasColumnares ventas = new VentasColumnares( );
+        int registradas = 0;
+        while( registradas < lineas )
+        {
+            Pedido pedido = new Pedido( "cliente", "direccion" );
+            int cantidad = Math.min( 1 + random.nextInt( 4 ), lineas - registradas );
+            for( int i = 0; i < cantidad; i++ )
+                pedido.agregarProducto( productos[ random.nextInt( productos.length ) ] );
+            ventas.registrar( pedido, ( long )registradas * DIA / lineas );
+            registradas += cantidad;
+        }
+        return ventas;
+    }
+}
@@ -0,0 +1,153 @@
+package uniandes.dpoo.hamburguesas.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import uniandes.dpoo.hamburguesas.mundo.Combo;
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.Producto;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+import uniandes.dpoo.hamburguesas.persistencia.ArchivadorFacturas;
+import uniandes.dpoo.hamburguesas.persistencia.CarpetaFacturas;
+
+/**
+ * Mide cuánto ocupan en disco las facturas y cuánto tarda leer una factura al azar, antes y después de archivarlas con ArchivadorFacturas.
+ *
+ * Las facturas se reparten entre varios días anteriores al actual. El espacio en disco se reporta de dos formas: los bytes de los archivos y los bytes
+ * que ocuparían en un sistema de archivos con bloques de 4 KiB, que es lo que de verdad ocupa una carpeta con muchos archivos pequeños. Las lecturas se
+ * hacen con el caché del sistema operativo caliente, así que miden el costo de buscar y descomprimir, no el del disco.
+ *
+ * Uso: ArchivoFacturasBenchmark [facturas] [días]. Por defecto usa 50.000 facturas en 5 días.
+ */
+public class ArchivoFacturasBenchmark
+{
+    private static final int BLOQUE = 4096;
+
+    private static final int LECTURAS = 200_000;
+
+    public static void main( String[] args ) throws IOException
+    {
+        int cantidad = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 50_000;
+        int dias = args.length > 1 ? Integer.parseInt( args[ 1 ] ) : 5;
+        File carpeta = Files.createTempDirectory( "archivo" ).toFile( );
+        ZoneId zona = ZoneId.systemDefault( );
+        LocalDate hoy = LocalDate.now( zona );
+        System.out.printf( "%d facturas en %d días, %d lecturas al azar%n", cantidad, dias, LECTURAS );
+
+        try
+        {
+            CarpetaFacturas facturas = new CarpetaFacturas( carpeta );
+            List<Pedido> pedidos = generar( cantidad );
+            int[] ids = new int[cantidad];
+            for( int i = 0; i < cantidad; i++ )
+            {
+                Pedido pedido = pedidos.get( i );
+                ids[ i ] = pedido.getIdPedido( );
+                facturas.guardar( ids[ i ], pedido.generarTextoFactura( ) );
+                if( i % 1000 == 999 )
+                    facturas.sincronizar( );
+            }
+            facturas.sincronizar( );
+            for( int i = 0; i < cantidad; i++ )
+            {
+                LocalDate dia = hoy.minusDays( dias - ( long )i * dias / cantidad );
+                facturas.getArchivo( ids[ i ] ).setLastModified( dia.atTime( 12, 0 ).atZone( zona ).toInstant( ).toEpochMilli( ) );
+            }
+
+            System.out.println( "estado;archivos;bytes;bytes en bloques de 4 KiB;leer p50 us;leer p99 us;mapear p50 us;mapear p99 us" );
+            reportar( "sueltas", carpeta, new CarpetaFacturas( carpeta ), ids );
+
+            long inicio = System.nanoTime( );
+            ArchivadorFacturas.Resultado resultado = new ArchivadorFacturas( facturas, zona ).archivarDiasCerrados( );
+            double segundos = ( System.nanoTime( ) - inicio ) / 1e9;
+
+            reportar( "archivadas", carpeta, new CarpetaFacturas( carpeta ), ids );
+            System.out.printf( "%s en %.2f s (%.0f facturas/s), %.1f veces menos bytes%n", resultado, segundos, resultado.getFacturas( ) / segundos,
+                    resultado.getBytesAntes( ) / ( double )resultado.getBytesDespues( ) );
+        }
+        finally
+        {
+            borrar( carpeta );
+        }
+    }
+
+    private static void reportar( String estado, File carpeta, CarpetaFacturas facturas, int[] ids ) throws IOException
+    {
+        File[] archivos = carpeta.listFiles( );
+        long bytes = 0;
+        long bloques = 0;
+        for( File archivo : archivos )
+        {
+            bytes += archivo.length( );
+            bloques += ( archivo.length( ) + BLOQUE - 1 ) / BLOQUE;
+        }
+
+        Random random = new Random( 25 );
+        long[] leer = new long[LECTURAS];
+        long[] mapear = new long[LECTURAS];
+        long total = 0;
+        for( int ronda = 0; ronda < 2; ronda++ )
+        {
+            for( int i = 0; i < LECTURAS; i++ )
+            {
+                int id = ids[ random.nextInt( ids.length ) ];
+                long inicio = System.nanoTime( );
+                total += facturas.leer( id ).length( );
+                long medio = System.nanoTime( );
+                total += facturas.mapear( id ).remaining( );
+                leer[ i ] = medio - inicio;
+                mapear[ i ] = System.nanoTime( ) - medio;
+            }
+        }
+        if( total == 0 )
+            throw new IllegalStateException( );
+        Arrays.sort( leer );
+        Arrays.sort( mapear );
+        System.out.printf( "%s;%d;%d;%d;%.1f;%.1f;%.1f;%.1f%n", estado, archivos.length, bytes, bloques * BLOQUE, percentil( leer, 0.5 ), percentil( leer,
+                0.99 ), percentil( mapear, 0.5 ), percentil( mapear, 0.99 ) );
+    }
+
+    private static double percentil( long[] ordenados, double p )
+    {
+        return ordenados[ ( int )( ( ordenados.length - 1 ) * p ) ] / 1000.0;
+    }
+
+    private static List<Pedido> generar( int cantidad )
+    {
+        Random random = new Random( 25 );
+        ProductoMenu[] menu = new ProductoMenu[30];
+        for( int i = 0; i < menu.length; i++ )
+            menu[ i ] = new ProductoMenu( "producto " + i, 5000 + 500 * i );
+        Producto[] productos = new Producto[40];
+        System.arraycopy( menu, 0, productos, 0, menu.length );
+        for( int i = 0; i < 10; i++ )
+            productos[ menu.length + i ] = new Combo( "combo " + i, 0.1, new ArrayList<ProductoMenu>( List.of( menu[ i ], menu[ i + 10 ] ) ) );
+
+        ArrayList<Pedido> pedidos = new ArrayList<Pedido>( );
+        for( int i = 0; i < cantidad; i++ )
+        {
+            Pedido pedido = new Pedido( "cliente " + i, "Calle " + i + " # 1-10" );
+            int lineas = 1 + random.nextInt( 6 );
+            for( int j = 0; j < lineas; j++ )
+                pedido.agregarProducto( productos[ random.nextInt( productos.length ) ] );
+            pedidos.add( pedido );
+        }
+        return pedidos;
+    }
+
+    private static void borrar( File archivo )
+    {
+        File[] hijos = archivo.listFiles( );
+        if( hijos != null )
+            for( File hijo : hijos )
+                borrar( hijo );
+        archivo.delete( );
+    }
+}
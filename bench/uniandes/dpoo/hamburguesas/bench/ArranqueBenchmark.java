@@ -0,0 +1,89 @@
+package uniandes.dpoo.hamburguesas.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+
+/**
+ * Compara el tiempo de arranque cargando el catálogo desde los archivos de texto y desde la copia binaria.
+ *
+ * Cada medición corre en una JVM nueva, porque lo que importa es el arranque en frío: sin clases cargadas ni código compilado por el JIT. Para medir la
+ * carga desde texto se borra la copia antes de arrancar la JVM; para medir la carga desde la copia se deja la que escribió la carga anterior.
+ *
+ * Uso: ArranqueBenchmark [entradas]. Por defecto usa un catálogo sintético de 100.000 ingredientes, productos y combos.
+ */
+public class ArranqueBenchmark
+{
+    private static final int REPETICIONES = 5;
+
+    public static void main( String[] args ) throws Exception
+    {
+        if( args.length == 2 && args[ 0 ].equals( "--hijo" ) )
+        {
+            cargar( Path.of( args[ 1 ] ) );
+            return;
+        }
+
+        int entradas = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 100_000;
+        Path carpeta = Files.createTempDirectory( "arranque" );
+        try
+        {
+            CargaCatalogoBenchmark.generarCatalogo( carpeta, entradas );
+            File copia = carpeta.resolve( ".catalogo_instantanea" ).toFile( );
+
+            double[] texto = new double[REPETICIONES];
+            double[] instantanea = new double[REPETICIONES];
+            for( int i = 0; i < REPETICIONES; i++ )
+            {
+                copia.delete( );
+                texto[ i ] = medirEnJvmNueva( carpeta );
+                instantanea[ i ] = medirEnJvmNueva( carpeta );
+            }
+            Arrays.sort( texto );
+            Arrays.sort( instantanea );
+            System.out.printf( "carga en frío de %d entradas (mediana de %d JVMs)%n", entradas, REPETICIONES );
+            System.out.printf( "texto:       %.1f ms%n", texto[ REPETICIONES / 2 ] );
+            System.out.printf( "instantánea: %.1f ms (copia de %d KB)%n", instantanea[ REPETICIONES / 2 ], copia.length( ) / 1024 );
+        }
+        finally
+        {
+            SuiteBenchmarks.borrar( carpeta );
+        }
+    }
+
+    /**
+     * Arranca una JVM que carga el catálogo de la carpeta y retorna los milisegundos que reportó
+     */
+    private static double medirEnJvmNueva( Path carpeta ) throws Exception
+    {
+        String java = Path.of( System.getProperty( "java.home" ), "bin", "java" ).toString( );
+        Process proceso = new ProcessBuilder( java, "-cp", System.getProperty( "java.class.path" ), ArranqueBenchmark.class.getName( ), "--hijo",
+                carpeta.toString( ) ).redirectErrorStream( true ).start( );
+        String salida;
+        try( BufferedReader lector = new BufferedReader( new InputStreamReader( proceso.getInputStream( ) ) ) )
+        {
+            salida = lector.readLine( );
+        }
+        if( proceso.waitFor( ) != 0 || salida == null )
+            throw new IllegalStateException( "La JVM de medición falló: " + salida );
+        return Double.parseDouble( salida );
+    }
+
+    /**
+     * Lo que corre en la JVM nueva: carga el catálogo una vez e imprime cuánto tardó, en milisegundos
+     */
+    private static void cargar( Path carpeta ) throws Exception
+    {
+        long inicio = System.nanoTime( );
+        Restaurante restaurante = new Restaurante( carpeta.toFile( ) );
+        restaurante.cargarInformacionRestaurante( carpeta.resolve( "ingredientes.txt" ).toFile( ), carpeta.resolve( "menu.txt" ).toFile( ),
+                carpeta.resolve( "combos.txt" ).toFile( ) );
+        long duracion = System.nanoTime( ) - inicio;
+        System.out.println( duracion / 1e6 );
+    }
+}
@@ -0,0 +1,73 @@
+package uniandes.dpoo.hamburguesas.bench;
+
+import java.util.concurrent.CountDownLatch;
+
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+
+/**
+ * Mide cuántos pedidos por segundo se pueden crear cuando varios hilos piden identificadores al mismo tiempo.
+ *
+ * Para cada cantidad de hilos, desde 1 hasta el número de procesadores, reporta el throughput total y la escala frente a un solo hilo.
+ */
+public class AsignacionIdsBenchmark
+{
+    private static final int PEDIDOS_POR_HILO = 1_000_000;
+
+    private static final int RONDAS_CALENTAMIENTO = 3;
+
+    public static void main( String[] args ) throws InterruptedException
+    {
+        int procesadores = Runtime.getRuntime( ).availableProcessors( );
+        for( int i = 0; i < RONDAS_CALENTAMIENTO; i++ )
+        {
+            medir( procesadores );
+        }
+
+        double base = 0;
+        System.out.println( "hilos;pedidos/s;escala" );
+        for( int hilos = 1; hilos <= procesadores; hilos *= 2 )
+        {
+            double throughput = medir( hilos );
+            if( hilos == 1 )
+                base = throughput;
+            System.out.printf( "%d;%.0f;%.2f%n", hilos, throughput, throughput / base );
+        }
+    }
+
+    private static double medir( int hilos ) throws InterruptedException
+    {
+        CountDownLatch inicio = new CountDownLatch( 1 );
+        Thread[] trabajadores = new Thread[hilos];
+        long[] sumas = new long[hilos];
+        for( int h = 0; h < hilos; h++ )
+        {
+            int indice = h;
+            trabajadores[ h ] = new Thread( ( ) -> {
+                try
+                {
+                    inicio.await( );
+                }
+                catch( InterruptedException e )
+                {
+                    return;
+                }
+                long suma = 0;
+                for( int i = 0; i < PEDIDOS_POR_HILO; i++ )
+                {
+                    suma += new Pedido( "cliente", "direccion" ).getIdPedido( );
+                }
+                sumas[ indice ] = suma;
+            } );
+            trabajadores[ h ].start( );
+        }
+
+        long t0 = System.nanoTime( );
+        inicio.countDown( );
+        for( Thread trabajador : trabajadores )
+        {
+            trabajador.join( );
+        }
+        long duracion = System.nanoTime( ) - t0;
+        return ( double )hilos * PEDIDOS_POR_HILO / ( duracion / 1e9 );
+    }
+}
@@ -0,0 +1,74 @@
+package uniandes.dpoo.hamburguesas.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+
+/**
+ * Mide el tiempo de cargar un catálogo sintético con muchas entradas: ENTRADAS ingredientes, ENTRADAS productos y ENTRADAS combos de tres productos cada
+ * uno.
+ *
+ * Antes de cada carga se borra la copia binaria del catálogo, para medir siempre la lectura de los archivos de texto. ArranqueBenchmark compara esa
+ * lectura con la carga desde la copia.
+ */
+public class CargaCatalogoBenchmark
+{
+    private static final int ENTRADAS = 100_000;
+
+    private static final int REPETICIONES = 5;
+
+    public static void main( String[] args ) throws Exception
+    {
+        Path carpeta = Files.createTempDirectory( "catalogo" );
+        File[] archivos = generarCatalogo( carpeta, ENTRADAS );
+
+        for( int i = 0; i < REPETICIONES; i++ )
+        {
+            Files.deleteIfExists( carpeta.resolve( ".catalogo_instantanea" ) );
+            long inicio = System.nanoTime( );
+            Restaurante restaurante = new Restaurante( carpeta.toFile( ) );
+            restaurante.cargarInformacionRestaurante( archivos[ 0 ], archivos[ 1 ], archivos[ 2 ] );
+            long duracion = System.nanoTime( ) - inicio;
+            System.out.printf( "carga %d: %d combos en %.1f ms%n", i + 1, restaurante.getMenuCombos( ).size( ), duracion / 1e6 );
+        }
+    }
+
+    /**
+     * Escribe los tres archivos de un catálogo sintético en la carpeta indicada
+     * @param carpeta La carpeta donde quedan los archivos
+     * @param entradas La cantidad de ingredientes, productos y combos
+     * @return Los archivos de ingredientes, menú y combos, en ese orden
+     * @throws IOException
+     */
+    static File[] generarCatalogo( Path carpeta, int entradas ) throws IOException
+    {
+        Path ingredientes = carpeta.resolve( "ingredientes.txt" );
+        Path menu = carpeta.resolve( "menu.txt" );
+        Path combos = carpeta.resolve( "combos.txt" );
+
+        try( BufferedWriter out = Files.newBufferedWriter( ingredientes, StandardCharsets.UTF_8 ) )
+        {
+            for( int i = 0; i < entradas; i++ )
+                out.write( "ingrediente " + i + ";" + ( 100 + i % 3000 ) + "\n" );
+        }
+        try( BufferedWriter out = Files.newBufferedWriter( menu, StandardCharsets.UTF_8 ) )
+        {
+            for( int i = 0; i < entradas; i++ )
+                out.write( "producto " + i + ";" + ( 5000 + i % 20000 ) + "\n" );
+        }
+        try( BufferedWriter out = Files.newBufferedWriter( combos, StandardCharsets.UTF_8 ) )
+        {
+            for( int i = 0; i < entradas; i++ )
+            {
+                out.write( "combo " + i + ";" + ( i % 20 ) + "%;producto " + i + ";producto " + ( i * 7 % entradas ) + ";producto "
+                        + ( i * 13 % entradas ) + "\n" );
+            }
+        }
+        return new File[]{ ingredientes.toFile( ), menu.toFile( ), combos.toFile( ) };
+    }
+}
@@ -0,0 +1,123 @@
+package uniandes.dpoo.hamburguesas.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import uniandes.dpoo.hamburguesas.metricas.HistogramaLatencias;
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+import uniandes.dpoo.hamburguesas.servidor.ServidorPedidos;
+
+/**
+ * Prueba de carga del API HTTP con muchos clientes concurrentes en la misma máquina.
+ *
+ * Cada cliente repite el ciclo de un pedido completo: abrirlo, agregar un producto y un combo, y cerrarlo. Los clientes no usan un hilo cada uno: las
+ * peticiones son asíncronas, así que miles de clientes pueden tener su pedido en curso al mismo tiempo con unos pocos hilos en el generador. Al final
+ * se reportan los pedidos completos por segundo y la latencia del ciclo completo.
+ *
+ * Uso: CargaHttpBenchmark [clientes] [segundos]. Por defecto son 2000 clientes durante 20 segundos, con el catálogo de ./data.
+ */
+public class CargaHttpBenchmark
+{
+    private static final Pattern ID = Pattern.compile( "\"id\":(\\d+)" );
+
+    private static volatile boolean terminar;
+
+    public static void main( String[] args ) throws Exception
+    {
+        int clientes = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 2000;
+        int segundos = args.length > 1 ? Integer.parseInt( args[ 1 ] ) : 20;
+        ServidorPedidos.usarConexionesSinRetardo( );
+
+        Path carpeta = Files.createTempDirectory( "carga-http" );
+        Restaurante restaurante = new Restaurante( carpeta.toFile( ) );
+        restaurante.cargarInformacionRestaurante( Path.of( "data", "ingredientes.txt" ).toFile( ), Path.of( "data", "menu.txt" ).toFile( ),
+                Path.of( "data", "combos.txt" ).toFile( ) );
+        String producto = restaurante.getMenuBase( ).get( 0 ).getNombre( );
+        String combo = restaurante.getMenuCombos( ).get( 0 ).getNombre( );
+
+        ServidorPedidos servidor = new ServidorPedidos( restaurante, 0 );
+        servidor.iniciar( );
+        String base = "http://localhost:" + servidor.getPuerto( );
+        System.out.printf( "%d clientes durante %d s contra %s con %s%n", clientes, segundos, base, servidor.getTipoEjecutor( ) );
+
+        // Cerrar un pedido imprime dónde quedó la factura; se descarta para no medir la consola
+        PrintStream salida = System.out;
+        System.setOut( new PrintStream( OutputStream.nullOutputStream( ) ) );
+
+        HttpClient cliente = HttpClient.newBuilder( ).version( HttpClient.Version.HTTP_1_1 ).executor( Executors.newFixedThreadPool( 8 ) ).connectTimeout( Duration.ofSeconds( 30 ) ).build( );
+        HistogramaLatencias latencias = new HistogramaLatencias( );
+        AtomicLong errores = new AtomicLong( );
+        CompletableFuture<?>[] ciclos = new CompletableFuture<?>[clientes];
+        long inicio = System.nanoTime( );
+        for( int i = 0; i < clientes; i++ )
+            ciclos[ i ] = repetirPedidos( cliente, base, producto, combo, latencias, errores );
+
+        Thread.sleep( segundos * 1000L );
+        terminar = true;
+        CompletableFuture.allOf( ciclos ).join( );
+        double duracion = ( System.nanoTime( ) - inicio ) / 1e9;
+
+        servidor.detener( );
+        restaurante.cerrar( );
+        System.setOut( salida );
+        SuiteBenchmarks.borrar( carpeta );
+
+        System.out.printf( "pedidos completos: %d (%.0f pedidos/s, %.0f peticiones/s)%n", latencias.getCantidad( ), latencias.getCantidad( ) / duracion,
+                4 * latencias.getCantidad( ) / duracion );
+        System.out.printf( "latencia de un pedido (ms): p50=%.1f p99=%.1f max=%.1f%n", latencias.getPercentil( 50 ) / 1e6, latencias.getPercentil( 99 )
+                / 1e6, latencias.getMaximo( ) / 1e6 );
+        System.out.println( "errores: " + errores.get( ) );
+        System.exit( 0 );
+    }
+
+    /**
+     * Encadena pedidos completos de un cliente hasta que se pida terminar
+     */
+    private static CompletableFuture<Void> repetirPedidos( HttpClient cliente, String base, String producto, String combo,
+            HistogramaLatencias latencias, AtomicLong errores )
+    {
+        if( terminar )
+            return CompletableFuture.completedFuture( null );
+
+        long inicio = System.nanoTime( );
+        return enviar( cliente, base + "/pedidos", "cliente=carga&direccion=local" ).thenCompose( respuesta -> {
+            Matcher m = ID.matcher( respuesta.body( ) );
+            if( !m.find( ) )
+                throw new IllegalStateException( "Respuesta inesperada: " + respuesta.body( ) );
+            String pedido = base + "/pedidos/" + m.group( 1 );
+            return enviar( cliente, pedido + "/productos", "producto=" + codificar( producto ) )
+                    .thenCompose( r -> enviar( cliente, pedido + "/productos", "combo=" + codificar( combo ) ) )
+                    .thenCompose( r -> enviar( cliente, pedido + "/cerrar", "" ) );
+        } ).handle( ( respuesta, error ) -> {
+            if( error == null && respuesta.statusCode( ) == 200 )
+                latencias.registrar( System.nanoTime( ) - inicio );
+            else
+                errores.incrementAndGet( );
+            return null;
+        } ).thenCompose( nada -> repetirPedidos( cliente, base, producto, combo, latencias, errores ) );
+    }
+
+    private static CompletableFuture<HttpResponse<String>> enviar( HttpClient cliente, String url, String formulario )
+    {
+        HttpRequest peticion = HttpRequest.newBuilder( URI.create( url ) ).header( "Content-Type", "application/x-www-form-urlencoded" )
+                .timeout( Duration.ofSeconds( 60 ) ).POST( HttpRequest.BodyPublishers.ofString( formulario ) ).build( );
+        return cliente.sendAsync( peticion, HttpResponse.BodyHandlers.ofString( ) );
+    }
+
+    private static String codificar( String texto )
+    {
+        return java.net.URLEncoder.encode( texto, java.nio.charset.StandardCharsets.UTF_8 );
+    }
+}
@@ -0,0 +1,153 @@
+package uniandes.dpoo.hamburguesas.bench;
+
+import java.util.ArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * Un ejecutor sencillo de microbenchmarks, para medir sin depender de librerías externas.
+ *
+ * Cada caso se ejecuta primero durante varias iteraciones de calentamiento, para que el JIT compile el código medido, y luego durante varias iteraciones de
+ * medición. Cada iteración repite la operación hasta completar un tiempo fijo y registra el tiempo promedio por operación. Los resultados se escriben con
+ * ResultadosJson.
+ */
+class EjecutorBenchmarks
+{
+    /**
+     * Un caso de benchmark. Las subclases implementan la operación que se mide y, si lo necesitan, la preparación y la limpieza.
+     */
+    abstract static class Caso
+    {
+        private final String nombre;
+
+        Caso( String nombre )
+        {
+            this.nombre = nombre;
+        }
+
+        String getNombre( )
+        {
+            return nombre;
+        }
+
+        /**
+         * Se ejecuta una vez antes del calentamiento
+         */
+        void preparar( ) throws Exception
+        {
+        }
+
+        /**
+         * La operación que se mide. Debe retornar un valor que dependa del trabajo hecho, para que el JIT no pueda eliminarlo.
+         */
+        abstract long operacion( ) throws Exception;
+
+        /**
+         * Se ejecuta al final de cada iteración, dentro del tiempo medido. Sirve para esperar trabajo que la operación deja pendiente.
+         */
+        void terminarIteracion( ) throws Exception
+        {
+        }
+
+        /**
+         * Se ejecuta una vez después de la medición
+         */
+        void terminar( ) throws Exception
+        {
+        }
+    }
+
+    private final int iteracionesCalentamiento;
+
+    private final int iteracionesMedicion;
+
+    private final long nanosPorIteracion;
+
+    /**
+     * Acumula los valores que retornan las operaciones, para que el JIT no descarte el trabajo medido
+     */
+    private volatile long sumidero;
+
+    /**
+     * Crea un ejecutor
+     * @param iteracionesCalentamiento La cantidad de iteraciones que se ejecutan sin medir
+     * @param iteracionesMedicion La cantidad de iteraciones que se miden
+     * @param milisPorIteracion La duración de cada iteración en milisegundos
+     */
+    EjecutorBenchmarks( int iteracionesCalentamiento, int iteracionesMedicion, long milisPorIteracion )
+    {
+        this.iteracionesCalentamiento = iteracionesCalentamiento;
+        this.iteracionesMedicion = iteracionesMedicion;
+        this.nanosPorIteracion = milisPorIteracion * 1_000_000L;
+    }
+
+    /**
+     * Ejecuta los casos cuyo nombre coincide con el filtro y reporta cada resultado en la consola a medida que termina
+     * @param casos Los casos de benchmark
+     * @param filtro Una expresión regular que se busca en el nombre de cada caso
+     * @return Los resultados de los casos ejecutados
+     * @throws Exception Se lanza si la preparación, la operación o la limpieza de algún caso falla
+     */
+    ArrayList<ResultadoBenchmark> ejecutar( ArrayList<Caso> casos, Pattern filtro ) throws Exception
+    {
+        ArrayList<ResultadoBenchmark> resultados = new ArrayList<ResultadoBenchmark>( );
+        for( Caso caso : casos )
+        {
+            if( !filtro.matcher( caso.getNombre( ) ).find( ) )
+                continue;
+
+            ResultadoBenchmark resultado = medir( caso );
+            resultados.add( resultado );
+            System.out.println( resultado );
+        }
+        return resultados;
+    }
+
+    private ResultadoBenchmark medir( Caso caso ) throws Exception
+    {
+        caso.preparar( );
+        try
+        {
+            for( int i = 0; i < iteracionesCalentamiento; i++ )
+                iterar( caso );
+
+            double[] valores = new double[iteracionesMedicion];
+            for( int i = 0; i < iteracionesMedicion; i++ )
+                valores[ i ] = iterar( caso );
+            return new ResultadoBenchmark( caso.getNombre( ), ResultadoBenchmark.MODO_TIEMPO_PROMEDIO, "ns/op", 1, valores );
+        }
+        finally
+        {
+            caso.terminar( );
+        }
+    }
+
+    /**
+     * Ejecuta la operación del caso hasta completar el tiempo de una iteración. La operación se repite en lotes que crecen mientras duren menos de un
+     * milisegundo, para que leer el reloj no pese en la medición de operaciones muy cortas.
+     * @return El tiempo promedio por operación en nanosegundos
+     */
+    private double iterar( Caso caso ) throws Exception
+    {
+        long operaciones = 0;
+        long acumulado = 0;
+        int lote = 1;
+        long inicio = System.nanoTime( );
+        long limite = inicio + nanosPorIteracion;
+        long anterior = inicio;
+        long ahora;
+        do
+        {
+            for( int i = 0; i < lote; i++ )
+                acumulado += caso.operacion( );
+            operaciones += lote;
+            ahora = System.nanoTime( );
+            if( ahora - anterior < 1_000_000 && lote < ( 1 << 20 ) )
+                lote <<= 1;
+            anterior = ahora;
+        } while( ahora < limite );
+        caso.terminarIteracion( );
+        long duracion = System.nanoTime( ) - inicio;
+        sumidero += acumulado;
+        return ( double )duracion / operaciones;
+    }
+}
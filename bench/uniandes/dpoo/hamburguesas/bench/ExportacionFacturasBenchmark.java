@@ -0,0 +1,98 @@
+package uniandes.dpoo.hamburguesas.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import uniandes.dpoo.hamburguesas.mundo.Combo;
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.Producto;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+import uniandes.dpoo.hamburguesas.persistencia.ExportadorFacturas;
+
+/**
+ * Compara cuánto tarda regenerar las facturas de muchos pedidos con Pedido.guardarFactura, una por una, y con ExportadorFacturas en cada formato.
+ *
+ * Los archivos quedan en una carpeta temporal que se borra al final. Cada forma se ejecuta dos veces y se reporta la segunda, para no medir la
+ * compilación del JIT.
+ *
+ * Uso: ExportacionFacturasBenchmark [pedidos]. Por defecto usa 20.000 pedidos.
+ */
+public class ExportacionFacturasBenchmark
+{
+    public static void main( String[] args ) throws IOException
+    {
+        int cantidad = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 20_000;
+        List<Pedido> pedidos = generar( cantidad );
+        File carpeta = Files.createTempDirectory( "exportacion" ).toFile( );
+        System.out.printf( "%d pedidos, %d hilos en el pool común%n", cantidad, java.util.concurrent.ForkJoinPool.getCommonPoolParallelism( ) );
+        System.out.println( "forma;s;facturas/s" );
+
+        try
+        {
+            for( int ronda = 0; ronda < 2; ronda++ )
+            {
+                File destino = new File( carpeta, "una_por_una" );
+                destino.mkdirs( );
+                long inicio = System.nanoTime( );
+                for( Pedido pedido : pedidos )
+                    pedido.guardarFactura( new File( destino, "factura_" + pedido.getIdPedido( ) + ".txt" ) );
+                if( ronda == 1 )
+                    reportar( "Pedido.guardarFactura", cantidad, System.nanoTime( ) - inicio );
+
+                for( ExportadorFacturas.Formato formato : ExportadorFacturas.Formato.values( ) )
+                {
+                    File salida = new File( carpeta, formato.name( ).toLowerCase( ) + ( ronda == 0 ? "_calentamiento" : "" ) );
+                    inicio = System.nanoTime( );
+                    new ExportadorFacturas( formato, salida, null ).exportar( pedidos );
+                    if( ronda == 1 )
+                        reportar( "ExportadorFacturas." + formato, cantidad, System.nanoTime( ) - inicio );
+                }
+            }
+        }
+        finally
+        {
+            borrar( carpeta );
+        }
+    }
+
+    private static void reportar( String forma, int cantidad, long nanos )
+    {
+        System.out.printf( "%s;%.2f;%.0f%n", forma, nanos / 1e9, cantidad / ( nanos / 1e9 ) );
+    }
+
+    private static List<Pedido> generar( int cantidad )
+    {
+        Random random = new Random( 24 );
+        ProductoMenu[] menu = new ProductoMenu[30];
+        for( int i = 0; i < menu.length; i++ )
+            menu[ i ] = new ProductoMenu( "producto " + i, 5000 + 500 * i );
+        Producto[] productos = new Producto[40];
+        System.arraycopy( menu, 0, productos, 0, menu.length );
+        for( int i = 0; i < 10; i++ )
+            productos[ menu.length + i ] = new Combo( "combo " + i, 0.1, new ArrayList<ProductoMenu>( List.of( menu[ i ], menu[ i + 10 ] ) ) );
+
+        ArrayList<Pedido> pedidos = new ArrayList<Pedido>( );
+        for( int i = 0; i < cantidad; i++ )
+        {
+            Pedido pedido = new Pedido( "cliente " + i, "Calle " + i + " # 1-10" );
+            int lineas = 1 + random.nextInt( 6 );
+            for( int j = 0; j < lineas; j++ )
+                pedido.agregarProducto( productos[ random.nextInt( productos.length ) ] );
+            pedidos.add( pedido );
+        }
+        return pedidos;
+    }
+
+    private static void borrar( File archivo )
+    {
+        File[] hijos = archivo.listFiles( );
+        if( hijos != null )
+            for( File hijo : hijos )
+                borrar( hijo );
+        archivo.delete( );
+    }
+}
@@ -0,0 +1,192 @@
+package uniandes.dpoo.hamburguesas.bench;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+import uniandes.dpoo.hamburguesas.mundo.Combo;
+import uniandes.dpoo.hamburguesas.mundo.Ingrediente;
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.ProductoAjustado;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+
+/**
+ * Una prueba de carga con pedidos sintéticos: varios hilos abren, llenan y cierran pedidos sobre el catálogo de la carpeta data durante un tiempo fijo.
+ *
+ * Cada pedido tiene entre 1 y 5 productos escogidos al azar entre el menú, los combos y productos ajustados. Las facturas se escriben en una carpeta
+ * temporal que se borra al final. Se reporta el throughput de cada segundo (sin contar los segundos de calentamiento) y la latencia de cerrar un pedido.
+ *
+ * Uso: GeneradorCarga [hilos] [segundos] [archivo.json]. Por defecto usa un hilo por procesador, 10 segundos y carga_resultados.json.
+ */
+public class GeneradorCarga
+{
+    private static final int SEGUNDOS_CALENTAMIENTO = 2;
+
+    /**
+     * La cantidad máxima de latencias que guarda cada hilo
+     */
+    private static final int MAXIMO_MUESTRAS = 1 << 20;
+
+    public static void main( String[] args ) throws Exception
+    {
+        int hilos = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : Runtime.getRuntime( ).availableProcessors( );
+        int segundos = args.length > 1 ? Integer.parseInt( args[ 1 ] ) : 10;
+        Path salida = Paths.get( args.length > 2 ? args[ 2 ] : "carga_resultados.json" );
+
+        ArrayList<ResultadoBenchmark> resultados = ejecutar( hilos, segundos );
+        for( ResultadoBenchmark resultado : resultados )
+            System.out.println( resultado );
+        ResultadosJson.escribir( resultados, salida );
+        System.out.println( "Resultados en " + salida.toAbsolutePath( ) );
+    }
+
+    /**
+     * Ejecuta la prueba de carga
+     * @param hilos La cantidad de hilos que generan pedidos
+     * @param segundos La duración de la medición, sin contar el calentamiento
+     * @return El throughput en pedidos por segundo y las latencias p50 y p99 de cerrar un pedido
+     */
+    static ArrayList<ResultadoBenchmark> ejecutar( int hilos, int segundos ) throws Exception
+    {
+        Path carpeta = Files.createTempDirectory( "carga" );
+        Restaurante restaurante = new Restaurante( carpeta.toFile( ) );
+        restaurante.cargarInformacionRestaurante( new File( "./data/ingredientes.txt" ), new File( "./data/menu.txt" ),
+                new File( "./data/combos.txt" ) );
+
+        // Cerrar un pedido imprime la ubicación de la factura; esos mensajes no son parte de la carga
+        PrintStream consola = System.out;
+        System.setOut( new PrintStream( OutputStream.nullOutputStream( ) ) );
+
+        LongAdder cerrados = new LongAdder( );
+        long[][] latencias = new long[hilos][];
+        int[] muestras = new int[hilos];
+        Throwable[] errores = new Throwable[1];
+        Thread[] trabajadores = new Thread[hilos];
+        long fin = System.nanoTime( ) + ( SEGUNDOS_CALENTAMIENTO + segundos ) * 1_000_000_000L;
+        long inicioMedicion = System.nanoTime( ) + SEGUNDOS_CALENTAMIENTO * 1_000_000_000L;
+        double[] porSegundo = new double[segundos];
+        try
+        {
+            for( int h = 0; h < hilos; h++ )
+            {
+                int indice = h;
+                latencias[ h ] = new long[MAXIMO_MUESTRAS];
+                trabajadores[ h ] = new Thread( ( ) -> {
+                    Random random = new Random( indice );
+                    try
+                    {
+                        while( System.nanoTime( ) < fin )
+                        {
+                            Pedido pedido = restaurante.abrirPedido( "cliente " + indice, "direccion " + indice );
+                            llenar( pedido, restaurante, random );
+                            long t0 = System.nanoTime( );
+                            restaurante.cerrarYGuardarPedido( pedido.getIdPedido( ) );
+                            long t1 = System.nanoTime( );
+                            if( t0 >= inicioMedicion && muestras[ indice ] < MAXIMO_MUESTRAS )
+                                latencias[ indice ][ muestras[ indice ]++ ] = t1 - t0;
+                            cerrados.increment( );
+                        }
+                    }
+                    catch( Exception e )
+                    {
+                        synchronized( errores )
+                        {
+                            errores[ 0 ] = e;
+                        }
+                    }
+                }, "carga-" + h );
+                trabajadores[ h ].start( );
+            }
+
+            Thread.sleep( SEGUNDOS_CALENTAMIENTO * 1000L );
+            long anterior = cerrados.sum( );
+            long marca = System.nanoTime( );
+            for( int s = 0; s < segundos; s++ )
+            {
+                Thread.sleep( 1000 );
+                long actual = cerrados.sum( );
+                long ahora = System.nanoTime( );
+                porSegundo[ s ] = ( actual - anterior ) / ( ( ahora - marca ) / 1e9 );
+                anterior = actual;
+                marca = ahora;
+            }
+            for( Thread trabajador : trabajadores )
+                trabajador.join( );
+            restaurante.cerrar( );
+        }
+        finally
+        {
+            System.setOut( consola );
+            SuiteBenchmarks.borrar( carpeta );
+        }
+
+        synchronized( errores )
+        {
+            if( errores[ 0 ] != null )
+                throw new IllegalStateException( "La prueba de carga falló", errores[ 0 ] );
+        }
+
+        int total = 0;
+        for( int cantidad : muestras )
+            total += cantidad;
+        long[] todas = new long[total];
+        int posicion = 0;
+        for( int h = 0; h < hilos; h++ )
+        {
+            System.arraycopy( latencias[ h ], 0, todas, posicion, muestras[ h ] );
+            posicion += muestras[ h ];
+        }
+        Arrays.sort( todas );
+
+        ArrayList<ResultadoBenchmark> resultados = new ArrayList<ResultadoBenchmark>( );
+        resultados.add( new ResultadoBenchmark( "carga.pedidos", ResultadoBenchmark.MODO_THROUGHPUT, "ops/s", hilos, porSegundo ) );
+        resultados.add( new ResultadoBenchmark( "carga.cerrarPedido.p50", ResultadoBenchmark.MODO_TIEMPO_PROMEDIO, "us/op", hilos,
+                new double[]{ percentil( todas, 0.50 ) / 1000.0 } ) );
+        resultados.add( new ResultadoBenchmark( "carga.cerrarPedido.p99", ResultadoBenchmark.MODO_TIEMPO_PROMEDIO, "us/op", hilos,
+                new double[]{ percentil( todas, 0.99 ) / 1000.0 } ) );
+        return resultados;
+    }
+
+    /**
+     * Agrega entre 1 y 5 productos al azar al pedido
+     */
+    private static void llenar( Pedido pedido, Restaurante restaurante, Random random )
+    {
+        List<ProductoMenu> menu = restaurante.getMenuBase( );
+        List<Combo> combos = restaurante.getMenuCombos( );
+        List<Ingrediente> ingredientes = restaurante.getIngredientes( );
+        int productos = 1 + random.nextInt( 5 );
+        for( int i = 0; i < productos; i++ )
+        {
+            switch( random.nextInt( 3 ) )
+            {
+                case 0:
+                    pedido.agregarProducto( menu.get( random.nextInt( menu.size( ) ) ) );
+                    break;
+                case 1:
+                    pedido.agregarProducto( combos.get( random.nextInt( combos.size( ) ) ) );
+                    break;
+                default:
+                    ProductoAjustado ajustado = new ProductoAjustado( menu.get( random.nextInt( menu.size( ) ) ) );
+                    ajustado.agregarIngrediente( ingredientes.get( random.nextInt( ingredientes.size( ) ) ) );
+                    pedido.agregarProducto( ajustado );
+            }
+        }
+    }
+
+    private static double percentil( long[] ordenados, double p )
+    {
+        if( ordenados.length == 0 )
+            return Double.NaN;
+        return ordenados[ Math.min( ordenados.length - 1, ( int )( p * ordenados.length ) ) ];
+    }
+}
@@ -0,0 +1,107 @@
+package uniandes.dpoo.hamburguesas.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.function.IntFunction;
+
+import uniandes.dpoo.hamburguesas.mundo.Ingrediente;
+import uniandes.dpoo.hamburguesas.mundo.ProductoAjustado;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+
+/**
+ * Mide cuántos bytes del heap ocupa cada línea de pedido cuando hay un millón de productos ajustados en memoria.
+ *
+ * Compara ProductoAjustado con una copia de su forma anterior, que creaba dos ArrayList en cada instancia aunque no tuviera modificaciones. Las líneas
+ * siguen la mezcla típica de los pedidos: la mayoría sin cambios, algunas con un agregado y unas pocas con un agregado y un eliminado. Todas las
+ * líneas comparten los productos y los ingredientes del catálogo, así que lo que se mide es lo que cuesta cada línea.
+ *
+ * El heap ocupado se lee después de pedir varias recolecciones de basura, así que conviene correrlo con un heap fijo, por ejemplo -Xms2g -Xmx2g.
+ */
+public class HuellaMemoriaBenchmark
+{
+    private static final int LINEAS = 1_000_000;
+
+    private static final ProductoMenu[] MENU = { new ProductoMenu( "corral", 14000 ), new ProductoMenu( "corral queso", 16000 ),
+            new ProductoMenu( "todoterreno", 25000 ) };
+
+    private static final Ingrediente[] INGREDIENTES = { new Ingrediente( "queso mozzarella", 2500 ), new Ingrediente( "tocineta express", 2500 ),
+            new Ingrediente( "cebolla", 1000 ) };
+
+    public static void main( String[] args )
+    {
+        System.out.println( "forma;bytes/línea;MB totales" );
+        medir( "ProductoAjustado", i -> {
+            ProductoAjustado ajustado = new ProductoAjustado( MENU[ i % MENU.length ] );
+            if( i % 10 == 0 )
+                ajustado.agregarIngrediente( INGREDIENTES[ i % 2 ] );
+            if( i % 50 == 0 )
+                ajustado.eliminarIngrediente( INGREDIENTES[ 2 ] );
+            return ajustado;
+        } );
+        medir( "con dos ArrayList", i -> {
+            AjustadoConListas ajustado = new AjustadoConListas( MENU[ i % MENU.length ] );
+            if( i % 10 == 0 )
+                ajustado.agregarIngrediente( INGREDIENTES[ i % 2 ] );
+            if( i % 50 == 0 )
+                ajustado.eliminarIngrediente( INGREDIENTES[ 2 ] );
+            return ajustado;
+        } );
+    }
+
+    private static void medir( String forma, IntFunction<Object> crear )
+    {
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean( );
+        long antes = heapOcupado( memoria );
+        Object[] lineas = new Object[LINEAS];
+        long arreglo = heapOcupado( memoria ) - antes;
+        for( int i = 0; i < LINEAS; i++ )
+            lineas[ i ] = crear.apply( i );
+        long ocupado = heapOcupado( memoria ) - antes - arreglo;
+        // Las líneas no se pueden recolectar mientras se mide
+        Reference.reachabilityFence( lineas );
+
+        System.out.printf( "%s;%.1f;%.1f%n", forma, ( double )ocupado / LINEAS, ocupado / ( 1024.0 * 1024.0 ) );
+    }
+
+    private static long heapOcupado( MemoryMXBean memoria )
+    {
+        for( int i = 0; i < 4; i++ )
+            System.gc( );
+        return memoria.getHeapMemoryUsage( ).getUsed( );
+    }
+
+    /**
+     * La forma anterior de ProductoAjustado, con las dos listas creadas desde el constructor
+     */
+    private static class AjustadoConListas
+    {
+        private ProductoMenu productoBase;
+
+        private ArrayList<Ingrediente> agregados;
+
+        private ArrayList<Ingrediente> eliminados;
+
+        private int precio;
+
+        AjustadoConListas( ProductoMenu productoBase )
+        {
+            this.productoBase = productoBase;
+            this.agregados = new ArrayList<>( );
+            this.eliminados = new ArrayList<>( );
+            this.precio = productoBase.getPrecio( );
+        }
+
+        void agregarIngrediente( Ingrediente ingrediente )
+        {
+            agregados.add( ingrediente );
+            precio += ingrediente.getCostoAdicional( );
+        }
+
+        void eliminarIngrediente( Ingrediente ingrediente )
+        {
+            eliminados.add( ingrediente );
+        }
+    }
+}
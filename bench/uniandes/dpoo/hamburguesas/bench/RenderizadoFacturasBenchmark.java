@@ -0,0 +1,105 @@
+package uniandes.dpoo.hamburguesas.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import uniandes.dpoo.hamburguesas.mundo.Combo;
+import uniandes.dpoo.hamburguesas.mundo.Ingrediente;
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.ProductoAjustado;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+
+/**
+ * Mide cuántos bytes se reservan en el heap por cada factura que se arma.
+ *
+ * Compara dos formas de armar la factura de un mismo pedido: generarTextoFactura, que sólo debería reservar el String resultante, y escribirFactura
+ * sobre un buffer que se reutiliza, que no debería reservar nada. Los bytes se leen del contador de memoria reservada por hilo de la JVM.
+ */
+public class RenderizadoFacturasBenchmark
+{
+    private static final int FACTURAS = 200_000;
+
+    private static final int RONDAS_CALENTAMIENTO = 5;
+
+    public static void main( String[] args )
+    {
+        com.sun.management.ThreadMXBean hilos = ( com.sun.management.ThreadMXBean )ManagementFactory.getThreadMXBean( );
+        if( !hilos.isThreadAllocatedMemorySupported( ) )
+        {
+            System.out.println( "Esta JVM no permite medir la memoria reservada por hilo" );
+            return;
+        }
+        hilos.setThreadAllocatedMemoryEnabled( true );
+
+        Pedido pedido = crearPedido( );
+        StringBuilder buffer = new StringBuilder( 1024 );
+        for( int i = 0; i < RONDAS_CALENTAMIENTO; i++ )
+        {
+            generar( pedido );
+            escribir( pedido, buffer );
+        }
+
+        long id = Thread.currentThread( ).getId( );
+        System.out.println( "forma;bytes/factura;ns/factura" );
+
+        long b0 = hilos.getThreadAllocatedBytes( id );
+        long t0 = System.nanoTime( );
+        long usado = generar( pedido );
+        reportar( "generarTextoFactura", hilos.getThreadAllocatedBytes( id ) - b0, System.nanoTime( ) - t0, usado );
+
+        b0 = hilos.getThreadAllocatedBytes( id );
+        t0 = System.nanoTime( );
+        usado = escribir( pedido, buffer );
+        reportar( "escribirFactura", hilos.getThreadAllocatedBytes( id ) - b0, System.nanoTime( ) - t0, usado );
+    }
+
+    private static Pedido crearPedido( )
+    {
+        ProductoMenu corral = new ProductoMenu( "corral", 14000 );
+        ProductoMenu papas = new ProductoMenu( "papas medianas", 5500 );
+        ProductoMenu gaseosa = new ProductoMenu( "gaseosa", 5000 );
+
+        Combo combo = new Combo( "combo corral", 0.1, new ArrayList<ProductoMenu>( List.of( corral, papas, gaseosa ) ) );
+
+        ProductoAjustado ajustado = new ProductoAjustado( corral );
+        ajustado.agregarIngrediente( new Ingrediente( "queso mozzarella", 2500 ) );
+        ajustado.agregarIngrediente( new Ingrediente( "tocineta express", 2500 ) );
+        ajustado.eliminarIngrediente( new Ingrediente( "cebolla", 1000 ) );
+
+        Pedido pedido = new Pedido( "Cliente de prueba", "Calle 19 # 1-10" );
+        pedido.agregarProducto( combo );
+        pedido.agregarProducto( ajustado );
+        pedido.agregarProducto( papas );
+        pedido.agregarProducto( gaseosa );
+        return pedido;
+    }
+
+    private static long generar( Pedido pedido )
+    {
+        long total = 0;
+        for( int i = 0; i < FACTURAS; i++ )
+        {
+            total += pedido.generarTextoFactura( ).length( );
+        }
+        return total;
+    }
+
+    private static long escribir( Pedido pedido, StringBuilder buffer )
+    {
+        long total = 0;
+        for( int i = 0; i < FACTURAS; i++ )
+        {
+            buffer.setLength( 0 );
+            pedido.escribirFactura( buffer );
+            total += buffer.length( );
+        }
+        return total;
+    }
+
+    private static void reportar( String forma, long bytes, long nanos, long usado )
+    {
+        // Se imprime el total de caracteres para que el JIT no pueda descartar el trabajo medido
+        System.out.printf( "%s;%.1f;%.0f (%d caracteres)%n", forma, ( double )bytes / FACTURAS, ( double )nanos / FACTURAS, usado );
+    }
+}
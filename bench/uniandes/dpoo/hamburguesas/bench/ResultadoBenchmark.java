@@ -0,0 +1,83 @@
+package uniandes.dpoo.hamburguesas.bench;
+
+import java.util.Locale;
+
+/**
+ * El resultado de un benchmark o de una prueba de carga: un valor por iteración, en la unidad indicada.
+ *
+ * El modo dice cómo se interpreta el puntaje, con los mismos nombres de JMH: en MODO_TIEMPO_PROMEDIO un puntaje menor es mejor y en MODO_THROUGHPUT un
+ * puntaje mayor es mejor.
+ */
+class ResultadoBenchmark
+{
+    static final String MODO_TIEMPO_PROMEDIO = "avgt";
+
+    static final String MODO_THROUGHPUT = "thrpt";
+
+    /**
+     * El valor de z para un intervalo de confianza del 99.9%, que es el que reporta JMH como scoreError
+     */
+    private static final double Z_999 = 3.291;
+
+    final String nombre;
+
+    final String modo;
+
+    final String unidad;
+
+    final int hilos;
+
+    final double[] valores;
+
+    ResultadoBenchmark( String nombre, String modo, String unidad, int hilos, double[] valores )
+    {
+        this.nombre = nombre;
+        this.modo = modo;
+        this.unidad = unidad;
+        this.hilos = hilos;
+        this.valores = valores;
+    }
+
+    /**
+     * Retorna el promedio de los valores de las iteraciones
+     * @return
+     */
+    double getPuntaje( )
+    {
+        double suma = 0;
+        for( double valor : valores )
+            suma += valor;
+        return suma / valores.length;
+    }
+
+    /**
+     * Retorna la mitad del ancho del intervalo de confianza del 99.9% del puntaje, o NaN si hay menos de dos iteraciones
+     * @return
+     */
+    double getError( )
+    {
+        int n = valores.length;
+        if( n < 2 )
+            return Double.NaN;
+        double promedio = getPuntaje( );
+        double suma = 0;
+        for( double valor : valores )
+            suma += ( valor - promedio ) * ( valor - promedio );
+        return Z_999 * Math.sqrt( suma / ( n - 1 ) ) / Math.sqrt( n );
+    }
+
+    /**
+     * Indica si un puntaje mayor es mejor
+     * @return
+     */
+    boolean esMayorMejor( )
+    {
+        return MODO_THROUGHPUT.equals( modo );
+    }
+
+    @Override
+    public String toString( )
+    {
+        return String.format( Locale.ROOT, "%-45s %-5s %14.1f +- %.1f %s", nombre, modo, getPuntaje( ), getError( ), unidad );
+    }
+}
@@ -0,0 +1,99 @@
+package uniandes.dpoo.hamburguesas.bench;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lee y escribe resultados de benchmarks en JSON, con la misma forma que usa JMH: una lista de objetos con benchmark, mode, threads y primaryMetric
+ * (score, scoreError, scoreUnit y rawData). Así las herramientas que comparan corridas de JMH también sirven para estos resultados.
+ *
+ * La lectura sólo entiende los archivos que produce escribir (o los de JMH), no JSON arbitrario.
+ */
+class ResultadosJson
+{
+    private static final Pattern OBJETO = Pattern.compile( "\"benchmark\"\\s*:\\s*\"([^\"]*)\".*?\"mode\"\\s*:\\s*\"([^\"]*)\".*?\"threads\"\\s*:\\s*(\\d+)"
+            + ".*?\"scoreUnit\"\\s*:\\s*\"([^\"]*)\".*?\"rawData\"\\s*:\\s*\\[\\s*\\[([^\\]]*)\\]", Pattern.DOTALL );
+
+    private ResultadosJson( )
+    {
+    }
+
+    /**
+     * Escribe los resultados en el archivo indicado
+     * @param resultados Los resultados
+     * @param archivo El archivo de salida
+     * @throws IOException Se lanza si no se puede escribir el archivo
+     */
+    static void escribir( ArrayList<ResultadoBenchmark> resultados, Path archivo ) throws IOException
+    {
+        try( PrintWriter out = new PrintWriter( archivo.toFile( ), StandardCharsets.UTF_8 ) )
+        {
+            out.println( "[" );
+            for( int i = 0; i < resultados.size( ); i++ )
+            {
+                ResultadoBenchmark resultado = resultados.get( i );
+                out.println( "    {" );
+                out.println( "        \"benchmark\" : \"" + escapar( resultado.nombre ) + "\"," );
+                out.println( "        \"mode\" : \"" + resultado.modo + "\"," );
+                out.println( "        \"threads\" : " + resultado.hilos + "," );
+                out.println( "        \"forks\" : 0," );
+                out.println( "        \"jvm\" : \"" + escapar( System.getProperty( "java.home" ) ) + "\"," );
+                out.println( "        \"jdkVersion\" : \"" + escapar( System.getProperty( "java.version" ) ) + "\"," );
+                out.println( "        \"measurementIterations\" : " + resultado.valores.length + "," );
+                out.println( "        \"primaryMetric\" : {" );
+                out.println( "            \"score\" : " + numero( resultado.getPuntaje( ) ) + "," );
+                out.println( "            \"scoreError\" : " + numero( resultado.getError( ) ) + "," );
+                out.println( "            \"scoreUnit\" : \"" + escapar( resultado.unidad ) + "\"," );
+                StringBuilder crudos = new StringBuilder( );
+                for( int j = 0; j < resultado.valores.length; j++ )
+                {
+                    if( j > 0 )
+                        crudos.append( ", " );
+                    crudos.append( numero( resultado.valores[ j ] ) );
+                }
+                out.println( "            \"rawData\" : [ [ " + crudos + " ] ]" );
+                out.println( "        }" );
+                out.println( i + 1 < resultados.size( ) ? "    }," : "    }" );
+            }
+            out.println( "]" );
+        }
+    }
+
+    /**
+     * Lee los resultados de un archivo escrito por escribir
+     * @param archivo El archivo de resultados
+     * @return Los resultados en el orden del archivo
+     * @throws IOException Se lanza si no se puede leer el archivo
+     */
+    static ArrayList<ResultadoBenchmark> leer( Path archivo ) throws IOException
+    {
+        ArrayList<ResultadoBenchmark> resultados = new ArrayList<ResultadoBenchmark>( );
+        Matcher m = OBJETO.matcher( Files.readString( archivo, StandardCharsets.UTF_8 ) );
+        while( m.find( ) )
+        {
+            String[] partes = m.group( 5 ).split( "," );
+            double[] valores = new double[partes.length];
+            for( int i = 0; i < partes.length; i++ )
+                valores[ i ] = Double.parseDouble( partes[ i ].trim( ) );
+            resultados.add( new ResultadoBenchmark( m.group( 1 ), m.group( 2 ), m.group( 4 ), Integer.parseInt( m.group( 3 ) ), valores ) );
+        }
+        return resultados;
+    }
+
+    private static String numero( double valor )
+    {
+        return Double.isNaN( valor ) ? "\"NaN\"" : String.format( Locale.ROOT, "%.3f", valor );
+    }
+
+    private static String escapar( String texto )
+    {
+        return texto.replace( "\\", "\\\\" ).replace( "\"", "\\\"" );
+    }
+}
@@ -0,0 +1,379 @@
+package uniandes.dpoo.hamburguesas.bench;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import uniandes.dpoo.hamburguesas.metricas.Metricas;
+import uniandes.dpoo.hamburguesas.mundo.Combo;
+import uniandes.dpoo.hamburguesas.mundo.Dinero;
+import uniandes.dpoo.hamburguesas.mundo.Ingrediente;
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.ProductoAjustado;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+import uniandes.dpoo.hamburguesas.persistencia.BitacoraPedidos;
+
+/**
+ * La suite de benchmarks del restaurante: precios, IVA en double y en punto fijo, facturas, carga del catálogo, métricas, bitácora de pedidos y cierre de pedidos.
+ *
+ * Uso: SuiteBenchmarks [archivo.json] [filtro]. El archivo por defecto es bench_resultados.json y el filtro es una expresión regular que se busca en el
+ * nombre de cada caso. Los resultados quedan en el formato JSON de JMH, así que se pueden comparar entre corridas para detectar regresiones.
+ */
+public class SuiteBenchmarks
+{
+    private static final int ITERACIONES_CALENTAMIENTO = 5;
+
+    private static final int ITERACIONES_MEDICION = 10;
+
+    private static final long MILIS_POR_ITERACION = 500;
+
+    /**
+     * La cantidad de ingredientes, productos y combos del catálogo sintético
+     */
+    private static final int ENTRADAS_CATALOGO = 20_000;
+
+    /**
+     * La cantidad de productos del pedido que se usa para medir precios y facturas
+     */
+    private static final int PRODUCTOS_POR_PEDIDO = 20;
+
+    /**
+     * La cantidad de instancias que recorre cada caso de precios y facturas. Debe ser una potencia de dos.
+     */
+    private static final int INSTANCIAS = 16;
+
+    /**
+     * La cantidad de precios netos que recorren los casos del IVA. Debe ser una potencia de dos.
+     */
+    private static final int NETOS = 1024;
+
+    public static void main( String[] args ) throws Exception
+    {
+        Path salida = Paths.get( args.length > 0 ? args[ 0 ] : "bench_resultados.json" );
+        Pattern filtro = Pattern.compile( args.length > 1 ? args[ 1 ] : "" );
+
+        EjecutorBenchmarks ejecutor = new EjecutorBenchmarks( ITERACIONES_CALENTAMIENTO, ITERACIONES_MEDICION, MILIS_POR_ITERACION );
+        ArrayList<ResultadoBenchmark> resultados = ejecutor.ejecutar( crearCasos( ), filtro );
+        ResultadosJson.escribir( resultados, salida );
+        System.out.println( "Resultados en " + salida.toAbsolutePath( ) );
+    }
+
+    static ArrayList<EjecutorBenchmarks.Caso> crearCasos( )
+    {
+        // Cada caso recorre varias instancias en lugar de usar siempre la misma, para que el JIT no pueda calcular el resultado una sola vez por lote
+        Pedido[] pedidos = new Pedido[INSTANCIAS];
+        Combo[] combos = new Combo[INSTANCIAS];
+        ProductoAjustado[] ajustados = new ProductoAjustado[INSTANCIAS];
+        for( int i = 0; i < INSTANCIAS; i++ )
+        {
+            pedidos[ i ] = crearPedido( PRODUCTOS_POR_PEDIDO );
+            combos[ i ] = crearCombo( );
+            ajustados[ i ] = crearAjustado( );
+        }
+
+        int[] netos = new int[NETOS];
+        Random random = new Random( 23 );
+        for( int i = 0; i < NETOS; i++ )
+            netos[ i ] = random.nextInt( 2_000_000 );
+
+        ArrayList<EjecutorBenchmarks.Caso> casos = new ArrayList<EjecutorBenchmarks.Caso>( );
+        casos.add( new EjecutorBenchmarks.Caso( "Pedido.getPrecioTotalPedido" )
+        {
+            private int siguiente;
+
+            @Override
+            long operacion( )
+            {
+                siguiente = ( siguiente + 1 ) & ( INSTANCIAS - 1 );
+                return pedidos[ siguiente ].getPrecioTotalPedido( );
+            }
+        } );
+        casos.add( new EjecutorBenchmarks.Caso( "Pedido.generarTextoFactura" )
+        {
+            private int siguiente;
+
+            @Override
+            long operacion( )
+            {
+                siguiente = ( siguiente + 1 ) & ( INSTANCIAS - 1 );
+                return pedidos[ siguiente ].generarTextoFactura( ).length( );
+            }
+        } );
+        casos.add( new EjecutorBenchmarks.Caso( "Combo.getPrecio" )
+        {
+            private int siguiente;
+
+            @Override
+            long operacion( )
+            {
+                siguiente = ( siguiente + 1 ) & ( INSTANCIAS - 1 );
+                return combos[ siguiente ].getPrecio( );
+            }
+        } );
+        // El IVA como se calculaba antes, en double, contra la cuenta entera de Dinero que usa ahora Pedido
+        casos.add( new EjecutorBenchmarks.Caso( "IVA.double" )
+        {
+            private int siguiente;
+
+            @Override
+            long operacion( )
+            {
+                siguiente = ( siguiente + 1 ) & ( NETOS - 1 );
+                return ( int )( netos[ siguiente ] * 0.19 );
+            }
+        } );
+        casos.add( new EjecutorBenchmarks.Caso( "Dinero.aplicarTasa" )
+        {
+            private int siguiente;
+
+            @Override
+            long operacion( )
+            {
+                siguiente = ( siguiente + 1 ) & ( NETOS - 1 );
+                return Dinero.aplicarTasa( netos[ siguiente ], 1900, RoundingMode.DOWN );
+            }
+        } );
+        casos.add( new EjecutorBenchmarks.Caso( "ProductoAjustado.generarTextoFactura" )
+        {
+            private int siguiente;
+
+            @Override
+            long operacion( )
+            {
+                siguiente = ( siguiente + 1 ) & ( INSTANCIAS - 1 );
+                return ajustados[ siguiente ].generarTextoFactura( ).length( );
+            }
+        } );
+        casos.add( new CargaCatalogo( false ) );
+        casos.add( new CargaCatalogo( true ) );
+        casos.add( new EjecutorBenchmarks.Caso( "Metricas.registrarCierrePedido" )
+        {
+            private long latencia;
+
+            @Override
+            long operacion( )
+            {
+                // Latencias distintas en cada llamada, para que no caigan siempre en el mismo rango del histograma
+                latencia = ( latencia + 7919 ) & 0xFFFFF;
+                Metricas.getInstancia( ).registrarCierrePedido( latencia );
+                return latencia;
+            }
+        } );
+        casos.add( new RegistroBitacora( ) );
+        casos.add( new CierrePedidos( ) );
+        return casos;
+    }
+
+    /**
+     * Mide la carga de un catálogo sintético con ENTRADAS_CATALOGO elementos de cada tipo, desde los archivos de texto o desde la copia binaria
+     */
+    private static class CargaCatalogo extends EjecutorBenchmarks.Caso
+    {
+        private final boolean usarInstantanea;
+
+        private Path carpeta;
+
+        private File[] archivos;
+
+        CargaCatalogo( boolean usarInstantanea )
+        {
+            super( usarInstantanea ? "Restaurante.cargarInformacionRestaurante.instantanea" : "Restaurante.cargarInformacionRestaurante" );
+            this.usarInstantanea = usarInstantanea;
+        }
+
+        @Override
+        void preparar( ) throws Exception
+        {
+            carpeta = Files.createTempDirectory( "catalogo" );
+            archivos = CargaCatalogoBenchmark.generarCatalogo( carpeta, ENTRADAS_CATALOGO );
+        }
+
+        @Override
+        long operacion( ) throws Exception
+        {
+            if( !usarInstantanea )
+                Files.deleteIfExists( carpeta.resolve( ".catalogo_instantanea" ) );
+            Restaurante restaurante = new Restaurante( carpeta.toFile( ) );
+            restaurante.cargarInformacionRestaurante( archivos[ 0 ], archivos[ 1 ], archivos[ 2 ] );
+            return restaurante.getMenuCombos( ).size( );
+        }
+
+        @Override
+        void terminar( ) throws Exception
+        {
+            borrar( carpeta );
+        }
+    }
+
+    /**
+     * Mide registrar en la bitácora de pedidos un producto ajustado, que es lo que la bitácora le agrega a cada llamada a agregarProducto. Cada pedido
+     * tiene PRODUCTOS_POR_PEDIDO productos y se cierra, así que los segmentos viejos se van borrando como en la operación normal. Si el disco no alcanza
+     * a escribir al ritmo de los registros, registrar espera y el tiempo lo refleja.
+     */
+    private static class RegistroBitacora extends EjecutorBenchmarks.Caso
+    {
+        private Path carpeta;
+
+        private BitacoraPedidos bitacora;
+
+        private ProductoAjustado ajustado;
+
+        private int operaciones;
+
+        RegistroBitacora( )
+        {
+            super( "BitacoraPedidos.registrarProducto" );
+        }
+
+        @Override
+        void preparar( ) throws Exception
+        {
+            carpeta = Files.createTempDirectory( "bitacora-pedidos" );
+            bitacora = new BitacoraPedidos( carpeta.toFile( ), null );
+            ajustado = crearAjustado( );
+        }
+
+        @Override
+        long operacion( ) throws Exception
+        {
+            int idPedido = operaciones / PRODUCTOS_POR_PEDIDO;
+            int posicion = operaciones % PRODUCTOS_POR_PEDIDO;
+            if( posicion == 0 )
+                bitacora.registrarApertura( idPedido, "cliente", "direccion" );
+            bitacora.registrarProducto( idPedido, ajustado );
+            if( posicion == PRODUCTOS_POR_PEDIDO - 1 )
+                bitacora.registrarCierre( idPedido );
+            return ++operaciones;
+        }
+
+        @Override
+        void terminarIteracion( ) throws Exception
+        {
+            bitacora.sincronizar( );
+        }
+
+        @Override
+        void terminar( ) throws Exception
+        {
+            bitacora.cerrar( );
+            borrar( carpeta );
+        }
+    }
+
+    /**
+     * Mide iniciar, llenar y cerrar un pedido con sus facturas en una carpeta temporal. Al final de cada iteración se espera a que las facturas queden en
+     * disco, así que el tiempo incluye la escritura.
+     */
+    private static class CierrePedidos extends EjecutorBenchmarks.Caso
+    {
+        private Path carpeta;
+
+        private Restaurante restaurante;
+
+        private ProductoMenu producto;
+
+        private PrintStream consola;
+
+        CierrePedidos( )
+        {
+            super( "Restaurante.cerrarYGuardarPedido" );
+        }
+
+        @Override
+        void preparar( ) throws Exception
+        {
+            carpeta = Files.createTempDirectory( "facturas" );
+            restaurante = new Restaurante( carpeta.toFile( ) );
+            producto = new ProductoMenu( "corral", 14000 );
+
+            // Cerrar un pedido imprime la ubicación de la factura; esos mensajes no deben medirse
+            consola = System.out;
+            System.setOut( new PrintStream( OutputStream.nullOutputStream( ) ) );
+        }
+
+        @Override
+        long operacion( ) throws Exception
+        {
+            restaurante.iniciarPedido( "cliente", "direccion" );
+            Pedido pedido = restaurante.getPedidoEnCurso( );
+            for( int i = 0; i < 3; i++ )
+                pedido.agregarProducto( producto );
+            restaurante.cerrarYGuardarPedido( );
+            return pedido.getIdPedido( );
+        }
+
+        @Override
+        void terminarIteracion( ) throws Exception
+        {
+            restaurante.vaciarFacturas( );
+            restaurante.liberarPedidosCerrados( 0 );
+        }
+
+        @Override
+        void terminar( ) throws Exception
+        {
+            System.setOut( consola );
+            restaurante.cerrar( );
+            borrar( carpeta );
+        }
+    }
+
+    private static Pedido crearPedido( int productos )
+    {
+        Pedido pedido = new Pedido( "Cliente de prueba", "Calle 19 # 1-10" );
+        for( int i = 0; i < productos; i++ )
+        {
+            switch( i % 3 )
+            {
+                case 0:
+                    pedido.agregarProducto( new ProductoMenu( "producto " + i, 5000 + i * 100 ) );
+                    break;
+                case 1:
+                    pedido.agregarProducto( crearCombo( ) );
+                    break;
+                default:
+                    pedido.agregarProducto( crearAjustado( ) );
+            }
+        }
+        return pedido;
+    }
+
+    private static Combo crearCombo( )
+    {
+        ArrayList<ProductoMenu> items = new ArrayList<ProductoMenu>( );
+        items.add( new ProductoMenu( "corral", 14000 ) );
+        items.add( new ProductoMenu( "papas medianas", 5500 ) );
+        items.add( new ProductoMenu( "gaseosa", 5000 ) );
+        return new Combo( "combo corral", 0.1, items );
+    }
+
+    private static ProductoAjustado crearAjustado( )
+    {
+        ProductoAjustado ajustado = new ProductoAjustado( new ProductoMenu( "corral queso", 16000 ) );
+        ajustado.agregarIngrediente( new Ingrediente( "queso mozzarella", 2500 ) );
+        ajustado.agregarIngrediente( new Ingrediente( "tocineta express", 2500 ) );
+        ajustado.eliminarIngrediente( new Ingrediente( "cebolla", 1000 ) );
+        return ajustado;
+    }
+
+    static void borrar( Path carpeta ) throws Exception
+    {
+        if( carpeta == null )
+            return;
+        try( Stream<Path> archivos = Files.walk( carpeta ) )
+        {
+            for( Path archivo : ( Iterable<Path> )archivos.sorted( Comparator.reverseOrder( ) )::iterator )
+                Files.delete( archivo );
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package uniandes.dpoo.hamburguesas.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Compara resultados de benchmarks contra límites de rendimiento y termina con código 1 si alguno no se cumple, para que un script de integración
+ * continua falle cuando el rendimiento empeora.
+ *
+ * Uso: VerificadorRendimiento limites.txt resultados.json [más resultados.json]. Cada línea del archivo de límites tiene la forma nombre;límite, y las
+ * líneas vacías o que empiezan por # se ignoran. En un benchmark de throughput el límite es el mínimo aceptable; en uno de tiempo promedio es el máximo.
+ * Un límite cuyo benchmark no aparece en los resultados se reporta como fallido, para que un benchmark renombrado no deje de verificarse en silencio.
+ */
+public class VerificadorRendimiento
+{
+    public static void main( String[] args ) throws IOException
+    {
+        if( args.length < 2 )
+        {
+            System.out.println( "Uso: VerificadorRendimiento limites.txt resultados.json [más resultados.json]" );
+            System.exit( 2 );
+        }
+
+        HashMap<String, ResultadoBenchmark> resultados = new HashMap<String, ResultadoBenchmark>( );
+        for( int i = 1; i < args.length; i++ )
+        {
+            for( ResultadoBenchmark resultado : ResultadosJson.leer( Paths.get( args[ i ] ) ) )
+                resultados.put( resultado.nombre, resultado );
+        }
+
+        ArrayList<String> fallas = verificar( Paths.get( args[ 0 ] ), resultados );
+        for( String falla : fallas )
+            System.out.println( "FALLA " + falla );
+        if( !fallas.isEmpty( ) )
+            System.exit( 1 );
+        System.out.println( "Todos los límites de rendimiento se cumplen" );
+    }
+
+    /**
+     * Verifica los resultados contra los límites del archivo
+     * @param limites El archivo de límites
+     * @param resultados Los resultados indexados por nombre de benchmark
+     * @return La descripción de cada límite que no se cumple. Es vacía si todos se cumplen.
+     * @throws IOException Se lanza si no se puede leer el archivo de límites
+     */
+    static ArrayList<String> verificar( Path limites, HashMap<String, ResultadoBenchmark> resultados ) throws IOException
+    {
+        ArrayList<String> fallas = new ArrayList<String>( );
+        for( String linea : Files.readAllLines( limites, StandardCharsets.UTF_8 ) )
+        {
+            linea = linea.trim( );
+            if( linea.isEmpty( ) || linea.startsWith( "#" ) )
+                continue;
+
+            String[] partes = linea.split( ";" );
+            String nombre = partes[ 0 ].trim( );
+            double limite = Double.parseDouble( partes[ 1 ].trim( ) );
+            ResultadoBenchmark resultado = resultados.get( nombre );
+            if( resultado == null )
+            {
+                fallas.add( nombre + ": no hay resultados" );
+                continue;
+            }
+
+            double puntaje = resultado.getPuntaje( );
+            boolean cumple = resultado.esMayorMejor( ) ? puntaje >= limite : puntaje <= limite;
+            String comparacion = resultado.esMayorMejor( ) ? "mínimo" : "máximo";
+            System.out.printf( "%-45s %12.1f %s (%s %.1f) %s%n", nombre, puntaje, resultado.unidad, comparacion, limite, cumple ? "ok" : "FALLA" );
+            if( !cumple )
+                fallas.add( String.format( "%s: %.1f %s, %s %.1f", nombre, puntaje, resultado.unidad, comparacion, limite ) );
+        }
+        return fallas;
+    }
+}
@@ -1,19 +1,35 @@
 package uniandes.dpoo.hamburguesas.consola;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
 
+import javax.management.JMException;
+
 import uniandes.dpoo.hamburguesas.excepciones.HamburguesaException;
 import uniandes.dpoo.hamburguesas.excepciones.NoHayPedidoEnCursoException;
 import uniandes.dpoo.hamburguesas.excepciones.YaHayUnPedidoEnCursoException;
+import uniandes.dpoo.hamburguesas.metricas.Metricas;
+import uniandes.dpoo.hamburguesas.metricas.VolcadorMetricas;
 import uniandes.dpoo.hamburguesas.mundo.Combo;
 import uniandes.dpoo.hamburguesas.mundo.Ingrediente;
 import uniandes.dpoo.hamburguesas.mundo.Pedido;
 import uniandes.dpoo.hamburguesas.mundo.ProductoAjustado;
 import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
 import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+import uniandes.dpoo.hamburguesas.mundo.VistaPedido;
+import uniandes.dpoo.hamburguesas.persistencia.ExportadorFacturas;
+import uniandes.dpoo.hamburguesas.persistencia.RecargadorCatalogo;
 
 /**
  * Consola interactiva para gestionar el restaurante de hamburguesas.
@@ -23,10 +39,53 @@ public class AplicacionHamburguesas
     private static final String RUTA_INGREDIENTES = "data/ingredientes.txt";
     private static final String RUTA_MENU = "data/menu.txt";
     private static final String RUTA_COMBOS = "data/combos.txt";
+    private static final String RUTA_METRICAS = "metricas.log";
+    private static final long PERIODO_METRICAS_MS = 60_000;
+    private static final long PERIODO_ARCHIVO_MS = 3_600_000;
 
     private Restaurante restaurante;
     private Scanner scanner;
 
+    /**
+     * Recarga el catálogo cuando cambian los archivos de datos, sin detener la aplicación
+     */
+    private RecargadorCatalogo recargador;
+
+    /**
+     * Indica si las facturas se deben guardar en la bitácora de segmentos en lugar de un archivo por pedido
+     */
+    private boolean usarBitacora;
+
+    /**
+     * Indica si se debe escribir un resumen de las métricas en RUTA_METRICAS cada PERIODO_METRICAS_MS
+     */
+    private boolean volcarMetricas;
+
+    /**
+     * Escribe el resumen periódico de las métricas. Es null si no se pidió con --metricas.
+     */
+    private VolcadorMetricas volcador;
+
+    /**
+     * Indica si se deben comprimir las facturas de los días anteriores cada PERIODO_ARCHIVO_MS
+     */
+    private boolean archivarFacturas;
+
+    /**
+     * El guion de pedidos que se debe reproducir en lugar de usar el menú interactivo. Es null si no se pidió con --reproducir.
+     */
+    private String guion;
+
+    /**
+     * El formato en que se exportan las facturas al terminar el guion. Es null si no se pidió con --exportar.
+     */
+    private ExportadorFacturas.Formato formatoExportacion;
+
+    /**
+     * Dónde quedan las facturas exportadas al terminar el guion
+     */
+    private File destinoExportacion;
+
     public AplicacionHamburguesas( )
     {
         restaurante = new Restaurante( );
@@ -36,7 +95,77 @@ public class AplicacionHamburguesas
     public static void main( String[] args )
     {
         AplicacionHamburguesas aplicacion = new AplicacionHamburguesas( );
-        aplicacion.ejecutar( );
+        for( int i = 0; i < args.length; i++ )
+        {
+            if( "--bitacora".equals( args[ i ] ) )
+                aplicacion.usarBitacora = true;
+            else if( "--metricas".equals( args[ i ] ) )
+                aplicacion.volcarMetricas = true;
+            else if( "--archivar".equals( args[ i ] ) )
+                aplicacion.archivarFacturas = true;
+            else if( "--reproducir".equals( args[ i ] ) && i + 1 < args.length )
+                aplicacion.guion = args[ ++i ];
+            else if( "--exportar".equals( args[ i ] ) && i + 2 < args.length )
+            {
+                aplicacion.formatoExportacion = leerFormato( args[ ++i ] );
+                aplicacion.destinoExportacion = new File( args[ ++i ] );
+                if( aplicacion.formatoExportacion == null )
+                {
+                    System.out.println( "Formato de exportación desconocido: " + args[ i - 1 ] + ". Use carpeta, concatenado o zip." );
+                    return;
+                }
+            }
+            else if( "--reproducir".equals( args[ i ] ) )
+            {
+                System.out.println( "Falta el archivo del guion. Uso: --reproducir <guion>" );
+                return;
+            }
+            else if( "--exportar".equals( args[ i ] ) )
+            {
+                System.out.println( "Faltan el formato o el destino. Uso: --exportar <carpeta|concatenado|zip> <destino>" );
+                return;
+            }
+        }
+
+        if( aplicacion.guion != null )
+            aplicacion.reproducir( );
+        else
+            aplicacion.ejecutar( );
+    }
+
+    /**
+     * Ejecuta el guion de pedidos sin interacción y reporta cuántos pedidos por segundo se atendieron. Mientras tanto la salida estándar queda en un
+     * buffer, para que imprimir cada factura no sea lo que más tarda. Si se pidió con --exportar, al final se exportan las facturas de los pedidos
+     * cerrados.
+     */
+    private void reproducir( )
+    {
+        if( !cargarDatosIniciales( ) )
+        {
+            return;
+        }
+
+        PrintStream consola = System.out;
+        PrintStream salida = new PrintStream( new BufferedOutputStream( new FileOutputStream( FileDescriptor.out ), 1 << 16 ), false,
+                StandardCharsets.UTF_8 );
+        System.setOut( salida );
+        try( BufferedReader lector = Files.newBufferedReader( Path.of( guion ), StandardCharsets.UTF_8 ) )
+        {
+            ReproductorPedidos.Resultado resultado = new ReproductorPedidos( restaurante, salida ).reproducir( lector );
+            salida.print( resultado );
+            if( formatoExportacion != null )
+                salida.println( new ExportadorFacturas( formatoExportacion, destinoExportacion, salida ).exportar( restaurante.getPedidos( ) ) );
+        }
+        catch( IOException e )
+        {
+            salida.println( "No fue posible reproducir el guion " + guion + ": " + e.getMessage( ) );
+        }
+        finally
+        {
+            terminar( );
+            salida.flush( );
+            System.setOut( consola );
+        }
     }
 
     private void ejecutar( )
@@ -69,7 +198,14 @@ public class AplicacionHamburguesas
                     consultarPedidoPorId( );
                     break;
                 case "6":
+                    System.out.print( Metricas.getInstancia( ).getResumen( ) );
+                    break;
+                case "7":
+                    exportarFacturas( );
+                    break;
+                case "8":
                     continuar = false;
+                    terminar( );
                     System.out.println( "Hasta pronto." );
                     break;
                 default:
@@ -87,6 +223,15 @@ public class AplicacionHamburguesas
         {
             restaurante.cargarInformacionRestaurante( new File( RUTA_INGREDIENTES ), new File( RUTA_MENU ),
                     new File( RUTA_COMBOS ) );
+            if( usarBitacora )
+                restaurante.usarBitacoraFacturas( );
+            int recuperados = restaurante.usarBitacoraPedidos( );
+            if( recuperados > 0 )
+                System.out.println( "Se recuperaron " + recuperados + " pedidos que estaban abiertos cuando se cerró la aplicación." );
+            iniciarRecarga( );
+            iniciarMetricas( );
+            if( archivarFacturas )
+                iniciarArchivo( );
             return true;
         }
         catch( HamburguesaException | IOException e )
@@ -100,6 +245,72 @@ public class AplicacionHamburguesas
         return false;
     }
 
+    private void iniciarRecarga( )
+    {
+        recargador = new RecargadorCatalogo( restaurante, new File( RUTA_INGREDIENTES ), new File( RUTA_MENU ), new File( RUTA_COMBOS ) );
+        try
+        {
+            recargador.iniciar( System.out );
+        }
+        catch( IOException e )
+        {
+            System.out.println( "No se vigilarán los archivos de datos; para ver cambios en el menú hay que reiniciar: " + e.getMessage( ) );
+        }
+    }
+
+    private void iniciarMetricas( )
+    {
+        try
+        {
+            Metricas.registrarJmx( );
+        }
+        catch( JMException e )
+        {
+            System.out.println( "Las métricas no quedarán disponibles por JMX: " + e.getMessage( ) );
+        }
+
+        if( volcarMetricas )
+        {
+            try
+            {
+                volcador = new VolcadorMetricas( Metricas.getInstancia( ), new PrintStream( new FileOutputStream( RUTA_METRICAS, true ), false,
+                        StandardCharsets.UTF_8 ), PERIODO_METRICAS_MS );
+                volcador.iniciar( );
+            }
+            catch( IOException e )
+            {
+                System.out.println( "No fue posible abrir el archivo de métricas: " + e.getMessage( ) );
+            }
+        }
+    }
+
+    private void iniciarArchivo( )
+    {
+        try
+        {
+            restaurante.iniciarArchivoFacturas( PERIODO_ARCHIVO_MS, System.out );
+        }
+        catch( IllegalStateException e )
+        {
+            System.out.println( "No se archivarán las facturas: " + e.getMessage( ) );
+        }
+    }
+
+    private void terminar( )
+    {
+        recargador.cerrar( );
+        if( volcador != null )
+            volcador.cerrar( );
+        try
+        {
+            restaurante.cerrar( );
+        }
+        catch( IOException e )
+        {
+            System.out.println( "No fue posible guardar algunas facturas: " + e.getMessage( ) );
+        }
+    }
+
     private void imprimirOpciones( )
     {
         System.out.println( "\n==============================" );
@@ -109,7 +320,9 @@ public class AplicacionHamburguesas
         System.out.println( "3. Agregar elemento a pedido" );
         System.out.println( "4. Cerrar pedido y guardar factura" );
         System.out.println( "5. Consultar pedido por identificador" );
-        System.out.println( "6. Salir" );
+        System.out.println( "6. Ver métricas" );
+        System.out.println( "7. Exportar facturas" );
+        System.out.println( "8. Salir" );
         System.out.print( "Seleccione una opción: " );
     }
 
@@ -211,11 +424,12 @@ public class AplicacionHamburguesas
             ProductoMenu producto = menuBase.get( i );
             System.out.printf( "%d. %s - $%d%n", i + 1, producto.getNombre( ), producto.getPrecio( ) );
         }
-        System.out.print( "Seleccione el número del producto: " );
+        System.out.print( "Seleccione el número o el nombre del producto: " );
 
+        String entrada = scanner.nextLine( ).trim( );
         try
         {
-            int indice = Integer.parseInt( scanner.nextLine( ).trim( ) );
+            int indice = Integer.parseInt( entrada );
             if( indice < 1 || indice > menuBase.size( ) )
             {
                 System.out.println( "Selección inválida." );
@@ -225,8 +439,12 @@ public class AplicacionHamburguesas
         }
         catch( NumberFormatException e )
         {
-            System.out.println( "Debe ingresar un número válido." );
-            return null;
+            ProductoMenu producto = restaurante.buscarProductoMenu( entrada );
+            if( producto == null )
+            {
+                System.out.println( "No hay un producto con ese nombre." );
+            }
+            return producto;
         }
     }
 
@@ -244,11 +462,12 @@ public class AplicacionHamburguesas
             Combo combo = combos.get( i );
             System.out.printf( "%d. %s - $%d%n", i + 1, combo.getNombre( ), combo.getPrecio( ) );
         }
-        System.out.print( "Seleccione el número del combo: " );
+        System.out.print( "Seleccione el número o el nombre del combo: " );
 
+        String entrada = scanner.nextLine( ).trim( );
         try
         {
-            int indice = Integer.parseInt( scanner.nextLine( ).trim( ) );
+            int indice = Integer.parseInt( entrada );
             if( indice < 1 || indice > combos.size( ) )
             {
                 System.out.println( "Selección inválida." );
@@ -258,8 +477,12 @@ public class AplicacionHamburguesas
         }
         catch( NumberFormatException e )
         {
-            System.out.println( "Debe ingresar un número válido." );
-            return null;
+            Combo combo = restaurante.buscarCombo( entrada );
+            if( combo == null )
+            {
+                System.out.println( "No hay un combo con ese nombre." );
+            }
+            return combo;
         }
     }
 
@@ -325,11 +548,12 @@ public class AplicacionHamburguesas
             Ingrediente ingrediente = ingredientes.get( i );
             System.out.printf( "%d. %s - $%d%n", i + 1, ingrediente.getNombre( ), ingrediente.getCostoAdicional( ) );
         }
-        System.out.print( "Seleccione el número del ingrediente: " );
+        System.out.print( "Seleccione el número o el nombre del ingrediente: " );
 
+        String entrada = scanner.nextLine( ).trim( );
         try
         {
-            int indice = Integer.parseInt( scanner.nextLine( ).trim( ) );
+            int indice = Integer.parseInt( entrada );
             if( indice < 1 || indice > ingredientes.size( ) )
             {
                 System.out.println( "Selección inválida." );
@@ -339,11 +563,53 @@ public class AplicacionHamburguesas
         }
         catch( NumberFormatException e )
         {
-            System.out.println( "Debe ingresar un número válido." );
+            Ingrediente ingrediente = restaurante.buscarIngrediente( entrada );
+            if( ingrediente == null )
+            {
+                System.out.println( "No hay un ingrediente con ese nombre." );
+            }
+            return ingrediente;
+        }
+    }
+
+    /**
+     * Convierte el nombre de un formato de exportación, sin importar mayúsculas
+     * @return El formato o null si no existe
+     */
+    private static ExportadorFacturas.Formato leerFormato( String nombre )
+    {
+        try
+        {
+            return ExportadorFacturas.Formato.valueOf( nombre.trim( ).toUpperCase( Locale.ROOT ) );
+        }
+        catch( IllegalArgumentException e )
+        {
             return null;
         }
     }
 
+    private void exportarFacturas( )
+    {
+        System.out.print( "Formato (carpeta, concatenado o zip): " );
+        ExportadorFacturas.Formato formato = leerFormato( scanner.nextLine( ) );
+        if( formato == null )
+        {
+            System.out.println( "Formato no válido." );
+            return;
+        }
+        System.out.print( formato == ExportadorFacturas.Formato.CARPETA ? "Carpeta destino: " : "Archivo destino: " );
+        File destino = new File( scanner.nextLine( ).trim( ) );
+
+        try
+        {
+            System.out.println( new ExportadorFacturas( formato, destino, System.out ).exportar( restaurante.getPedidos( ) ) );
+        }
+        catch( IOException e )
+        {
+            System.out.println( "No fue posible exportar las facturas: " + e.getMessage( ) );
+        }
+    }
+
     private void cerrarPedido( )
     {
         Pedido pedido = restaurante.getPedidoEnCurso( );
@@ -357,7 +623,7 @@ public class AplicacionHamburguesas
         try
         {
             restaurante.cerrarYGuardarPedido( );
-            System.out.println( "Pedido cerrado. Factura guardada en facturas/factura_" + idPedido + ".txt" );
+            System.out.println( "Pedido cerrado. Factura del pedido " + idPedido + " guardada en " + restaurante.getUbicacionFactura( idPedido ) + "." );
             System.out.println( "Resumen del pedido:" );
             System.out.println( pedido.generarTextoFactura( ) );
         }
@@ -377,7 +643,7 @@ public class AplicacionHamburguesas
         try
         {
             int idPedido = Integer.parseInt( scanner.nextLine( ).trim( ) );
-            Pedido pedido = restaurante.buscarPedidoPorId( idPedido );
+            VistaPedido pedido = restaurante.buscarPedidoPorId( idPedido );
             if( pedido == null )
             {
                 System.out.println( "No existe un pedido con ese identificador." );
@@ -391,5 +657,9 @@ public class AplicacionHamburguesas
         {
             System.out.println( "Debe ingresar un número válido." );
         }
+        catch( IOException e )
+        {
+            System.out.println( "No fue posible leer la factura del pedido: " + e.getMessage( ) );
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package uniandes.dpoo.hamburguesas.consola;
+
+import java.io.File;
+import java.io.IOException;
+
+import uniandes.dpoo.hamburguesas.persistencia.BitacoraFacturas;
+
+/**
+ * Herramienta de línea de comandos para mantener una bitácora de facturas.
+ *
+ * Uso:
+ * 
+ * <pre>
+ * HerramientaBitacora compactar &lt;carpeta de segmentos&gt;
+ * HerramientaBitacora exportar &lt;carpeta de segmentos&gt; &lt;carpeta destino&gt;
+ * </pre>
+ * 
+ * 'exportar' escribe cada factura en su propio archivo factura_N.txt, el formato que se usa cuando no hay bitácora.
+ */
+public class HerramientaBitacora
+{
+    public static void main( String[] args )
+    {
+        if( args.length < 2 || ( "exportar".equals( args[ 0 ] ) && args.length < 3 ) )
+        {
+            System.out.println( "Uso: HerramientaBitacora compactar <carpeta de segmentos>" );
+            System.out.println( "     HerramientaBitacora exportar <carpeta de segmentos> <carpeta destino>" );
+            return;
+        }
+
+        try
+        {
+            BitacoraFacturas bitacora = new BitacoraFacturas( new File( args[ 1 ] ) );
+            switch( args[ 0 ] )
+            {
+                case "compactar":
+                    int segmentosAntes = bitacora.getCantidadSegmentos( );
+                    bitacora.compactar( );
+                    System.out.println( "Bitácora compactada: " + bitacora.getCantidad( ) + " facturas en " + bitacora.getCantidadSegmentos( )
+                            + " segmentos (antes " + segmentosAntes + ")." );
+                    break;
+                case "exportar":
+                    int exportadas = bitacora.exportarACarpeta( new File( args[ 2 ] ) );
+                    System.out.println( exportadas + " facturas exportadas a " + new File( args[ 2 ] ).getAbsolutePath( ) );
+                    break;
+                default:
+                    System.out.println( "Comando desconocido: " + args[ 0 ] );
+                    break;
+            }
+            bitacora.cerrar( );
+        }
+        catch( IOException e )
+        {
+            System.err.println( "No fue posible procesar la bitácora: " + e.getMessage( ) );
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package uniandes.dpoo.hamburguesas.consola;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.HashMap;
+
+import uniandes.dpoo.hamburguesas.excepciones.NoHayPedidoEnCursoException;
+import uniandes.dpoo.hamburguesas.metricas.HistogramaLatencias;
+import uniandes.dpoo.hamburguesas.mundo.Catalogo;
+import uniandes.dpoo.hamburguesas.mundo.Combo;
+import uniandes.dpoo.hamburguesas.mundo.Ingrediente;
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.Producto;
+import uniandes.dpoo.hamburguesas.mundo.ProductoAjustado;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+
+/**
+ * Ejecuta un guion de pedidos contra un restaurante, sin interacción, tan rápido como se pueda. Sirve para repetir los pedidos de un día en pruebas y
+ * para medir cuántos pedidos por segundo se pueden atender.
+ *
+ * El guion tiene un comando por línea, con los campos separados por ';' como en los archivos de datos. Las líneas vacías y las que empiezan con '#' se
+ * ignoran. Los comandos son:
+ * - abrir;ref;cliente;direccion: abre un pedido. ref es el nombre con el que el guion se refiere al pedido y se puede reutilizar cuando se cierra.
+ * - producto;ref;nombre[;+ingrediente|-ingrediente...]: agrega un producto del menú, ajustado si tiene ingredientes agregados (+) o quitados (-).
+ * - combo;ref;nombre: agrega un combo.
+ * - cerrar;ref: cierra el pedido y guarda su factura.
+ *
+ * Se pueden tener varios pedidos abiertos a la vez, intercalando sus comandos. Una línea con un error se reporta y se salta, sin detener el guion. Si
+ * no se pudo guardar la factura de un cierre, el pedido sigue abierto y un cierre posterior con la misma referencia lo vuelve a intentar.
+ */
+public class ReproductorPedidos
+{
+    /**
+     * El resultado de reproducir un guion
+     */
+    public static class Resultado
+    {
+        private long pedidosCerrados;
+
+        private long lineas;
+
+        private long errores;
+
+        private long nanos;
+
+        private HistogramaLatencias latenciasCierre = new HistogramaLatencias( );
+
+        public long getPedidosCerrados( )
+        {
+            return pedidosCerrados;
+        }
+
+        public long getLineas( )
+        {
+            return lineas;
+        }
+
+        public long getErrores( )
+        {
+            return errores;
+        }
+
+        /**
+         * Retorna los pedidos cerrados por segundo, contando desde la primera línea hasta que todas las facturas quedaron escritas
+         * @return
+         */
+        public double getPedidosPorSegundo( )
+        {
+            return nanos == 0 ? 0 : pedidosCerrados / ( nanos / 1e9 );
+        }
+
+        /**
+         * Retorna las latencias de cerrar cada pedido, en nanosegundos
+         * @return
+         */
+        public HistogramaLatencias getLatenciasCierre( )
+        {
+            return latenciasCierre;
+        }
+
+        /**
+         * Retorna el reporte del resultado en texto
+         */
+        @Override
+        public String toString( )
+        {
+            return String.format( "%d líneas, %d pedidos cerrados y %d errores en %.2f s%n%.0f pedidos/s; cierre p50=%d us p99=%d us max=%d us%n", lineas,
+                    pedidosCerrados, errores, nanos / 1e9, getPedidosPorSegundo( ), latenciasCierre.getPercentil( 50 ) / 1000, latenciasCierre
+                            .getPercentil( 99 ) / 1000, latenciasCierre.getMaximo( ) / 1000 );
+        }
+    }
+
+    private Restaurante restaurante;
+
+    private PrintStream salida;
+
+    /**
+     * Los pedidos abiertos por el guion, por su referencia
+     */
+    private HashMap<String, Pedido> abiertos;
+
+    /**
+     * Crea un reproductor
+     * @param restaurante El restaurante que atiende los pedidos, con el catálogo ya cargado
+     * @param salida Donde se reportan los errores del guion
+     */
+    public ReproductorPedidos( Restaurante restaurante, PrintStream salida )
+    {
+        this.restaurante = restaurante;
+        this.salida = salida;
+        abiertos = new HashMap<String, Pedido>( );
+    }
+
+    /**
+     * Ejecuta todas las líneas de un guion y espera a que las facturas queden escritas
+     * @param guion El guion
+     * @return El resultado de la ejecución
+     * @throws IOException Se lanza si no se puede leer el guion o si las facturas pendientes no se pudieron escribir al terminar
+     */
+    public Resultado reproducir( BufferedReader guion ) throws IOException
+    {
+        Resultado resultado = new Resultado( );
+        long inicio = System.nanoTime( );
+        String linea = guion.readLine( );
+        while( linea != null )
+        {
+            resultado.lineas++;
+            if( !linea.isBlank( ) && !linea.startsWith( "#" ) )
+            {
+                try
+                {
+                    ejecutar( linea.split( ";" ), resultado );
+                }
+                catch( IllegalArgumentException | NoHayPedidoEnCursoException | IOException e )
+                {
+                    resultado.errores++;
+                    salida.println( "Línea " + resultado.lineas + ": " + e.getMessage( ) );
+                }
+            }
+            linea = guion.readLine( );
+        }
+        restaurante.vaciarFacturas( );
+        resultado.nanos = System.nanoTime( ) - inicio;
+
+        for( String referencia : abiertos.keySet( ) )
+            salida.println( "El pedido " + referencia + " quedó abierto al terminar el guion" );
+        return resultado;
+    }
+
+    private void ejecutar( String[] campos, Resultado resultado ) throws IOException, NoHayPedidoEnCursoException
+    {
+        if( campos.length < 2 )
+            throw new IllegalArgumentException( "Falta la referencia del pedido" );
+
+        String comando = campos[ 0 ].trim( );
+        String referencia = campos[ 1 ];
+        switch( comando )
+        {
+            case "abrir":
+                if( campos.length < 4 )
+                    throw new IllegalArgumentException( "abrir necesita cliente y dirección" );
+                if( abiertos.containsKey( referencia ) )
+                    throw new IllegalArgumentException( "El pedido " + referencia + " ya está abierto" );
+                abiertos.put( referencia, restaurante.abrirPedido( campos[ 2 ], campos[ 3 ] ) );
+                break;
+            case "producto":
+                buscar( referencia ).agregarProducto( crearProducto( campos ) );
+                break;
+            case "combo":
+                if( campos.length < 3 )
+                    throw new IllegalArgumentException( "combo necesita el nombre del combo" );
+                Combo combo = restaurante.buscarCombo( campos[ 2 ] );
+                if( combo == null )
+                    throw new IllegalArgumentException( "No existe el combo " + campos[ 2 ] );
+                buscar( referencia ).agregarProducto( combo );
+                break;
+            case "cerrar":
+                Pedido pedido = buscar( referencia );
+                long inicio = System.nanoTime( );
+                restaurante.cerrarYGuardarPedido( pedido.getIdPedido( ) );
+                resultado.latenciasCierre.registrar( System.nanoTime( ) - inicio );
+                abiertos.remove( referencia );
+                resultado.pedidosCerrados++;
+                break;
+            default:
+                throw new IllegalArgumentException( "Comando desconocido: " + comando );
+        }
+    }
+
+    private Pedido buscar( String referencia )
+    {
+        Pedido pedido = abiertos.get( referencia );
+        if( pedido == null )
+            throw new IllegalArgumentException( "No hay un pedido abierto con la referencia " + referencia );
+        return pedido;
+    }
+
+    private ProductoMenu crearBase( Catalogo catalogo, String nombre )
+    {
+        ProductoMenu base = catalogo.buscarProductoMenu( nombre );
+        if( base == null )
+            throw new IllegalArgumentException( "No existe el producto " + nombre );
+        return base;
+    }
+
+    /**
+     * Crea el producto de un comando producto, ajustado si tiene ingredientes
+     */
+    private Producto crearProducto( String[] campos )
+    {
+        if( campos.length < 3 )
+            throw new IllegalArgumentException( "producto necesita el nombre del producto" );
+
+        Catalogo catalogo = restaurante.getCatalogo( );
+        ProductoMenu base = crearBase( catalogo, campos[ 2 ] );
+        if( campos.length == 3 )
+            return base;
+
+        ProductoAjustado ajustado = new ProductoAjustado( base );
+        for( int i = 3; i < campos.length; i++ )
+        {
+            String campo = campos[ i ];
+            Ingrediente ingrediente = campo.length( ) > 1 ? catalogo.buscarIngrediente( campo.substring( 1 ) ) : null;
+            if( ingrediente == null || ( campo.charAt( 0 ) != '+' && campo.charAt( 0 ) != '-' ) )
+                throw new IllegalArgumentException( "Ajuste inválido: " + campo );
+            if( campo.charAt( 0 ) == '+' )
+                ajustado.agregarIngrediente( ingrediente );
+            else
+                ajustado.eliminarIngrediente( ingrediente );
+        }
+        return ajustado;
+    }
+}
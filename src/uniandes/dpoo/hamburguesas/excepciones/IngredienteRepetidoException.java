@@ -11,6 +11,11 @@ public class IngredienteRepetidoException extends HamburguesaException
      */
     private String nombreIngrediente;
 
+    /**
+     * La línea del archivo donde se encontró el problema, o 0 si no se conoce
+     */
+    private int linea;
+
     /**
      * Construye la excepción registrando el nombre del ingrediente
      * 
@@ -21,9 +26,30 @@ public class IngredienteRepetidoException extends HamburguesaException
         this.nombreIngrediente = nombreIngrediente;
     }
 
+    /**
+     * Construye la excepción registrando el nombre del ingrediente y la línea del archivo donde se encontró el problema
+     * @param nombreIngrediente El ingrediente repetido
+     * @param linea La línea del archivo, contando desde 1
+     */
+    public IngredienteRepetidoException( String nombreIngrediente, int linea )
+    {
+        this( nombreIngrediente );
+        this.linea = linea;
+    }
+
+    /**
+     * Retorna la línea del archivo donde se encontró el problema
+     * @return La línea, contando desde 1, o 0 si no se conoce
+     */
+    public int getLinea( )
+    {
+        return linea;
+    }
+
     @Override
     public String getMessage( )
     {
-        return "El ingrediente " + nombreIngrediente + " está repetido";
+        String mensaje = "El ingrediente " + nombreIngrediente + " está repetido";
+        return linea > 0 ? mensaje + " (línea " + linea + ")" : mensaje;
     }
 }
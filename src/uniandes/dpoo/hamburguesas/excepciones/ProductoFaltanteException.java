@@ -11,6 +11,11 @@ public class ProductoFaltanteException extends HamburguesaException
      */
     private String nombreProducto;
 
+    /**
+     * La línea del archivo donde se encontró el problema, o 0 si no se conoce
+     */
+    private int linea;
+
     /**
      * Construye la excepción registrando el nombre del producto
      * @param nombreProducto El producto faltante
@@ -20,9 +25,30 @@ public class ProductoFaltanteException extends HamburguesaException
         this.nombreProducto = nombreProducto;
     }
 
+    /**
+     * Construye la excepción registrando el nombre del producto y la línea del archivo donde se encontró el problema
+     * @param nombreProducto El producto faltante
+     * @param linea La línea del archivo, contando desde 1
+     */
+    public ProductoFaltanteException( String nombreProducto, int linea )
+    {
+        this( nombreProducto );
+        this.linea = linea;
+    }
+
+    /**
+     * Retorna la línea del archivo donde se encontró el problema
+     * @return La línea, contando desde 1, o 0 si no se conoce
+     */
+    public int getLinea( )
+    {
+        return linea;
+    }
+
     @Override
     public String getMessage( )
     {
-        return "El producto " + nombreProducto + " no aparece en la información del restaurante";
+        String mensaje = "El producto " + nombreProducto + " no aparece en la información del restaurante";
+        return linea > 0 ? mensaje + " (línea " + linea + ")" : mensaje;
     }
 }
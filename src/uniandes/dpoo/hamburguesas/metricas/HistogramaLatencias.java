@@ -0,0 +1,160 @@
+package uniandes.dpoo.hamburguesas.metricas;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Un histograma de latencias en nanosegundos que se puede actualizar desde muchos hilos sin candados.
+ *
+ * Los rangos siguen la idea de HdrHistogram: los valores menores que SUBRANGOS tienen un rango cada uno, y cada potencia de dos por encima se divide en
+ * SUBRANGOS / 2 rangos del mismo tamaño. Así el error relativo de cualquier percentil es menor que 2 / SUBRANGOS (un 6%) y el histograma ocupa un
+ * arreglo fijo, sin importar si las latencias son de nanosegundos o de minutos. Registrar un valor es calcular su rango con unas pocas operaciones de
+ * bits e incrementar un contador atómico.
+ */
+public class HistogramaLatencias
+{
+    /**
+     * La cantidad de bits de precisión de cada valor
+     */
+    private static final int BITS_SUBRANGO = 5;
+
+    /**
+     * La cantidad de rangos de los valores pequeños
+     */
+    private static final int SUBRANGOS = 1 << BITS_SUBRANGO;
+
+    /**
+     * La cantidad de rangos en que se divide cada potencia de dos
+     */
+    private static final int MEDIO = SUBRANGOS / 2;
+
+    /**
+     * La cantidad total de rangos, suficiente para cualquier long positivo
+     */
+    private static final int RANGOS = ( 64 - BITS_SUBRANGO ) * MEDIO + SUBRANGOS;
+
+    private final AtomicLongArray conteos;
+
+    private final LongAdder cantidad;
+
+    private final LongAdder suma;
+
+    private final LongAccumulator maximo;
+
+    /**
+     * Crea un histograma vacío
+     */
+    public HistogramaLatencias( )
+    {
+        conteos = new AtomicLongArray( RANGOS );
+        cantidad = new LongAdder( );
+        suma = new LongAdder( );
+        maximo = new LongAccumulator( Math::max, 0 );
+    }
+
+    /**
+     * Registra una latencia. Los valores negativos se registran como 0.
+     * @param nanos La latencia en nanosegundos
+     */
+    public void registrar( long nanos )
+    {
+        long valor = Math.max( nanos, 0 );
+        conteos.getAndIncrement( rango( valor ) );
+        cantidad.increment( );
+        suma.add( valor );
+        maximo.accumulate( valor );
+    }
+
+    /**
+     * Retorna el rango donde se cuenta un valor
+     */
+    static int rango( long valor )
+    {
+        if( valor < SUBRANGOS )
+            return ( int )valor;
+        int desplazamiento = 63 - Long.numberOfLeadingZeros( valor ) - ( BITS_SUBRANGO - 1 );
+        return desplazamiento * MEDIO + ( int )( valor >>> desplazamiento );
+    }
+
+    /**
+     * Retorna el mayor valor que se cuenta en un rango
+     */
+    static long limiteSuperior( int rango )
+    {
+        if( rango < SUBRANGOS )
+            return rango;
+        int desplazamiento = rango / MEDIO - 1;
+        long mantisa = rango % MEDIO + MEDIO;
+        return ( ( mantisa + 1 ) << desplazamiento ) - 1;
+    }
+
+    /**
+     * Retorna la cantidad de latencias registradas
+     * @return
+     */
+    public long getCantidad( )
+    {
+        return cantidad.sum( );
+    }
+
+    /**
+     * Retorna el promedio de las latencias registradas
+     * @return El promedio en nanosegundos, o 0 si no hay latencias
+     */
+    public double getPromedio( )
+    {
+        long n = cantidad.sum( );
+        return n == 0 ? 0 : ( double )suma.sum( ) / n;
+    }
+
+    /**
+     * Retorna la mayor latencia registrada
+     * @return La latencia en nanosegundos, o 0 si no hay latencias
+     */
+    public long getMaximo( )
+    {
+        return maximo.get( );
+    }
+
+    /**
+     * Calcula un percentil de las latencias registradas. Como los hilos pueden seguir registrando mientras tanto, el resultado corresponde a un momento
+     * aproximado.
+     * @param percentil El percentil, entre 0 y 100
+     * @return El mayor valor del rango donde cae el percentil, sin pasar del máximo, o 0 si no hay latencias
+     */
+    public long getPercentil( double percentil )
+    {
+        long[] copia = new long[RANGOS];
+        long total = 0;
+        for( int i = 0; i < RANGOS; i++ )
+        {
+            copia[ i ] = conteos.get( i );
+            total += copia[ i ];
+        }
+        if( total == 0 )
+            return 0;
+
+        long objetivo = Math.max( 1, ( long )Math.ceil( total * percentil / 100 ) );
+        long acumulado = 0;
+        for( int i = 0; i < RANGOS; i++ )
+        {
+            acumulado += copia[ i ];
+            if( acumulado >= objetivo )
+                return Math.min( limiteSuperior( i ), getMaximo( ) );
+        }
+        return getMaximo( );
+    }
+
+    /**
+     * Borra todas las latencias registradas. Las que se registren mientras se borra pueden quedar o no.
+     */
+    public void reiniciar( )
+    {
+        for( int i = 0; i < RANGOS; i++ )
+            conteos.set( i, 0 );
+        cantidad.reset( );
+        suma.reset( );
+        maximo.reset( );
+    }
+}
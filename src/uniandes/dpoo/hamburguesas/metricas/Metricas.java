@@ -0,0 +1,277 @@
+package uniandes.dpoo.hamburguesas.metricas;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Los contadores y las latencias de la atención de pedidos, para saber cuántos pedidos se están atendiendo y cuánto tarda cada paso.
+ *
+ * Hay una sola instancia por proceso, que se obtiene con getInstancia, porque los pedidos registran sus productos sin conocer al restaurante. Registrar
+ * no toma candados: los contadores son LongAdder y las latencias van a histogramas con contadores atómicos, así que los hilos que atienden pedidos no
+ * se bloquean entre sí por medir. Las métricas se pueden leer por JMX, con el nombre NOMBRE_JMX, o como texto con getResumen.
+ */
+public class Metricas implements MetricasMBean
+{
+    /**
+     * El nombre con el que se registran las métricas en el servidor de JMX de la plataforma
+     */
+    public static final String NOMBRE_JMX = "uniandes.dpoo.hamburguesas:type=Metricas";
+
+    private static final Metricas INSTANCIA = new Metricas( );
+
+    private final LongAdder pedidosIniciados = new LongAdder( );
+
+    private final LongAdder productosAgregados = new LongAdder( );
+
+    private final LongAdder pedidosCerrados = new LongAdder( );
+
+    private final LongAdder facturasEscritas = new LongAdder( );
+
+    private final LongAdder erroresFacturas = new LongAdder( );
+
+    private final HistogramaLatencias iniciarPedido = new HistogramaLatencias( );
+
+    private final HistogramaLatencias cerrarPedido = new HistogramaLatencias( );
+
+    /**
+     * Las latencias de escribir cada lote de facturas en el almacén, incluyendo la sincronización con el disco
+     */
+    private final HistogramaLatencias escrituraFacturas = new HistogramaLatencias( );
+
+    private Metricas( )
+    {
+    }
+
+    /**
+     * Retorna las métricas del proceso
+     * @return
+     */
+    public static Metricas getInstancia( )
+    {
+        return INSTANCIA;
+    }
+
+    /**
+     * Registra las métricas en el servidor de JMX de la plataforma. Si ya estaban registradas no hace nada.
+     * @throws JMException Se lanza si no se pudieron registrar
+     */
+    public static void registrarJmx( ) throws JMException
+    {
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer( );
+        try
+        {
+            servidor.registerMBean( INSTANCIA, new ObjectName( NOMBRE_JMX ) );
+        }
+        catch( InstanceAlreadyExistsException e )
+        {
+            // Ya estaban registradas
+        }
+    }
+
+    /**
+     * Registra que se abrió un pedido
+     * @param nanos Lo que tardó abrirlo
+     */
+    public void registrarInicioPedido( long nanos )
+    {
+        pedidosIniciados.increment( );
+        iniciarPedido.registrar( nanos );
+    }
+
+    /**
+     * Registra que se agregó un producto a un pedido. Agregar un producto tarda unos pocos nanosegundos, menos que medir el tiempo, así que sólo se
+     * cuenta.
+     */
+    public void registrarProductoAgregado( )
+    {
+        productosAgregados.increment( );
+    }
+
+    /**
+     * Registra que se cerró un pedido
+     * @param nanos Lo que tardó cerrarlo, incluyendo la espera si la cola de facturas estaba llena
+     */
+    public void registrarCierrePedido( long nanos )
+    {
+        pedidosCerrados.increment( );
+        cerrarPedido.registrar( nanos );
+    }
+
+    /**
+     * Registra que se escribió un lote de facturas en el almacén
+     * @param facturas La cantidad de facturas del lote
+     * @param nanos Lo que tardó escribir y sincronizar el lote
+     */
+    public void registrarEscrituraFacturas( int facturas, long nanos )
+    {
+        facturasEscritas.add( facturas );
+        escrituraFacturas.registrar( nanos );
+    }
+
+    /**
+     * Registra que falló la escritura de un lote de facturas
+     */
+    public void registrarErrorFacturas( )
+    {
+        erroresFacturas.increment( );
+    }
+
+    /**
+     * Retorna las latencias de abrir un pedido
+     * @return
+     */
+    public HistogramaLatencias getLatenciasIniciarPedido( )
+    {
+        return iniciarPedido;
+    }
+
+    /**
+     * Retorna las latencias de cerrar un pedido
+     * @return
+     */
+    public HistogramaLatencias getLatenciasCerrarPedido( )
+    {
+        return cerrarPedido;
+    }
+
+    /**
+     * Retorna las latencias de escribir cada lote de facturas
+     * @return
+     */
+    public HistogramaLatencias getLatenciasEscrituraFacturas( )
+    {
+        return escrituraFacturas;
+    }
+
+    @Override
+    public long getPedidosIniciados( )
+    {
+        return pedidosIniciados.sum( );
+    }
+
+    @Override
+    public long getProductosAgregados( )
+    {
+        return productosAgregados.sum( );
+    }
+
+    @Override
+    public long getPedidosCerrados( )
+    {
+        return pedidosCerrados.sum( );
+    }
+
+    @Override
+    public long getFacturasEscritas( )
+    {
+        return facturasEscritas.sum( );
+    }
+
+    @Override
+    public long getErroresFacturas( )
+    {
+        return erroresFacturas.sum( );
+    }
+
+    @Override
+    public long getIniciarPedidoP50Micros( )
+    {
+        return iniciarPedido.getPercentil( 50 ) / 1000;
+    }
+
+    @Override
+    public long getIniciarPedidoP99Micros( )
+    {
+        return iniciarPedido.getPercentil( 99 ) / 1000;
+    }
+
+    @Override
+    public long getCerrarPedidoP50Micros( )
+    {
+        return cerrarPedido.getPercentil( 50 ) / 1000;
+    }
+
+    @Override
+    public long getCerrarPedidoP99Micros( )
+    {
+        return cerrarPedido.getPercentil( 99 ) / 1000;
+    }
+
+    @Override
+    public long getCerrarPedidoP999Micros( )
+    {
+        return cerrarPedido.getPercentil( 99.9 ) / 1000;
+    }
+
+    @Override
+    public long getCerrarPedidoMaximoMicros( )
+    {
+        return cerrarPedido.getMaximo( ) / 1000;
+    }
+
+    @Override
+    public long getEscrituraFacturasP50Micros( )
+    {
+        return escrituraFacturas.getPercentil( 50 ) / 1000;
+    }
+
+    @Override
+    public long getEscrituraFacturasP99Micros( )
+    {
+        return escrituraFacturas.getPercentil( 99 ) / 1000;
+    }
+
+    @Override
+    public long getEscrituraFacturasMaximoMicros( )
+    {
+        return escrituraFacturas.getMaximo( ) / 1000;
+    }
+
+    /**
+     * Retorna un resumen de las métricas en texto, con una línea por contador y por latencia
+     */
+    @Override
+    public String getResumen( )
+    {
+        StringBuilder sb = new StringBuilder( );
+        sb.append( "pedidos iniciados:   " ).append( getPedidosIniciados( ) ).append( '\n' );
+        sb.append( "productos agregados: " ).append( getProductosAgregados( ) ).append( '\n' );
+        sb.append( "pedidos cerrados:    " ).append( getPedidosCerrados( ) ).append( '\n' );
+        sb.append( "facturas escritas:   " ).append( getFacturasEscritas( ) ).append( '\n' );
+        sb.append( "errores de facturas: " ).append( getErroresFacturas( ) ).append( '\n' );
+        resumir( sb, "iniciarPedido", iniciarPedido );
+        resumir( sb, "cerrarPedido", cerrarPedido );
+        resumir( sb, "escrituraFacturas", escrituraFacturas );
+        return sb.toString( );
+    }
+
+    private static void resumir( StringBuilder sb, String nombre, HistogramaLatencias latencias )
+    {
+        sb.append( nombre ).append( " (us): n=" ).append( latencias.getCantidad( ) );
+        sb.append( " p50=" ).append( latencias.getPercentil( 50 ) / 1000 );
+        sb.append( " p99=" ).append( latencias.getPercentil( 99 ) / 1000 );
+        sb.append( " p99.9=" ).append( latencias.getPercentil( 99.9 ) / 1000 );
+        sb.append( " max=" ).append( latencias.getMaximo( ) / 1000 ).append( '\n' );
+    }
+
+    /**
+     * Pone en cero todos los contadores y borra todas las latencias
+     */
+    @Override
+    public void reiniciar( )
+    {
+        pedidosIniciados.reset( );
+        productosAgregados.reset( );
+        pedidosCerrados.reset( );
+        facturasEscritas.reset( );
+        erroresFacturas.reset( );
+        iniciarPedido.reiniciar( );
+        cerrarPedido.reiniciar( );
+        escrituraFacturas.reiniciar( );
+    }
+}
@@ -0,0 +1,39 @@
+package uniandes.dpoo.hamburguesas.metricas;
+
+/**
+ * La interfaz con la que las métricas del restaurante se publican por JMX. Las latencias se reportan en microsegundos.
+ */
+public interface MetricasMBean
+{
+    long getPedidosIniciados( );
+
+    long getProductosAgregados( );
+
+    long getPedidosCerrados( );
+
+    long getFacturasEscritas( );
+
+    long getErroresFacturas( );
+
+    long getIniciarPedidoP50Micros( );
+
+    long getIniciarPedidoP99Micros( );
+
+    long getCerrarPedidoP50Micros( );
+
+    long getCerrarPedidoP99Micros( );
+
+    long getCerrarPedidoP999Micros( );
+
+    long getCerrarPedidoMaximoMicros( );
+
+    long getEscrituraFacturasP50Micros( );
+
+    long getEscrituraFacturasP99Micros( );
+
+    long getEscrituraFacturasMaximoMicros( );
+
+    String getResumen( );
+
+    void reiniciar( );
+}
@@ -0,0 +1,104 @@
+package uniandes.dpoo.hamburguesas.metricas;
+
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escribe periódicamente el resumen de las métricas en un flujo de texto, junto con cuántos pedidos por segundo se cerraron desde el volcado anterior.
+ *
+ * Los volcados corren en un hilo aparte, así que no afectan a los hilos que atienden pedidos más allá de leer los contadores.
+ */
+public class VolcadorMetricas
+{
+    private static final DateTimeFormatter FORMATO_HORA = DateTimeFormatter.ofPattern( "yyyy-MM-dd HH:mm:ss" );
+
+    private Metricas metricas;
+
+    private PrintStream destino;
+
+    private long periodoMs;
+
+    private ScheduledExecutorService programador;
+
+    private long cerradosAnteriores;
+
+    private long instanteAnterior;
+
+    /**
+     * Crea un volcador que no escribe nada hasta que se llame a iniciar
+     * @param metricas Las métricas que se vuelcan
+     * @param destino El flujo donde se escriben los volcados
+     * @param periodoMs El tiempo entre un volcado y el siguiente, en milisegundos
+     */
+    public VolcadorMetricas( Metricas metricas, PrintStream destino, long periodoMs )
+    {
+        this.metricas = metricas;
+        this.destino = destino;
+        this.periodoMs = periodoMs;
+    }
+
+    /**
+     * Empieza a escribir los volcados
+     */
+    public synchronized void iniciar( )
+    {
+        if( programador != null )
+            return;
+
+        cerradosAnteriores = metricas.getPedidosCerrados( );
+        instanteAnterior = System.nanoTime( );
+        programador = Executors.newSingleThreadScheduledExecutor( tarea -> {
+            Thread hilo = new Thread( tarea, "volcado-metricas" );
+            hilo.setDaemon( true );
+            return hilo;
+        } );
+        programador.scheduleAtFixedRate( this::volcar, periodoMs, periodoMs, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Escribe un volcado ahora
+     */
+    public synchronized void volcar( )
+    {
+        long cerrados = metricas.getPedidosCerrados( );
+        long instante = System.nanoTime( );
+        double segundos = ( instante - instanteAnterior ) / 1e9;
+        double porSegundo = segundos > 0 ? ( cerrados - cerradosAnteriores ) / segundos : 0;
+        cerradosAnteriores = cerrados;
+        instanteAnterior = instante;
+
+        destino.print( "== métricas " + LocalDateTime.now( ).format( FORMATO_HORA ) + String.format( " (%.1f pedidos/s)%n", porSegundo ) + metricas
+                .getResumen( ) );
+        destino.flush( );
+    }
+
+    /**
+     * Deja de escribir volcados, escribiendo uno último
+     */
+    public void cerrar( )
+    {
+        ScheduledExecutorService actual;
+        synchronized( this )
+        {
+            actual = programador;
+            programador = null;
+        }
+        if( actual == null )
+            return;
+
+        actual.shutdown( );
+        try
+        {
+            actual.awaitTermination( 5, TimeUnit.SECONDS );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+        volcar( );
+    }
+}
@@ -0,0 +1,199 @@
+package uniandes.dpoo.hamburguesas.mundo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import uniandes.dpoo.hamburguesas.excepciones.IngredienteRepetidoException;
+import uniandes.dpoo.hamburguesas.excepciones.ProductoRepetidoException;
+
+/**
+ * El catálogo del restaurante: los ingredientes, los productos del menú y los combos.
+ *
+ * Además de las listas en el orden en que se cargaron, el catálogo mantiene un índice por nombre para cada tipo de elemento. Los índices se llenan a
+ * medida que se agregan los elementos, así que detectar repetidos y buscar por nombre no requiere recorrer las listas.
+ *
+ * Un catálogo se llena mientras se carga y después el restaurante lo publica con un número de versión. Un catálogo publicado ya no cambia: para
+ * cambiar el menú se carga un catálogo nuevo y se publica en su lugar. Por eso cualquier hilo puede leer un catálogo publicado sin sincronización, y
+ * los pedidos conservan los productos del catálogo con el que se armaron aunque después se publique otro.
+ */
+public class Catalogo
+{
+    /**
+     * Los ingredientes en el orden en que se agregaron
+     */
+    private ArrayList<Ingrediente> ingredientes;
+
+    /**
+     * Los productos del menú en el orden en que se agregaron
+     */
+    private ArrayList<ProductoMenu> menuBase;
+
+    /**
+     * Los combos en el orden en que se agregaron
+     */
+    private ArrayList<Combo> menuCombos;
+
+    /**
+     * Los ingredientes indexados por nombre
+     */
+    private HashMap<String, Ingrediente> ingredientesPorNombre;
+
+    /**
+     * Los productos del menú indexados por nombre
+     */
+    private HashMap<String, ProductoMenu> productosPorNombre;
+
+    /**
+     * Los combos indexados por nombre
+     */
+    private HashMap<String, Combo> combosPorNombre;
+
+    /**
+     * La versión con la que se publicó el catálogo, o 0 si no se ha publicado
+     */
+    private long version;
+
+    /**
+     * Indica si el catálogo ya se publicó, en cuyo caso no se le pueden agregar elementos
+     */
+    private boolean publicado;
+
+    /**
+     * Crea un catálogo vacío
+     */
+    public Catalogo( )
+    {
+        ingredientes = new ArrayList<Ingrediente>( );
+        menuBase = new ArrayList<ProductoMenu>( );
+        menuCombos = new ArrayList<Combo>( );
+        ingredientesPorNombre = new HashMap<String, Ingrediente>( );
+        productosPorNombre = new HashMap<String, ProductoMenu>( );
+        combosPorNombre = new HashMap<String, Combo>( );
+    }
+
+    /**
+     * Agrega un ingrediente al catálogo
+     * @param ingrediente El nuevo ingrediente
+     * @throws IngredienteRepetidoException Se lanza esta excepción si ya había un ingrediente con el mismo nombre
+     */
+    public void agregarIngrediente( Ingrediente ingrediente ) throws IngredienteRepetidoException
+    {
+        verificarNoPublicado( );
+        if( ingredientesPorNombre.putIfAbsent( ingrediente.getNombre( ), ingrediente ) != null )
+            throw new IngredienteRepetidoException( ingrediente.getNombre( ) );
+
+        ingredientes.add( ingrediente );
+    }
+
+    /**
+     * Agrega un producto al menú
+     * @param producto El nuevo producto
+     * @throws ProductoRepetidoException Se lanza esta excepción si ya había un producto con el mismo nombre
+     */
+    public void agregarProductoMenu( ProductoMenu producto ) throws ProductoRepetidoException
+    {
+        verificarNoPublicado( );
+        if( productosPorNombre.putIfAbsent( producto.getNombre( ), producto ) != null )
+            throw new ProductoRepetidoException( producto.getNombre( ) );
+
+        menuBase.add( producto );
+    }
+
+    /**
+     * Agrega un combo al catálogo
+     * @param combo El nuevo combo
+     * @throws ProductoRepetidoException Se lanza esta excepción si ya había un combo con el mismo nombre
+     */
+    public void agregarCombo( Combo combo ) throws ProductoRepetidoException
+    {
+        verificarNoPublicado( );
+        if( combosPorNombre.putIfAbsent( combo.getNombre( ), combo ) != null )
+            throw new ProductoRepetidoException( combo.getNombre( ) );
+
+        menuCombos.add( combo );
+    }
+
+    /**
+     * Marca el catálogo como publicado con la versión indicada. A partir de este momento el catálogo no se puede modificar.
+     * @param version El número de versión del catálogo
+     */
+    void publicar( long version )
+    {
+        this.version = version;
+        this.publicado = true;
+    }
+
+    /**
+     * Retorna la versión con la que se publicó el catálogo
+     * @return La versión, o 0 si el catálogo no se ha publicado
+     */
+    public long getVersion( )
+    {
+        return version;
+    }
+
+    private void verificarNoPublicado( )
+    {
+        if( publicado )
+            throw new IllegalStateException( "El catálogo ya se publicó y no se puede modificar" );
+    }
+
+    /**
+     * Busca un ingrediente por su nombre
+     * @param nombre El nombre del ingrediente
+     * @return El ingrediente o null si no existe
+     */
+    public Ingrediente buscarIngrediente( String nombre )
+    {
+        return ingredientesPorNombre.get( nombre );
+    }
+
+    /**
+     * Busca un producto del menú por su nombre
+     * @param nombre El nombre del producto
+     * @return El producto o null si no existe
+     */
+    public ProductoMenu buscarProductoMenu( String nombre )
+    {
+        return productosPorNombre.get( nombre );
+    }
+
+    /**
+     * Busca un combo por su nombre
+     * @param nombre El nombre del combo
+     * @return El combo o null si no existe
+     */
+    public Combo buscarCombo( String nombre )
+    {
+        return combosPorNombre.get( nombre );
+    }
+
+    /**
+     * Retorna la lista de ingredientes
+     * @return Una lista que no se puede modificar
+     */
+    public List<Ingrediente> getIngredientes( )
+    {
+        return Collections.unmodifiableList( ingredientes );
+    }
+
+    /**
+     * Retorna la lista de productos del menú
+     * @return Una lista que no se puede modificar
+     */
+    public List<ProductoMenu> getMenuBase( )
+    {
+        return Collections.unmodifiableList( menuBase );
+    }
+
+    /**
+     * Retorna la lista de combos
+     * @return Una lista que no se puede modificar
+     */
+    public List<Combo> getMenuCombos( )
+    {
+        return Collections.unmodifiableList( menuCombos );
+    }
+}
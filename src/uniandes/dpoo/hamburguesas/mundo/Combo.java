@@ -1,6 +1,9 @@
 package uniandes.dpoo.hamburguesas.mundo;
 
+import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * La clase utilizada para organizar la información de un combo
@@ -22,6 +25,12 @@ public class Combo implements Producto
      */
     private String nombreCombo;
 
+    /**
+     * El precio del combo con el descuento aplicado. Se calcula una sola vez al construir el combo, porque sus productos no cambian: los productos del
+     * menú son inmutables y un cambio de precios publica un catálogo nuevo, con combos nuevos.
+     */
+    private int precio;
+
     /**
      * Construye un nuevo combo
      * @param nombre El nombre del combo
@@ -33,6 +42,7 @@ public class Combo implements Producto
         this.itemsCombo = new ArrayList<>( items );
         this.nombreCombo = nombre;
         this.descuento = descuento;
+        this.precio = calcularPrecio( );
     }
 
     @Override
@@ -41,6 +51,24 @@ public class Combo implements Producto
         return nombreCombo;
     }
 
+    /**
+     * Retorna el descuento del combo
+     * @return Un número entre 0 y 1
+     */
+    public double getDescuento( )
+    {
+        return descuento;
+    }
+
+    /**
+     * Retorna los productos que hacen parte del combo
+     * @return Una lista que no se puede modificar
+     */
+    public List<ProductoMenu> getItemsCombo( )
+    {
+        return Collections.unmodifiableList( itemsCombo );
+    }
+
     /**
      * Retorna el precio del combo.
      * 
@@ -49,13 +77,25 @@ public class Combo implements Producto
     @Override
     public int getPrecio( )
     {
-        double precio = 0;
+        return precio;
+    }
+
+    /**
+     * Suma los precios de los productos del combo y le aplica el descuento en puntos básicos, truncando la fracción de peso que sobra. El descuento
+     * se redondea al punto básico más cercano, que alcanza para los porcentajes con dos decimales del archivo de combos.
+     * @return
+     * @throws ArithmeticException Se lanza si la suma de los precios no cabe en un int
+     */
+    private int calcularPrecio( )
+    {
+        int suma = 0;
         for( Producto i : itemsCombo )
         {
-            precio += i.getPrecio( );
+            suma = Math.addExact( suma, i.getPrecio( ) );
         }
 
-        return ( int ) ( precio * (1 - descuento ));
+        int puntosDescuento = ( int )Math.round( descuento * Dinero.PUNTOS_BASICOS );
+        return ( int )Dinero.aplicarTasa( suma, ( int )Dinero.PUNTOS_BASICOS - puntosDescuento, RoundingMode.DOWN );
     }
 
     /**
@@ -66,12 +106,17 @@ public class Combo implements Producto
     @Override
     public String generarTextoFactura( )
     {
-        StringBuffer sb = new StringBuffer( );
-        sb.append( "Combo " + nombreCombo + "\n" );
-        sb.append( " Descuento: " + descuento + "\n" );
-        sb.append( "            " + getPrecio( ) + "\n" );
-
+        StringBuilder sb = new StringBuilder( );
+        escribirFactura( sb );
         return sb.toString( );
     }
 
+    @Override
+    public void escribirFactura( StringBuilder destino )
+    {
+        destino.append( "Combo " ).append( nombreCombo ).append( '\n' );
+        destino.append( " Descuento: " ).append( descuento ).append( '\n' );
+        destino.append( "            " ).append( precio ).append( '\n' );
+    }
+
 }
@@ -0,0 +1,96 @@
+package uniandes.dpoo.hamburguesas.mundo;
+
+import java.math.RoundingMode;
+
+/**
+ * Cuentas de dinero en punto fijo: los valores son enteros, en pesos o en centavos, y las tasas se expresan en puntos básicos.
+ *
+ * Las operaciones que pueden dejar fracciones, como aplicar una tasa, reciben siempre la forma de redondear, así que ningún cálculo trunca sin que se
+ * vea en el código. Las multiplicaciones que pueden desbordarse lanzan ArithmeticException en lugar de dar un valor equivocado.
+ */
+public final class Dinero
+{
+    /**
+     * La cantidad de puntos básicos que equivalen al 100%
+     */
+    public static final long PUNTOS_BASICOS = 10000;
+
+    private Dinero( )
+    {
+    }
+
+    /**
+     * Calcula la parte de un valor entero que corresponde a una tasa. El valor puede estar en centavos o en pesos; el resultado queda en la misma
+     * unidad.
+     * @param valor El valor sobre el que se aplica la tasa
+     * @param puntosBasicos La tasa en puntos básicos: 1900 es el 19%
+     * @param redondeo La forma de redondear la fracción que sobra
+     * @return
+     */
+    public static long aplicarTasa( long valor, long puntosBasicos, RoundingMode redondeo )
+    {
+        return dividir( Math.multiplyExact( valor, puntosBasicos ), PUNTOS_BASICOS, redondeo );
+    }
+
+    /**
+     * Calcula la parte de un valor int que corresponde a una tasa. Es igual a la versión con long, pero el producto de dos int siempre cabe en un
+     * long, así que no hace falta revisar que la multiplicación se desborde.
+     * @param valor El valor sobre el que se aplica la tasa
+     * @param puntosBasicos La tasa en puntos básicos: 1900 es el 19%
+     * @param redondeo La forma de redondear la fracción que sobra
+     * @return
+     */
+    public static long aplicarTasa( int valor, int puntosBasicos, RoundingMode redondeo )
+    {
+        return dividir( ( long )valor * puntosBasicos, PUNTOS_BASICOS, redondeo );
+    }
+
+    /**
+     * Divide dos enteros redondeando el cociente de la forma indicada, igual que BigDecimal pero sin crear objetos
+     * @param dividendo
+     * @param divisor Un número positivo
+     * @param redondeo La forma de redondear
+     * @return
+     * @throws ArithmeticException Se lanza si el redondeo es UNNECESSARY y la división no es exacta
+     */
+    public static long dividir( long dividendo, long divisor, RoundingMode redondeo )
+    {
+        // Truncar es el caso común, el de los impuestos y los descuentos; la división de Java ya trunca hacia cero
+        if( redondeo == RoundingMode.DOWN )
+            return dividendo / divisor;
+
+        long cociente = dividendo / divisor;
+        long residuo = dividendo % divisor;
+        if( residuo == 0 )
+            return cociente;
+
+        // El cociente ya está truncado hacia cero; sólo falta decidir si se aleja una unidad más de cero
+        int signo = dividendo < 0 ? -1 : 1;
+        long doble = 2 * Math.abs( residuo );
+        boolean alejar;
+        switch( redondeo )
+        {
+            case UP:
+                alejar = true;
+                break;
+            case FLOOR:
+                alejar = signo < 0;
+                break;
+            case CEILING:
+                alejar = signo > 0;
+                break;
+            case HALF_UP:
+                alejar = doble >= divisor;
+                break;
+            case HALF_DOWN:
+                alejar = doble > divisor;
+                break;
+            case HALF_EVEN:
+                alejar = doble > divisor || ( doble == divisor && ( cociente & 1 ) != 0 );
+                break;
+            default:
+                throw new ArithmeticException( "La división " + dividendo + " / " + divisor + " no es exacta" );
+        }
+        return alejar ? cociente + signo : cociente;
+    }
+}
@@ -0,0 +1,142 @@
+package uniandes.dpoo.hamburguesas.mundo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Un índice de pedidos cerrados por identificador, que responde las búsquedas en tiempo constante sin convertir los identificadores a Integer.
+ *
+ * Como los identificadores de los pedidos son consecutivos, el índice es un arreglo directo dividido en páginas de TAMANO_PAGINA posiciones: la página de
+ * un pedido es su identificador dividido por el tamaño de página, y sólo se crean las páginas que tienen al menos un pedido. Esto también permite recorrer
+ * un rango de identificadores en orden sin ordenar nada.
+ */
+public class IndicePedidos
+{
+    /**
+     * La cantidad de bits del identificador que corresponden a la posición dentro de una página
+     */
+    private static final int BITS_PAGINA = 10;
+
+    /**
+     * La cantidad de pedidos que caben en una página
+     */
+    private static final int TAMANO_PAGINA = 1 << BITS_PAGINA;
+
+    /**
+     * Las páginas del índice. Una página es null si ningún pedido tiene un identificador en su rango.
+     */
+    private Pedido[][] paginas;
+
+    /**
+     * La cantidad de pedidos en el índice
+     */
+    private int cantidad;
+
+    /**
+     * Crea un índice vacío
+     */
+    public IndicePedidos( )
+    {
+        paginas = new Pedido[16][];
+    }
+
+    /**
+     * Agrega un pedido al índice. Si ya había un pedido con el mismo identificador, lo reemplaza.
+     * @param pedido El pedido que se va a indexar
+     */
+    public synchronized void agregar( Pedido pedido )
+    {
+        int id = pedido.getIdPedido( );
+        int numeroPagina = id >>> BITS_PAGINA;
+        if( numeroPagina >= paginas.length )
+        {
+            paginas = Arrays.copyOf( paginas, Math.max( paginas.length * 2, numeroPagina + 1 ) );
+        }
+
+        Pedido[] pagina = paginas[ numeroPagina ];
+        if( pagina == null )
+        {
+            pagina = new Pedido[TAMANO_PAGINA];
+            paginas[ numeroPagina ] = pagina;
+        }
+
+        int posicion = id & ( TAMANO_PAGINA - 1 );
+        if( pagina[ posicion ] == null )
+            cantidad++;
+        pagina[ posicion ] = pedido;
+    }
+
+    /**
+     * Busca un pedido por su identificador
+     * @param idPedido El identificador del pedido
+     * @return El pedido o null si no está en el índice
+     */
+    public synchronized Pedido buscar( int idPedido )
+    {
+        if( idPedido < 0 )
+            return null;
+
+        int numeroPagina = idPedido >>> BITS_PAGINA;
+        if( numeroPagina >= paginas.length || paginas[ numeroPagina ] == null )
+            return null;
+
+        return paginas[ numeroPagina ][ idPedido & ( TAMANO_PAGINA - 1 ) ];
+    }
+
+    /**
+     * Retira un pedido del índice
+     * @param idPedido El identificador del pedido
+     * @return El pedido retirado o null si no estaba en el índice
+     */
+    public synchronized Pedido retirar( int idPedido )
+    {
+        Pedido pedido = buscar( idPedido );
+        if( pedido != null )
+        {
+            paginas[ idPedido >>> BITS_PAGINA ][ idPedido & ( TAMANO_PAGINA - 1 ) ] = null;
+            cantidad--;
+        }
+        return pedido;
+    }
+
+    /**
+     * Retorna los pedidos cuyo identificador está en el rango indicado, ordenados por identificador
+     * @param desde El menor identificador del rango, incluido
+     * @param hasta El mayor identificador del rango, incluido
+     * @return La lista de pedidos del rango. Es vacía si no hay ninguno.
+     */
+    public synchronized ArrayList<Pedido> buscarEnRango( int desde, int hasta )
+    {
+        ArrayList<Pedido> resultado = new ArrayList<Pedido>( );
+        int inicio = Math.max( desde, 0 );
+        if( hasta < inicio )
+            return resultado;
+
+        int ultimaPagina = Math.min( hasta >>> BITS_PAGINA, paginas.length - 1 );
+        for( int numeroPagina = inicio >>> BITS_PAGINA; numeroPagina <= ultimaPagina; numeroPagina++ )
+        {
+            Pedido[] pagina = paginas[ numeroPagina ];
+            if( pagina == null )
+                continue;
+
+            int base = numeroPagina << BITS_PAGINA;
+            int primera = Math.max( inicio - base, 0 );
+            int ultima = ( int )Math.min( ( long )hasta - base, TAMANO_PAGINA - 1 );
+            for( int posicion = primera; posicion <= ultima; posicion++ )
+            {
+                if( pagina[ posicion ] != null )
+                    resultado.add( pagina[ posicion ] );
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Retorna la cantidad de pedidos en el índice
+     * @return
+     */
+    public synchronized int getCantidad( )
+    {
+        return cantidad;
+    }
+}
@@ -1,19 +1,21 @@
 package uniandes.dpoo.hamburguesas.mundo;
 
 /**
- * Esta clase se utiliza para mantener la información de un ingrediente que se puede agregar o eliminar de un producto
+ * Esta clase se utiliza para mantener la información de un ingrediente que se puede agregar o eliminar de un producto.
+ *
+ * Los ingredientes son inmutables: el catálogo tiene una sola instancia de cada uno y todos los productos ajustados comparten esa instancia.
  */
-public class Ingrediente
+public final class Ingrediente
 {
     /**
      * El nombre del ingrediente
      */
-    private String nombre;
+    private final String nombre;
 
     /**
      * El costo de agregar el ingrediente a un producto
      */
-    private int costoAdicional;
+    private final int costoAdicional;
 
     /**
      * Construye un nuevo ingrediente con un nombre y un costo adicional
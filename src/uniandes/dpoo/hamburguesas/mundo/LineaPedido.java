@@ -0,0 +1,76 @@
+package uniandes.dpoo.hamburguesas.mundo;
+
+/**
+ * Una línea de un pedido: un producto y la cantidad de unidades que se pidieron de él.
+ *
+ * Las unidades de un mismo producto del menú o de un mismo combo comparten línea, igual que los productos ajustados con los mismos ajustes, así que
+ * un pedido de cuarenta combos iguales es una sola línea con cantidad cuarenta.
+ */
+public class LineaPedido
+{
+    private final Producto producto;
+
+    /**
+     * El precio de una unidad cuando se creó la línea. Es el mismo que se sumó al precio neto del pedido.
+     */
+    private final int precioUnitario;
+
+    private int cantidad;
+
+    LineaPedido( Producto producto )
+    {
+        this.producto = producto;
+        this.precioUnitario = producto.getPrecio( );
+        this.cantidad = 1;
+    }
+
+    /**
+     * Retorna el producto de la línea. Si la línea tiene varias unidades, es el producto de la primera.
+     * @return
+     */
+    public Producto getProducto( )
+    {
+        return producto;
+    }
+
+    /**
+     * Retorna la cantidad de unidades del producto
+     * @return
+     */
+    public int getCantidad( )
+    {
+        return cantidad;
+    }
+
+    /**
+     * Retorna el precio de todas las unidades de la línea
+     * @return
+     * @throws ArithmeticException Se lanza si el subtotal no cabe en un int, en lugar de retornar un valor equivocado
+     */
+    public int getSubtotal( )
+    {
+        return Math.multiplyExact( precioUnitario, cantidad );
+    }
+
+    /**
+     * Suma una unidad a la línea
+     */
+    void agregarUnidad( )
+    {
+        cantidad++;
+    }
+
+    /**
+     * Agrega al final del buffer el texto de la línea en la factura: el del producto y, si hay más de una unidad, la cantidad y el subtotal
+     * @param destino El buffer donde se escribe la factura
+     */
+    void escribirFactura( StringBuilder destino )
+    {
+        producto.escribirFactura( destino );
+        if( cantidad > 1 )
+        {
+            destino.append( "    x " ).append( cantidad ).append( '\n' );
+            destino.append( "            " ).append( getSubtotal( ) ).append( '\n' );
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package uniandes.dpoo.hamburguesas.mundo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Mantiene en disco la marca más alta de identificadores de pedido que se han reservado, para que los identificadores no se repitan cuando se reinicia la
+ * aplicación.
+ *
+ * Los identificadores se reservan por bloques: el archivo sólo se escribe cuando un pedido usa un identificador por fuera del último bloque reservado. Al
+ * reiniciar, la numeración continúa desde el final del último bloque, así que se pueden perder algunos identificadores pero nunca se repiten.
+ */
+public class NumeracionPedidos
+{
+    /**
+     * La cantidad de identificadores que se reservan cada vez que se escribe el archivo
+     */
+    private static final int TAMANO_BLOQUE = 1000;
+
+    /**
+     * El archivo donde se guarda la marca
+     */
+    private File archivo;
+
+    /**
+     * El primer identificador que no está cubierto por la reserva guardada en el archivo
+     */
+    private volatile int limiteReservado;
+
+    /**
+     * Crea la numeración a partir del archivo indicado. Si el archivo existe, los siguientes pedidos reciben identificadores desde la marca guardada.
+     * @param archivo El archivo donde se guarda la marca
+     * @throws IOException Se lanza esta excepción si el archivo existe pero no se puede leer o no tiene una marca válida
+     */
+    public NumeracionPedidos( File archivo ) throws IOException
+    {
+        this.archivo = archivo;
+        if( archivo.exists( ) )
+        {
+            String contenido = new String( Files.readAllBytes( archivo.toPath( ) ), StandardCharsets.UTF_8 ).trim( );
+            try
+            {
+                limiteReservado = Integer.parseInt( contenido );
+            }
+            catch( NumberFormatException e )
+            {
+                throw new IOException( "El archivo " + archivo.getAbsolutePath( ) + " no tiene una marca de pedidos válida", e );
+            }
+            Pedido.continuarNumeracionDesde( limiteReservado );
+        }
+    }
+
+    /**
+     * Retorna el primer identificador que no está cubierto por la reserva guardada
+     * @return
+     */
+    public int getLimiteReservado( )
+    {
+        return limiteReservado;
+    }
+
+    /**
+     * Garantiza que el identificador de un pedido quede cubierto por la reserva guardada en disco. Debe llamarse antes de guardar cualquier cosa asociada al
+     * identificador del pedido.
+     * @param idPedido El identificador que se va a usar
+     * @throws IOException Se lanza esta excepción si no se pudo guardar la nueva reserva
+     */
+    public void reservar( int idPedido ) throws IOException
+    {
+        if( idPedido < limiteReservado )
+            return;
+
+        synchronized( this )
+        {
+            if( idPedido >= limiteReservado )
+            {
+                int nuevoLimite = ( idPedido / TAMANO_BLOQUE + 1 ) * TAMANO_BLOQUE;
+                guardar( nuevoLimite );
+                limiteReservado = nuevoLimite;
+            }
+        }
+    }
+
+    /**
+     * Escribe la marca en un archivo temporal y luego lo mueve sobre el archivo definitivo, para que una caída nunca deje el archivo a medio escribir
+     * @param marca La marca que se va a guardar
+     * @throws IOException
+     */
+    private void guardar( int marca ) throws IOException
+    {
+        File carpeta = archivo.getAbsoluteFile( ).getParentFile( );
+        if( !carpeta.exists( ) && !carpeta.mkdirs( ) && !carpeta.isDirectory( ) )
+        {
+            throw new IOException( "No fue posible crear la carpeta: " + carpeta.getAbsolutePath( ) );
+        }
+
+        File temporal = new File( carpeta, archivo.getName( ) + ".tmp" );
+        try( FileChannel canal = FileChannel.open( temporal.toPath( ), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING ) )
+        {
+            canal.write( ByteBuffer.wrap( ( marca + "\n" ).getBytes( StandardCharsets.UTF_8 ) ) );
+            canal.force( true );
+        }
+        Files.move( temporal.toPath( ), archivo.toPath( ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    }
+}
@@ -1,24 +1,46 @@
 package uniandes.dpoo.hamburguesas.mundo;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uniandes.dpoo.hamburguesas.metricas.Metricas;
+import uniandes.dpoo.hamburguesas.persistencia.BitacoraPedidos;
 
 /**
  * La clase para organizar la información de un pedido
  */
-public class Pedido
+public class Pedido implements VistaPedido
 {
     /**
-     * El porcentaje del IVA como un número entre 0 y 1
+     * El IVA en puntos básicos: 1900 es el 19%
+     */
+    private static final int IVA_PUNTOS_BASICOS = 1900;
+
+    /**
+     * El número de pedidos que se han creado hasta el momento. Es atómico porque los pedidos se pueden crear desde varios hilos al mismo tiempo.
+     */
+    private static final AtomicInteger numeroPedidos = new AtomicInteger( );
+
+    /**
+     * La capacidad máxima que puede conservar el buffer de facturas de un hilo entre una factura y otra
+     */
+    private static final int CAPACIDAD_MAXIMA_BUFFER = 64 * 1024;
+
+    /**
+     * El buffer donde cada hilo arma sus facturas. Se reutiliza para no crear un buffer nuevo en cada factura.
      */
-    private static final double IVA = 0.19;
+    private static final ThreadLocal<StringBuilder> bufferFactura = ThreadLocal.withInitial( ( ) -> new StringBuilder( 512 ) );
 
     /**
-     * El número de pedidos que se han creado hasta el momento
+     * La cantidad de líneas hasta la cual se busca la línea de un producto recorriéndolas, sin crear el índice de líneas
      */
-    private static int numeroPedidos;
+    private static final int LINEAS_SIN_INDICE = 8;
 
     /**
      * El número identificador de un pedido
@@ -26,9 +48,20 @@ public class Pedido
     private int idPedido;
 
     /**
-     * Los productos que hacen parte del pedido
+     * Las líneas del pedido, en el orden en que se agregó el primer producto de cada una
      */
-    private ArrayList<Producto> productos;
+    private ArrayList<LineaPedido> lineas;
+
+    /**
+     * Las líneas del pedido por su producto, para encontrar en tiempo constante la línea donde se suma un producto repetido. Sólo se crea cuando el
+     * pedido tiene más de LINEAS_SIN_INDICE líneas; antes es null.
+     */
+    private HashMap<Producto, LineaPedido> indiceLineas;
+
+    /**
+     * La suma de los precios de los productos del pedido. Se actualiza cada vez que se agrega un producto.
+     */
+    private int precioNeto;
 
     /**
      * El nombre del cliente que hizo el pedido
@@ -40,6 +73,11 @@ public class Pedido
      */
     private String direccionCliente;
 
+    /**
+     * La bitácora donde se registran los productos que se agregan al pedido. Es null si el restaurante no usa bitácora de pedidos.
+     */
+    private BitacoraPedidos bitacora;
+
     /**
      * Crea un nuevo pedido, sólo con los datos del cliente.
      * 
@@ -49,16 +87,41 @@ public class Pedido
      */
     public Pedido( String nombreCliente, String direccionCliente )
     {
-        this.idPedido = numeroPedidos++;
+        this.idPedido = numeroPedidos.getAndIncrement( );
         this.nombreCliente = nombreCliente;
         this.direccionCliente = direccionCliente;
-        productos = new ArrayList<Producto>( );
+        lineas = new ArrayList<LineaPedido>( );
+    }
+
+    /**
+     * Crea un pedido con un identificador conocido, para reconstruir un pedido que se recuperó de la bitácora de pedidos. No cambia la numeración de
+     * los pedidos nuevos.
+     * @param idPedido El identificador que tenía el pedido
+     * @param nombreCliente
+     * @param direccionCliente
+     */
+    Pedido( int idPedido, String nombreCliente, String direccionCliente )
+    {
+        this.idPedido = idPedido;
+        this.nombreCliente = nombreCliente;
+        this.direccionCliente = direccionCliente;
+        lineas = new ArrayList<LineaPedido>( );
+    }
+
+    /**
+     * Hace que los siguientes pedidos reciban identificadores a partir del valor indicado. Si la numeración ya va por un valor mayor, no cambia.
+     * @param primerId El menor identificador que puede recibir el siguiente pedido
+     */
+    public static void continuarNumeracionDesde( int primerId )
+    {
+        numeroPedidos.accumulateAndGet( primerId, Math::max );
     }
 
     /**
      * Retorna el identificador del pedido
      * @return
      */
+    @Override
     public int getIdPedido( )
     {
         return idPedido;
@@ -68,24 +131,92 @@ public class Pedido
      * Retorna el nombre del cliente
      * @return
      */
+    @Override
     public String getNombreCliente( )
     {
         return nombreCliente;
     }
 
     /**
-     * Agrega un nuevo producto al pedido
+     * Hace que los productos que se agreguen de aquí en adelante se registren en la bitácora de pedidos
+     * @param bitacora La bitácora del restaurante
+     */
+    void usarBitacora( BitacoraPedidos bitacora )
+    {
+        this.bitacora = bitacora;
+    }
+
+    /**
+     * Agrega un nuevo producto al pedido.
+     * 
+     * Si el pedido ya tiene una línea con el mismo producto, o con un producto ajustado igual, se le suma una unidad a esa línea. El precio del
+     * producto se suma al precio neto del pedido en este momento, así que un producto ajustado debe tener todos sus ajustes antes de agregarse; desde
+     * entonces queda fijo y ya no admite ajustes.
      * @param nuevoProducto El producto que debe agregarse al pedido
      */
     public void agregarProducto( Producto nuevoProducto )
     {
-        productos.add( nuevoProducto );
+        if( nuevoProducto instanceof ProductoAjustado )
+            ( ( ProductoAjustado )nuevoProducto ).fijar( );
+
+        LineaPedido linea = buscarLinea( nuevoProducto );
+        if( linea != null )
+        {
+            linea.agregarUnidad( );
+        }
+        else
+        {
+            linea = new LineaPedido( nuevoProducto );
+            lineas.add( linea );
+            if( indiceLineas != null )
+                indiceLineas.put( nuevoProducto, linea );
+            else if( lineas.size( ) > LINEAS_SIN_INDICE )
+                indexarLineas( );
+        }
+        precioNeto = Math.addExact( precioNeto, nuevoProducto.getPrecio( ) );
+        if( bitacora != null )
+            bitacora.registrarProducto( idPedido, nuevoProducto );
+        Metricas.getInstancia( ).registrarProductoAgregado( );
+    }
+
+    /**
+     * Retorna la línea del pedido donde se debe sumar el producto, o null si el producto no está en el pedido
+     */
+    private LineaPedido buscarLinea( Producto producto )
+    {
+        if( indiceLineas != null )
+            return indiceLineas.get( producto );
+
+        for( int i = lineas.size( ) - 1; i >= 0; i-- )
+        {
+            LineaPedido linea = lineas.get( i );
+            if( linea.getProducto( ).equals( producto ) )
+                return linea;
+        }
+        return null;
+    }
+
+    private void indexarLineas( )
+    {
+        indiceLineas = new HashMap<Producto, LineaPedido>( lineas.size( ) * 4 );
+        for( LineaPedido linea : lineas )
+            indiceLineas.put( linea.getProducto( ), linea );
+    }
+
+    /**
+     * Retorna las líneas del pedido, para quien tenga que recorrerlas sin copiarlas. No se deben modificar.
+     * @return
+     */
+    ArrayList<LineaPedido> getLineas( )
+    {
+        return lineas;
     }
 
     /**
      * Retorna el precio total del pedido, basado en el valor de cada uno de los productos y en el IVA
      * @return La sumatoria de los precios de los productos con el valor adicional del IVA
      */
+    @Override
     public int getPrecioTotalPedido( )
     {
         return getPrecioNetoPedido( ) + getPrecioIVAPedido( );
@@ -97,12 +228,7 @@ public class Pedido
      */
     private int getPrecioNetoPedido( )
     {
-        int valor = 0;
-        for( Producto item : productos )
-        {
-            valor += item.getPrecio( );
-        }
-        return valor;
+        return precioNeto;
     }
 
     /**
@@ -111,7 +237,18 @@ public class Pedido
      */
     private int getPrecioIVAPedido( )
     {
-        return ( int ) ( getPrecioNetoPedido( ) * IVA );
+        return calcularIVA( precioNeto );
+    }
+
+    /**
+     * Calcula el IVA que corresponde a un precio neto, truncado a pesos enteros. La cuenta es entera, y para cualquier neto no negativo da lo mismo
+     * que truncar neto * 0.19 en double, que era como se calculaba antes.
+     * @param neto El precio neto
+     * @return
+     */
+    static int calcularIVA( int neto )
+    {
+        return ( int ) Dinero.aplicarTasa( neto, IVA_PUNTOS_BASICOS, RoundingMode.DOWN );
     }
 
     /**
@@ -128,38 +265,55 @@ public class Pedido
      * 5. El valor total del pedido
      * @return
      */
+    @Override
     public String generarTextoFactura( )
     {
-        StringBuffer sb = new StringBuffer( );
+        StringBuilder sb = bufferFactura.get( );
+        sb.setLength( 0 );
+        escribirFactura( sb );
+        String factura = sb.toString( );
 
-        sb.append( "Cliente: " + nombreCliente + "\n" );
-        sb.append( "Dirección: " + direccionCliente + "\n" );
-        sb.append( "----------------\n" );
+        // Una factura muy grande no debe dejar un buffer enorme asociado al hilo
+        if( sb.capacity( ) > CAPACIDAD_MAXIMA_BUFFER )
+            bufferFactura.remove( );
+        return factura;
+    }
 
-        for( Producto item : productos )
+    /**
+     * Agrega al final del buffer el texto de la factura, el mismo que retorna generarTextoFactura. Cada línea escribe su parte directamente en el
+     * buffer, así que no se crean cadenas intermedias, y las unidades repetidas de un producto se escriben una sola vez con su cantidad.
+     * @param destino El buffer donde se escribe la factura
+     */
+    public void escribirFactura( StringBuilder destino )
+    {
+        destino.append( "Cliente: " ).append( nombreCliente ).append( '\n' );
+        destino.append( "Dirección: " ).append( direccionCliente ).append( '\n' );
+        destino.append( "----------------\n" );
+
+        for( LineaPedido linea : lineas )
         {
-            sb.append( item.generarTextoFactura( ) );
+            linea.escribirFactura( destino );
         }
 
-        sb.append( "----------------\n" );
-        sb.append( "Precio Neto:  " + getPrecioNetoPedido( ) + "\n" );
-        sb.append( "IVA:          " + getPrecioIVAPedido( ) + "\n" );
-        sb.append( "Precio Total: " + getPrecioTotalPedido( ) + "\n" );
-
-        return sb.toString( );
+        int neto = precioNeto;
+        int iva = calcularIVA( neto );
+        destino.append( "----------------\n" );
+        destino.append( "Precio Neto:  " ).append( neto ).append( '\n' );
+        destino.append( "IVA:          " ).append( iva ).append( '\n' );
+        destino.append( "Precio Total: " ).append( neto + iva ).append( '\n' );
     }
 
     /**
-     * Guarda la factura del pedido en el archivo indicado
+     * Guarda la factura del pedido en el archivo indicado, codificada en UTF-8
      * @param archivo El archivo donde debe quedar almacenada la factua del pedido
-     * @throws FileNotFoundException Se lanza esta excepción si no se puede crear el archivo para guardar la factura
+     * @throws IOException Se lanza esta excepción si no se puede crear el archivo para guardar la factura
      */
-    public void guardarFactura( File archivo ) throws FileNotFoundException
+    public void guardarFactura( File archivo ) throws IOException
     {
         String factura = generarTextoFactura( );
 
         PrintWriter out;
-        out = new PrintWriter( archivo );
+        out = new PrintWriter( archivo, StandardCharsets.UTF_8 );
         out.print( factura );
         out.close( );
     }
@@ -24,4 +24,16 @@ public interface Producto
      * @return Un texto que incluye al menos el nombre del producto y el precio
      */
     public String generarTextoFactura( );
+
+    /**
+     * Agrega al final del buffer el mismo texto que retorna generarTextoFactura.
+     * 
+     * Sirve para armar una factura completa en un solo buffer reutilizable. La implementación por defecto usa generarTextoFactura; los productos del
+     * restaurante la reemplazan para escribir directamente en el buffer sin crear cadenas intermedias.
+     * @param destino El buffer donde se escribe el texto
+     */
+    public default void escribirFactura( StringBuilder destino )
+    {
+        destino.append( generarTextoFactura( ) );
+    }
 }
@@ -1,19 +1,34 @@
 package uniandes.dpoo.hamburguesas.mundo;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Un producto ajustado es un producto para el cual el cliente solicitó alguna modificación.
+ *
+ * Los agregados y los eliminados se guardan en arreglos que sólo se crean con la primera modificación de cada tipo, así que un producto ajustado sin
+ * cambios no ocupa más que el objeto mismo. Los ingredientes son las instancias compartidas del catálogo; aquí sólo se guardan las referencias.
  */
 public class ProductoAjustado implements Producto
 {
-    private ProductoMenu productoBase;
+    private final ProductoMenu productoBase;
 
-    /** Ingredientes que el usuario quiere agregar  */
-    private ArrayList<Ingrediente> agregados;
+    /** Ingredientes que el usuario quiere agregar. Es null mientras no haya agregados. */
+    private Ingrediente[] agregados;
 
-    /** Ingredientes que el usuario quiere eliminar */
-    private ArrayList<Ingrediente> eliminados;
+    /** La cantidad de posiciones usadas de agregados */
+    private int cantidadAgregados;
+
+    /** Ingredientes que el usuario quiere eliminar. Es null mientras no haya eliminados. */
+    private Ingrediente[] eliminados;
+
+    /** La cantidad de posiciones usadas de eliminados */
+    private int cantidadEliminados;
+
+    /** Precio del producto base más los costos de los agregados. Se actualiza con cada agregado. */
+    private int precio;
+
+    /** Indica si el producto ya se agregó a un pedido. Desde ese momento no admite más ajustes. */
+    private boolean fijo;
 
     /**
      * Construye un nuevo producto ajustado a partir del producto base y sin modificaciones
@@ -22,8 +37,7 @@ public class ProductoAjustado implements Producto
     public ProductoAjustado(ProductoMenu productoBase)
     {
         this.productoBase = productoBase;
-        this.agregados = new ArrayList<>();
-        this.eliminados = new ArrayList<>();
+        this.precio = productoBase.getPrecio();
     }
 
     @Override
@@ -39,23 +53,118 @@ public class ProductoAjustado implements Producto
     @Override
     public int getPrecio()
     {
-        int total = productoBase.getPrecio();
-        for (Ingrediente ing : agregados) {
-            total += ing.getCostoAdicional();
-        }
-        return total;
+        return precio;
+    }
+
+    /** Retorna el producto del menú sobre el que se hizo el ajuste */
+    public ProductoMenu getProductoBase()
+    {
+        return productoBase;
+    }
+
+    /** Retorna la cantidad de ingredientes agregados */
+    public int getCantidadAgregados()
+    {
+        return cantidadAgregados;
+    }
+
+    /** Retorna el ingrediente agregado en la posición indicada, en el orden en que se agregaron */
+    public Ingrediente getAgregado(int posicion)
+    {
+        if (posicion < 0 || posicion >= cantidadAgregados)
+            throw new IndexOutOfBoundsException(posicion);
+        return agregados[posicion];
     }
 
-    /** Registra un ingrediente agregado por el cliente. */
+    /** Retorna la cantidad de ingredientes eliminados */
+    public int getCantidadEliminados()
+    {
+        return cantidadEliminados;
+    }
+
+    /** Retorna el ingrediente eliminado en la posición indicada, en el orden en que se eliminaron */
+    public Ingrediente getEliminado(int posicion)
+    {
+        if (posicion < 0 || posicion >= cantidadEliminados)
+            throw new IndexOutOfBoundsException(posicion);
+        return eliminados[posicion];
+    }
+
+    /**
+     * Registra un ingrediente agregado por el cliente.
+     * @throws IllegalStateException Si el producto ya se agregó a un pedido
+     */
     public void agregarIngrediente(Ingrediente ingrediente)
     {
-        agregados.add(ingrediente);
+        revisarQueNoEsteFijo();
+        agregados = agregar(agregados, cantidadAgregados++, ingrediente);
+        precio += ingrediente.getCostoAdicional();
     }
 
-    /** Registra un ingrediente eliminado por el cliente. */
+    /**
+     * Registra un ingrediente eliminado por el cliente.
+     * @throws IllegalStateException Si el producto ya se agregó a un pedido
+     */
     public void eliminarIngrediente(Ingrediente ingrediente)
     {
-        eliminados.add(ingrediente);
+        revisarQueNoEsteFijo();
+        eliminados = agregar(eliminados, cantidadEliminados++, ingrediente);
+    }
+
+    /**
+     * Impide más ajustes. Lo llama el pedido al agregar el producto, porque el pedido ya sumó su precio y lo usa como llave de su índice de líneas.
+     */
+    void fijar()
+    {
+        fijo = true;
+    }
+
+    private void revisarQueNoEsteFijo()
+    {
+        if (fijo)
+            throw new IllegalStateException("El producto " + getNombre() + " ya está en un pedido y no se puede ajustar");
+    }
+
+    /**
+     * Guarda un ingrediente en la posición indicada, creando o ampliando el arreglo si hace falta
+     * @return El arreglo donde quedó el ingrediente
+     */
+    private static Ingrediente[] agregar(Ingrediente[] ingredientes, int posicion, Ingrediente ingrediente)
+    {
+        if (ingredientes == null)
+            ingredientes = new Ingrediente[2];
+        else if (posicion == ingredientes.length)
+            ingredientes = Arrays.copyOf(ingredientes, posicion * 2);
+        ingredientes[posicion] = ingrediente;
+        return ingredientes;
+    }
+
+    /**
+     * Dos productos ajustados son iguales si tienen el mismo producto base y los mismos ingredientes agregados y eliminados, en el mismo orden.
+     * Como el resultado cambia con cada ajuste, un producto ajustado queda fijo al agregarse a un pedido, que lo usa como llave.
+     */
+    @Override
+    public boolean equals(Object otro)
+    {
+        if (otro == this)
+            return true;
+        if (!(otro instanceof ProductoAjustado))
+            return false;
+        ProductoAjustado o = (ProductoAjustado) otro;
+        return productoBase.equals(o.productoBase) && cantidadAgregados == o.cantidadAgregados && cantidadEliminados == o.cantidadEliminados
+                && (cantidadAgregados == 0 || Arrays.equals(agregados, 0, cantidadAgregados, o.agregados, 0, cantidadAgregados))
+                && (cantidadEliminados == 0 || Arrays.equals(eliminados, 0, cantidadEliminados, o.eliminados, 0, cantidadEliminados));
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int hash = productoBase.hashCode();
+        for (int i = 0; i < cantidadAgregados; i++)
+            hash = 31 * hash + agregados[i].hashCode();
+        for (int i = 0; i < cantidadEliminados; i++)
+            hash = 37 * hash + eliminados[i].hashCode();
+        return hash;
     }
 
     /**
@@ -68,24 +177,29 @@ public class ProductoAjustado implements Producto
     @Override
     public String generarTextoFactura()
     {
-        StringBuffer sb = new StringBuffer();
+        StringBuilder sb = new StringBuilder();
+        escribirFactura(sb);
+        return sb.toString();
+    }
 
-        sb.append(productoBase.generarTextoFactura());
+    @Override
+    public void escribirFactura(StringBuilder destino)
+    {
+        productoBase.escribirFactura(destino);
 
         // 2) agregados
-        for (Ingrediente ing : agregados) {
-            sb.append("    +").append(ing.getNombre()).append("\n");
-            sb.append("                ").append(ing.getCostoAdicional()).append("\n");
+        for (int i = 0; i < cantidadAgregados; i++) {
+            Ingrediente ing = agregados[i];
+            destino.append("    +").append(ing.getNombre()).append('\n');
+            destino.append("                ").append(ing.getCostoAdicional()).append('\n');
         }
 
         // 3) eliminados
-        for (Ingrediente ing : eliminados) {
-            sb.append("    -").append(ing.getNombre()).append("\n");
+        for (int i = 0; i < cantidadEliminados; i++) {
+            destino.append("    -").append(eliminados[i].getNombre()).append('\n');
         }
 
         // 4) total del ajustado
-        sb.append("            ").append(getPrecio()).append("\n");
-
-        return sb.toString();
+        destino.append("            ").append(precio).append('\n');
     }
 }
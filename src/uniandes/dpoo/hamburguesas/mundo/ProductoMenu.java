@@ -1,19 +1,21 @@
 package uniandes.dpoo.hamburguesas.mundo;
 
 /**
- * Esta es la clase que se utiliza para representar un producto que ofrece el restaurante y que puede hacer parte de un combo
+ * Esta es la clase que se utiliza para representar un producto que ofrece el restaurante y que puede hacer parte de un combo.
+ *
+ * Los productos son inmutables: el catálogo tiene una sola instancia de cada uno, y los pedidos y combos comparten esa instancia.
  */
-public class ProductoMenu implements Producto
+public final class ProductoMenu implements Producto
 {
     /**
      * El nombre del producto
      */
-    private String nombre;
+    private final String nombre;
 
     /**
      * El precio base del producto, antes de que se le agreguen ingredientes adicionales
      */
-    private int precioBase;
+    private final int precioBase;
 
     /**
      * Crea un nuevo producto con un nombre y un precio base
@@ -46,11 +48,16 @@ public class ProductoMenu implements Producto
     @Override
     public String generarTextoFactura( )
     {
-        StringBuffer sb = new StringBuffer( );
-        sb.append( nombre + "\n" );
-        sb.append( "            " + getPrecio( ) + "\n" );
-
+        StringBuilder sb = new StringBuilder( );
+        escribirFactura( sb );
         return sb.toString( );
     }
 
+    @Override
+    public void escribirFactura( StringBuilder destino )
+    {
+        destino.append( nombre ).append( '\n' );
+        destino.append( "            " ).append( precioBase ).append( '\n' );
+    }
+
 }
\ No newline at end of file
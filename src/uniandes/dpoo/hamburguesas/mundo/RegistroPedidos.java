@@ -0,0 +1,73 @@
+package uniandes.dpoo.hamburguesas.mundo;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * El registro de los pedidos que están abiertos en el restaurante, indexados por su identificador.
+ *
+ * Varios pedidos pueden abrirse, modificarse y cerrarse al mismo tiempo desde hilos distintos. El registro se apoya en un ConcurrentHashMap, así que
+ * ninguna operación bloquea el registro completo.
+ */
+public class RegistroPedidos
+{
+    /**
+     * Los pedidos abiertos, indexados por su identificador
+     */
+    private ConcurrentHashMap<Integer, Pedido> abiertos;
+
+    /**
+     * Crea un registro sin pedidos abiertos
+     */
+    public RegistroPedidos( )
+    {
+        abiertos = new ConcurrentHashMap<Integer, Pedido>( );
+    }
+
+    /**
+     * Registra un pedido como abierto
+     * @param pedido El pedido que se acaba de abrir
+     */
+    public void registrar( Pedido pedido )
+    {
+        abiertos.put( pedido.getIdPedido( ), pedido );
+    }
+
+    /**
+     * Busca un pedido abierto
+     * @param idPedido El identificador del pedido
+     * @return El pedido abierto con ese identificador o null si no hay ninguno
+     */
+    public Pedido buscar( int idPedido )
+    {
+        return abiertos.get( idPedido );
+    }
+
+    /**
+     * Retira un pedido del registro. Si dos hilos intentan retirar el mismo pedido, sólo uno de ellos lo obtiene.
+     * @param idPedido El identificador del pedido
+     * @return El pedido retirado o null si no había un pedido abierto con ese identificador
+     */
+    public Pedido retirar( int idPedido )
+    {
+        return abiertos.remove( idPedido );
+    }
+
+    /**
+     * Retorna la cantidad de pedidos abiertos en este momento
+     * @return
+     */
+    public int getCantidadAbiertos( )
+    {
+        return abiertos.size( );
+    }
+
+    /**
+     * Retorna una copia de la lista de pedidos abiertos en este momento
+     * @return
+     */
+    public ArrayList<Pedido> getPedidosAbiertos( )
+    {
+        return new ArrayList<Pedido>( abiertos.values( ) );
+    }
+}
@@ -1,17 +1,26 @@
 package uniandes.dpoo.hamburguesas.mundo;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.List;
 
 import uniandes.dpoo.hamburguesas.excepciones.HamburguesaException;
-import uniandes.dpoo.hamburguesas.excepciones.IngredienteRepetidoException;
 import uniandes.dpoo.hamburguesas.excepciones.NoHayPedidoEnCursoException;
-import uniandes.dpoo.hamburguesas.excepciones.ProductoFaltanteException;
-import uniandes.dpoo.hamburguesas.excepciones.ProductoRepetidoException;
 import uniandes.dpoo.hamburguesas.excepciones.YaHayUnPedidoEnCursoException;
+import uniandes.dpoo.hamburguesas.metricas.Metricas;
+import uniandes.dpoo.hamburguesas.persistencia.ArchivadorFacturas;
+import uniandes.dpoo.hamburguesas.persistencia.BitacoraFacturas;
+import uniandes.dpoo.hamburguesas.persistencia.BitacoraPedidos;
+import uniandes.dpoo.hamburguesas.persistencia.CarpetaFacturas;
+import uniandes.dpoo.hamburguesas.persistencia.EscritorFacturas;
+import uniandes.dpoo.hamburguesas.persistencia.FacturaHistorica;
+import uniandes.dpoo.hamburguesas.persistencia.InstantaneaCatalogo;
+import uniandes.dpoo.hamburguesas.persistencia.LectorCatalogo;
+import uniandes.dpoo.hamburguesas.persistencia.PedidoRecuperado;
 
 /**
  * La clase que administra toda la información del restaurante de hamburguesas
@@ -24,9 +33,24 @@ public class Restaurante
     private static final String CARPETA_FACTURAS = "./facturas/";
 
     /**
-     * La primera parte del nombre de los archivos de facturas
+     * El nombre del archivo, dentro de la carpeta de facturas, donde se guarda la marca de identificadores de pedidos reservados
      */
-    private static final String PREFIJO_FACTURAS = "factura_";
+    private static final String ARCHIVO_NUMERACION = ".numeracion_pedidos";
+
+    /**
+     * El nombre de la carpeta, dentro de la carpeta de facturas, donde quedan los segmentos cuando se usa la bitácora de facturas
+     */
+    private static final String CARPETA_BITACORA = "segmentos";
+
+    /**
+     * El nombre del archivo, dentro de la carpeta de facturas, donde se guarda la copia binaria del último catálogo cargado
+     */
+    private static final String ARCHIVO_INSTANTANEA = ".catalogo_instantanea";
+
+    /**
+     * El nombre de la carpeta, dentro de la carpeta de facturas, donde queda la bitácora de los pedidos abiertos
+     */
+    private static final String CARPETA_PEDIDOS = "pedidos";
 
     /**
      * La lista de pedidos que ha recibido el restaurante y que ya se han cerrado
@@ -34,25 +58,66 @@ public class Restaurante
     private ArrayList<Pedido> pedidos;
 
     /**
-     * La lista de ingredientes disponibles para las hamburguesas
+     * El índice por identificador de los pedidos cerrados
      */
-    private ArrayList<Ingrediente> ingredientes;
+    private IndicePedidos indicePedidos;
 
     /**
-     * La lista de Items que conforman el menú de productos básicos del restaurante
+     * Las líneas de los pedidos cerrados, por columnas, para las consultas de ventas
      */
-    private ArrayList<ProductoMenu> menuBase;
+    private VentasColumnares ventas;
 
     /**
-     * La lista de Combos que ofrece el restaurante
+     * El catálogo con los ingredientes, el menú de productos básicos y los combos que ofrece el restaurante. Siempre es un catálogo publicado, que no
+     * cambia; recargar el catálogo reemplaza la referencia, así que leerla nunca bloquea.
      */
-    private ArrayList<Combo> menuCombos;
+    private volatile Catalogo catalogo;
+
+    /**
+     * El candado que serializa las cargas del catálogo. Los lectores del catálogo no lo usan.
+     */
+    private final Object cargaCatalogo = new Object( );
+
+    /**
+     * La versión del último catálogo publicado
+     */
+    private long versionCatalogo;
 
     /**
      * El pedido en curso. Cuando no hay un pedido en cuerso, este atributo será null.
      */
     private Pedido pedidoEnCurso;
 
+    /**
+     * Los pedidos que están abiertos en este momento, incluyendo el pedido en curso
+     */
+    private RegistroPedidos registro;
+
+    /**
+     * La carpeta donde se almacenan las facturas de este restaurante
+     */
+    private File carpetaFacturas;
+
+    /**
+     * La marca de identificadores de pedidos guardada en disco. Es null hasta que se recupera con recuperarNumeracionPedidos.
+     */
+    private NumeracionPedidos numeracion;
+
+    /**
+     * El escritor que guarda las facturas de los pedidos cerrados en un hilo aparte
+     */
+    private EscritorFacturas escritorFacturas;
+
+    /**
+     * La bitácora donde se registran los eventos de los pedidos abiertos. Es null hasta que se empieza a usar con usarBitacoraPedidos.
+     */
+    private BitacoraPedidos bitacoraPedidos;
+
+    /**
+     * El archivador que comprime las facturas de los días anteriores. Es null hasta que se empieza a usar con iniciarArchivoFacturas.
+     */
+    private ArchivadorFacturas archivador;
+
     // ***************************************
     // CONSTRUCTOR
     // ***************************************
@@ -62,10 +127,23 @@ public class Restaurante
      */
     public Restaurante( )
     {
+        this( new File( CARPETA_FACTURAS ) );
+    }
+
+    /**
+     * Crea un restaurante vacío que guarda sus facturas en la carpeta indicada
+     * @param carpetaFacturas La carpeta donde deben quedar las facturas de los pedidos
+     */
+    public Restaurante( File carpetaFacturas )
+    {
+        this.carpetaFacturas = carpetaFacturas;
         pedidos = new ArrayList<Pedido>( );
-        ingredientes = new ArrayList<Ingrediente>( );
-        menuBase = new ArrayList<ProductoMenu>( );
-        menuCombos = new ArrayList<Combo>( );
+        indicePedidos = new IndicePedidos( );
+        ventas = new VentasColumnares( );
+        catalogo = new Catalogo( );
+        catalogo.publicar( 0 );
+        registro = new RegistroPedidos( );
+        escritorFacturas = new EscritorFacturas( new CarpetaFacturas( carpetaFacturas ) );
     }
 
     // ***************************************
@@ -79,40 +157,338 @@ public class Restaurante
      * @param direccionCliente La dirección del cliente
      * @throws YaHayUnPedidoEnCursoException Se lanza esta excepción si ya había un pedido en curso cuando se llamó a este método
      */
-    public void iniciarPedido( String nombreCliente, String direccionCliente ) throws YaHayUnPedidoEnCursoException
+    public synchronized void iniciarPedido( String nombreCliente, String direccionCliente ) throws YaHayUnPedidoEnCursoException
     {
         if( pedidoEnCurso != null )
             throw new YaHayUnPedidoEnCursoException( pedidoEnCurso.getNombreCliente( ), nombreCliente );
 
-        pedidoEnCurso = new Pedido( nombreCliente, direccionCliente );
+        pedidoEnCurso = abrirPedido( nombreCliente, direccionCliente );
+    }
+
+    /**
+     * Abre un nuevo pedido sin afectar el pedido en curso. Se pueden tener muchos pedidos abiertos al mismo tiempo y cada uno se cierra con
+     * cerrarYGuardarPedido(int).
+     * 
+     * @param nombreCliente El nombre del cliente que está iniciando el pedido
+     * @param direccionCliente La dirección del cliente
+     * @return El pedido que se abrió
+     */
+    public Pedido abrirPedido( String nombreCliente, String direccionCliente )
+    {
+        long inicio = System.nanoTime( );
+        Pedido pedido = new Pedido( nombreCliente, direccionCliente );
+        BitacoraPedidos bitacora = bitacoraPedidos;
+        if( bitacora != null )
+        {
+            bitacora.registrarApertura( pedido.getIdPedido( ), nombreCliente, direccionCliente );
+            pedido.usarBitacora( bitacora );
+        }
+        registro.registrar( pedido );
+        Metricas.getInstancia( ).registrarInicioPedido( System.nanoTime( ) - inicio );
+        return pedido;
     }
 
     /**
      * Este método cierra un pedido, creando la factura y guardándolo en el histórico de pedidos.
      * 
-     * La factura queda guardada en un archivo cuyo nombre debe ser PREFIJO_FACTURAS, seguido del identificador del pedido, y debe tener extensión 'txt'. El archivo debe
-     * quedar en la carpeta CARPETA_FACTURAS.
+     * La factura queda guardada en un archivo cuyo nombre debe ser CarpetaFacturas.PREFIJO_FACTURAS, seguido del identificador del pedido, y debe tener
+     * extensión 'txt'. El archivo debe quedar en la carpeta CARPETA_FACTURAS. La factura se escribe en un hilo aparte: ver cerrarYGuardarPedido(int).
      * 
      * @throws NoHayPedidoEnCursoException Lanza esta excepción si no hay un pedido en curso
-     * @throws FileNotFoundException Lanza esta excepción si hay problemas guardando el archivo
+     * @throws IOException Lanza esta excepción si hay problemas guardando el archivo
      */
-    public void cerrarYGuardarPedido() throws NoHayPedidoEnCursoException, IOException {
+    public synchronized void cerrarYGuardarPedido() throws NoHayPedidoEnCursoException, IOException {
         if (pedidoEnCurso == null) throw new NoHayPedidoEnCursoException();
 
-        File carpeta = new File(CARPETA_FACTURAS);                 
-        if (!carpeta.exists() && !carpeta.mkdirs()) {
-            throw new IOException("No fue posible crear la carpeta: " + carpeta.getAbsolutePath());
+        cerrarYGuardarPedido( pedidoEnCurso.getIdPedido( ) );
+        pedidoEnCurso = null;
+    }
+
+    /**
+     * Cierra uno de los pedidos abiertos, guardando su factura y agregándolo al histórico de pedidos.
+     * 
+     * La factura se encola en el escritor de facturas y el método retorna sin esperar a que quede en disco. Si la cola de facturas pendientes está llena,
+     * el método espera hasta que haya espacio. Para esperar a que todas las facturas queden escritas se usa vaciarFacturas.
+     * 
+     * @param idPedido El identificador del pedido que se va a cerrar
+     * @throws NoHayPedidoEnCursoException Lanza esta excepción si no hay un pedido abierto con ese identificador
+     * @throws IOException Lanza esta excepción si no se pudo encolar la factura, por ejemplo porque falló la escritura de facturas anteriores. En ese
+     *         caso el pedido sigue abierto.
+     */
+    public void cerrarYGuardarPedido( int idPedido ) throws NoHayPedidoEnCursoException, IOException
+    {
+        long inicio = System.nanoTime( );
+        Pedido pedido = registro.retirar( idPedido );
+        if( pedido == null )
+            throw new NoHayPedidoEnCursoException( );
+
+        try
+        {
+            if( numeracion != null )
+                numeracion.reservar( pedido.getIdPedido( ) );
+
+            escritorFacturas.encolar( pedido.getIdPedido( ), pedido.generarTextoFactura( ) );
+        }
+        catch( IOException e )
+        {
+            registro.registrar( pedido );
+            throw e;
         }
 
-        String nombre = PREFIJO_FACTURAS + pedidoEnCurso.getIdPedido() + ".txt";
-        File destino = new File(carpeta, nombre);
-        pedidoEnCurso.guardarFactura(destino);
+        // Desde aquí la factura ya está encolada: el pedido queda cerrado aunque la bitácora haya tenido errores
+        if( bitacoraPedidos != null )
+            bitacoraPedidos.registrarCierre( pedido.getIdPedido( ) );
 
-        pedidos.add(pedidoEnCurso);
-        pedidoEnCurso = null;
+        archivar( pedido );
+        Metricas.getInstancia( ).registrarCierrePedido( System.nanoTime( ) - inicio );
+    }
 
-        // para ver donde esta lol
-        System.out.println("Factura en: " + destino.getAbsolutePath());
+    /**
+     * Agrega un pedido cerrado al histórico de pedidos y a las ventas
+     * @param pedido El pedido cerrado
+     */
+    private void archivar( Pedido pedido )
+    {
+        synchronized( pedidos )
+        {
+            pedidos.add( pedido );
+            indicePedidos.agregar( pedido );
+        }
+        ventas.registrar( pedido, System.currentTimeMillis( ) );
+    }
+
+    /**
+     * Hace que las facturas de los pedidos que se cierren de aquí en adelante se agreguen a una bitácora de segmentos, en lugar de guardarse cada una en
+     * su propio archivo. La bitácora queda en la carpeta CARPETA_BITACORA dentro de la carpeta de facturas.
+     * 
+     * Debe llamarse antes de cerrar el primer pedido.
+     * 
+     * @throws IOException Lanza esta excepción si no se pudo abrir la bitácora o si no se pudieron escribir las facturas pendientes
+     */
+    public void usarBitacoraFacturas( ) throws IOException
+    {
+        BitacoraFacturas bitacora = new BitacoraFacturas( new File( carpetaFacturas, CARPETA_BITACORA ) );
+        escritorFacturas.cerrar( );
+        escritorFacturas = new EscritorFacturas( bitacora );
+    }
+
+    /**
+     * Empieza a comprimir, en un hilo aparte, las facturas de los días que ya terminaron en un archivo por día (ver ArchivadorFacturas). Las facturas
+     * archivadas se siguen pudiendo leer con leerFactura y buscarPedidoPorId.
+     * 
+     * @param periodoMs El tiempo entre una revisión y la siguiente, en milisegundos. La primera revisión se hace de inmediato.
+     * @param reporte El flujo donde se reporta lo que se archivó y los errores. Puede ser null.
+     * @return El archivador
+     * @throws IllegalStateException Lanza esta excepción si las facturas se están guardando en la bitácora de segmentos, que no tiene un archivo por
+     *         factura
+     */
+    public synchronized ArchivadorFacturas iniciarArchivoFacturas( long periodoMs, PrintStream reporte )
+    {
+        if( !( escritorFacturas.getAlmacen( ) instanceof CarpetaFacturas ) )
+            throw new IllegalStateException( "Sólo se pueden archivar las facturas que se guardan en un archivo por pedido" );
+        if( archivador == null )
+        {
+            archivador = new ArchivadorFacturas( ( CarpetaFacturas )escritorFacturas.getAlmacen( ), ZoneId.systemDefault( ) );
+            archivador.iniciar( periodoMs, reporte );
+        }
+        return archivador;
+    }
+
+    /**
+     * Hace que los eventos de los pedidos abiertos (abrirlos, agregarles productos y cerrarlos) se registren en una bitácora, para no perderlos si la
+     * aplicación se cae antes de cerrarlos, y recupera los pedidos que quedaron en la bitácora de una ejecución anterior. La bitácora queda en la carpeta
+     * CARPETA_PEDIDOS dentro de la carpeta de facturas.
+     * 
+     * Los pedidos que estaban abiertos se vuelven a abrir con su mismo identificador y con sus productos, que se buscan por nombre en el catálogo actual;
+     * los productos que ya no están en el catálogo se omiten. Si no hay un pedido en curso, el más reciente de los pedidos recuperados queda en curso.
+     * Los pedidos que se alcanzaron a cerrar pero cuya factura no quedó guardada se archivan y se guarda su factura.
+     * 
+     * Debe llamarse después de cargar el catálogo y de escoger dónde se guardan las facturas, y antes de abrir el primer pedido.
+     * 
+     * @return La cantidad de pedidos abiertos que se recuperaron
+     * @throws IOException Lanza esta excepción si no se pudo abrir la bitácora o si no se pudo guardar la factura de un pedido recuperado
+     */
+    public synchronized int usarBitacoraPedidos( ) throws IOException
+    {
+        BitacoraPedidos bitacora = new BitacoraPedidos( new File( carpetaFacturas, CARPETA_PEDIDOS ), this::vaciarFacturas );
+        int abiertos = 0;
+        int siguienteId = 0;
+        Pedido masReciente = null;
+        try
+        {
+            for( PedidoRecuperado recuperado : bitacora.getPedidosRecuperados( ) )
+            {
+                Pedido pedido = reconstruir( recuperado );
+                siguienteId = Math.max( siguienteId, pedido.getIdPedido( ) + 1 );
+                if( !recuperado.estaCerrado( ) )
+                {
+                    pedido.usarBitacora( bitacora );
+                    registro.registrar( pedido );
+                    masReciente = pedido;
+                    abiertos++;
+                }
+                else if( leerFactura( pedido.getIdPedido( ) ) == null )
+                {
+                    if( numeracion != null )
+                        numeracion.reservar( pedido.getIdPedido( ) );
+                    escritorFacturas.encolar( pedido.getIdPedido( ), pedido.generarTextoFactura( ) );
+                    archivar( pedido );
+                }
+            }
+        }
+        catch( IOException e )
+        {
+            bitacora.cerrar( );
+            throw e;
+        }
+
+        Pedido.continuarNumeracionDesde( siguienteId );
+        if( pedidoEnCurso == null )
+            pedidoEnCurso = masReciente;
+        bitacoraPedidos = bitacora;
+        return abiertos;
+    }
+
+    /**
+     * Reconstruye un pedido de la bitácora con los productos del catálogo actual
+     */
+    private Pedido reconstruir( PedidoRecuperado recuperado )
+    {
+        Catalogo actual = catalogo;
+        Pedido pedido = new Pedido( recuperado.getIdPedido( ), recuperado.getNombreCliente( ), recuperado.getDireccionCliente( ) );
+        for( PedidoRecuperado.ProductoRecuperado producto : recuperado.getProductos( ) )
+        {
+            if( producto.esCombo( ) )
+            {
+                Combo combo = actual.buscarCombo( producto.getNombre( ) );
+                if( combo != null )
+                    pedido.agregarProducto( combo );
+                continue;
+            }
+
+            ProductoMenu base = actual.buscarProductoMenu( producto.getNombre( ) );
+            if( base == null )
+                continue;
+            if( !producto.esAjustado( ) )
+            {
+                pedido.agregarProducto( base );
+                continue;
+            }
+
+            ProductoAjustado ajustado = new ProductoAjustado( base );
+            for( String nombre : producto.getAgregados( ) )
+            {
+                Ingrediente ingrediente = actual.buscarIngrediente( nombre );
+                if( ingrediente != null )
+                    ajustado.agregarIngrediente( ingrediente );
+            }
+            for( String nombre : producto.getEliminados( ) )
+            {
+                Ingrediente ingrediente = actual.buscarIngrediente( nombre );
+                if( ingrediente != null )
+                    ajustado.eliminarIngrediente( ingrediente );
+            }
+            pedido.agregarProducto( ajustado );
+        }
+        return pedido;
+    }
+
+    /**
+     * Retorna dónde queda guardada la factura de un pedido, para mostrársela al usuario
+     * 
+     * @param idPedido El identificador del pedido
+     * @return Una descripción de la ubicación, como la ruta del archivo
+     */
+    public String getUbicacionFactura( int idPedido )
+    {
+        return escritorFacturas.getAlmacen( ).getUbicacion( idPedido );
+    }
+
+    /**
+     * Lee la factura guardada de un pedido cerrado
+     * 
+     * @param idPedido El identificador del pedido
+     * @return El texto de la factura o null si no hay una factura guardada para ese pedido
+     * @throws IOException Lanza esta excepción si la factura existe pero no se pudo leer, o si no se pudo escribir
+     */
+    public String leerFactura( int idPedido ) throws IOException
+    {
+        escritorFacturas.esperarFactura( idPedido );
+        return escritorFacturas.getAlmacen( ).leer( idPedido );
+    }
+
+    /**
+     * Espera hasta que las facturas de todos los pedidos cerrados hasta el momento queden escritas en disco
+     * 
+     * @throws IOException Lanza esta excepción si alguna factura no se pudo escribir
+     */
+    public void vaciarFacturas( ) throws IOException
+    {
+        escritorFacturas.vaciar( );
+    }
+
+    /**
+     * Escribe las facturas pendientes, detiene el escritor de facturas y el archivador de facturas y cierra la bitácora de pedidos si se está usando. Se debe llamar cuando se termina de usar el restaurante.
+     * 
+     * @throws IOException Lanza esta excepción si alguna factura pendiente no se pudo escribir
+     */
+    public void cerrar( ) throws IOException
+    {
+        if( archivador != null )
+            archivador.cerrar( );
+        try
+        {
+            escritorFacturas.cerrar( );
+        }
+        finally
+        {
+            if( bitacoraPedidos != null )
+                bitacoraPedidos.cerrar( );
+        }
+    }
+
+    /**
+     * Lee la marca de identificadores guardada en la carpeta de facturas, para que los pedidos nuevos no reutilicen identificadores de facturas que ya
+     * existen. A partir de este momento cada pedido que se cierra queda cubierto por la marca antes de guardar su factura.
+     * 
+     * Si la carpeta todavía no tiene marca, por ejemplo porque sus facturas se escribieron con una versión anterior, la numeración continúa después de
+     * la factura más alta que haya en la carpeta, en los archivos de facturas comprimidas o en la bitácora de facturas.
+     * 
+     * Debe llamarse antes de abrir el primer pedido.
+     * 
+     * @throws IOException Lanza esta excepción si la marca existe pero no se puede leer, o si no existe y no se pudieron revisar las facturas
+     */
+    public void recuperarNumeracionPedidos( ) throws IOException
+    {
+        File marca = new File( carpetaFacturas, ARCHIVO_NUMERACION );
+        if( !marca.exists( ) )
+        {
+            int mayor = Math.max( new CarpetaFacturas( carpetaFacturas ).buscarMayorId( ), BitacoraFacturas.buscarMayorId( new File( carpetaFacturas,
+                    CARPETA_BITACORA ) ) );
+            Pedido.continuarNumeracionDesde( mayor + 1 );
+        }
+        numeracion = new NumeracionPedidos( marca );
+    }
+
+    /**
+     * Retorna uno de los pedidos abiertos
+     * 
+     * @param idPedido El identificador del pedido
+     * @return El pedido abierto con ese identificador o null si no hay ninguno
+     */
+    public Pedido getPedidoAbierto( int idPedido )
+    {
+        return registro.buscar( idPedido );
+    }
+
+    /**
+     * Retorna la lista de los pedidos que están abiertos en este momento, incluyendo el pedido en curso
+     * 
+     * @return Una copia de la lista de pedidos abiertos
+     */
+    public ArrayList<Pedido> getPedidosAbiertos( )
+    {
+        return registro.getPedidosAbiertos( );
     }
 
     /**
@@ -137,19 +513,90 @@ public class Restaurante
     /**
      * Busca un pedido previamente cerrado por su identificador.
      *
+     * Si el pedido ya no está en memoria (porque se liberó con liberarPedidosCerrados o porque se cerró en una ejecución anterior), se construye una
+     * vista de sólo lectura a partir de su factura guardada, leyéndola directamente del archivo mapeado en memoria.
+     *
      * @param idPedido Identificador a buscar.
      * @return El pedido correspondiente o {@code null} si no existe.
+     * @throws IOException Lanza esta excepción si la factura del pedido existe pero no se pudo leer
      */
-    public Pedido buscarPedidoPorId( int idPedido )
+    public VistaPedido buscarPedidoPorId( int idPedido ) throws IOException
     {
-        for( Pedido pedido : pedidos )
+        Pedido pedido = indicePedidos.buscar( idPedido );
+        if( pedido != null )
+            return pedido;
+
+        ByteBuffer factura = escritorFacturas.getAlmacen( ).mapear( idPedido );
+        return factura == null ? null : new FacturaHistorica( idPedido, factura );
+    }
+
+    /**
+     * Libera de la memoria los pedidos cerrados más antiguos, conservando sólo los más recientes. Los pedidos liberados se siguen pudiendo consultar con
+     * buscarPedidoPorId a partir de sus facturas, pero ya no aparecen en getPedidos ni en buscarPedidosEnRango.
+     *
+     * Antes de liberar los pedidos se espera a que todas las facturas pendientes queden escritas.
+     *
+     * @param conservar La cantidad de pedidos cerrados que deben quedar en memoria
+     * @return La cantidad de pedidos que se liberaron
+     * @throws IOException Lanza esta excepción si alguna factura pendiente no se pudo escribir. En ese caso no se libera ningún pedido.
+     */
+    public int liberarPedidosCerrados( int conservar ) throws IOException
+    {
+        escritorFacturas.vaciar( );
+        synchronized( pedidos )
         {
-            if( pedido.getIdPedido( ) == idPedido )
+            int liberar = Math.max( pedidos.size( ) - conservar, 0 );
+            for( int i = 0; i < liberar; i++ )
             {
-                return pedido;
+                indicePedidos.retirar( pedidos.get( i ).getIdPedido( ) );
             }
+            pedidos.subList( 0, liberar ).clear( );
+            return liberar;
         }
-        return null;
+    }
+
+    /**
+     * Retorna las ventas de los pedidos cerrados, por columnas. A diferencia de getPedidos, incluye los pedidos que se liberaron con
+     * liberarPedidosCerrados.
+     * 
+     * @return
+     */
+    public VentasColumnares getVentas( )
+    {
+        return ventas;
+    }
+
+    /**
+     * Busca los pedidos cerrados cuyo identificador está en un rango.
+     *
+     * @param desde El menor identificador del rango, incluido
+     * @param hasta El mayor identificador del rango, incluido
+     * @return Los pedidos del rango ordenados por identificador
+     */
+    public ArrayList<Pedido> buscarPedidosEnRango( int desde, int hasta )
+    {
+        return indicePedidos.buscarEnRango( desde, hasta );
+    }
+
+    /**
+     * Retorna el catálogo publicado en este momento. Quien necesite consultar varias cosas del catálogo de forma consistente, aunque se recargue
+     * mientras tanto, debe obtenerlo una vez y consultarlo directamente.
+     * 
+     * @return
+     */
+    public Catalogo getCatalogo( )
+    {
+        return catalogo;
+    }
+
+    /**
+     * Retorna la versión del catálogo publicado en este momento. Aumenta cada vez que se carga un catálogo.
+     * 
+     * @return
+     */
+    public long getVersionCatalogo( )
+    {
+        return catalogo.getVersion( );
     }
 
     /**
@@ -157,9 +604,9 @@ public class Restaurante
      * 
      * @return
      */
-    public ArrayList<ProductoMenu> getMenuBase( )
+    public List<ProductoMenu> getMenuBase( )
     {
-        return menuBase;
+        return catalogo.getMenuBase( );
     }
 
     /**
@@ -167,9 +614,9 @@ public class Restaurante
      * 
      * @return
      */
-    public ArrayList<Combo> getMenuCombos( )
+    public List<Combo> getMenuCombos( )
     {
-        return menuCombos;
+        return catalogo.getMenuCombos( );
     }
 
     /**
@@ -177,13 +624,52 @@ public class Restaurante
      * 
      * @return
      */
-    public ArrayList<Ingrediente> getIngredientes( )
+    public List<Ingrediente> getIngredientes( )
+    {
+        return catalogo.getIngredientes( );
+    }
+
+    /**
+     * Busca un ingrediente por su nombre
+     * 
+     * @param nombre El nombre del ingrediente
+     * @return El ingrediente o null si no existe
+     */
+    public Ingrediente buscarIngrediente( String nombre )
+    {
+        return catalogo.buscarIngrediente( nombre );
+    }
+
+    /**
+     * Busca un producto del menú por su nombre
+     * 
+     * @param nombre El nombre del producto
+     * @return El producto o null si no existe
+     */
+    public ProductoMenu buscarProductoMenu( String nombre )
     {
-        return ingredientes;
+        return catalogo.buscarProductoMenu( nombre );
     }
 
     /**
-     * Carga la información de los ingredientes, los productos y los combos del restaurante
+     * Busca un combo por su nombre
+     * 
+     * @param nombre El nombre del combo
+     * @return El combo o null si no existe
+     */
+    public Combo buscarCombo( String nombre )
+    {
+        return catalogo.buscarCombo( nombre );
+    }
+
+    /**
+     * Carga la información de los ingredientes, los productos y los combos del restaurante.
+     * 
+     * La información se carga en un catálogo nuevo, que sólo reemplaza al actual si los tres archivos se cargaron sin problemas. Los archivos se leen como
+     * UTF-8 con LectorCatalogo, y los errores indican la línea del archivo donde ocurrieron.
+     * 
+     * Después de leer los archivos de texto se guarda una copia binaria del catálogo en la carpeta de facturas. Si en una carga posterior los tres archivos
+     * no han cambiado, el catálogo se reconstruye desde esa copia sin volver a leer el texto.
      * 
      * @param archivoIngredientes El archivo que tiene la información de los ingredientes
      * @param archivoMenu El archivo que tiene la información de los productos base
@@ -193,146 +679,58 @@ public class Restaurante
      */
     public void cargarInformacionRestaurante( File archivoIngredientes, File archivoMenu, File archivoCombos ) throws HamburguesaException, NumberFormatException, IOException
     {
-        cargarIngredientes( archivoIngredientes );
-        cargarMenu( archivoMenu );
-        cargarCombos( archivoCombos );
-    }
-
-    private void cargarIngredientes( File archivoIngredientes ) throws IngredienteRepetidoException, IOException
-    {
-        BufferedReader reader = new BufferedReader( new java.io.FileReader( archivoIngredientes ) );
-        try
-        {
-            String linea = reader.readLine( );
-            while( linea != null )
-            {
-                if( !linea.isEmpty( ) )
-                {
-                    String[] ingredientesStr = linea.split( ";" );
-                    String nombreIngrediente = ingredientesStr[ 0 ];
-                    int costoIngrediente = Integer.parseInt( ingredientesStr[ 1 ] );
-                    Ingrediente ingrediente = new Ingrediente( nombreIngrediente, costoIngrediente );
-
-                    for( Ingrediente i : this.ingredientes )
-                    {
-                        if( i.getNombre( ).equals( nombreIngrediente ) )
-                        {
-                            throw new IngredienteRepetidoException( nombreIngrediente );
-                        }
-                    }
-                    this.ingredientes.add( ingrediente );
-                }
-                linea = reader.readLine( );
-            }
-        }
-        catch( Exception e )
-        {
-            throw e;
-        }
-        finally
-        {
-            reader.close( );
-        }
+        recuperarNumeracionPedidos( );
+        recargarCatalogo( archivoIngredientes, archivoMenu, archivoCombos );
     }
 
-    private void cargarMenu( File archivoMenu ) throws ProductoRepetidoException, IOException
+    /**
+     * Carga un catálogo nuevo desde los archivos y lo publica en lugar del actual, sin detener la atención de pedidos.
+     * 
+     * El catálogo se construye aparte y se publica con una sola asignación cuando está completo, así que los lectores ven el catálogo anterior o el
+     * nuevo, nunca uno a medio cargar, y no tienen que esperar. Los pedidos abiertos conservan los productos y combos del catálogo con el que se
+     * armaron. Si la carga falla, el catálogo actual sigue publicado.
+     * 
+     * @param archivoIngredientes El archivo que tiene la información de los ingredientes
+     * @param archivoMenu El archivo que tiene la información de los productos base
+     * @param archivoCombos El archivo que tiene la información de los combos
+     * @throws HamburguesaException Se lanza si hay elementos repetidos o productos faltantes en los archivos
+     * @throws NumberFormatException Se lanza si un precio o un descuento no es un número
+     * @throws IOException Se lanza si no se puede leer alguno de los archivos
+     */
+    public void recargarCatalogo( File archivoIngredientes, File archivoMenu, File archivoCombos ) throws HamburguesaException, NumberFormatException, IOException
     {
-        BufferedReader reader = new BufferedReader( new java.io.FileReader( archivoMenu ) );
-        try
+        synchronized( cargaCatalogo )
         {
-            String linea = reader.readLine( );
-            while( linea != null )
+            File archivoInstantanea = new File( carpetaFacturas, ARCHIVO_INSTANTANEA );
+            long[] sumas = InstantaneaCatalogo.calcularSumas( archivoIngredientes, archivoMenu, archivoCombos );
+            Catalogo nuevo = InstantaneaCatalogo.leer( archivoInstantanea, sumas );
+            if( nuevo == null )
             {
-                if( !linea.isEmpty( ) )
-                {
-                    String[] productoStr = linea.split( ";" );
-                    String nombreProducto = productoStr[ 0 ];
-                    int costoProducto = Integer.parseInt( productoStr[ 1 ] );
-                    ProductoMenu producto = new ProductoMenu( nombreProducto, costoProducto );
-
-                    for( ProductoMenu prod : this.menuBase )
-                    {
-                        if( prod.getNombre( ).equals( nombreProducto ) )
-                        {
-                            throw new ProductoRepetidoException( nombreProducto );
-                        }
-                    }
-                    this.menuBase.add( producto );
-                }
-                linea = reader.readLine( );
+                nuevo = new Catalogo( );
+                LectorCatalogo.cargarIngredientes( nuevo, archivoIngredientes );
+                LectorCatalogo.cargarMenu( nuevo, archivoMenu );
+                LectorCatalogo.cargarCombos( nuevo, archivoCombos );
+                guardarInstantanea( nuevo, sumas, archivoInstantanea );
             }
-        }
-        catch( Exception e )
-        {
-            throw e;
-        }
-        finally
-        {
-            reader.close( );
+            nuevo.publicar( ++versionCatalogo );
+            catalogo = nuevo;
         }
     }
 
-    private void cargarCombos( File archivoCombos ) throws ProductoRepetidoException, ProductoFaltanteException, IOException
+    /**
+     * Guarda la copia binaria de un catálogo recién cargado. La copia es sólo una ayuda para el siguiente arranque, así que si no se puede escribir el
+     * catálogo se usa igual y el siguiente arranque leerá los archivos de texto.
+     */
+    private void guardarInstantanea( Catalogo nuevo, long[] sumas, File archivoInstantanea )
     {
-        BufferedReader reader = new BufferedReader( new java.io.FileReader( archivoCombos ) );
         try
         {
-            String linea = reader.readLine( );
-            while( linea != null )
-            {
-                if( !linea.isEmpty( ) )
-                {
-                    String[] comboStr = linea.split( ";" );
-                    String nombreCombo = comboStr[ 0 ];
-                    double descuento = Double.parseDouble( comboStr[ 1 ].replace( "%", "" ) ) / 100;
-
-                    for( Combo c : this.menuCombos )
-                    {
-                        if( c.getNombre( ).equals( nombreCombo ) )
-                        {
-                            throw new ProductoRepetidoException( nombreCombo );
-                        }
-                    }
-
-                    ArrayList<ProductoMenu> itemsCombo = new ArrayList<>( );
-                    for( int i = 2; i < comboStr.length; i++ )
-                    {
-                        String nombreProducto = comboStr[ i ];
-                        ProductoMenu productoItem = null;
-
-                        int index = 0;
-                        boolean found = false;
-                        while( index < this.menuBase.size( ) && !found )
-                        {
-                            if( this.menuBase.get( index ).getNombre( ).equals( nombreProducto ) )
-                            {
-                                productoItem = this.menuBase.get( index );
-                                found = true;
-                            }
-                            index++;
-                        }
-
-                        if( productoItem == null )
-                        {
-                            throw new ProductoFaltanteException( nombreProducto );
-                        }
-
-                        itemsCombo.add( productoItem );
-                    }
-
-                    Combo combo = new Combo( nombreCombo, descuento, itemsCombo );
-                    this.menuCombos.add( combo );
-                }
-                linea = reader.readLine( );
-            }
+            carpetaFacturas.mkdirs( );
+            InstantaneaCatalogo.escribir( nuevo, sumas, archivoInstantanea );
         }
-        catch( Exception e )
-        {
-            throw e;
-        }
-        finally
+        catch( IOException e )
         {
-            reader.close( );
+            System.out.println( "No se pudo guardar la copia del catálogo: " + e.getMessage( ) );
         }
     }
 
@@ -0,0 +1,337 @@
+package uniandes.dpoo.hamburguesas.mundo;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Las líneas de los pedidos cerrados, guardadas por columnas en arreglos de tipos primitivos para poder responder consultas de ventas recorriendo
+ * millones de líneas en pocos milisegundos.
+ *
+ * Cada línea de un pedido cerrado se guarda con el identificador del pedido, el identificador del producto, la cantidad, el precio neto, el IVA
+ * y el momento en que se cerró el pedido. Cada columna es un arreglo aparte, así que una consulta sólo lee las columnas que usa y las recorre en
+ * orden. Los productos se identifican con un número que se asigna la primera vez que aparece cada nombre; un combo y un producto del menú con el
+ * mismo nombre reciben números distintos, y un producto ajustado cuenta como su producto base.
+ *
+ * La factura trunca el IVA una sola vez, sobre el neto de todo el pedido, así que el IVA no se reparte entre las líneas: la primera línea de cada
+ * pedido tiene el IVA del pedido completo y las demás tienen 0. Así las sumas de IVA coinciden con las facturas.
+ *
+ * Las líneas sólo se agregan. Las consultas no toman el candado de la escritura: leen primero la cantidad de líneas publicadas y luego las columnas,
+ * que siempre tienen por lo menos esas líneas, así que no bloquean el cierre de pedidos.
+ */
+public class VentasColumnares
+{
+    private static final long MILIS_HORA = 60L * 60 * 1000;
+
+    private static final long MILIS_DIA = 24 * MILIS_HORA;
+
+    /**
+     * Las columnas de las líneas. Se reemplazan por una copia más grande cuando se llenan.
+     */
+    private static final class Columnas
+    {
+        final int[] pedido;
+
+        final int[] producto;
+
+        final int[] cantidad;
+
+        final int[] neto;
+
+        final int[] iva;
+
+        final long[] instante;
+
+        Columnas( int capacidad )
+        {
+            pedido = new int[capacidad];
+            producto = new int[capacidad];
+            cantidad = new int[capacidad];
+            neto = new int[capacidad];
+            iva = new int[capacidad];
+            instante = new long[capacidad];
+        }
+
+        Columnas( Columnas anteriores, int capacidad )
+        {
+            pedido = Arrays.copyOf( anteriores.pedido, capacidad );
+            producto = Arrays.copyOf( anteriores.producto, capacidad );
+            cantidad = Arrays.copyOf( anteriores.cantidad, capacidad );
+            neto = Arrays.copyOf( anteriores.neto, capacidad );
+            iva = Arrays.copyOf( anteriores.iva, capacidad );
+            instante = Arrays.copyOf( anteriores.instante, capacidad );
+        }
+    }
+
+    private volatile Columnas columnas;
+
+    /**
+     * La cantidad de líneas publicadas. Se escribe después de las columnas, así que quien la lea ve las columnas con todas esas líneas.
+     */
+    private volatile int cantidad;
+
+    /**
+     * Los nombres de los productos, en el orden de sus identificadores
+     */
+    private volatile String[] nombres;
+
+    /**
+     * Indica, para cada identificador de producto, si el producto es un combo
+     */
+    private volatile boolean[] combos;
+
+    private int cantidadProductos;
+
+    /**
+     * Los identificadores de los productos del menú, por nombre
+     */
+    private HashMap<String, Integer> identificadoresProductos;
+
+    /**
+     * Los identificadores de los combos, por nombre
+     */
+    private HashMap<String, Integer> identificadoresCombos;
+
+    /**
+     * Crea un almacén de ventas vacío
+     */
+    public VentasColumnares( )
+    {
+        columnas = new Columnas( 1024 );
+        nombres = new String[16];
+        combos = new boolean[16];
+        identificadoresProductos = new HashMap<String, Integer>( );
+        identificadoresCombos = new HashMap<String, Integer>( );
+    }
+
+    /**
+     * Agrega una línea por cada línea de un pedido cerrado, con su cantidad
+     * @param pedido El pedido cerrado
+     * @param instante El momento en que se cerró el pedido, en milisegundos desde 1970
+     */
+    public synchronized void registrar( Pedido pedido, long instante )
+    {
+        ArrayList<LineaPedido> lineas = pedido.getLineas( );
+        int n = cantidad;
+        Columnas c = columnas;
+        if( n + lineas.size( ) > c.pedido.length )
+        {
+            c = new Columnas( c, Math.max( c.pedido.length * 2, n + lineas.size( ) ) );
+            columnas = c;
+        }
+
+        int primera = n;
+        int netoPedido = 0;
+        for( LineaPedido linea : lineas )
+        {
+            int subtotal = linea.getSubtotal( );
+            c.pedido[ n ] = pedido.getIdPedido( );
+            c.producto[ n ] = identificar( linea.getProducto( ) );
+            c.cantidad[ n ] = linea.getCantidad( );
+            c.neto[ n ] = subtotal;
+            c.iva[ n ] = 0;
+            c.instante[ n ] = instante;
+            netoPedido = Math.addExact( netoPedido, subtotal );
+            n++;
+        }
+        if( n > primera )
+            c.iva[ primera ] = Pedido.calcularIVA( netoPedido );
+        cantidad = n;
+    }
+
+    /**
+     * Retorna el identificador de un producto, asignándole uno nuevo si es la primera vez que aparece su nombre entre los productos de su tipo
+     */
+    private int identificar( Producto producto )
+    {
+        HashMap<String, Integer> identificadores = producto instanceof Combo ? identificadoresCombos : identificadoresProductos;
+        Integer id = identificadores.get( producto.getNombre( ) );
+        if( id != null )
+            return id;
+
+        if( cantidadProductos == nombres.length )
+        {
+            combos = Arrays.copyOf( combos, cantidadProductos * 2 );
+            nombres = Arrays.copyOf( nombres, cantidadProductos * 2 );
+        }
+        combos[ cantidadProductos ] = producto instanceof Combo;
+        nombres[ cantidadProductos ] = producto.getNombre( );
+        identificadores.put( producto.getNombre( ), cantidadProductos );
+        return cantidadProductos++;
+    }
+
+    /**
+     * Retorna la cantidad de líneas guardadas
+     * @return
+     */
+    public int getCantidadLineas( )
+    {
+        return cantidad;
+    }
+
+    /**
+     * Retorna la cantidad de productos distintos que aparecen en las líneas. Los identificadores de producto van de 0 a este valor menos uno.
+     * @return
+     */
+    public synchronized int getCantidadProductos( )
+    {
+        return cantidadProductos;
+    }
+
+    /**
+     * Retorna el nombre de un producto
+     * @param idProducto El identificador del producto
+     * @return El nombre del producto
+     */
+    public String getNombreProducto( int idProducto )
+    {
+        return nombres[ idProducto ];
+    }
+
+    /**
+     * Indica si un producto es un combo
+     * @param idProducto El identificador del producto
+     * @return true si el producto es un combo
+     */
+    public boolean esCombo( int idProducto )
+    {
+        return combos[ idProducto ];
+    }
+
+    /**
+     * Busca el identificador de un producto por su nombre. Si un producto del menú y un combo tienen el mismo nombre, retorna el del producto del menú;
+     * el del combo se busca con buscarCombo.
+     * @param nombre El nombre del producto o del combo
+     * @return El identificador, o -1 si el producto no aparece en ninguna línea
+     */
+    public synchronized int buscarProducto( String nombre )
+    {
+        Integer id = identificadoresProductos.get( nombre );
+        if( id == null )
+            id = identificadoresCombos.get( nombre );
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Busca el identificador de un combo por su nombre
+     * @param nombre El nombre del combo
+     * @return El identificador, o -1 si el combo no aparece en ninguna línea
+     */
+    public synchronized int buscarCombo( String nombre )
+    {
+        Integer id = identificadoresCombos.get( nombre );
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Suma el precio neto vendido de cada producto en un intervalo de tiempo
+     * @param desde El inicio del intervalo en milisegundos desde 1970, incluido
+     * @param hasta El fin del intervalo en milisegundos desde 1970, excluido
+     * @return Un arreglo con la suma de cada producto, en la posición de su identificador
+     */
+    public long[] sumarPorProducto( long desde, long hasta )
+    {
+        int n = cantidad;
+        Columnas c = columnas;
+        long[] sumas = new long[nombres.length];
+        int[] producto = c.producto;
+        int[] neto = c.neto;
+        long[] instante = c.instante;
+        for( int i = 0; i < n; i++ )
+        {
+            long t = instante[ i ];
+            if( t >= desde && t < hasta )
+                sumas[ producto[ i ] ] += neto[ i ];
+        }
+        return sumas;
+    }
+
+    /**
+     * Suma el precio neto vendido de cada combo en un intervalo de tiempo
+     * @param desde El inicio del intervalo en milisegundos desde 1970, incluido
+     * @param hasta El fin del intervalo en milisegundos desde 1970, excluido
+     * @return Un arreglo con la suma de cada combo, en la posición de su identificador. Las posiciones de los productos que no son combos quedan en 0.
+     */
+    public long[] sumarPorCombo( long desde, long hasta )
+    {
+        long[] sumas = sumarPorProducto( desde, hasta );
+        boolean[] esCombo = combos;
+        for( int i = 0; i < sumas.length && i < esCombo.length; i++ )
+        {
+            if( !esCombo[ i ] )
+                sumas[ i ] = 0;
+        }
+        return sumas;
+    }
+
+    /**
+     * Cuenta las unidades vendidas de cada producto en un intervalo de tiempo
+     * @param desde El inicio del intervalo en milisegundos desde 1970, incluido
+     * @param hasta El fin del intervalo en milisegundos desde 1970, excluido
+     * @return Un arreglo con las unidades de cada producto, en la posición de su identificador
+     */
+    public long[] contarPorProducto( long desde, long hasta )
+    {
+        int n = cantidad;
+        Columnas c = columnas;
+        long[] unidades = new long[nombres.length];
+        int[] producto = c.producto;
+        int[] cantidades = c.cantidad;
+        long[] instante = c.instante;
+        for( int i = 0; i < n; i++ )
+        {
+            long t = instante[ i ];
+            if( t >= desde && t < hasta )
+                unidades[ producto[ i ] ] += cantidades[ i ];
+        }
+        return unidades;
+    }
+
+    /**
+     * Suma el total vendido, con IVA, en cada hora del día dentro de un intervalo de tiempo
+     * @param desde El inicio del intervalo en milisegundos desde 1970, incluido
+     * @param hasta El fin del intervalo en milisegundos desde 1970, excluido
+     * @param zona La diferencia con UTC con la que se calcula la hora de cada línea
+     * @return Un arreglo de 24 posiciones con el total de cada hora, de 0 a 23
+     */
+    public long[] sumarPorHora( long desde, long hasta, ZoneOffset zona )
+    {
+        int n = cantidad;
+        Columnas c = columnas;
+        long desfase = zona.getTotalSeconds( ) * 1000L;
+        long[] sumas = new long[24];
+        int[] neto = c.neto;
+        int[] iva = c.iva;
+        long[] instante = c.instante;
+        for( int i = 0; i < n; i++ )
+        {
+            long t = instante[ i ];
+            if( t >= desde && t < hasta )
+                sumas[ ( int )( Math.floorMod( t + desfase, MILIS_DIA ) / MILIS_HORA ) ] += neto[ i ] + iva[ i ];
+        }
+        return sumas;
+    }
+
+    /**
+     * Suma el IVA de los pedidos cerrados en un intervalo de tiempo. Es la suma del IVA de sus facturas.
+     * @param desde El inicio del intervalo en milisegundos desde 1970, incluido
+     * @param hasta El fin del intervalo en milisegundos desde 1970, excluido
+     * @return La suma del IVA
+     */
+    public long sumarIVA( long desde, long hasta )
+    {
+        int n = cantidad;
+        Columnas c = columnas;
+        long suma = 0;
+        int[] iva = c.iva;
+        long[] instante = c.instante;
+        for( int i = 0; i < n; i++ )
+        {
+            long t = instante[ i ];
+            if( t >= desde && t < hasta )
+                suma += iva[ i ];
+        }
+        return suma;
+    }
+}
@@ -0,0 +1,31 @@
+package uniandes.dpoo.hamburguesas.mundo;
+
+/**
+ * La información de un pedido cerrado que se puede consultar, sin importar si el pedido está en memoria o si sólo queda su factura guardada
+ */
+public interface VistaPedido
+{
+    /**
+     * Retorna el identificador del pedido
+     * @return
+     */
+    public int getIdPedido( );
+
+    /**
+     * Retorna el nombre del cliente
+     * @return
+     */
+    public String getNombreCliente( );
+
+    /**
+     * Retorna el precio total del pedido, incluyendo el IVA
+     * @return
+     */
+    public int getPrecioTotalPedido( );
+
+    /**
+     * Retorna el texto de la factura del pedido
+     * @return
+     */
+    public String generarTextoFactura( );
+}
@@ -0,0 +1,54 @@
+package uniandes.dpoo.hamburguesas.persistencia;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Un lugar donde se guardan las facturas de los pedidos cerrados
+ */
+public interface AlmacenFacturas
+{
+    /**
+     * Guarda la factura de un pedido. La factura puede quedar en un buffer del sistema operativo hasta que se llame a sincronizar.
+     * @param idPedido El identificador del pedido
+     * @param factura El texto de la factura
+     * @throws IOException Se lanza esta excepción si no se pudo guardar la factura
+     */
+    public void guardar( int idPedido, String factura ) throws IOException;
+
+    /**
+     * Fuerza a disco todas las facturas guardadas desde la última sincronización
+     * @throws IOException Se lanza esta excepción si no se pudo escribir en el disco
+     */
+    public void sincronizar( ) throws IOException;
+
+    /**
+     * Lee la factura de un pedido
+     * @param idPedido El identificador del pedido
+     * @return El texto de la factura o null si el almacén no tiene una factura para ese pedido
+     * @throws IOException Se lanza esta excepción si la factura existe pero no se pudo leer
+     */
+    public String leer( int idPedido ) throws IOException;
+
+    /**
+     * Retorna la factura de un pedido como un buffer de sólo lectura con el texto en UTF-8, sin copiarlo a la memoria de la aplicación: el buffer es una
+     * porción del archivo mapeado en memoria.
+     * @param idPedido El identificador del pedido
+     * @return El buffer con la factura o null si el almacén no tiene una factura para ese pedido
+     * @throws IOException Se lanza esta excepción si la factura existe pero no se pudo mapear
+     */
+    public ByteBuffer mapear( int idPedido ) throws IOException;
+
+    /**
+     * Sincroniza las facturas pendientes y libera los recursos del almacén. Después de cerrarlo no se deben guardar más facturas.
+     * @throws IOException Se lanza esta excepción si no se pudo escribir en el disco
+     */
+    public void cerrar( ) throws IOException;
+
+    /**
+     * Retorna una descripción de dónde queda la factura de un pedido, para mostrarla al usuario
+     * @param idPedido El identificador del pedido
+     * @return
+     */
+    public String getUbicacion( int idPedido );
+}
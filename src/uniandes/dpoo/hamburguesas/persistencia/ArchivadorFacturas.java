@@ -0,0 +1,286 @@
+package uniandes.dpoo.hamburguesas.persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comprime las facturas sueltas de los días que ya terminaron en archivos de facturas (ver ArchivoFacturas), uno por día, y borra los archivos
+ * sueltos. Las facturas archivadas se siguen leyendo por medio de la misma CarpetaFacturas.
+ *
+ * El día de una factura es el día en que se modificó su archivo por última vez, en la zona horaria del archivador, porque las facturas se escriben
+ * cuando se cierra el pedido. Las facturas del día actual nunca se archivan, porque todavía pueden llegar más.
+ *
+ * Un archivo suelto sólo se borra después de que el archivo comprimido quedó sincronizado con el disco y registrado en la carpeta, y sólo si no se
+ * volvió a escribir mientras tanto. Si la aplicación se cae a la mitad, la factura queda en los dos lugares y se lee la suelta.
+ */
+public class ArchivadorFacturas
+{
+    /**
+     * La cantidad máxima de facturas de un archivo. Los días con más facturas se dividen en varios archivos, para no tener un día entero en memoria.
+     */
+    public static final int FACTURAS_POR_ARCHIVO = 50_000;
+
+    /**
+     * El resultado de una pasada del archivador
+     */
+    public static class Resultado
+    {
+        private int dias;
+
+        private int facturas;
+
+        private long bytesAntes;
+
+        private long bytesDespues;
+
+        /**
+         * Retorna la cantidad de días que se archivaron
+         * @return
+         */
+        public int getDias( )
+        {
+            return dias;
+        }
+
+        /**
+         * Retorna la cantidad de facturas que se archivaron
+         * @return
+         */
+        public int getFacturas( )
+        {
+            return facturas;
+        }
+
+        /**
+         * Retorna cuántos bytes ocupaban los archivos sueltos que se archivaron
+         * @return
+         */
+        public long getBytesAntes( )
+        {
+            return bytesAntes;
+        }
+
+        /**
+         * Retorna cuántos bytes ocupan los archivos comprimidos que se escribieron
+         * @return
+         */
+        public long getBytesDespues( )
+        {
+            return bytesDespues;
+        }
+
+        @Override
+        public String toString( )
+        {
+            return String.format( "Se archivaron %d facturas de %d días: %d bytes pasaron a ocupar %d", facturas, dias, bytesAntes, bytesDespues );
+        }
+    }
+
+    private CarpetaFacturas carpeta;
+
+    private ZoneId zona;
+
+    private ScheduledExecutorService programador;
+
+    /**
+     * Crea un archivador que no hace nada hasta que se llame a archivarDiasCerrados o a iniciar
+     * @param carpeta La carpeta de las facturas que se archivan
+     * @param zona La zona horaria con la que se decide a qué día pertenece cada factura
+     */
+    public ArchivadorFacturas( CarpetaFacturas carpeta, ZoneId zona )
+    {
+        this.carpeta = carpeta;
+        this.zona = zona;
+    }
+
+    /**
+     * Archiva las facturas sueltas de todos los días anteriores al día actual
+     * @return
+     * @throws IOException Se lanza esta excepción si no se pudo escribir algún archivo. Los días que alcanzaron a archivarse quedan archivados.
+     */
+    public Resultado archivarDiasCerrados( ) throws IOException
+    {
+        return archivarAntesDe( LocalDate.now( zona ) );
+    }
+
+    /**
+     * Archiva las facturas sueltas de los días anteriores al indicado
+     * @param hoy El primer día que no se archiva
+     * @return
+     * @throws IOException Se lanza esta excepción si no se pudo escribir algún archivo. Los días que alcanzaron a archivarse quedan archivados.
+     */
+    public synchronized Resultado archivarAntesDe( LocalDate hoy ) throws IOException
+    {
+        Resultado resultado = new Resultado( );
+        File[] sueltos = carpeta.getCarpeta( ).listFiles( ( dir, nombre ) -> nombre.startsWith( CarpetaFacturas.PREFIJO_FACTURAS ) && nombre
+                .endsWith( ".txt" ) );
+        if( sueltos == null )
+            return resultado;
+
+        // Cada día queda con sus facturas ordenadas por identificador
+        TreeMap<LocalDate, TreeMap<Integer, File>> porDia = new TreeMap<LocalDate, TreeMap<Integer, File>>( );
+        for( File suelto : sueltos )
+        {
+            String nombre = suelto.getName( );
+            int id;
+            try
+            {
+                id = Integer.parseInt( nombre.substring( CarpetaFacturas.PREFIJO_FACTURAS.length( ), nombre.length( ) - 4 ) );
+            }
+            catch( NumberFormatException e )
+            {
+                continue;
+            }
+            if( !carpeta.getArchivo( id ).getName( ).equals( nombre ) )
+                continue;
+            long modificado = suelto.lastModified( );
+            if( modificado == 0 )
+                continue;
+            LocalDate dia = LocalDate.ofInstant( Instant.ofEpochMilli( modificado ), zona );
+            if( dia.isBefore( hoy ) )
+                porDia.computeIfAbsent( dia, d -> new TreeMap<Integer, File>( ) ).put( id, suelto );
+        }
+
+        for( Map.Entry<LocalDate, TreeMap<Integer, File>> dia : porDia.entrySet( ) )
+        {
+            ArrayList<Map.Entry<Integer, File>> facturas = new ArrayList<Map.Entry<Integer, File>>( dia.getValue( ).entrySet( ) );
+            for( int desde = 0; desde < facturas.size( ); desde += FACTURAS_POR_ARCHIVO )
+                archivar( dia.getKey( ), facturas.subList( desde, Math.min( facturas.size( ), desde + FACTURAS_POR_ARCHIVO ) ), resultado );
+            resultado.dias++;
+        }
+        return resultado;
+    }
+
+    /**
+     * Escribe un archivo con las facturas indicadas, todas del mismo día, y borra los archivos sueltos
+     * @param dia
+     * @param facturas Los archivos sueltos, ordenados por identificador
+     * @param resultado
+     * @throws IOException
+     */
+    private void archivar( LocalDate dia, List<Map.Entry<Integer, File>> facturas, Resultado resultado ) throws IOException
+    {
+        int[] ids = new int[facturas.size( )];
+        byte[][] textos = new byte[facturas.size( )][];
+        long[] modificados = new long[facturas.size( )];
+        int leidas = 0;
+        for( Map.Entry<Integer, File> factura : facturas )
+        {
+            // Se toma la fecha antes de leer: si el archivo cambia después, la fecha ya no coincide y no se borra
+            long modificado = factura.getValue( ).lastModified( );
+            try
+            {
+                textos[ leidas ] = Files.readAllBytes( factura.getValue( ).toPath( ) );
+            }
+            catch( NoSuchFileException e )
+            {
+                continue;
+            }
+            ids[ leidas ] = factura.getKey( );
+            modificados[ leidas ] = modificado;
+            leidas++;
+        }
+        if( leidas == 0 )
+            return;
+        if( leidas < ids.length )
+        {
+            ids = Arrays.copyOf( ids, leidas );
+            textos = Arrays.copyOf( textos, leidas );
+        }
+
+        ArchivoFacturas archivo = ArchivoFacturas.escribir( nuevoArchivo( dia ), ids, textos );
+        carpeta.agregarArchivo( archivo );
+        resultado.bytesDespues += archivo.getArchivo( ).length( );
+        for( int i = 0; i < leidas; i++ )
+        {
+            File suelto = carpeta.getArchivo( ids[ i ] );
+            if( suelto.lastModified( ) == modificados[ i ] && suelto.delete( ) )
+            {
+                resultado.facturas++;
+                resultado.bytesAntes += textos[ i ].length;
+            }
+        }
+    }
+
+    /**
+     * Retorna un archivo que todavía no existe para las facturas de un día: archivo_2024-05-01.fac, archivo_2024-05-01_1.fac, ...
+     * @param dia
+     * @return
+     */
+    private File nuevoArchivo( LocalDate dia )
+    {
+        String base = CarpetaFacturas.PREFIJO_ARCHIVOS + dia;
+        File archivo = new File( carpeta.getCarpeta( ), base + CarpetaFacturas.EXTENSION_ARCHIVOS );
+        for( int n = 1; archivo.exists( ); n++ )
+            archivo = new File( carpeta.getCarpeta( ), base + "_" + n + CarpetaFacturas.EXTENSION_ARCHIVOS );
+        return archivo;
+    }
+
+    /**
+     * Empieza a archivar los días cerrados en un hilo aparte, una vez ahora y después cada cierto tiempo
+     * @param periodoMs El tiempo entre una pasada y la siguiente, en milisegundos
+     * @param reporte El flujo donde se reporta lo que se archivó en cada pasada y los errores. Puede ser null.
+     */
+    public synchronized void iniciar( long periodoMs, PrintStream reporte )
+    {
+        if( programador != null )
+            return;
+        programador = Executors.newSingleThreadScheduledExecutor( tarea -> {
+            Thread hilo = new Thread( tarea, "archivo-facturas" );
+            hilo.setDaemon( true );
+            hilo.setPriority( Thread.MIN_PRIORITY );
+            return hilo;
+        } );
+        programador.scheduleWithFixedDelay( ( ) -> {
+            try
+            {
+                Resultado resultado = archivarDiasCerrados( );
+                if( reporte != null && resultado.getFacturas( ) > 0 )
+                    reporte.println( resultado );
+            }
+            catch( IOException | RuntimeException e )
+            {
+                if( reporte != null )
+                    reporte.println( "No fue posible archivar las facturas: " + e.getMessage( ) );
+            }
+        }, 0, periodoMs, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Deja de archivar, esperando a que termine la pasada que esté en curso
+     */
+    public void cerrar( )
+    {
+        ScheduledExecutorService actual;
+        synchronized( this )
+        {
+            actual = programador;
+            programador = null;
+        }
+        if( actual == null )
+            return;
+        actual.shutdown( );
+        try
+        {
+            actual.awaitTermination( 30, TimeUnit.SECONDS );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+}
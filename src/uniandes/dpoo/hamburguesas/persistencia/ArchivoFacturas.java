@@ -0,0 +1,495 @@
+package uniandes.dpoo.hamburguesas.persistencia;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Un archivo de solo lectura con las facturas de un día, comprimidas una por una con un diccionario compartido.
+ *
+ * Las facturas se parecen mucho entre sí (los mismos rótulos, los mismos productos, los mismos precios), pero cada una es tan corta que comprimirla
+ * sola casi no ahorra nada. Por eso todas se comprimen con deflate usando como diccionario inicial un fragmento de facturas del mismo día: cada factura
+ * se codifica como referencias al diccionario y sigue siendo independiente de las demás, así que leer una sólo descomprime esa.
+ *
+ * El archivo tiene cuatro partes:
+ * <ul>
+ * <li>El encabezado: MARCA, VERSION, la longitud del diccionario, la longitud del diccionario comprimido y el diccionario comprimido. El diccionario
+ * se comprime para que en los días con pocas facturas no ocupe más que las facturas mismas.</li>
+ * <li>Las facturas, una tras otra: la longitud del texto original, el CRC32 del texto original y el texto comprimido</li>
+ * <li>El índice, ordenado por identificador: por cada factura la diferencia entre su identificador y el anterior, y la diferencia entre su posición y
+ * la anterior. Cada factura termina donde empieza la siguiente.</li>
+ * <li>El final: la posición del índice, la cantidad de facturas y otra vez MARCA</li>
+ * </ul>
+ * Las longitudes y las diferencias se escriben en grupos de 7 bits, así que casi siempre ocupan uno o dos bytes. El índice se carga completo en memoria
+ * al abrir el archivo.
+ *
+ * Un archivo sólo aparece con su nombre definitivo cuando ya está completo y sincronizado con el disco.
+ */
+public class ArchivoFacturas
+{
+    /**
+     * Los primeros y los últimos bytes de todo archivo de facturas
+     */
+    private static final int MARCA = 0x48464143;
+
+    /**
+     * La versión del formato
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * El tamaño del encabezado sin el diccionario
+     */
+    private static final int TAMANO_ENCABEZADO = 16;
+
+    /**
+     * El tamaño del final del archivo
+     */
+    private static final int TAMANO_FINAL = 16;
+
+    /**
+     * El tamaño del buffer con el que se escribe el archivo
+     */
+    private static final int TAMANO_BUFFER = 1024 * 1024;
+
+    /**
+     * El tamaño máximo del diccionario. Deflate sólo puede referirse a los últimos 32 KiB, así que un diccionario más grande no sirve de nada.
+     */
+    public static final int TAMANO_DICCIONARIO = 32 * 1024;
+
+    /**
+     * Los textos fijos de toda factura. Van al final del diccionario, que es la parte más barata de referenciar.
+     */
+    private static final String TEXTOS_FIJOS = "----------------\nPrecio Neto:  \nIVA:          \nPrecio Total: \nCliente: \nDirección: \n";
+
+    /**
+     * La cantidad máxima de descompresores que se guardan para reutilizar
+     */
+    private static final int DESCOMPRESORES_GUARDADOS = 8;
+
+    /**
+     * Los descompresores libres. Crear un Inflater reserva memoria por fuera del heap, así que se reutilizan entre lecturas. La cantidad está acotada y
+     * no depende de los hilos que lean, que pueden ser virtuales y muchos; los que sobran se liberan con end.
+     */
+    private static final ArrayBlockingQueue<Inflater> DESCOMPRESORES = new ArrayBlockingQueue<Inflater>( DESCOMPRESORES_GUARDADOS );
+
+    private File archivo;
+
+    /**
+     * El contenido del archivo, mapeado en memoria
+     */
+    private MappedByteBuffer mapa;
+
+    private byte[] diccionario;
+
+    /**
+     * Los identificadores de las facturas, en orden ascendente
+     */
+    private int[] ids;
+
+    /**
+     * La posición de cada factura, en el mismo orden que ids. Tiene una posición más, la del índice, donde termina la última factura.
+     */
+    private int[] posiciones;
+
+    private ArchivoFacturas( File archivo, MappedByteBuffer mapa, byte[] diccionario, int[] ids, int[] posiciones )
+    {
+        this.archivo = archivo;
+        this.mapa = mapa;
+        this.diccionario = diccionario;
+        this.ids = ids;
+        this.posiciones = posiciones;
+    }
+
+    /**
+     * Abre un archivo de facturas y carga su índice
+     * @param archivo
+     * @return
+     * @throws IOException Se lanza esta excepción si el archivo no se puede leer o no es un archivo de facturas completo
+     */
+    public static ArchivoFacturas abrir( File archivo ) throws IOException
+    {
+        MappedByteBuffer mapa;
+        try( FileChannel canal = FileChannel.open( archivo.toPath( ), StandardOpenOption.READ ) )
+        {
+            if( canal.size( ) > Integer.MAX_VALUE )
+                throw new IOException( "El archivo de facturas es demasiado grande: " + archivo.getAbsolutePath( ) );
+            mapa = canal.map( FileChannel.MapMode.READ_ONLY, 0, canal.size( ) );
+        }
+
+        int tamano = mapa.capacity( );
+        if( tamano < TAMANO_ENCABEZADO + TAMANO_FINAL || mapa.getInt( 0 ) != MARCA || mapa.getInt( tamano - 4 ) != MARCA )
+            throw new IOException( "No es un archivo de facturas completo: " + archivo.getAbsolutePath( ) );
+        if( mapa.getInt( 4 ) != VERSION )
+            throw new IOException( "Versión desconocida " + mapa.getInt( 4 ) + " en " + archivo.getAbsolutePath( ) );
+
+        int longitudDiccionario = mapa.getInt( 8 );
+        int comprimido = mapa.getInt( 12 );
+        long posicionIndice = mapa.getLong( tamano - TAMANO_FINAL );
+        int cantidad = mapa.getInt( tamano - 8 );
+        // Cada entrada del índice ocupa por lo menos dos bytes
+        if( longitudDiccionario < 0 || longitudDiccionario > TAMANO_DICCIONARIO || comprimido < 0 || cantidad < 0
+                || posicionIndice < TAMANO_ENCABEZADO + ( long )comprimido || posicionIndice + 2L * cantidad > tamano - TAMANO_FINAL )
+            throw new IOException( "El índice del archivo de facturas está dañado: " + archivo.getAbsolutePath( ) );
+
+        byte[] diccionario = new byte[longitudDiccionario];
+        Inflater descompresor = tomarDescompresor( );
+        try
+        {
+            descompresor.setInput( mapa.slice( TAMANO_ENCABEZADO, comprimido ) );
+            if( descomprimir( descompresor, diccionario ) != diccionario.length )
+                throw new IOException( "El diccionario del archivo de facturas está dañado: " + archivo.getAbsolutePath( ) );
+        }
+        finally
+        {
+            devolverDescompresor( descompresor );
+        }
+
+        int[] ids = new int[cantidad];
+        int[] posiciones = new int[cantidad + 1];
+        ByteBuffer indice = mapa.slice( ( int )posicionIndice, tamano - TAMANO_FINAL - ( int )posicionIndice );
+        long id = 0;
+        long posicion = TAMANO_ENCABEZADO + comprimido;
+        for( int i = 0; i < cantidad; i++ )
+        {
+            int diferenciaId = leerLongitud( indice );
+            int diferenciaPosicion = leerLongitud( indice );
+            id += diferenciaId;
+            posicion += diferenciaPosicion;
+            if( diferenciaId < 0 || diferenciaPosicion < 0 || ( i > 0 && diferenciaId == 0 ) || id > Integer.MAX_VALUE
+                    || posicion > posicionIndice )
+                throw new IOException( "El índice del archivo de facturas está dañado: " + archivo.getAbsolutePath( ) );
+            ids[ i ] = ( int )id;
+            posiciones[ i ] = ( int )posicion;
+        }
+        posiciones[ cantidad ] = ( int )posicionIndice;
+        if( indice.hasRemaining( ) )
+            throw new IOException( "El índice del archivo de facturas está dañado: " + archivo.getAbsolutePath( ) );
+        return new ArchivoFacturas( archivo, mapa, diccionario, ids, posiciones );
+    }
+
+    /**
+     * Escribe un archivo con las facturas indicadas. El archivo se escribe primero con otro nombre y sólo se renombra cuando ya está sincronizado con el
+     * disco, así que nunca queda un archivo a medias con el nombre definitivo.
+     * @param archivo El archivo que se crea
+     * @param ids Los identificadores de los pedidos, mayores o iguales a cero, en orden ascendente y sin repetidos
+     * @param facturas El texto de la factura de cada pedido, en UTF-8 y en el mismo orden que ids
+     * @return El archivo abierto
+     * @throws IOException Se lanza esta excepción si no se pudo escribir el archivo
+     */
+    public static ArchivoFacturas escribir( File archivo, int[] ids, byte[][] facturas ) throws IOException
+    {
+        for( int i = 0; i < ids.length; i++ )
+        {
+            if( ids[ i ] < 0 || ( i > 0 && ids[ i ] <= ids[ i - 1 ] ) )
+                throw new IllegalArgumentException( "Los identificadores deben ser positivos, estar en orden ascendente y no repetirse" );
+        }
+
+        byte[] diccionario = construirDiccionario( facturas );
+        File temporal = new File( archivo.getParentFile( ), archivo.getName( ) + ".tmp" );
+        Deflater compresor = new Deflater( Deflater.BEST_COMPRESSION, true );
+        boolean movido = false;
+        try
+        {
+            try( FileChannel canal = FileChannel.open( temporal.toPath( ), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING ) )
+            {
+                BufferedOutputStream salida = new BufferedOutputStream( Channels.newOutputStream( canal ), TAMANO_BUFFER );
+                byte[] auxiliar = new byte[4096];
+                ByteArrayOutputStream comprimido = new ByteArrayOutputStream( );
+                comprimir( compresor, null, diccionario, auxiliar, comprimido );
+                ByteBuffer encabezado = ByteBuffer.allocate( TAMANO_ENCABEZADO );
+                encabezado.putInt( MARCA ).putInt( VERSION ).putInt( diccionario.length ).putInt( comprimido.size( ) );
+                salida.write( encabezado.array( ) );
+                comprimido.writeTo( salida );
+
+                ByteArrayOutputStream indice = new ByteArrayOutputStream( ids.length * 2 );
+                long posicion = TAMANO_ENCABEZADO + comprimido.size( );
+                CRC32 crc = new CRC32( );
+                ByteBuffer crcFactura = ByteBuffer.allocate( 4 );
+                int anterior = 0;
+                for( int i = 0; i < ids.length; i++ )
+                {
+                    crc.reset( );
+                    crc.update( facturas[ i ] );
+                    crcFactura.clear( );
+                    crcFactura.putInt( ( int )crc.getValue( ) );
+
+                    int escritos = escribirLongitud( salida, facturas[ i ].length );
+                    salida.write( crcFactura.array( ) );
+                    escritos += crcFactura.capacity( ) + comprimir( compresor, diccionario, facturas[ i ], auxiliar, salida );
+
+                    escribirLongitud( indice, i == 0 ? ids[ i ] : ids[ i ] - ids[ i - 1 ] );
+                    escribirLongitud( indice, anterior );
+                    anterior = escritos;
+                    posicion += escritos;
+                    if( posicion + indice.size( ) + TAMANO_FINAL > Integer.MAX_VALUE )
+                        throw new IOException( "Demasiadas facturas para un solo archivo: " + archivo.getAbsolutePath( ) );
+                }
+
+                indice.writeTo( salida );
+                ByteBuffer fin = ByteBuffer.allocate( TAMANO_FINAL );
+                fin.putLong( posicion ).putInt( ids.length ).putInt( MARCA );
+                salida.write( fin.array( ) );
+                salida.flush( );
+                canal.force( true );
+            }
+            Files.move( temporal.toPath( ), archivo.toPath( ), StandardCopyOption.ATOMIC_MOVE );
+            movido = true;
+        }
+        finally
+        {
+            compresor.end( );
+            if( !movido )
+                temporal.delete( );
+        }
+        return abrir( archivo );
+    }
+
+    /**
+     * Arma el diccionario con facturas tomadas a intervalos regulares, para que represente todo el día y no sólo su comienzo, y con los textos fijos
+     * al final
+     * @param facturas
+     * @return
+     */
+    static byte[] construirDiccionario( byte[][] facturas )
+    {
+        byte[] fijos = TEXTOS_FIJOS.getBytes( StandardCharsets.UTF_8 );
+        int espacio = TAMANO_DICCIONARIO - fijos.length;
+        long total = 0;
+        for( byte[] factura : facturas )
+            total += factura.length;
+
+        ByteBuffer diccionario = ByteBuffer.allocate( TAMANO_DICCIONARIO );
+        int salto = total <= espacio ? 1 : ( int )Math.min( facturas.length, ( total + espacio - 1 ) / espacio );
+        for( int i = 0; i < facturas.length; i += salto )
+        {
+            if( diccionario.position( ) + facturas[ i ].length > espacio )
+                break;
+            diccionario.put( facturas[ i ] );
+        }
+        diccionario.put( fijos );
+        return Arrays.copyOf( diccionario.array( ), diccionario.position( ) );
+    }
+
+    /**
+     * Comprime un texto completo
+     * @param compresor
+     * @param diccionario El diccionario inicial, o null para no usar uno
+     * @param texto
+     * @param auxiliar Un arreglo auxiliar
+     * @param destino Dónde se escribe el texto comprimido
+     * @return La cantidad de bytes escritos
+     * @throws IOException
+     */
+    private static int comprimir( Deflater compresor, byte[] diccionario, byte[] texto, byte[] auxiliar, OutputStream destino ) throws IOException
+    {
+        compresor.reset( );
+        if( diccionario != null )
+            compresor.setDictionary( diccionario );
+        compresor.setInput( texto );
+        compresor.finish( );
+        int escritos = 0;
+        while( !compresor.finished( ) )
+        {
+            int n = compresor.deflate( auxiliar );
+            destino.write( auxiliar, 0, n );
+            escritos += n;
+        }
+        return escritos;
+    }
+
+    /**
+     * Escribe un número positivo en grupos de 7 bits, del menos significativo al más significativo. El bit alto de cada byte indica si sigue otro.
+     * @param destino
+     * @param valor
+     * @return La cantidad de bytes escritos
+     * @throws IOException
+     */
+    private static int escribirLongitud( OutputStream destino, int valor ) throws IOException
+    {
+        int escritos = 1;
+        while( ( valor & ~0x7F ) != 0 )
+        {
+            destino.write( ( valor & 0x7F ) | 0x80 );
+            valor >>>= 7;
+            escritos++;
+        }
+        destino.write( valor );
+        return escritos;
+    }
+
+    /**
+     * Lee un número escrito con escribirLongitud
+     * @param origen
+     * @return El número, o -1 si no está completo o no cabe en un int
+     */
+    private static int leerLongitud( ByteBuffer origen )
+    {
+        int valor = 0;
+        for( int desplazamiento = 0; desplazamiento <= 28 && origen.hasRemaining( ); desplazamiento += 7 )
+        {
+            byte b = origen.get( );
+            valor |= ( b & 0x7F ) << desplazamiento;
+            if( b >= 0 )
+                return valor;
+        }
+        return -1;
+    }
+
+    /**
+     * Toma un descompresor libre, o crea uno si no hay
+     * @return Un descompresor listo para recibir datos. Se debe devolver con devolverDescompresor.
+     */
+    private static Inflater tomarDescompresor( )
+    {
+        Inflater descompresor = DESCOMPRESORES.poll( );
+        return descompresor != null ? descompresor : new Inflater( true );
+    }
+
+    /**
+     * Deja un descompresor listo para la siguiente lectura o, si ya hay suficientes guardados, libera su memoria
+     * @param descompresor
+     */
+    private static void devolverDescompresor( Inflater descompresor )
+    {
+        descompresor.reset( );
+        if( !DESCOMPRESORES.offer( descompresor ) )
+            descompresor.end( );
+    }
+
+    /**
+     * Descomprime hasta llenar el destino o hasta que se acabe la entrada del descompresor
+     * @param descompresor
+     * @param destino
+     * @return La cantidad de bytes descomprimidos
+     * @throws IOException Se lanza esta excepción si los datos no son deflate válidos
+     */
+    private static int descomprimir( Inflater descompresor, byte[] destino ) throws IOException
+    {
+        int leidos = 0;
+        try
+        {
+            while( leidos < destino.length && !descompresor.finished( ) )
+            {
+                int n = descompresor.inflate( destino, leidos, destino.length - leidos );
+                if( n == 0 && ( descompresor.needsInput( ) || descompresor.needsDictionary( ) ) )
+                    break;
+                leidos += n;
+            }
+        }
+        catch( DataFormatException e )
+        {
+            throw new IOException( e.getMessage( ), e );
+        }
+        return leidos;
+    }
+
+    /**
+     * Retorna el archivo en disco
+     * @return
+     */
+    public File getArchivo( )
+    {
+        return archivo;
+    }
+
+    /**
+     * Retorna la cantidad de facturas del archivo
+     * @return
+     */
+    public int getCantidad( )
+    {
+        return ids.length;
+    }
+
+    /**
+     * Retorna el identificador más pequeño del archivo, o -1 si está vacío
+     * @return
+     */
+    public int getPrimerId( )
+    {
+        return ids.length == 0 ? -1 : ids[ 0 ];
+    }
+
+    /**
+     * Retorna el identificador más grande del archivo, o -1 si está vacío
+     * @return
+     */
+    public int getUltimoId( )
+    {
+        return ids.length == 0 ? -1 : ids[ ids.length - 1 ];
+    }
+
+    /**
+     * Indica si el archivo tiene la factura de un pedido
+     * @param idPedido
+     * @return
+     */
+    public boolean contiene( int idPedido )
+    {
+        return buscar( idPedido ) >= 0;
+    }
+
+    private int buscar( int idPedido )
+    {
+        if( ids.length == 0 || idPedido < ids[ 0 ] || idPedido > ids[ ids.length - 1 ] )
+            return -1;
+        return Arrays.binarySearch( ids, idPedido );
+    }
+
+    /**
+     * Descomprime la factura de un pedido
+     * @param idPedido
+     * @return El texto de la factura en UTF-8, o null si el archivo no tiene la factura de ese pedido
+     * @throws IOException Se lanza esta excepción si la factura está dañada
+     */
+    public byte[] leer( int idPedido ) throws IOException
+    {
+        int i = buscar( idPedido );
+        if( i < 0 )
+            return null;
+
+        ByteBuffer registro = mapa.slice( posiciones[ i ], posiciones[ i + 1 ] - posiciones[ i ] );
+        int longitud = leerLongitud( registro );
+        if( longitud < 0 || registro.remaining( ) < 4 )
+            throw new IOException( "La factura del pedido " + idPedido + " está dañada en " + archivo.getAbsolutePath( ) );
+        int crcEsperado = registro.getInt( );
+
+        byte[] factura = new byte[longitud];
+        Inflater descompresor = tomarDescompresor( );
+        try
+        {
+            descompresor.setDictionary( diccionario );
+            descompresor.setInput( registro );
+            if( descomprimir( descompresor, factura ) != factura.length )
+                throw new IOException( "La factura del pedido " + idPedido + " está incompleta en " + archivo.getAbsolutePath( ) );
+        }
+        finally
+        {
+            devolverDescompresor( descompresor );
+        }
+
+        CRC32 crc = new CRC32( );
+        crc.update( factura );
+        if( ( int )crc.getValue( ) != crcEsperado )
+            throw new IOException( "La factura del pedido " + idPedido + " no coincide con su CRC en " + archivo.getAbsolutePath( ) );
+        return factura;
+    }
+}
@@ -0,0 +1,575 @@
+package uniandes.dpoo.hamburguesas.persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.zip.CRC32;
+
+/**
+ * Guarda las facturas una tras otra en archivos de segmento, en lugar de crear un archivo por pedido.
+ *
+ * Cada registro de un segmento tiene un encabezado con el identificador del pedido, la longitud del texto y su CRC32, seguido del texto en UTF-8. Cuando el
+ * segmento activo supera el tamaño máximo, se cierra y se empieza uno nuevo. La bitácora mantiene en memoria un índice con la posición de la última
+ * factura de cada pedido, que se reconstruye leyendo sólo los encabezados cuando se abre la bitácora.
+ *
+ * Si la misma factura se guarda varias veces (por ejemplo al regenerarla), sólo la última cuenta; compactar reescribe los segmentos sin las versiones
+ * viejas.
+ *
+ * Las lecturas se hacen sobre los segmentos mapeados en memoria: cada segmento se mapea una sola vez y las facturas se entregan como porciones del mapa,
+ * sin copiarlas.
+ */
+public class BitacoraFacturas implements AlmacenFacturas
+{
+    /**
+     * El tamaño máximo por defecto de un segmento
+     */
+    public static final long TAMANO_SEGMENTO_POR_DEFECTO = 64L * 1024 * 1024;
+
+    /**
+     * El tamaño del encabezado de cada registro: identificador, longitud y CRC32
+     */
+    static final int TAMANO_ENCABEZADO = 12;
+
+    /**
+     * La primera parte del nombre de los archivos de segmento
+     */
+    private static final String PREFIJO_SEGMENTO = "segmento_";
+
+    /**
+     * La extensión de los archivos de segmento
+     */
+    private static final String EXTENSION_SEGMENTO = ".log";
+
+    /**
+     * La carpeta temporal donde se escriben los segmentos compactados
+     */
+    private static final String CARPETA_COMPACTACION = "compactando";
+
+    /**
+     * El archivo que indica que una compactación terminó de escribir sus segmentos. Tiene los nombres de los segmentos compactados, uno por línea.
+     */
+    private static final String MARCA_COMPACTACION = "completa";
+
+    /**
+     * La cantidad de bits de una posición que corresponden al desplazamiento dentro del segmento
+     */
+    private static final int BITS_DESPLAZAMIENTO = 40;
+
+    /**
+     * La carpeta donde están los segmentos
+     */
+    private File carpeta;
+
+    /**
+     * El tamaño a partir del cual se empieza un segmento nuevo
+     */
+    private long tamanoSegmento;
+
+    /**
+     * Los archivos de segmento, en orden. El último es el segmento activo.
+     */
+    private ArrayList<File> segmentos;
+
+    /**
+     * El canal del segmento activo
+     */
+    private FileChannel activo;
+
+    /**
+     * El tamaño del segmento activo
+     */
+    private long tamanoActivo;
+
+    /**
+     * La posición de la última factura de cada pedido, indexada por identificador. Cada posición combina el número de segmento (bits altos) con el
+     * desplazamiento dentro del segmento (BITS_DESPLAZAMIENTO bits bajos). Vale -1 si el pedido no tiene factura.
+     */
+    private long[] posiciones;
+
+    /**
+     * La cantidad de facturas distintas en la bitácora
+     */
+    private int cantidad;
+
+    /**
+     * Los segmentos mapeados en memoria, en el mismo orden que la lista de segmentos. Un segmento se mapea la primera vez que se lee de él; el mapa del
+     * segmento activo se renueva cuando se lee un registro que quedó por fuera del mapa anterior.
+     */
+    private ArrayList<MappedByteBuffer> mapas;
+
+    /**
+     * Abre una bitácora con el tamaño de segmento por defecto
+     * @param carpeta La carpeta de los segmentos. Se crea si no existe.
+     * @throws IOException Se lanza esta excepción si no se pueden leer los segmentos existentes
+     */
+    public BitacoraFacturas( File carpeta ) throws IOException
+    {
+        this( carpeta, TAMANO_SEGMENTO_POR_DEFECTO );
+    }
+
+    /**
+     * Abre una bitácora. Si la carpeta ya tiene segmentos, reconstruye el índice a partir de ellos.
+     * @param carpeta La carpeta de los segmentos. Se crea si no existe.
+     * @param tamanoSegmento El tamaño a partir del cual se empieza un segmento nuevo. Debe ser menor a 2GB para que el segmento se pueda mapear en
+     *        memoria.
+     * @throws IOException Se lanza esta excepción si no se pueden leer los segmentos existentes
+     */
+    public BitacoraFacturas( File carpeta, long tamanoSegmento ) throws IOException
+    {
+        if( tamanoSegmento <= 0 || tamanoSegmento >= Integer.MAX_VALUE )
+            throw new IllegalArgumentException( "El tamaño de segmento debe estar entre 1 y " + ( Integer.MAX_VALUE - 1 ) + " bytes" );
+        this.carpeta = carpeta;
+        this.tamanoSegmento = tamanoSegmento;
+        if( !carpeta.exists( ) && !carpeta.mkdirs( ) && !carpeta.isDirectory( ) )
+        {
+            throw new IOException( "No fue posible crear la carpeta: " + carpeta.getAbsolutePath( ) );
+        }
+        terminarCompactacion( );
+        abrir( );
+    }
+
+    /**
+     * Lee los segmentos existentes, reconstruye el índice y deja abierto el último segmento para agregar registros
+     * @throws IOException
+     */
+    private void abrir( ) throws IOException
+    {
+        segmentos = listarSegmentos( carpeta );
+        mapas = new ArrayList<MappedByteBuffer>( );
+        posiciones = new long[1024];
+        Arrays.fill( posiciones, -1 );
+        cantidad = 0;
+
+        if( segmentos.isEmpty( ) )
+            segmentos.add( archivoSegmento( carpeta, 0 ) );
+
+        for( int numero = 0; numero < segmentos.size( ); numero++ )
+        {
+            boolean ultimo = numero == segmentos.size( ) - 1;
+            try( FileChannel canal = FileChannel.open( segmentos.get( numero ).toPath( ), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE ) )
+            {
+                long fin = indexarSegmento( numero, canal, ultimo );
+                if( ultimo && fin < canal.size( ) )
+                {
+                    // El último registro quedó a medio escribir por una caída: se descarta
+                    canal.truncate( fin );
+                }
+            }
+        }
+
+        activo = FileChannel.open( segmentos.get( segmentos.size( ) - 1 ).toPath( ), StandardOpenOption.WRITE );
+        tamanoActivo = activo.size( );
+        activo.position( tamanoActivo );
+    }
+
+    /**
+     * Recorre los encabezados de un segmento y registra en el índice la posición de cada factura
+     * @param numero El número del segmento
+     * @param canal El canal del segmento
+     * @param verificar Indica si se debe verificar el CRC de cada registro. Sólo hace falta en el último segmento, el único que puede tener un registro
+     *        incompleto.
+     * @return La posición donde termina el último registro válido
+     * @throws IOException
+     */
+    private long indexarSegmento( int numero, FileChannel canal, boolean verificar ) throws IOException
+    {
+        ByteBuffer encabezado = ByteBuffer.allocate( TAMANO_ENCABEZADO );
+        long tamano = canal.size( );
+        long posicion = 0;
+        while( posicion + TAMANO_ENCABEZADO <= tamano )
+        {
+            encabezado.clear( );
+            leerCompleto( canal, encabezado, posicion );
+            encabezado.flip( );
+            int idPedido = encabezado.getInt( );
+            int longitud = encabezado.getInt( );
+            int crc = encabezado.getInt( );
+            if( idPedido < 0 || longitud < 0 || posicion + TAMANO_ENCABEZADO + longitud > tamano )
+                break;
+
+            if( verificar )
+            {
+                ByteBuffer contenido = ByteBuffer.allocate( longitud );
+                leerCompleto( canal, contenido, posicion + TAMANO_ENCABEZADO );
+                if( calcularCrc( contenido.array( ), longitud ) != crc )
+                    break;
+            }
+
+            indexar( idPedido, numero, posicion );
+            posicion += TAMANO_ENCABEZADO + longitud;
+        }
+        return posicion;
+    }
+
+    /**
+     * Registra en el índice la posición de la factura de un pedido
+     */
+    private void indexar( int idPedido, int numeroSegmento, long desplazamiento )
+    {
+        if( idPedido >= posiciones.length )
+        {
+            int anterior = posiciones.length;
+            posiciones = Arrays.copyOf( posiciones, Math.max( anterior * 2, idPedido + 1 ) );
+            Arrays.fill( posiciones, anterior, posiciones.length, -1 );
+        }
+        if( posiciones[ idPedido ] == -1 )
+            cantidad++;
+        posiciones[ idPedido ] = ( ( long )numeroSegmento << BITS_DESPLAZAMIENTO ) | desplazamiento;
+    }
+
+    @Override
+    public synchronized void guardar( int idPedido, String factura ) throws IOException
+    {
+        byte[] contenido = factura.getBytes( StandardCharsets.UTF_8 );
+        if( tamanoActivo > 0 && tamanoActivo + TAMANO_ENCABEZADO + contenido.length > tamanoSegmento )
+        {
+            rotar( );
+        }
+
+        ByteBuffer registro = ByteBuffer.allocate( TAMANO_ENCABEZADO + contenido.length );
+        registro.putInt( idPedido ).putInt( contenido.length ).putInt( calcularCrc( contenido, contenido.length ) ).put( contenido );
+        registro.flip( );
+        try
+        {
+            while( registro.hasRemaining( ) )
+            {
+                activo.write( registro );
+            }
+        }
+        catch( IOException e )
+        {
+            // Un registro a medio escribir se quita, para que el reintento quede justo después del último registro completo y el índice coincida
+            try
+            {
+                activo.truncate( tamanoActivo );
+                activo.position( tamanoActivo );
+            }
+            catch( IOException errorAlTruncar )
+            {
+                e.addSuppressed( errorAlTruncar );
+            }
+            throw e;
+        }
+
+        indexar( idPedido, segmentos.size( ) - 1, tamanoActivo );
+        tamanoActivo += TAMANO_ENCABEZADO + contenido.length;
+    }
+
+    /**
+     * Cierra el segmento activo y empieza uno nuevo. El segmento nuevo se abre antes de cerrar el actual: si no se puede abrir, la bitácora sigue
+     * escribiendo en el segmento actual y la rotación se vuelve a intentar con la siguiente factura.
+     * @throws IOException
+     */
+    private void rotar( ) throws IOException
+    {
+        activo.force( false );
+        File nuevo = archivoSegmento( carpeta, segmentos.size( ) );
+        FileChannel siguiente = FileChannel.open( nuevo.toPath( ), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE );
+        FileChannel anterior = activo;
+        activo = siguiente;
+        segmentos.add( nuevo );
+        tamanoActivo = 0;
+        try
+        {
+            anterior.close( );
+        }
+        catch( IOException e )
+        {
+            // El segmento anterior ya quedó sincronizado; no se puede perder nada al cerrarlo
+        }
+    }
+
+    @Override
+    public synchronized void sincronizar( ) throws IOException
+    {
+        activo.force( false );
+    }
+
+    @Override
+    public synchronized String leer( int idPedido ) throws IOException
+    {
+        ByteBuffer contenido = mapear( idPedido );
+        return contenido == null ? null : StandardCharsets.UTF_8.decode( contenido ).toString( );
+    }
+
+    @Override
+    public synchronized ByteBuffer mapear( int idPedido ) throws IOException
+    {
+        if( idPedido < 0 || idPedido >= posiciones.length || posiciones[ idPedido ] == -1 )
+            return null;
+
+        long posicion = posiciones[ idPedido ];
+        int numero = ( int )( posicion >>> BITS_DESPLAZAMIENTO );
+        int desplazamiento = ( int )( posicion & ( ( 1L << BITS_DESPLAZAMIENTO ) - 1 ) );
+
+        MappedByteBuffer mapa = numero < mapas.size( ) ? mapas.get( numero ) : null;
+        if( mapa == null || desplazamiento + TAMANO_ENCABEZADO > mapa.capacity( )
+                || desplazamiento + TAMANO_ENCABEZADO + mapa.getInt( desplazamiento + 4 ) > mapa.capacity( ) )
+        {
+            mapa = mapearSegmento( numero );
+        }
+
+        int longitud = mapa.getInt( desplazamiento + 4 );
+        return mapa.slice( desplazamiento + TAMANO_ENCABEZADO, longitud ).asReadOnlyBuffer( );
+    }
+
+    /**
+     * Mapea en memoria el contenido actual de un segmento y lo guarda en la lista de mapas
+     * @param numero El número del segmento
+     * @return El mapa del segmento
+     * @throws IOException
+     */
+    private MappedByteBuffer mapearSegmento( int numero ) throws IOException
+    {
+        MappedByteBuffer mapa;
+        try( FileChannel canal = FileChannel.open( segmentos.get( numero ).toPath( ), StandardOpenOption.READ ) )
+        {
+            mapa = canal.map( FileChannel.MapMode.READ_ONLY, 0, canal.size( ) );
+        }
+        while( mapas.size( ) <= numero )
+        {
+            mapas.add( null );
+        }
+        mapas.set( numero, mapa );
+        return mapa;
+    }
+
+    @Override
+    public synchronized void cerrar( ) throws IOException
+    {
+        activo.force( false );
+        activo.close( );
+    }
+
+    @Override
+    public String getUbicacion( int idPedido )
+    {
+        return carpeta.getAbsolutePath( ) + " (pedido " + idPedido + ")";
+    }
+
+    /**
+     * Retorna la cantidad de facturas distintas en la bitácora
+     * @return
+     */
+    public synchronized int getCantidad( )
+    {
+        return cantidad;
+    }
+
+    /**
+     * Retorna la cantidad de archivos de segmento
+     * @return
+     */
+    public synchronized int getCantidadSegmentos( )
+    {
+        return segmentos.size( );
+    }
+
+    /**
+     * Reescribe los segmentos dejando sólo la última factura de cada pedido, en orden de identificador.
+     *
+     * Los segmentos nuevos se escriben primero en una carpeta temporal. Si la aplicación se cae antes de terminar de escribirlos, los segmentos originales
+     * siguen intactos; si se cae mientras se reemplazan, el reemplazo se termina la próxima vez que se abra la bitácora.
+     * @throws IOException Se lanza esta excepción si no se pudo escribir la bitácora compactada
+     */
+    public synchronized void compactar( ) throws IOException
+    {
+        activo.force( false );
+        activo.close( );
+
+        try
+        {
+            File temporal = new File( carpeta, CARPETA_COMPACTACION );
+            borrarCarpeta( temporal );
+            BitacoraFacturas compactada = new BitacoraFacturas( temporal, tamanoSegmento );
+            for( int id = 0; id < posiciones.length; id++ )
+            {
+                if( posiciones[ id ] != -1 )
+                    compactada.guardar( id, leer( id ) );
+            }
+            compactada.cerrar( );
+            escribirMarca( temporal );
+
+            terminarCompactacion( );
+        }
+        finally
+        {
+            abrir( );
+        }
+    }
+
+    /**
+     * Escribe la marca de una compactación completa con los nombres de los segmentos compactados y la sincroniza con el disco
+     * @param temporal La carpeta de la compactación
+     * @throws IOException
+     */
+    private static void escribirMarca( File temporal ) throws IOException
+    {
+        StringBuilder nombres = new StringBuilder( );
+        for( File segmento : listarSegmentos( temporal ) )
+            nombres.append( segmento.getName( ) ).append( '\n' );
+        try( FileChannel canal = FileChannel.open( new File( temporal, MARCA_COMPACTACION ).toPath( ), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE ) )
+        {
+            ByteBuffer contenido = ByteBuffer.wrap( nombres.toString( ).getBytes( StandardCharsets.UTF_8 ) );
+            while( contenido.hasRemaining( ) )
+                canal.write( contenido );
+            canal.force( true );
+        }
+    }
+
+    /**
+     * Si hay una compactación completa en la carpeta temporal, reemplaza los segmentos por los compactados. Si hay una compactación incompleta, la
+     * descarta.
+     *
+     * El reemplazo se puede repetir si la aplicación se cae a la mitad: sólo se borran los segmentos cuyo nombre no es el de un segmento compactado, y
+     * sólo se mueven los segmentos compactados que siguen en la carpeta temporal. Los que ya se movieron reemplazaron al segmento viejo con su mismo
+     * nombre y no se vuelven a tocar.
+     * @throws IOException
+     */
+    private void terminarCompactacion( ) throws IOException
+    {
+        File temporal = new File( carpeta, CARPETA_COMPACTACION );
+        if( !temporal.exists( ) )
+            return;
+
+        File marca = new File( temporal, MARCA_COMPACTACION );
+        if( marca.exists( ) )
+        {
+            HashSet<String> compactados = new HashSet<String>( Files.readAllLines( marca.toPath( ), StandardCharsets.UTF_8 ) );
+            for( File segmento : listarSegmentos( carpeta ) )
+            {
+                if( !compactados.contains( segmento.getName( ) ) )
+                    Files.delete( segmento.toPath( ) );
+            }
+            for( File segmento : listarSegmentos( temporal ) )
+            {
+                Files.move( segmento.toPath( ), new File( carpeta, segmento.getName( ) ).toPath( ), StandardCopyOption.ATOMIC_MOVE );
+            }
+        }
+        borrarCarpeta( temporal );
+    }
+
+    /**
+     * Escribe cada factura de la bitácora en su propio archivo, con el formato de CarpetaFacturas
+     * @param destino La carpeta donde deben quedar los archivos
+     * @return La cantidad de facturas exportadas
+     * @throws IOException Se lanza esta excepción si alguna factura no se pudo leer o escribir
+     */
+    public synchronized int exportarACarpeta( File destino ) throws IOException
+    {
+        CarpetaFacturas carpetaDestino = new CarpetaFacturas( destino );
+        int exportadas = 0;
+        for( int id = 0; id < posiciones.length; id++ )
+        {
+            if( posiciones[ id ] != -1 )
+            {
+                carpetaDestino.guardar( id, leer( id ) );
+                exportadas++;
+                if( exportadas % 256 == 0 )
+                    carpetaDestino.sincronizar( );
+            }
+        }
+        carpetaDestino.cerrar( );
+        return exportadas;
+    }
+
+    /**
+     * Busca el identificador más alto que tiene una factura en los segmentos de una carpeta, sin abrir la bitácora. Sólo se leen los encabezados de los
+     * registros, incluidos los de una compactación que no alcanzó a terminar.
+     * @param carpeta La carpeta de los segmentos
+     * @return El identificador más alto, o -1 si la carpeta no tiene facturas
+     * @throws IOException Se lanza esta excepción si alguno de los segmentos no se puede leer
+     */
+    public static int buscarMayorId( File carpeta ) throws IOException
+    {
+        ArrayList<File> archivos = listarSegmentos( carpeta );
+        archivos.addAll( listarSegmentos( new File( carpeta, CARPETA_COMPACTACION ) ) );
+        int mayor = -1;
+        ByteBuffer encabezado = ByteBuffer.allocate( TAMANO_ENCABEZADO );
+        for( File archivo : archivos )
+        {
+            try( FileChannel canal = FileChannel.open( archivo.toPath( ), StandardOpenOption.READ ) )
+            {
+                long tamano = canal.size( );
+                long posicion = 0;
+                while( posicion + TAMANO_ENCABEZADO <= tamano )
+                {
+                    encabezado.clear( );
+                    leerCompleto( canal, encabezado, posicion );
+                    encabezado.flip( );
+                    int idPedido = encabezado.getInt( );
+                    int longitud = encabezado.getInt( );
+                    if( idPedido < 0 || longitud < 0 )
+                        break;
+                    mayor = Math.max( mayor, idPedido );
+                    posicion += TAMANO_ENCABEZADO + longitud;
+                }
+            }
+        }
+        return mayor;
+    }
+
+    /**
+     * Retorna los archivos de segmento de una carpeta, ordenados por número
+     */
+    private static ArrayList<File> listarSegmentos( File carpeta )
+    {
+        ArrayList<File> resultado = new ArrayList<File>( );
+        File[] archivos = carpeta.listFiles( ( dir, nombre ) -> nombre.startsWith( PREFIJO_SEGMENTO ) && nombre.endsWith( EXTENSION_SEGMENTO ) );
+        if( archivos != null )
+        {
+            Arrays.sort( archivos );
+            resultado.addAll( Arrays.asList( archivos ) );
+        }
+        return resultado;
+    }
+
+    /**
+     * Retorna el archivo del segmento con el número indicado. El número se rellena con ceros para que el orden alfabético coincida con el numérico.
+     */
+    private static File archivoSegmento( File carpeta, int numero )
+    {
+        return new File( carpeta, String.format( "%s%06d%s", PREFIJO_SEGMENTO, numero, EXTENSION_SEGMENTO ) );
+    }
+
+    private static void borrarCarpeta( File carpeta ) throws IOException
+    {
+        File[] archivos = carpeta.listFiles( );
+        if( archivos == null )
+            return;
+        for( File archivo : archivos )
+        {
+            Files.delete( archivo.toPath( ) );
+        }
+        Files.delete( carpeta.toPath( ) );
+    }
+
+    private static void leerCompleto( FileChannel canal, ByteBuffer destino, long posicion ) throws IOException
+    {
+        while( destino.hasRemaining( ) )
+        {
+            int leidos = canal.read( destino, posicion );
+            if( leidos < 0 )
+                throw new IOException( "El segmento terminó antes de lo esperado" );
+            posicion += leidos;
+        }
+    }
+
+    private static int calcularCrc( byte[] contenido, int longitud )
+    {
+        CRC32 crc = new CRC32( );
+        crc.update( contenido, 0, longitud );
+        return ( int )crc.getValue( );
+    }
+}
@@ -0,0 +1,818 @@
+package uniandes.dpoo.hamburguesas.persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.zip.CRC32;
+
+import uniandes.dpoo.hamburguesas.mundo.Combo;
+import uniandes.dpoo.hamburguesas.mundo.Producto;
+import uniandes.dpoo.hamburguesas.mundo.ProductoAjustado;
+
+/**
+ * La bitácora de los pedidos abiertos: guarda cada evento de un pedido (abrirlo, agregarle un producto con sus ajustes y cerrarlo) para que una caída no
+ * pierda los pedidos que todavía no tienen factura.
+ *
+ * Registrar un evento no escribe en disco: el evento se codifica en el hilo que lo registra y se copia al final de un buffer en memoria. Un hilo aparte
+ * deja que los eventos se acumulen durante VENTANA_MS, los escribe en el segmento activo y los sincroniza con una sola llamada, así que muchos eventos
+ * comparten cada sincronización (group commit). Mientras el hilo escritor está trabajando, registrar no lo despierta; sólo se le avisa cuando está
+ * esperando eventos nuevos, así que la mayoría de los registros no hacen ninguna llamada al sistema. Una caída pierde a lo sumo los eventos de los
+ * últimos milisegundos; quien necesite esperar a que un evento quede en disco usa sincronizar, que además no espera a que termine la ventana.
+ *
+ * Cada registro tiene un encabezado con la longitud del contenido y su CRC32, seguido del tipo de evento, el identificador del pedido y los datos del
+ * evento. Los textos se guardan en UTF-8 precedidos de su longitud como un entero variable.
+ *
+ * Los eventos quedan en segmentos numerados. Cuando el segmento activo supera su tamaño máximo se empieza uno nuevo, y los segmentos más viejos se
+ * borran en cuanto todos los pedidos que se abrieron en ellos están cerrados y sus facturas están en disco.
+ */
+public class BitacoraPedidos
+{
+    /**
+     * Lo que hay que esperar antes de borrar un segmento: que las facturas de los pedidos que ya se cerraron queden en disco
+     */
+    public interface EsperaFacturas
+    {
+        public void esperar( ) throws IOException;
+    }
+
+    /**
+     * El tamaño máximo por defecto de un segmento
+     */
+    public static final long TAMANO_SEGMENTO_POR_DEFECTO = 4L * 1024 * 1024;
+
+    /**
+     * La cantidad de bytes pendientes a partir de la cual registrar un evento espera a que el hilo escritor avance
+     */
+    private static final int LIMITE_PENDIENTES = 8 * 1024 * 1024;
+
+    /**
+     * El tamaño del encabezado de cada registro: longitud y CRC32
+     */
+    static final int TAMANO_ENCABEZADO = 8;
+
+    /**
+     * El tiempo que el hilo escritor deja acumular eventos antes de escribirlos, contado desde el primer evento del lote
+     */
+    private static final long VENTANA_MS = 2;
+
+    /**
+     * El tiempo que espera el hilo escritor antes de reintentar una escritura que falló
+     */
+    private static final long ESPERA_REINTENTO_MS = 100;
+
+    private static final byte ABRIR = 1;
+
+    private static final byte PRODUCTO = 2;
+
+    private static final byte CERRAR = 3;
+
+    private static final String PREFIJO_SEGMENTO = "pedidos_";
+
+    private static final String EXTENSION_SEGMENTO = ".wal";
+
+    /**
+     * El buffer donde cada hilo codifica sus eventos antes de copiarlos al buffer compartido
+     */
+    private static final ThreadLocal<Codificador> codificador = ThreadLocal.withInitial( Codificador::new );
+
+    /**
+     * La carpeta donde están los segmentos
+     */
+    private File carpeta;
+
+    /**
+     * El tamaño a partir del cual se empieza un segmento nuevo
+     */
+    private long tamanoSegmento;
+
+    /**
+     * Lo que se espera antes de borrar segmentos. Puede ser null si no hay facturas que esperar.
+     */
+    private EsperaFacturas esperaFacturas;
+
+    /**
+     * Los pedidos que se encontraron en los segmentos al abrir la bitácora
+     */
+    private ArrayList<PedidoRecuperado> recuperados;
+
+    // Estado del hilo escritor: sólo él los usa después de abrir la bitácora
+
+    private FileChannel activo;
+
+    private int numeroActivo;
+
+    private long tamanoActivo;
+
+    private Thread hilo;
+
+    // Estado compartido: se usa con el candado de la bitácora
+
+    /**
+     * Los eventos registrados que el hilo escritor todavía no ha tomado
+     */
+    private byte[] pendientes;
+
+    private int usados;
+
+    /**
+     * El buffer que está escribiendo el hilo escritor. Se intercambia con pendientes en cada lote para no crear buffers nuevos.
+     */
+    private byte[] enEscritura;
+
+    /**
+     * La cantidad de bytes que se han registrado desde que se abrió la bitácora
+     */
+    private long registrados;
+
+    /**
+     * La cantidad de bytes registrados que ya quedaron sincronizados en disco
+     */
+    private long sincronizados;
+
+    /**
+     * El número del segmento donde quedarán los eventos pendientes
+     */
+    private int segmentoPendientes;
+
+    /**
+     * El número del segmento más viejo que todavía existe
+     */
+    private int primerSegmento;
+
+    /**
+     * El segmento donde quedó la apertura de cada pedido abierto
+     */
+    private HashMap<Integer, Integer> segmentoDePedido;
+
+    /**
+     * La cantidad de pedidos abiertos que se abrieron en cada segmento
+     */
+    private HashMap<Integer, Integer> abiertosPorSegmento;
+
+    /**
+     * El último error del hilo escritor que todavía no se ha reportado
+     */
+    private IOException error;
+
+    private boolean cerrada;
+
+    /**
+     * Indica si el hilo escritor está esperando a que llegue un evento. Sólo en ese caso registrar lo despierta.
+     */
+    private boolean escritorInactivo;
+
+    /**
+     * Indica si alguien está esperando que los eventos pendientes se escriban, y por lo tanto el hilo escritor no debe esperar a que termine la ventana
+     */
+    private boolean urgente;
+
+    /**
+     * Abre una bitácora con el tamaño de segmento por defecto
+     * @param carpeta La carpeta de los segmentos. Se crea si no existe.
+     * @param esperaFacturas Lo que se debe esperar antes de borrar segmentos viejos, o null
+     * @throws IOException Se lanza esta excepción si no se pueden leer los segmentos existentes
+     */
+    public BitacoraPedidos( File carpeta, EsperaFacturas esperaFacturas ) throws IOException
+    {
+        this( carpeta, esperaFacturas, TAMANO_SEGMENTO_POR_DEFECTO );
+    }
+
+    /**
+     * Abre una bitácora. Si la carpeta ya tiene segmentos, recupera los pedidos que hay en ellos; se consultan con getPedidosRecuperados.
+     * @param carpeta La carpeta de los segmentos. Se crea si no existe.
+     * @param esperaFacturas Lo que se debe esperar antes de borrar segmentos viejos, o null
+     * @param tamanoSegmento El tamaño a partir del cual se empieza un segmento nuevo
+     * @throws IOException Se lanza esta excepción si no se pueden leer los segmentos existentes
+     */
+    public BitacoraPedidos( File carpeta, EsperaFacturas esperaFacturas, long tamanoSegmento ) throws IOException
+    {
+        if( tamanoSegmento <= 0 )
+            throw new IllegalArgumentException( "El tamaño de segmento debe ser positivo" );
+        this.carpeta = carpeta;
+        this.esperaFacturas = esperaFacturas;
+        this.tamanoSegmento = tamanoSegmento;
+        if( !carpeta.exists( ) && !carpeta.mkdirs( ) && !carpeta.isDirectory( ) )
+        {
+            throw new IOException( "No fue posible crear la carpeta: " + carpeta.getAbsolutePath( ) );
+        }
+
+        pendientes = new byte[64 * 1024];
+        enEscritura = new byte[64 * 1024];
+        segmentoDePedido = new HashMap<Integer, Integer>( );
+        abiertosPorSegmento = new HashMap<Integer, Integer>( );
+        recuperar( );
+
+        hilo = new Thread( this::escribir, "bitacora-pedidos" );
+        hilo.setDaemon( true );
+        hilo.start( );
+    }
+
+    /**
+     * Retorna los pedidos que se encontraron en los segmentos al abrir la bitácora, en el orden en que se abrieron. Incluye los pedidos cerrados cuyos
+     * segmentos todavía no se habían borrado.
+     * @return
+     */
+    public ArrayList<PedidoRecuperado> getPedidosRecuperados( )
+    {
+        return recuperados;
+    }
+
+    /**
+     * Registra que se abrió un pedido
+     * @param idPedido El identificador del pedido
+     * @param nombreCliente El nombre del cliente
+     * @param direccionCliente La dirección del cliente
+     */
+    public void registrarApertura( int idPedido, String nombreCliente, String direccionCliente )
+    {
+        Codificador registro = codificador.get( );
+        registro.iniciar( ABRIR, idPedido );
+        registro.escribirTexto( nombreCliente );
+        registro.escribirTexto( direccionCliente );
+        agregar( registro.terminar( ), ABRIR, idPedido );
+    }
+
+    /**
+     * Registra que se agregó un producto a un pedido, con sus ajustes si es un producto ajustado
+     * @param idPedido El identificador del pedido
+     * @param producto El producto, con todos sus ajustes
+     */
+    public void registrarProducto( int idPedido, Producto producto )
+    {
+        Codificador registro = codificador.get( );
+        registro.iniciar( PRODUCTO, idPedido );
+        registro.escribirByte( producto instanceof Combo ? 1 : 0 );
+        if( producto instanceof ProductoAjustado )
+        {
+            ProductoAjustado ajustado = ( ProductoAjustado )producto;
+            registro.escribirTexto( ajustado.getProductoBase( ).getNombre( ) );
+            registro.escribirEntero( ajustado.getCantidadAgregados( ) );
+            for( int i = 0; i < ajustado.getCantidadAgregados( ); i++ )
+                registro.escribirTexto( ajustado.getAgregado( i ).getNombre( ) );
+            registro.escribirEntero( ajustado.getCantidadEliminados( ) );
+            for( int i = 0; i < ajustado.getCantidadEliminados( ); i++ )
+                registro.escribirTexto( ajustado.getEliminado( i ).getNombre( ) );
+        }
+        else
+        {
+            registro.escribirTexto( producto.getNombre( ) );
+            registro.escribirEntero( 0 );
+            registro.escribirEntero( 0 );
+        }
+        agregar( registro.terminar( ), PRODUCTO, idPedido );
+    }
+
+    /**
+     * Registra que se cerró un pedido. Se debe llamar después de encolar su factura, para que la bitácora no borre el segmento del pedido antes de que
+     * la factura quede en disco.
+     *
+     * El cierre se registra siempre, aunque una escritura anterior haya fallado: la factura ya está encolada, así que el pedido ya no puede volver a
+     * quedar abierto. Los errores de escritura se reportan en sincronizar y en cerrar.
+     * @param idPedido El identificador del pedido
+     */
+    public void registrarCierre( int idPedido )
+    {
+        Codificador registro = codificador.get( );
+        registro.iniciar( CERRAR, idPedido );
+        agregar( registro.terminar( ), CERRAR, idPedido );
+    }
+
+    /**
+     * Espera hasta que todos los eventos registrados antes de esta llamada queden sincronizados en disco
+     * @throws IOException Se lanza esta excepción si alguna escritura falló mientras se esperaba
+     */
+    public synchronized void sincronizar( ) throws IOException
+    {
+        long objetivo = registrados;
+        if( sincronizados < objetivo )
+        {
+            urgente = true;
+            notifyAll( );
+        }
+        while( sincronizados < objetivo && error == null && hilo.isAlive( ) )
+        {
+            try
+            {
+                wait( );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+                throw new InterruptedIOException( "Se interrumpió la espera de la bitácora de pedidos" );
+            }
+        }
+        reportarError( );
+    }
+
+    /**
+     * Escribe los eventos pendientes y cierra la bitácora. Los eventos que se registren después se descartan.
+     * @throws IOException Se lanza esta excepción si algún evento pendiente no se pudo escribir
+     */
+    public void cerrar( ) throws IOException
+    {
+        synchronized( this )
+        {
+            if( cerrada )
+                return;
+            cerrada = true;
+            notifyAll( );
+        }
+        try
+        {
+            hilo.join( );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new InterruptedIOException( "Se interrumpió el cierre de la bitácora de pedidos" );
+        }
+        activo.close( );
+        synchronized( this )
+        {
+            reportarError( );
+        }
+    }
+
+    /**
+     * Retorna la cantidad de segmentos que hay en la carpeta
+     * @return
+     */
+    public int getCantidadSegmentos( )
+    {
+        return listarSegmentos( carpeta ).size( );
+    }
+
+    /**
+     * Retorna la cantidad de pedidos abiertos según la bitácora
+     * @return
+     */
+    public synchronized int getCantidadAbiertos( )
+    {
+        return segmentoDePedido.size( );
+    }
+
+    /**
+     * Copia un registro al final de los eventos pendientes y lleva la cuenta de los pedidos abiertos en cada segmento
+     */
+    private void agregar( Codificador registro, byte tipo, int idPedido )
+    {
+        int longitud = registro.posicion;
+        synchronized( this )
+        {
+            while( usados > 0 && usados + longitud > LIMITE_PENDIENTES && !cerrada )
+            {
+                urgente = true;
+                notifyAll( );
+                try
+                {
+                    wait( );
+                }
+                catch( InterruptedException e )
+                {
+                    // El evento no se puede perder: se registra de todas formas y se conserva la interrupción
+                    Thread.currentThread( ).interrupt( );
+                    break;
+                }
+            }
+            if( cerrada )
+                return;
+
+            if( usados + longitud > pendientes.length )
+                pendientes = Arrays.copyOf( pendientes, Math.max( pendientes.length * 2, usados + longitud ) );
+            System.arraycopy( registro.datos, 0, pendientes, usados, longitud );
+            usados += longitud;
+            registrados += longitud;
+
+            if( tipo == ABRIR )
+            {
+                segmentoDePedido.put( idPedido, segmentoPendientes );
+                abiertosPorSegmento.merge( segmentoPendientes, 1, Integer::sum );
+            }
+            else if( tipo == CERRAR )
+            {
+                Integer segmento = segmentoDePedido.remove( idPedido );
+                if( segmento != null )
+                    abiertosPorSegmento.merge( segmento, -1, Integer::sum );
+            }
+
+            if( escritorInactivo )
+            {
+                escritorInactivo = false;
+                notifyAll( );
+            }
+        }
+    }
+
+    /**
+     * Lanza el error pendiente, si lo hay, y lo olvida. Se debe llamar con el candado de la bitácora.
+     * @throws IOException
+     */
+    private void reportarError( ) throws IOException
+    {
+        if( error != null )
+        {
+            IOException e = error;
+            error = null;
+            throw new IOException( "No fue posible escribir la bitácora de pedidos: " + e.getMessage( ), e );
+        }
+    }
+
+    /**
+     * El ciclo del hilo escritor: toma todos los eventos pendientes, los escribe y los sincroniza, hasta que se cierra la bitácora
+     */
+    private void escribir( )
+    {
+        byte[] lote = null;
+        int tamano = 0;
+        long hasta = 0;
+        boolean rotar = false;
+        boolean reintento = false;
+        while( true )
+        {
+            // Si la rotación del lote anterior falló, se reintenta antes de tomar otro lote: los eventos pendientes ya se cuentan en el segmento nuevo
+            if( lote == null && !rotar )
+            {
+                synchronized( this )
+                {
+                    try
+                    {
+                        while( usados == 0 && !cerrada )
+                        {
+                            escritorInactivo = true;
+                            wait( );
+                        }
+                        escritorInactivo = false;
+
+                        // La ventana del group commit: se deja que lleguen más eventos, salvo que alguien esté esperando
+                        long limite = System.nanoTime( ) + VENTANA_MS * 1_000_000;
+                        long restante;
+                        while( !urgente && !cerrada && ( restante = limite - System.nanoTime( ) ) > 0 )
+                            wait( restante / 1_000_000, ( int )( restante % 1_000_000 ) );
+                    }
+                    catch( InterruptedException e )
+                    {
+                        return;
+                    }
+                    urgente = false;
+                    if( usados == 0 )
+                        return;
+
+                    lote = pendientes;
+                    tamano = usados;
+                    pendientes = enEscritura;
+                    enEscritura = lote;
+                    usados = 0;
+                    hasta = registrados;
+                    rotar = tamanoActivo + tamano >= tamanoSegmento;
+                    if( rotar )
+                        segmentoPendientes++;
+                    notifyAll( );
+                }
+            }
+
+            try
+            {
+                if( reintento )
+                {
+                    // El intento anterior pudo fallar a la mitad: se descarta lo que haya quedado de él
+                    activo.truncate( tamanoActivo );
+                    activo.position( tamanoActivo );
+                    reintento = false;
+                }
+                if( lote != null )
+                {
+                    ByteBuffer contenido = ByteBuffer.wrap( lote, 0, tamano );
+                    while( contenido.hasRemaining( ) )
+                    {
+                        activo.write( contenido );
+                    }
+                    activo.force( false );
+                    tamanoActivo += tamano;
+                    lote = null;
+                    synchronized( this )
+                    {
+                        sincronizados = hasta;
+                        notifyAll( );
+                    }
+                }
+
+                if( rotar )
+                {
+                    rotar( );
+                    rotar = false;
+                    borrarSegmentosCerrados( );
+                }
+            }
+            catch( IOException e )
+            {
+                reintento = true;
+                synchronized( this )
+                {
+                    error = e;
+                    notifyAll( );
+                    if( cerrada )
+                        return;
+                }
+                try
+                {
+                    Thread.sleep( ESPERA_REINTENTO_MS );
+                }
+                catch( InterruptedException interrupcion )
+                {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Empieza el siguiente segmento y cierra el activo. El segmento nuevo se abre antes de cerrar el anterior: si no se puede abrir, el segmento activo
+     * sigue abierto y la rotación se puede reintentar.
+     * @throws IOException
+     */
+    private void rotar( ) throws IOException
+    {
+        FileChannel siguiente = FileChannel.open( archivoSegmento( carpeta, numeroActivo + 1 ).toPath( ), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING );
+        FileChannel anterior = activo;
+        activo = siguiente;
+        numeroActivo++;
+        tamanoActivo = 0;
+        try
+        {
+            anterior.close( );
+        }
+        catch( IOException e )
+        {
+            // Su contenido ya se sincronizó con el disco; no hay nada más que perder
+        }
+    }
+
+    /**
+     * Borra los segmentos viejos que ya no tienen pedidos abiertos
+     * @throws IOException
+     */
+    private void borrarSegmentosCerrados( ) throws IOException
+    {
+        int desde;
+        int hasta;
+        synchronized( this )
+        {
+            desde = primerSegmento;
+            hasta = primerSegmento;
+            while( hasta < numeroActivo && abiertosPorSegmento.getOrDefault( hasta, 0 ) == 0 )
+                hasta++;
+        }
+        if( hasta == desde )
+            return;
+
+        // Los pedidos de esos segmentos están cerrados; antes de olvidarlos sus facturas deben estar en disco
+        if( esperaFacturas != null )
+            esperaFacturas.esperar( );
+        for( int numero = desde; numero < hasta; numero++ )
+        {
+            Files.deleteIfExists( archivoSegmento( carpeta, numero ).toPath( ) );
+        }
+        synchronized( this )
+        {
+            for( int numero = desde; numero < hasta; numero++ )
+                abiertosPorSegmento.remove( numero );
+            primerSegmento = hasta;
+        }
+    }
+
+    /**
+     * Lee los segmentos existentes, reconstruye los pedidos y la cuenta de pedidos abiertos por segmento, y deja abierto el último segmento para
+     * agregar eventos
+     * @throws IOException
+     */
+    private void recuperar( ) throws IOException
+    {
+        LinkedHashMap<Integer, PedidoRecuperado> pedidos = new LinkedHashMap<Integer, PedidoRecuperado>( );
+        HashMap<Integer, Integer> segmentoApertura = new HashMap<Integer, Integer>( );
+        ArrayList<Integer> numeros = listarSegmentos( carpeta );
+        for( int i = 0; i < numeros.size( ); i++ )
+        {
+            int numero = numeros.get( i );
+            File archivo = archivoSegmento( carpeta, numero );
+            byte[] contenido = Files.readAllBytes( archivo.toPath( ) );
+            int fin = leerSegmento( contenido, numero, pedidos, segmentoApertura );
+            if( fin < contenido.length && i == numeros.size( ) - 1 )
+            {
+                // El último registro quedó a medio escribir por una caída: se descarta
+                try( FileChannel canal = FileChannel.open( archivo.toPath( ), StandardOpenOption.WRITE ) )
+                {
+                    canal.truncate( fin );
+                }
+            }
+        }
+
+        recuperados = new ArrayList<PedidoRecuperado>( pedidos.values( ) );
+        for( PedidoRecuperado pedido : recuperados )
+        {
+            if( !pedido.estaCerrado( ) )
+            {
+                int segmento = segmentoApertura.get( pedido.getIdPedido( ) );
+                segmentoDePedido.put( pedido.getIdPedido( ), segmento );
+                abiertosPorSegmento.merge( segmento, 1, Integer::sum );
+            }
+        }
+
+        primerSegmento = numeros.isEmpty( ) ? 0 : numeros.get( 0 );
+        numeroActivo = numeros.isEmpty( ) ? 0 : numeros.get( numeros.size( ) - 1 );
+        segmentoPendientes = numeroActivo;
+        activo = FileChannel.open( archivoSegmento( carpeta, numeroActivo ).toPath( ), StandardOpenOption.CREATE, StandardOpenOption.WRITE );
+        tamanoActivo = activo.size( );
+        activo.position( tamanoActivo );
+    }
+
+    /**
+     * Aplica los eventos de un segmento a los pedidos recuperados. Los eventos de pedidos cuya apertura ya no está en la bitácora se ignoran: son
+     * pedidos que se cerraron y cuyo segmento se borró.
+     * @return La posición donde termina el último registro válido
+     */
+    private static int leerSegmento( byte[] contenido, int numero, LinkedHashMap<Integer, PedidoRecuperado> pedidos,
+            HashMap<Integer, Integer> segmentoApertura )
+    {
+        ByteBuffer buffer = ByteBuffer.wrap( contenido );
+        CRC32 crc = new CRC32( );
+        int posicion = 0;
+        while( posicion + TAMANO_ENCABEZADO <= contenido.length )
+        {
+            int longitud = buffer.getInt( posicion );
+            int esperado = buffer.getInt( posicion + 4 );
+            int inicio = posicion + TAMANO_ENCABEZADO;
+            if( longitud < 5 || inicio + longitud > contenido.length )
+                break;
+            crc.reset( );
+            crc.update( contenido, inicio, longitud );
+            if( ( int )crc.getValue( ) != esperado )
+                break;
+
+            buffer.position( inicio ).limit( inicio + longitud );
+            byte tipo = buffer.get( );
+            int idPedido = buffer.getInt( );
+            PedidoRecuperado pedido = pedidos.get( idPedido );
+            if( tipo == ABRIR )
+            {
+                pedidos.put( idPedido, new PedidoRecuperado( idPedido, leerTexto( buffer ), leerTexto( buffer ) ) );
+                segmentoApertura.put( idPedido, numero );
+            }
+            else if( tipo == PRODUCTO && pedido != null )
+            {
+                boolean combo = buffer.get( ) == 1;
+                String nombre = leerTexto( buffer );
+                String[] agregados = leerTextos( buffer );
+                String[] eliminados = leerTextos( buffer );
+                pedido.agregarProducto( new PedidoRecuperado.ProductoRecuperado( nombre, combo, agregados, eliminados ) );
+            }
+            else if( tipo == CERRAR && pedido != null )
+            {
+                pedido.marcarCerrado( );
+            }
+            buffer.clear( );
+            posicion = inicio + longitud;
+        }
+        return posicion;
+    }
+
+    private static String[] leerTextos( ByteBuffer buffer )
+    {
+        String[] textos = new String[leerEntero( buffer )];
+        for( int i = 0; i < textos.length; i++ )
+            textos[ i ] = leerTexto( buffer );
+        return textos;
+    }
+
+    private static String leerTexto( ByteBuffer buffer )
+    {
+        int longitud = leerEntero( buffer );
+        String texto = new String( buffer.array( ), buffer.position( ), longitud, StandardCharsets.UTF_8 );
+        buffer.position( buffer.position( ) + longitud );
+        return texto;
+    }
+
+    /**
+     * Lee un entero no negativo guardado en 7 bits por byte, con el bit alto indicando que sigue otro byte
+     */
+    private static int leerEntero( ByteBuffer buffer )
+    {
+        int valor = 0;
+        int desplazamiento = 0;
+        byte b;
+        do
+        {
+            b = buffer.get( );
+            valor |= ( b & 0x7F ) << desplazamiento;
+            desplazamiento += 7;
+        } while( b < 0 );
+        return valor;
+    }
+
+    /**
+     * Retorna los números de los segmentos que hay en la carpeta, en orden
+     */
+    private static ArrayList<Integer> listarSegmentos( File carpeta )
+    {
+        ArrayList<Integer> numeros = new ArrayList<Integer>( );
+        String[] nombres = carpeta.list( );
+        if( nombres != null )
+        {
+            for( String nombre : nombres )
+            {
+                if( nombre.startsWith( PREFIJO_SEGMENTO ) && nombre.endsWith( EXTENSION_SEGMENTO ) )
+                {
+                    try
+                    {
+                        numeros.add( Integer.parseInt( nombre.substring( PREFIJO_SEGMENTO.length( ), nombre.length( ) - EXTENSION_SEGMENTO.length( ) ) ) );
+                    }
+                    catch( NumberFormatException e )
+                    {
+                        // No es un segmento de la bitácora
+                    }
+                }
+            }
+        }
+        numeros.sort( null );
+        return numeros;
+    }
+
+    private static File archivoSegmento( File carpeta, int numero )
+    {
+        return new File( carpeta, String.format( "%s%08d%s", PREFIJO_SEGMENTO, numero, EXTENSION_SEGMENTO ) );
+    }
+
+    /**
+     * El buffer donde un hilo arma un registro: deja espacio para el encabezado, escribe el tipo, el pedido y los datos, y al terminar completa el
+     * encabezado
+     */
+    private static class Codificador
+    {
+        private byte[] datos = new byte[256];
+
+        private int posicion;
+
+        private final CRC32 crc = new CRC32( );
+
+        private void iniciar( byte tipo, int idPedido )
+        {
+            posicion = TAMANO_ENCABEZADO;
+            escribirByte( tipo );
+            asegurar( 4 );
+            datos[ posicion++ ] = ( byte )( idPedido >>> 24 );
+            datos[ posicion++ ] = ( byte )( idPedido >>> 16 );
+            datos[ posicion++ ] = ( byte )( idPedido >>> 8 );
+            datos[ posicion++ ] = ( byte )idPedido;
+        }
+
+        private void escribirByte( int valor )
+        {
+            asegurar( 1 );
+            datos[ posicion++ ] = ( byte )valor;
+        }
+
+        private void escribirEntero( int valor )
+        {
+            asegurar( 5 );
+            while( ( valor & ~0x7F ) != 0 )
+            {
+                datos[ posicion++ ] = ( byte )( ( valor & 0x7F ) | 0x80 );
+                valor >>>= 7;
+            }
+            datos[ posicion++ ] = ( byte )valor;
+        }
+
+        private void escribirTexto( String texto )
+        {
+            byte[] bytes = texto.getBytes( StandardCharsets.UTF_8 );
+            escribirEntero( bytes.length );
+            asegurar( bytes.length );
+            System.arraycopy( bytes, 0, datos, posicion, bytes.length );
+            posicion += bytes.length;
+        }
+
+        private Codificador terminar( )
+        {
+            int longitud = posicion - TAMANO_ENCABEZADO;
+            crc.reset( );
+            crc.update( datos, TAMANO_ENCABEZADO, longitud );
+            ByteBuffer.wrap( datos ).putInt( 0, longitud ).putInt( 4, ( int )crc.getValue( ) );
+            return this;
+        }
+
+        private void asegurar( int bytes )
+        {
+            if( posicion + bytes > datos.length )
+                datos = Arrays.copyOf( datos, Math.max( datos.length * 2, posicion + bytes ) );
+        }
+    }
+}
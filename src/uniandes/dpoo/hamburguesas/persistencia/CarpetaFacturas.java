@@ -0,0 +1,272 @@
+package uniandes.dpoo.hamburguesas.persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Guarda cada factura en su propio archivo de texto dentro de una carpeta, con el nombre 'factura_' seguido del identificador del pedido.
+ *
+ * Las facturas de días anteriores pueden estar comprimidas en archivos de facturas (ver ArchivadorFacturas). Si el archivo suelto de una factura no
+ * existe, se busca en esos archivos, que se abren la primera vez que hacen falta.
+ */
+public class CarpetaFacturas implements AlmacenFacturas
+{
+    /**
+     * La primera parte del nombre de los archivos de facturas
+     */
+    public static final String PREFIJO_FACTURAS = "factura_";
+
+    /**
+     * La primera parte del nombre de los archivos de facturas comprimidas
+     */
+    public static final String PREFIJO_ARCHIVOS = "archivo_";
+
+    /**
+     * La extensión de los archivos de facturas comprimidas
+     */
+    public static final String EXTENSION_ARCHIVOS = ".fac";
+
+    /**
+     * La carpeta donde quedan los archivos
+     */
+    private File carpeta;
+
+    /**
+     * Indica si ya se verificó que la carpeta existe
+     */
+    private boolean carpetaCreada;
+
+    /**
+     * Los archivos escritos que todavía no se han sincronizado con el disco
+     */
+    private ArrayList<FileChannel> pendientes;
+
+    /**
+     * Los archivos de facturas comprimidas de la carpeta. Es null hasta que se necesita leer una factura que no está suelta. El arreglo nunca se
+     * modifica: para agregar un archivo se reemplaza por otro, así que se puede recorrer sin sincronizar.
+     */
+    private volatile ArchivoFacturas[] archivos;
+
+    /**
+     * Crea un almacén que guarda las facturas en la carpeta indicada. La carpeta se crea cuando se guarda la primera factura.
+     * @param carpeta La carpeta donde quedan los archivos
+     */
+    public CarpetaFacturas( File carpeta )
+    {
+        this.carpeta = carpeta;
+        pendientes = new ArrayList<FileChannel>( );
+    }
+
+    /**
+     * Retorna el archivo donde queda la factura de un pedido
+     * @param idPedido El identificador del pedido
+     * @return
+     */
+    public File getArchivo( int idPedido )
+    {
+        return new File( carpeta, PREFIJO_FACTURAS + idPedido + ".txt" );
+    }
+
+    /**
+     * Retorna la carpeta donde quedan los archivos
+     * @return
+     */
+    public File getCarpeta( )
+    {
+        return carpeta;
+    }
+
+    /**
+     * Busca el identificador más alto que tiene una factura en la carpeta, suelta o en un archivo de facturas comprimidas
+     * @return El identificador más alto, o -1 si la carpeta no tiene facturas
+     * @throws IOException Se lanza esta excepción si alguno de los archivos de facturas comprimidas no se puede abrir
+     */
+    public int buscarMayorId( ) throws IOException
+    {
+        int mayor = -1;
+        String[] sueltas = carpeta.list( ( dir, nombre ) -> nombre.startsWith( PREFIJO_FACTURAS ) && nombre.endsWith( ".txt" ) );
+        if( sueltas != null )
+        {
+            for( String nombre : sueltas )
+            {
+                try
+                {
+                    mayor = Math.max( mayor, Integer.parseInt( nombre.substring( PREFIJO_FACTURAS.length( ), nombre.length( ) - 4 ) ) );
+                }
+                catch( NumberFormatException e )
+                {
+                    // No es una factura, aunque su nombre se parezca
+                }
+            }
+        }
+        for( ArchivoFacturas archivo : cargarArchivos( ) )
+        {
+            if( archivo.getCantidad( ) > 0 )
+                mayor = Math.max( mayor, archivo.getUltimoId( ) );
+        }
+        return mayor;
+    }
+
+    @Override
+    public synchronized void guardar( int idPedido, String factura ) throws IOException
+    {
+        if( !carpetaCreada )
+        {
+            if( !carpeta.exists( ) && !carpeta.mkdirs( ) && !carpeta.isDirectory( ) )
+            {
+                throw new IOException( "No fue posible crear la carpeta: " + carpeta.getAbsolutePath( ) );
+            }
+            carpetaCreada = true;
+        }
+
+        FileChannel canal = FileChannel.open( getArchivo( idPedido ).toPath( ), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING );
+        pendientes.add( canal );
+        ByteBuffer contenido = ByteBuffer.wrap( factura.getBytes( StandardCharsets.UTF_8 ) );
+        while( contenido.hasRemaining( ) )
+        {
+            canal.write( contenido );
+        }
+    }
+
+    @Override
+    public synchronized void sincronizar( ) throws IOException
+    {
+        IOException error = null;
+        for( FileChannel canal : pendientes )
+        {
+            try
+            {
+                canal.force( false );
+                canal.close( );
+            }
+            catch( IOException e )
+            {
+                if( error == null )
+                    error = e;
+                canal.close( );
+            }
+        }
+        pendientes.clear( );
+        if( error != null )
+            throw error;
+    }
+
+    @Override
+    public String leer( int idPedido ) throws IOException
+    {
+        File archivo = getArchivo( idPedido );
+        if( archivo.exists( ) )
+        {
+            try
+            {
+                return new String( Files.readAllBytes( archivo.toPath( ) ), StandardCharsets.UTF_8 );
+            }
+            catch( NoSuchFileException e )
+            {
+                // El archivador la acaba de borrar; ya quedó en un archivo comprimido
+            }
+        }
+        byte[] archivada = leerArchivada( idPedido );
+        return archivada == null ? null : new String( archivada, StandardCharsets.UTF_8 );
+    }
+
+    @Override
+    public ByteBuffer mapear( int idPedido ) throws IOException
+    {
+        File archivo = getArchivo( idPedido );
+        if( archivo.exists( ) )
+        {
+            try( FileChannel canal = FileChannel.open( archivo.toPath( ), StandardOpenOption.READ ) )
+            {
+                return canal.map( FileChannel.MapMode.READ_ONLY, 0, canal.size( ) );
+            }
+            catch( NoSuchFileException e )
+            {
+                // El archivador la acaba de borrar; ya quedó en un archivo comprimido
+            }
+        }
+        byte[] archivada = leerArchivada( idPedido );
+        return archivada == null ? null : ByteBuffer.wrap( archivada ).asReadOnlyBuffer( );
+    }
+
+    /**
+     * Busca la factura de un pedido en los archivos de facturas comprimidas
+     * @param idPedido
+     * @return El texto de la factura en UTF-8, o null si no está en ningún archivo
+     * @throws IOException
+     */
+    private byte[] leerArchivada( int idPedido ) throws IOException
+    {
+        ArchivoFacturas[] actuales = archivos;
+        if( actuales == null )
+            actuales = cargarArchivos( );
+        for( ArchivoFacturas archivo : actuales )
+        {
+            byte[] factura = archivo.leer( idPedido );
+            if( factura != null )
+                return factura;
+        }
+        return null;
+    }
+
+    /**
+     * Abre los archivos de facturas comprimidas que hay en la carpeta
+     * @return
+     * @throws IOException Se lanza esta excepción si alguno de los archivos no se puede abrir
+     */
+    private synchronized ArchivoFacturas[] cargarArchivos( ) throws IOException
+    {
+        if( archivos != null )
+            return archivos;
+
+        File[] encontrados = carpeta.listFiles( ( dir, nombre ) -> nombre.startsWith( PREFIJO_ARCHIVOS ) && nombre.endsWith( EXTENSION_ARCHIVOS ) );
+        if( encontrados == null )
+            encontrados = new File[0];
+        Arrays.sort( encontrados );
+        ArchivoFacturas[] abiertos = new ArchivoFacturas[encontrados.length];
+        for( int i = 0; i < encontrados.length; i++ )
+            abiertos[ i ] = ArchivoFacturas.abrir( encontrados[ i ] );
+        archivos = abiertos;
+        return abiertos;
+    }
+
+    /**
+     * Agrega un archivo de facturas comprimidas recién escrito en la carpeta, para que sus facturas se puedan leer aunque se borren los archivos
+     * sueltos
+     * @param archivo
+     * @throws IOException Se lanza esta excepción si no se pudieron abrir los archivos que ya estaban en la carpeta
+     */
+    synchronized void agregarArchivo( ArchivoFacturas archivo ) throws IOException
+    {
+        ArchivoFacturas[] actuales = cargarArchivos( );
+        for( ArchivoFacturas existente : actuales )
+        {
+            if( existente.getArchivo( ).equals( archivo.getArchivo( ) ) )
+                return;
+        }
+        ArchivoFacturas[] nuevos = Arrays.copyOf( actuales, actuales.length + 1 );
+        nuevos[ actuales.length ] = archivo;
+        archivos = nuevos;
+    }
+
+    @Override
+    public void cerrar( ) throws IOException
+    {
+        sincronizar( );
+    }
+
+    @Override
+    public String getUbicacion( int idPedido )
+    {
+        return getArchivo( idPedido ).getAbsolutePath( );
+    }
+}
@@ -0,0 +1,411 @@
+package uniandes.dpoo.hamburguesas.persistencia;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import uniandes.dpoo.hamburguesas.metricas.Metricas;
+
+/**
+ * Escribe las facturas en un hilo aparte, para que cerrar un pedido no tenga que esperar al disco.
+ *
+ * Las facturas se encolan en una cola de capacidad limitada. El hilo escritor saca de la cola todas las facturas disponibles (hasta TAMANO_LOTE), las
+ * guarda en el almacén y sincroniza el almacén una sola vez por lote. Si la cola está llena, encolar bloquea al llamador hasta que haya espacio, así que
+ * la memoria usada por facturas pendientes está acotada.
+ *
+ * Si un lote falla, sus facturas no se pierden: se vuelven a intentar en el siguiente lote y el error se reporta a quien llame a vaciar, encolar o cerrar.
+ * Quien sólo espera una factura con esperarFactura recibe el error únicamente si esa factura estaba en el lote que falló.
+ *
+ * Cerrar espera a que terminen los llamados a encolar que ya estaban en curso, así que toda factura que encolar aceptó se escribe antes de la marca de
+ * fin. Los que siguen esperando espacio en la cola cuando se cierra el escritor fallan con una IOException y su factura no se encola.
+ */
+public class EscritorFacturas
+{
+    /**
+     * La capacidad por defecto de la cola de facturas pendientes
+     */
+    public static final int CAPACIDAD_POR_DEFECTO = 1024;
+
+    /**
+     * La cantidad máxima de facturas que se escriben en un lote
+     */
+    private static final int TAMANO_LOTE = 256;
+
+    /**
+     * El tiempo que espera el hilo escritor antes de reintentar un lote que falló
+     */
+    private static final long ESPERA_REINTENTO_MS = 100;
+
+    /**
+     * Cada cuánto revisa si el escritor se cerró un llamado a encolar que está esperando espacio en la cola
+     */
+    private static final long ESPERA_ESPACIO_MS = 50;
+
+    /**
+     * Una factura que está esperando a ser escrita
+     */
+    private static class FacturaPendiente
+    {
+        private final int idPedido;
+
+        private final String texto;
+
+        private FacturaPendiente( int idPedido, String texto )
+        {
+            this.idPedido = idPedido;
+            this.texto = texto;
+        }
+    }
+
+    /**
+     * La marca que se encola al cerrar el escritor para que el hilo escritor termine
+     */
+    private static final FacturaPendiente FIN = new FacturaPendiente( -1, null );
+
+    /**
+     * El almacén donde quedan las facturas
+     */
+    private AlmacenFacturas almacen;
+
+    /**
+     * Las facturas que están esperando a ser escritas
+     */
+    private ArrayBlockingQueue<FacturaPendiente> cola;
+
+    /**
+     * El hilo que escribe las facturas. Se crea cuando se encola la primera factura.
+     */
+    private Thread hilo;
+
+    /**
+     * La cantidad de facturas que se han encolado
+     */
+    private long encoladas;
+
+    /**
+     * La cantidad de llamados a encolar que ya pasaron la revisión de cerrado pero todavía no han terminado de poner su factura en la cola
+     */
+    private int enCurso;
+
+    /**
+     * La cantidad de facturas que ya quedaron sincronizadas en el almacén
+     */
+    private long escritas;
+
+    /**
+     * Cuántas facturas de cada pedido están encoladas pero todavía no quedan sincronizadas
+     */
+    private HashMap<Integer, Integer> pendientesPorPedido = new HashMap<Integer, Integer>( );
+
+    /**
+     * Los pedidos cuyas facturas estaban en el último lote, si ese lote falló. Queda vacío cuando un lote se escribe bien.
+     */
+    private HashSet<Integer> pedidosFallidos = new HashSet<Integer>( );
+
+    /**
+     * El error del último lote, si falló. A diferencia de error, no se olvida al reportarlo.
+     */
+    private IOException errorLote;
+
+    /**
+     * El último error del hilo escritor que todavía no se ha reportado
+     */
+    private IOException error;
+
+    /**
+     * Indica si ya se llamó a cerrar
+     */
+    private boolean cerrado;
+
+    /**
+     * Crea un escritor con la capacidad por defecto
+     * @param almacen El almacén donde deben quedar las facturas
+     */
+    public EscritorFacturas( AlmacenFacturas almacen )
+    {
+        this( almacen, CAPACIDAD_POR_DEFECTO );
+    }
+
+    /**
+     * Crea un escritor
+     * @param almacen El almacén donde deben quedar las facturas
+     * @param capacidad La cantidad máxima de facturas que pueden estar esperando a ser escritas
+     */
+    public EscritorFacturas( AlmacenFacturas almacen, int capacidad )
+    {
+        this.almacen = almacen;
+        this.cola = new ArrayBlockingQueue<FacturaPendiente>( capacidad );
+    }
+
+    /**
+     * Retorna el almacén donde quedan las facturas
+     * @return
+     */
+    public AlmacenFacturas getAlmacen( )
+    {
+        return almacen;
+    }
+
+    /**
+     * Encola la factura de un pedido para que se escriba en el almacén. Si la cola está llena, espera hasta que haya espacio.
+     * @param idPedido El identificador del pedido
+     * @param factura El texto de la factura
+     * @throws IOException Se lanza esta excepción si el escritor ya se cerró, si se cerró mientras se esperaba espacio o si un lote anterior falló. En
+     *         ese caso la factura no se encola.
+     */
+    public void encolar( int idPedido, String factura ) throws IOException
+    {
+        synchronized( this )
+        {
+            if( cerrado )
+                throw new IOException( "El escritor de facturas ya se cerró" );
+            reportarError( );
+            if( hilo == null )
+            {
+                hilo = new Thread( this::escribir, "escritor-facturas" );
+                hilo.setDaemon( true );
+                hilo.start( );
+            }
+            enCurso++;
+            // Se cuenta antes de encolar para que el hilo escritor nunca descuente una factura que todavía no se ha contado
+            pendientesPorPedido.merge( idPedido, 1, Integer::sum );
+        }
+
+        FacturaPendiente pendiente = new FacturaPendiente( idPedido, factura );
+        boolean encolada = false;
+        try
+        {
+            // No se puede esperar con el candado del escritor, porque el hilo escritor lo necesita para liberar espacio
+            while( !encolada )
+            {
+                encolada = cola.offer( pendiente, ESPERA_ESPACIO_MS, TimeUnit.MILLISECONDS );
+                if( !encolada )
+                {
+                    synchronized( this )
+                    {
+                        if( cerrado )
+                            throw new IOException( "El escritor de facturas se cerró mientras se esperaba para encolar la factura del pedido " + idPedido );
+                    }
+                }
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new InterruptedIOException( "Se interrumpió la espera para encolar la factura del pedido " + idPedido );
+        }
+        finally
+        {
+            synchronized( this )
+            {
+                if( encolada )
+                    encoladas++;
+                else
+                    descontarPendiente( idPedido );
+                enCurso--;
+                notifyAll( );
+            }
+        }
+    }
+
+    /**
+     * Espera hasta que todas las facturas encoladas antes de esta llamada queden sincronizadas en el almacén
+     * @throws IOException Se lanza esta excepción si alguna escritura falló mientras se esperaba
+     */
+    public synchronized void vaciar( ) throws IOException
+    {
+        long objetivo = encoladas;
+        while( escritas < objetivo && error == null )
+        {
+            try
+            {
+                wait( );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+                throw new InterruptedIOException( "Se interrumpió la espera de las facturas pendientes" );
+            }
+        }
+        reportarError( );
+    }
+
+    /**
+     * Espera hasta que las facturas encoladas de un pedido queden sincronizadas en el almacén. No espera a las facturas de otros pedidos ni reporta
+     * sus errores, y no olvida el error pendiente, que se sigue reportando en vaciar, encolar o cerrar.
+     * @param idPedido El identificador del pedido
+     * @throws IOException Se lanza esta excepción si el lote que tenía la factura del pedido falló
+     */
+    public synchronized void esperarFactura( int idPedido ) throws IOException
+    {
+        while( pendientesPorPedido.containsKey( idPedido ) )
+        {
+            if( pedidosFallidos.contains( idPedido ) )
+                throw new IOException( "No fue posible escribir la factura del pedido " + idPedido + ": " + errorLote.getMessage( ), errorLote );
+            try
+            {
+                wait( );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+                throw new InterruptedIOException( "Se interrumpió la espera de la factura del pedido " + idPedido );
+            }
+        }
+    }
+
+    /**
+     * Escribe todas las facturas pendientes, detiene el hilo escritor y cierra el almacén. Después de cerrar el escritor no se pueden encolar más
+     * facturas.
+     * @throws IOException Se lanza esta excepción si alguna factura pendiente no se pudo escribir
+     */
+    public void cerrar( ) throws IOException
+    {
+        Thread escritor;
+        synchronized( this )
+        {
+            if( cerrado )
+                return;
+            cerrado = true;
+            escritor = hilo;
+        }
+
+        try
+        {
+            esperarEncolamientos( );
+            vaciar( );
+            almacen.cerrar( );
+        }
+        finally
+        {
+            if( escritor != null )
+            {
+                // Al encolar la marca después de todas las facturas, el hilo termina sólo cuando ya escribió lo que había antes
+                cola.offer( FIN );
+            }
+        }
+    }
+
+    /**
+     * Espera a que terminen los llamados a encolar que estaban en curso cuando se cerró el escritor
+     * @throws IOException Se lanza esta excepción si se interrumpió la espera
+     */
+    private synchronized void esperarEncolamientos( ) throws IOException
+    {
+        while( enCurso > 0 )
+        {
+            try
+            {
+                wait( );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+                throw new InterruptedIOException( "Se interrumpió la espera de las facturas que se estaban encolando" );
+            }
+        }
+    }
+
+    /**
+     * Retorna la cantidad de facturas que están en la cola esperando a ser escritas
+     * @return
+     */
+    public int getPendientes( )
+    {
+        return cola.size( );
+    }
+
+    /**
+     * Descuenta una factura pendiente de un pedido. Se debe llamar con el candado del escritor.
+     * @param idPedido El identificador del pedido
+     */
+    private void descontarPendiente( int idPedido )
+    {
+        pendientesPorPedido.computeIfPresent( idPedido, ( id, cantidad ) -> cantidad > 1 ? cantidad - 1 : null );
+    }
+
+    /**
+     * Lanza el error pendiente, si lo hay, y lo olvida. Se debe llamar con el candado del escritor.
+     * @throws IOException
+     */
+    private void reportarError( ) throws IOException
+    {
+        if( error != null )
+        {
+            IOException e = error;
+            error = null;
+            throw new IOException( "No fue posible escribir algunas facturas: " + e.getMessage( ), e );
+        }
+    }
+
+    /**
+     * El ciclo del hilo escritor: toma lotes de la cola y los escribe hasta encontrar la marca de fin
+     */
+    private void escribir( )
+    {
+        ArrayList<FacturaPendiente> lote = new ArrayList<FacturaPendiente>( TAMANO_LOTE );
+        boolean terminar = false;
+        while( !terminar || !lote.isEmpty( ) )
+        {
+            if( lote.isEmpty( ) )
+            {
+                try
+                {
+                    lote.add( cola.take( ) );
+                }
+                catch( InterruptedException e )
+                {
+                    return;
+                }
+            }
+            cola.drainTo( lote, TAMANO_LOTE - lote.size( ) );
+            terminar |= lote.remove( FIN );
+
+            try
+            {
+                long inicio = System.nanoTime( );
+                for( FacturaPendiente factura : lote )
+                {
+                    almacen.guardar( factura.idPedido, factura.texto );
+                }
+                almacen.sincronizar( );
+                Metricas.getInstancia( ).registrarEscrituraFacturas( lote.size( ), System.nanoTime( ) - inicio );
+                synchronized( this )
+                {
+                    escritas += lote.size( );
+                    for( FacturaPendiente factura : lote )
+                        descontarPendiente( factura.idPedido );
+                    pedidosFallidos.clear( );
+                    errorLote = null;
+                    notifyAll( );
+                }
+                lote.clear( );
+            }
+            catch( IOException e )
+            {
+                Metricas.getInstancia( ).registrarErrorFacturas( );
+                synchronized( this )
+                {
+                    error = e;
+                    errorLote = e;
+                    pedidosFallidos.clear( );
+                    for( FacturaPendiente factura : lote )
+                        pedidosFallidos.add( factura.idPedido );
+                    notifyAll( );
+                }
+                try
+                {
+                    Thread.sleep( ESPERA_REINTENTO_MS );
+                }
+                catch( InterruptedException interrupcion )
+                {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package uniandes.dpoo.hamburguesas.persistencia;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+
+/**
+ * Vuelve a generar las facturas de muchos pedidos y las escribe en un archivo por factura, en un solo archivo con todas o en un archivo zip. Sirve
+ * para regenerar las facturas históricas cuando cambia el formato de la factura o la forma de calcular los impuestos.
+ *
+ * Los pedidos se procesan por lotes de TAMANO_LOTE. Las facturas de un lote se generan en paralelo en un ForkJoinPool mientras el hilo que llamó a
+ * exportar escribe el lote anterior, así que en memoria nunca hay más de dos lotes de facturas. La escritura es secuencial y se hace un lote a la
+ * vez: el archivo concatenado recibe todo el lote en una sola escritura y el zip pasa por un buffer grande.
+ */
+public class ExportadorFacturas
+{
+    /**
+     * Las formas de organizar las facturas exportadas
+     */
+    public enum Formato
+    {
+        /**
+         * Un archivo factura_N.txt por factura dentro de la carpeta destino, como en CarpetaFacturas
+         */
+        CARPETA,
+
+        /**
+         * Un solo archivo de texto con todas las facturas, cada una precedida por una línea "=== Pedido N ==="
+         */
+        CONCATENADO,
+
+        /**
+         * Un archivo zip con una entrada factura_N.txt por factura
+         */
+        ZIP
+    }
+
+    /**
+     * La cantidad de facturas que se generan y se escriben juntas
+     */
+    public static final int TAMANO_LOTE = 512;
+
+    /**
+     * La cantidad de facturas por debajo de la cual una tarea las genera sin dividirse más
+     */
+    private static final int UMBRAL_TAREA = 32;
+
+    /**
+     * El tamaño del buffer de escritura del archivo zip
+     */
+    private static final int TAMANO_BUFFER_ZIP = 1 << 20;
+
+    /**
+     * El resultado de una exportación
+     */
+    public static class Resultado
+    {
+        private int facturas;
+
+        private long bytes;
+
+        private long nanos;
+
+        /**
+         * Retorna la cantidad de facturas exportadas
+         * @return
+         */
+        public int getFacturas( )
+        {
+            return facturas;
+        }
+
+        /**
+         * Retorna la cantidad de bytes de las facturas, sin contar encabezados ni compresión
+         * @return
+         */
+        public long getBytes( )
+        {
+            return bytes;
+        }
+
+        /**
+         * Retorna las facturas exportadas por segundo, contando desde que empezó la exportación hasta que se cerró el destino
+         * @return
+         */
+        public double getFacturasPorSegundo( )
+        {
+            return nanos == 0 ? 0 : facturas / ( nanos / 1e9 );
+        }
+
+        /**
+         * Retorna el reporte del resultado en texto
+         */
+        @Override
+        public String toString( )
+        {
+            return String.format( "%d facturas (%.1f MB) exportadas en %.2f s: %.0f facturas/s, %.1f MB/s", facturas, bytes / 1e6, nanos / 1e9,
+                    getFacturasPorSegundo( ), nanos == 0 ? 0 : bytes / 1e6 / ( nanos / 1e9 ) );
+        }
+    }
+
+    private final Formato formato;
+
+    private final File destino;
+
+    private final ForkJoinPool pool;
+
+    private final PrintStream progreso;
+
+    private final long nanosEntreReportes;
+
+    /**
+     * Crea un exportador que genera las facturas en el pool común y reporta el avance cada segundo
+     * @param formato La forma de organizar las facturas
+     * @param destino La carpeta destino para el formato CARPETA, o el archivo que se crea para los otros formatos
+     * @param progreso Donde se reporta el avance, o null si no se quiere reportar
+     */
+    public ExportadorFacturas( Formato formato, File destino, PrintStream progreso )
+    {
+        this( formato, destino, progreso, ForkJoinPool.commonPool( ), 1_000_000_000L );
+    }
+
+    /**
+     * Crea un exportador
+     * @param formato La forma de organizar las facturas
+     * @param destino La carpeta destino para el formato CARPETA, o el archivo que se crea para los otros formatos
+     * @param progreso Donde se reporta el avance, o null si no se quiere reportar
+     * @param pool El pool donde se generan las facturas
+     * @param nanosEntreReportes El tiempo mínimo entre dos reportes de avance, en nanosegundos. El avance final siempre se reporta.
+     */
+    public ExportadorFacturas( Formato formato, File destino, PrintStream progreso, ForkJoinPool pool, long nanosEntreReportes )
+    {
+        this.formato = formato;
+        this.destino = destino;
+        this.progreso = progreso;
+        this.pool = pool;
+        this.nanosEntreReportes = nanosEntreReportes;
+    }
+
+    /**
+     * Genera y escribe las facturas de los pedidos, en el orden de la lista. Los pedidos no deben cambiar mientras se exportan.
+     * @param pedidos Los pedidos cerrados
+     * @return El resultado de la exportación
+     * @throws IOException Se lanza si alguna factura no se pudo escribir. Las facturas escritas antes del error quedan en el destino.
+     */
+    public Resultado exportar( List<Pedido> pedidos ) throws IOException
+    {
+        Resultado resultado = new Resultado( );
+        long inicio = System.nanoTime( );
+        long ultimoReporte = inicio;
+        int total = pedidos.size( );
+
+        ForkJoinTask<Void> siguiente = null;
+        try( Salida salida = abrirSalida( ) )
+        {
+            byte[][] lote = new byte[Math.min( TAMANO_LOTE, total )][];
+            byte[][] loteSiguiente = new byte[lote.length][];
+            if( total > 0 )
+                siguiente = pool.submit( new TareaGenerar( pedidos, 0, lote.length, lote, 0 ) );
+
+            for( int desde = 0; desde < total; desde += TAMANO_LOTE )
+            {
+                int hasta = Math.min( desde + TAMANO_LOTE, total );
+                siguiente.join( );
+
+                // Mientras se escribe este lote, el pool genera el siguiente en el otro arreglo
+                siguiente = null;
+                if( hasta < total )
+                    siguiente = pool.submit( new TareaGenerar( pedidos, hasta, Math.min( hasta + TAMANO_LOTE, total ), loteSiguiente, hasta ) );
+
+                salida.escribir( pedidos, desde, lote, hasta - desde );
+                for( int i = 0; i < hasta - desde; i++ )
+                {
+                    resultado.bytes += lote[ i ].length;
+                    lote[ i ] = null;
+                }
+                resultado.facturas = hasta;
+
+                byte[][] escrito = lote;
+                lote = loteSiguiente;
+                loteSiguiente = escrito;
+
+                long ahora = System.nanoTime( );
+                if( progreso != null && ( ahora - ultimoReporte >= nanosEntreReportes || hasta == total ) )
+                {
+                    progreso.printf( "%d/%d facturas, %.0f facturas/s%n", hasta, total, hasta / ( ( ahora - inicio ) / 1e9 ) );
+                    ultimoReporte = ahora;
+                }
+            }
+            salida.terminar( );
+        }
+        finally
+        {
+            if( siguiente != null )
+                siguiente.cancel( false );
+        }
+        resultado.nanos = System.nanoTime( ) - inicio;
+        return resultado;
+    }
+
+    private Salida abrirSalida( ) throws IOException
+    {
+        switch( formato )
+        {
+            case CARPETA:
+                return new SalidaCarpeta( destino );
+            case CONCATENADO:
+                return new SalidaConcatenada( destino );
+            default:
+                return new SalidaZip( destino );
+        }
+    }
+
+    /**
+     * Genera las facturas de un rango de pedidos en UTF-8, dividiendo el rango en dos mitades que se procesan en paralelo mientras tenga más de
+     * UMBRAL_TAREA pedidos
+     */
+    @SuppressWarnings("serial")
+    private static class TareaGenerar extends RecursiveAction
+    {
+        private final List<Pedido> pedidos;
+
+        private final int desde;
+
+        private final int hasta;
+
+        private final byte[][] facturas;
+
+        private final int primero;
+
+        /**
+         * @param facturas Donde queda la factura de cada pedido: la del pedido i queda en la posición i - primero
+         */
+        private TareaGenerar( List<Pedido> pedidos, int desde, int hasta, byte[][] facturas, int primero )
+        {
+            this.pedidos = pedidos;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.facturas = facturas;
+            this.primero = primero;
+        }
+
+        @Override
+        protected void compute( )
+        {
+            if( hasta - desde <= UMBRAL_TAREA )
+            {
+                for( int i = desde; i < hasta; i++ )
+                    facturas[ i - primero ] = pedidos.get( i ).generarTextoFactura( ).getBytes( StandardCharsets.UTF_8 );
+                return;
+            }
+
+            int mitad = ( desde + hasta ) >>> 1;
+            invokeAll( new TareaGenerar( pedidos, desde, mitad, facturas, primero ), new TareaGenerar( pedidos, mitad, hasta, facturas, primero ) );
+        }
+    }
+
+    /**
+     * El destino de las facturas en uno de los formatos
+     */
+    private interface Salida extends AutoCloseable
+    {
+        /**
+         * Escribe las primeras cantidad facturas del lote, que corresponden a los pedidos desde la posición indicada
+         */
+        void escribir( List<Pedido> pedidos, int desde, byte[][] lote, int cantidad ) throws IOException;
+
+        /**
+         * Fuerza a disco lo que falte después del último lote
+         */
+        void terminar( ) throws IOException;
+
+        @Override
+        void close( ) throws IOException;
+    }
+
+    /**
+     * Escribe un archivo por factura. A diferencia de CarpetaFacturas, no fuerza cada archivo a disco: sincronizar miles de archivos uno por uno
+     * es lo que más tarda, y si la exportación se interrumpe basta con repetirla.
+     */
+    private static class SalidaCarpeta implements Salida
+    {
+        private final CarpetaFacturas carpeta;
+
+        private SalidaCarpeta( File destino ) throws IOException
+        {
+            if( !destino.exists( ) && !destino.mkdirs( ) && !destino.isDirectory( ) )
+                throw new IOException( "No fue posible crear la carpeta: " + destino.getAbsolutePath( ) );
+            carpeta = new CarpetaFacturas( destino );
+        }
+
+        @Override
+        public void escribir( List<Pedido> pedidos, int desde, byte[][] lote, int cantidad ) throws IOException
+        {
+            for( int i = 0; i < cantidad; i++ )
+            {
+                try( FileChannel canal = FileChannel.open( carpeta.getArchivo( pedidos.get( desde + i ).getIdPedido( ) ).toPath( ),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING ) )
+                {
+                    ByteBuffer contenido = ByteBuffer.wrap( lote[ i ] );
+                    while( contenido.hasRemaining( ) )
+                        canal.write( contenido );
+                }
+            }
+        }
+
+        @Override
+        public void terminar( )
+        {
+        }
+
+        @Override
+        public void close( )
+        {
+        }
+    }
+
+    private static class SalidaConcatenada implements Salida
+    {
+        private final FileChannel canal;
+
+        private SalidaConcatenada( File destino ) throws IOException
+        {
+            canal = FileChannel.open( destino.toPath( ), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING );
+        }
+
+        @Override
+        public void escribir( List<Pedido> pedidos, int desde, byte[][] lote, int cantidad ) throws IOException
+        {
+            ByteBuffer[] partes = new ByteBuffer[cantidad * 2];
+            long restante = 0;
+            for( int i = 0; i < cantidad; i++ )
+            {
+                partes[ 2 * i ] = ByteBuffer.wrap( ( "=== Pedido " + pedidos.get( desde + i ).getIdPedido( ) + " ===\n" ).getBytes( StandardCharsets.UTF_8 ) );
+                partes[ 2 * i + 1 ] = ByteBuffer.wrap( lote[ i ] );
+                restante += partes[ 2 * i ].remaining( ) + lote[ i ].length;
+            }
+            while( restante > 0 )
+                restante -= canal.write( partes );
+        }
+
+        @Override
+        public void terminar( ) throws IOException
+        {
+            canal.force( false );
+        }
+
+        @Override
+        public void close( ) throws IOException
+        {
+            canal.close( );
+        }
+    }
+
+    private static class SalidaZip implements Salida
+    {
+        private final FileOutputStream archivo;
+
+        private final ZipOutputStream zip;
+
+        private SalidaZip( File destino ) throws IOException
+        {
+            archivo = new FileOutputStream( destino );
+            zip = new ZipOutputStream( new BufferedOutputStream( archivo, TAMANO_BUFFER_ZIP ), StandardCharsets.UTF_8 );
+        }
+
+        @Override
+        public void escribir( List<Pedido> pedidos, int desde, byte[][] lote, int cantidad ) throws IOException
+        {
+            for( int i = 0; i < cantidad; i++ )
+            {
+                zip.putNextEntry( new ZipEntry( CarpetaFacturas.PREFIJO_FACTURAS + pedidos.get( desde + i ).getIdPedido( ) + ".txt" ) );
+                zip.write( lote[ i ] );
+                zip.closeEntry( );
+            }
+        }
+
+        @Override
+        public void terminar( ) throws IOException
+        {
+            zip.finish( );
+            zip.flush( );
+            archivo.getChannel( ).force( false );
+        }
+
+        @Override
+        public void close( ) throws IOException
+        {
+            zip.close( );
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package uniandes.dpoo.hamburguesas.persistencia;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import uniandes.dpoo.hamburguesas.mundo.VistaPedido;
+
+/**
+ * Una vista de sólo lectura de un pedido que ya no está en memoria, construida a partir de su factura guardada.
+ *
+ * La vista no copia la factura: trabaja directamente sobre el buffer que entrega el almacén (normalmente una porción de un archivo mapeado en memoria)
+ * y sólo decodifica la parte que se le pide.
+ */
+public class FacturaHistorica implements VistaPedido
+{
+    /**
+     * El inicio de la línea con el nombre del cliente
+     */
+    private static final byte[] ETIQUETA_CLIENTE = "Cliente: ".getBytes( StandardCharsets.UTF_8 );
+
+    /**
+     * El inicio de la línea con el precio total
+     */
+    private static final byte[] ETIQUETA_TOTAL = "Precio Total: ".getBytes( StandardCharsets.UTF_8 );
+
+    /**
+     * El identificador del pedido
+     */
+    private final int idPedido;
+
+    /**
+     * El texto de la factura en UTF-8
+     */
+    private final ByteBuffer contenido;
+
+    /**
+     * Crea la vista de un pedido
+     * @param idPedido El identificador del pedido
+     * @param contenido El texto de la factura en UTF-8
+     */
+    public FacturaHistorica( int idPedido, ByteBuffer contenido )
+    {
+        this.idPedido = idPedido;
+        this.contenido = contenido.asReadOnlyBuffer( ).slice( );
+    }
+
+    @Override
+    public int getIdPedido( )
+    {
+        return idPedido;
+    }
+
+    /**
+     * Retorna el nombre del cliente, que está en la primera línea de la factura
+     */
+    @Override
+    public String getNombreCliente( )
+    {
+        int inicio = buscarLinea( ETIQUETA_CLIENTE );
+        if( inicio < 0 )
+            return null;
+
+        int fin = inicio;
+        while( fin < contenido.limit( ) && contenido.get( fin ) != '\n' )
+            fin++;
+        return StandardCharsets.UTF_8.decode( contenido.slice( inicio, fin - inicio ) ).toString( );
+    }
+
+    /**
+     * Retorna el precio total, que está en la última línea de la factura
+     */
+    @Override
+    public int getPrecioTotalPedido( )
+    {
+        int posicion = buscarLinea( ETIQUETA_TOTAL );
+        if( posicion < 0 )
+            throw new IllegalStateException( "La factura del pedido " + idPedido + " no tiene precio total" );
+
+        int total = 0;
+        while( posicion < contenido.limit( ) && contenido.get( posicion ) >= '0' && contenido.get( posicion ) <= '9' )
+        {
+            total = total * 10 + ( contenido.get( posicion ) - '0' );
+            posicion++;
+        }
+        return total;
+    }
+
+    @Override
+    public String generarTextoFactura( )
+    {
+        return StandardCharsets.UTF_8.decode( contenido.duplicate( ) ).toString( );
+    }
+
+    /**
+     * Busca la primera línea que empieza con la etiqueta indicada
+     * @param etiqueta El comienzo de la línea
+     * @return La posición justo después de la etiqueta o -1 si ninguna línea empieza con ella
+     */
+    private int buscarLinea( byte[] etiqueta )
+    {
+        int inicioLinea = 0;
+        while( inicioLinea < contenido.limit( ) )
+        {
+            if( empiezaCon( inicioLinea, etiqueta ) )
+                return inicioLinea + etiqueta.length;
+
+            while( inicioLinea < contenido.limit( ) && contenido.get( inicioLinea ) != '\n' )
+                inicioLinea++;
+            inicioLinea++;
+        }
+        return -1;
+    }
+
+    private boolean empiezaCon( int posicion, byte[] etiqueta )
+    {
+        if( posicion + etiqueta.length > contenido.limit( ) )
+            return false;
+        for( int i = 0; i < etiqueta.length; i++ )
+        {
+            if( contenido.get( posicion + i ) != etiqueta[ i ] )
+                return false;
+        }
+        return true;
+    }
+}
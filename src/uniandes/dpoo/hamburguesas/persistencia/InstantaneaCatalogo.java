@@ -0,0 +1,259 @@
+package uniandes.dpoo.hamburguesas.persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.zip.CRC32C;
+
+import uniandes.dpoo.hamburguesas.excepciones.HamburguesaException;
+import uniandes.dpoo.hamburguesas.mundo.Catalogo;
+import uniandes.dpoo.hamburguesas.mundo.Combo;
+import uniandes.dpoo.hamburguesas.mundo.Ingrediente;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+
+/**
+ * Una copia binaria de un catálogo ya cargado, para no tener que volver a leer los archivos de texto en cada arranque.
+ *
+ * El archivo tiene, en este orden:
+ * - la marca MARCA y la VERSION del formato;
+ * - el tamaño y la suma CRC32C de cada uno de los tres archivos de texto de los que salió el catálogo;
+ * - la tabla de nombres: cada nombre distinto una sola vez, como longitud y bytes UTF-8;
+ * - los ingredientes y los productos del menú, como índice del nombre en la tabla y precio;
+ * - los combos, como índice del nombre, descuento, cantidad de productos e índice de cada producto en el menú;
+ * - la suma CRC32C de todo lo anterior.
+ *
+ * La copia sólo se usa si los archivos de texto tienen el mismo tamaño y la misma suma que cuando se escribió. Si no coinciden, o si la copia está
+ * incompleta o dañada, leer retorna null y el catálogo se debe cargar desde los archivos de texto.
+ */
+public class InstantaneaCatalogo
+{
+    /**
+     * Los bytes "HAMB", que identifican el archivo
+     */
+    private static final int MARCA = 0x48414D42;
+
+    /**
+     * La versión del formato. Se debe cambiar si cambia el formato, para que las copias viejas se ignoren.
+     */
+    private static final int VERSION = 1;
+
+    private InstantaneaCatalogo( )
+    {
+    }
+
+    /**
+     * Calcula el tamaño y la suma CRC32C de cada archivo
+     * @param archivos Los archivos de texto del catálogo
+     * @return El tamaño y la suma de cada archivo, intercalados
+     * @throws IOException Se lanza si no se puede leer alguno de los archivos
+     */
+    public static long[] calcularSumas( File... archivos ) throws IOException
+    {
+        long[] sumas = new long[archivos.length * 2];
+        for( int i = 0; i < archivos.length; i++ )
+        {
+            try( FileChannel canal = FileChannel.open( archivos[ i ].toPath( ), StandardOpenOption.READ ) )
+            {
+                CRC32C crc = new CRC32C( );
+                long tamano = canal.size( );
+                if( tamano > 0 )
+                    crc.update( canal.map( FileChannel.MapMode.READ_ONLY, 0, tamano ) );
+                sumas[ 2 * i ] = tamano;
+                sumas[ 2 * i + 1 ] = crc.getValue( );
+            }
+        }
+        return sumas;
+    }
+
+    /**
+     * Escribe la copia de un catálogo. El archivo se reemplaza de forma atómica, así que nunca queda una copia a medio escribir.
+     * @param catalogo El catálogo
+     * @param sumas Las sumas de los archivos de texto de los que salió el catálogo, como las retorna calcularSumas
+     * @param archivo El archivo de la copia
+     * @throws IOException Se lanza si no se puede escribir la copia
+     */
+    public static void escribir( Catalogo catalogo, long[] sumas, File archivo ) throws IOException
+    {
+        ArrayList<byte[]> nombres = new ArrayList<byte[]>( );
+        HashMap<String, Integer> indiceNombres = new HashMap<String, Integer>( );
+        IdentityHashMap<ProductoMenu, Integer> indiceMenu = new IdentityHashMap<ProductoMenu, Integer>( );
+        int tamano = 8 + 4 + sumas.length * 8 + 4;
+        for( Ingrediente ingrediente : catalogo.getIngredientes( ) )
+            tamano += registrarNombre( ingrediente.getNombre( ), nombres, indiceNombres ) + 8;
+        for( ProductoMenu producto : catalogo.getMenuBase( ) )
+        {
+            indiceMenu.put( producto, indiceMenu.size( ) );
+            tamano += registrarNombre( producto.getNombre( ), nombres, indiceNombres ) + 8;
+        }
+        for( Combo combo : catalogo.getMenuCombos( ) )
+            tamano += registrarNombre( combo.getNombre( ), nombres, indiceNombres ) + 16 + 4 * combo.getItemsCombo( ).size( );
+        tamano += 4 + 4 + 4 + 8;
+
+        ByteBuffer datos = ByteBuffer.allocate( tamano );
+        datos.putInt( MARCA ).putInt( VERSION );
+        datos.putInt( sumas.length );
+        for( long suma : sumas )
+            datos.putLong( suma );
+
+        datos.putInt( nombres.size( ) );
+        for( byte[] nombre : nombres )
+            datos.putInt( nombre.length ).put( nombre );
+
+        datos.putInt( catalogo.getIngredientes( ).size( ) );
+        for( Ingrediente ingrediente : catalogo.getIngredientes( ) )
+            datos.putInt( indiceNombres.get( ingrediente.getNombre( ) ) ).putInt( ingrediente.getCostoAdicional( ) );
+
+        datos.putInt( catalogo.getMenuBase( ).size( ) );
+        for( ProductoMenu producto : catalogo.getMenuBase( ) )
+            datos.putInt( indiceNombres.get( producto.getNombre( ) ) ).putInt( producto.getPrecio( ) );
+
+        datos.putInt( catalogo.getMenuCombos( ).size( ) );
+        for( Combo combo : catalogo.getMenuCombos( ) )
+        {
+            datos.putInt( indiceNombres.get( combo.getNombre( ) ) ).putDouble( combo.getDescuento( ) );
+            datos.putInt( combo.getItemsCombo( ).size( ) );
+            for( ProductoMenu item : combo.getItemsCombo( ) )
+            {
+                Integer indice = indiceMenu.get( item );
+                if( indice == null )
+                    throw new IOException( "El combo " + combo.getNombre( ) + " incluye un producto que no está en el menú" );
+                datos.putInt( indice );
+            }
+        }
+
+        CRC32C crc = new CRC32C( );
+        crc.update( datos.array( ), 0, datos.position( ) );
+        datos.putLong( crc.getValue( ) );
+        datos.flip( );
+
+        File temporal = new File( archivo.getPath( ) + ".tmp" );
+        try( FileChannel canal = FileChannel.open( temporal.toPath( ), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING ) )
+        {
+            while( datos.hasRemaining( ) )
+                canal.write( datos );
+            canal.force( true );
+        }
+        Files.move( temporal.toPath( ), archivo.toPath( ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    }
+
+    /**
+     * Agrega un nombre a la tabla si no estaba
+     * @return La cantidad de bytes que ocupa el nombre en la tabla, o 0 si ya estaba
+     */
+    private static int registrarNombre( String nombre, ArrayList<byte[]> nombres, HashMap<String, Integer> indiceNombres )
+    {
+        if( indiceNombres.containsKey( nombre ) )
+            return 0;
+        byte[] bytes = nombre.getBytes( StandardCharsets.UTF_8 );
+        indiceNombres.put( nombre, nombres.size( ) );
+        nombres.add( bytes );
+        return 4 + bytes.length;
+    }
+
+    /**
+     * Lee una copia del catálogo, mapeando el archivo en memoria
+     * @param archivo El archivo de la copia
+     * @param sumas Las sumas actuales de los archivos de texto, como las retorna calcularSumas
+     * @return El catálogo, o null si la copia no existe, es de otros archivos o versión, o está dañada
+     * @throws IOException Se lanza si la copia existe pero no se puede leer
+     */
+    public static Catalogo leer( File archivo, long[] sumas ) throws IOException
+    {
+        if( !archivo.isFile( ) )
+            return null;
+
+        MappedByteBuffer datos;
+        try( FileChannel canal = FileChannel.open( archivo.toPath( ), StandardOpenOption.READ ) )
+        {
+            long tamano = canal.size( );
+            if( tamano < 16 || tamano > Integer.MAX_VALUE )
+                return null;
+            datos = canal.map( FileChannel.MapMode.READ_ONLY, 0, tamano );
+        }
+
+        int fin = datos.limit( ) - 8;
+        CRC32C crc = new CRC32C( );
+        crc.update( datos.slice( 0, fin ) );
+        if( crc.getValue( ) != datos.getLong( fin ) )
+            return null;
+
+        try
+        {
+            return construir( datos.slice( 0, fin ), sumas );
+        }
+        catch( BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException | IllegalArgumentException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Reconstruye el catálogo a partir del contenido de la copia, ya verificado con su suma
+     * @return El catálogo, o null si la copia no corresponde a las sumas o a esta versión
+     */
+    private static Catalogo construir( ByteBuffer datos, long[] sumas )
+    {
+        if( datos.getInt( ) != MARCA || datos.getInt( ) != VERSION || datos.getInt( ) != sumas.length )
+            return null;
+        for( long suma : sumas )
+        {
+            if( datos.getLong( ) != suma )
+                return null;
+        }
+
+        String[] nombres = new String[datos.getInt( )];
+        byte[] bytes = new byte[64];
+        for( int i = 0; i < nombres.length; i++ )
+        {
+            int longitud = datos.getInt( );
+            if( longitud > bytes.length )
+                bytes = new byte[Math.max( longitud, bytes.length * 2 )];
+            datos.get( bytes, 0, longitud );
+            nombres[ i ] = new String( bytes, 0, longitud, StandardCharsets.UTF_8 );
+        }
+
+        Catalogo catalogo = new Catalogo( );
+        try
+        {
+            int ingredientes = datos.getInt( );
+            for( int i = 0; i < ingredientes; i++ )
+                catalogo.agregarIngrediente( new Ingrediente( nombres[ datos.getInt( ) ], datos.getInt( ) ) );
+
+            ProductoMenu[] menu = new ProductoMenu[datos.getInt( )];
+            for( int i = 0; i < menu.length; i++ )
+            {
+                menu[ i ] = new ProductoMenu( nombres[ datos.getInt( ) ], datos.getInt( ) );
+                catalogo.agregarProductoMenu( menu[ i ] );
+            }
+
+            int combos = datos.getInt( );
+            for( int i = 0; i < combos; i++ )
+            {
+                String nombre = nombres[ datos.getInt( ) ];
+                double descuento = datos.getDouble( );
+                int cantidad = datos.getInt( );
+                ArrayList<ProductoMenu> items = new ArrayList<ProductoMenu>( cantidad );
+                for( int j = 0; j < cantidad; j++ )
+                    items.add( menu[ datos.getInt( ) ] );
+                catalogo.agregarCombo( new Combo( nombre, descuento, items ) );
+            }
+        }
+        catch( HamburguesaException e )
+        {
+            // Una copia válida nunca tiene repetidos, porque salió de un catálogo que se cargó sin errores
+            return null;
+        }
+        return datos.hasRemaining( ) ? null : catalogo;
+    }
+}
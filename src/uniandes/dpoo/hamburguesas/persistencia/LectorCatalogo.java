@@ -0,0 +1,339 @@
+package uniandes.dpoo.hamburguesas.persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import uniandes.dpoo.hamburguesas.excepciones.IngredienteRepetidoException;
+import uniandes.dpoo.hamburguesas.excepciones.ProductoFaltanteException;
+import uniandes.dpoo.hamburguesas.excepciones.ProductoRepetidoException;
+import uniandes.dpoo.hamburguesas.mundo.Catalogo;
+import uniandes.dpoo.hamburguesas.mundo.Combo;
+import uniandes.dpoo.hamburguesas.mundo.Ingrediente;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+
+/**
+ * Carga los archivos del catálogo (ingredientes, menú y combos) en un catálogo.
+ *
+ * Cada archivo se mapea en memoria y se decodifica como UTF-8, sin importar la codificación de la plataforma. Las líneas se separan en campos buscando
+ * los bytes ';' y '\n' directamente, sin expresiones regulares; como en UTF-8 esos bytes nunca aparecen dentro de otro carácter, no hace falta
+ * decodificar antes de buscarlos. Los archivos grandes se dividen en trozos de TAMANO_TROZO bytes que terminan en un salto de línea, y los trozos se
+ * separan en campos en paralelo en el pool común de fork-join. Después los elementos se agregan al catálogo en el orden del archivo, así que los
+ * repetidos y los productos faltantes se detectan igual que en una lectura secuencial y los errores indican la línea donde ocurrieron.
+ */
+public class LectorCatalogo
+{
+    /**
+     * El tamaño aproximado en bytes de los trozos que se procesan en paralelo. Un archivo más pequeño se procesa en el hilo que llama.
+     */
+    static final int TAMANO_TROZO = 1 << 20;
+
+    /**
+     * Una línea con contenido del archivo, separada en campos
+     */
+    private static class Registro
+    {
+        private final int linea;
+
+        private final String[] campos;
+
+        private Registro( int linea, String[] campos )
+        {
+            this.linea = linea;
+            this.campos = campos;
+        }
+    }
+
+    /**
+     * El resultado de separar un trozo: los registros, con la línea contada desde el inicio del trozo, y la cantidad de líneas del trozo
+     */
+    private static class Trozo
+    {
+        private final ArrayList<Registro> registros = new ArrayList<Registro>( );
+
+        private int lineas;
+    }
+
+    private LectorCatalogo( )
+    {
+    }
+
+    /**
+     * Agrega al catálogo los ingredientes del archivo. Cada línea tiene la forma nombre;costo.
+     * @param catalogo El catálogo que se está cargando
+     * @param archivo El archivo de ingredientes
+     * @throws IngredienteRepetidoException Se lanza si un ingrediente aparece dos veces
+     * @throws NumberFormatException Se lanza si un costo no es un número entero. El mensaje indica la línea.
+     * @throws IOException Se lanza si no se puede leer el archivo
+     */
+    public static void cargarIngredientes( Catalogo catalogo, File archivo ) throws IngredienteRepetidoException, IOException
+    {
+        for( Registro registro : leer( archivo ) )
+        {
+            String nombre = registro.campos[ 0 ];
+            int costo = leerEntero( registro, 1 );
+            try
+            {
+                catalogo.agregarIngrediente( new Ingrediente( nombre, costo ) );
+            }
+            catch( IngredienteRepetidoException e )
+            {
+                throw new IngredienteRepetidoException( nombre, registro.linea );
+            }
+        }
+    }
+
+    /**
+     * Agrega al catálogo los productos del menú del archivo. Cada línea tiene la forma nombre;precio.
+     * @param catalogo El catálogo que se está cargando
+     * @param archivo El archivo del menú
+     * @throws ProductoRepetidoException Se lanza si un producto aparece dos veces
+     * @throws NumberFormatException Se lanza si un precio no es un número entero. El mensaje indica la línea.
+     * @throws IOException Se lanza si no se puede leer el archivo
+     */
+    public static void cargarMenu( Catalogo catalogo, File archivo ) throws ProductoRepetidoException, IOException
+    {
+        for( Registro registro : leer( archivo ) )
+        {
+            String nombre = registro.campos[ 0 ];
+            int precio = leerEntero( registro, 1 );
+            try
+            {
+                catalogo.agregarProductoMenu( new ProductoMenu( nombre, precio ) );
+            }
+            catch( ProductoRepetidoException e )
+            {
+                throw new ProductoRepetidoException( nombre, registro.linea );
+            }
+        }
+    }
+
+    /**
+     * Agrega al catálogo los combos del archivo. Cada línea tiene la forma nombre;descuento%;producto;producto;... y los productos deben estar en el menú
+     * del catálogo.
+     * @param catalogo El catálogo que se está cargando, con el menú ya cargado
+     * @param archivo El archivo de combos
+     * @throws ProductoRepetidoException Se lanza si un combo aparece dos veces
+     * @throws ProductoFaltanteException Se lanza si un combo incluye un producto que no está en el menú
+     * @throws NumberFormatException Se lanza si un descuento no es un número. El mensaje indica la línea.
+     * @throws IOException Se lanza si no se puede leer el archivo
+     */
+    public static void cargarCombos( Catalogo catalogo, File archivo ) throws ProductoRepetidoException, ProductoFaltanteException, IOException
+    {
+        for( Registro registro : leer( archivo ) )
+        {
+            String[] campos = registro.campos;
+            String nombre = campos[ 0 ];
+            double descuento = leerDescuento( registro );
+            if( catalogo.buscarCombo( nombre ) != null )
+                throw new ProductoRepetidoException( nombre, registro.linea );
+
+            ArrayList<ProductoMenu> items = new ArrayList<ProductoMenu>( campos.length - 2 );
+            for( int i = 2; i < campos.length; i++ )
+            {
+                ProductoMenu item = catalogo.buscarProductoMenu( campos[ i ] );
+                if( item == null )
+                    throw new ProductoFaltanteException( campos[ i ], registro.linea );
+                items.add( item );
+            }
+            catalogo.agregarCombo( new Combo( nombre, descuento, items ) );
+        }
+    }
+
+    /**
+     * Lee un archivo y lo separa en registros, en el orden del archivo. Las líneas vacías se ignoran.
+     * @param archivo El archivo
+     * @return Los registros con su número de línea
+     * @throws IOException Se lanza si no se puede leer el archivo
+     */
+    private static ArrayList<Registro> leer( File archivo ) throws IOException
+    {
+        MappedByteBuffer datos;
+        try( FileChannel canal = FileChannel.open( archivo.toPath( ), StandardOpenOption.READ ) )
+        {
+            long tamano = canal.size( );
+            if( tamano > Integer.MAX_VALUE )
+                throw new IOException( "El archivo " + archivo + " es demasiado grande" );
+            datos = canal.map( FileChannel.MapMode.READ_ONLY, 0, tamano );
+        }
+
+        int inicio = tieneMarcaDeOrden( datos ) ? 3 : 0;
+        ArrayList<int[]> limites = dividir( datos, inicio );
+        Trozo[] trozos;
+        if( limites.size( ) == 1 )
+            trozos = new Trozo[]{ separar( datos, limites.get( 0 )[ 0 ], limites.get( 0 )[ 1 ] ) };
+        else
+            trozos = ForkJoinPool.commonPool( ).invoke( new TareaSeparar( datos, limites, 0, limites.size( ) ) );
+
+        ArrayList<Registro> registros = new ArrayList<Registro>( );
+        int lineasAnteriores = 0;
+        for( Trozo trozo : trozos )
+        {
+            for( Registro registro : trozo.registros )
+                registros.add( new Registro( lineasAnteriores + registro.linea, registro.campos ) );
+            lineasAnteriores += trozo.lineas;
+        }
+        return registros;
+    }
+
+    /**
+     * Indica si el archivo empieza con la marca de orden de bytes de UTF-8, que algunos editores agregan
+     */
+    private static boolean tieneMarcaDeOrden( MappedByteBuffer datos )
+    {
+        return datos.limit( ) >= 3 && ( datos.get( 0 ) & 0xFF ) == 0xEF && ( datos.get( 1 ) & 0xFF ) == 0xBB && ( datos.get( 2 ) & 0xFF ) == 0xBF;
+    }
+
+    /**
+     * Divide los datos en trozos de aproximadamente TAMANO_TROZO bytes. Cada trozo, menos el último, termina justo después de un salto de línea.
+     * @return El inicio (incluido) y el fin (excluido) de cada trozo. Siempre hay al menos un trozo.
+     */
+    private static ArrayList<int[]> dividir( MappedByteBuffer datos, int inicio )
+    {
+        ArrayList<int[]> limites = new ArrayList<int[]>( );
+        int tamano = datos.limit( );
+        while( true )
+        {
+            int fin = ( int )Math.min( ( long )inicio + TAMANO_TROZO, tamano );
+            while( fin < tamano && datos.get( fin - 1 ) != '\n' )
+                fin++;
+            limites.add( new int[]{ inicio, fin } );
+            if( fin >= tamano )
+                return limites;
+            inicio = fin;
+        }
+    }
+
+    /**
+     * Separa en campos las líneas de un trozo
+     * @param datos Los datos del archivo
+     * @param inicio La posición del primer byte del trozo
+     * @param fin La posición siguiente al último byte del trozo
+     */
+    private static Trozo separar( MappedByteBuffer datos, int inicio, int fin )
+    {
+        byte[] bytes = new byte[fin - inicio];
+        datos.get( inicio, bytes );
+
+        Trozo trozo = new Trozo( );
+        ArrayList<String> campos = new ArrayList<String>( );
+        int posicion = 0;
+        while( posicion < bytes.length )
+        {
+            trozo.lineas++;
+            int finLinea = posicion;
+            while( finLinea < bytes.length && bytes[ finLinea ] != '\n' )
+                finLinea++;
+            int siguiente = finLinea + 1;
+            if( finLinea > posicion && bytes[ finLinea - 1 ] == '\r' )
+                finLinea--;
+
+            if( finLinea > posicion )
+            {
+                campos.clear( );
+                int inicioCampo = posicion;
+                for( int i = posicion; i <= finLinea; i++ )
+                {
+                    if( i == finLinea || bytes[ i ] == ';' )
+                    {
+                        campos.add( new String( bytes, inicioCampo, i - inicioCampo, StandardCharsets.UTF_8 ) );
+                        inicioCampo = i + 1;
+                    }
+                }
+                // Igual que String.split, los campos vacíos al final de la línea no cuentan
+                while( campos.size( ) > 1 && campos.get( campos.size( ) - 1 ).isEmpty( ) )
+                    campos.remove( campos.size( ) - 1 );
+                trozo.registros.add( new Registro( trozo.lineas, campos.toArray( new String[0] ) ) );
+            }
+            posicion = siguiente;
+        }
+        return trozo;
+    }
+
+    /**
+     * Separa un rango de trozos, dividiéndolo en dos mitades que se procesan en paralelo mientras tenga más de un trozo
+     */
+    @SuppressWarnings("serial")
+    private static class TareaSeparar extends RecursiveTask<Trozo[]>
+    {
+        private final MappedByteBuffer datos;
+
+        private final ArrayList<int[]> limites;
+
+        private final int desde;
+
+        private final int hasta;
+
+        private TareaSeparar( MappedByteBuffer datos, ArrayList<int[]> limites, int desde, int hasta )
+        {
+            this.datos = datos;
+            this.limites = limites;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected Trozo[] compute( )
+        {
+            if( hasta - desde == 1 )
+                return new Trozo[]{ separar( datos, limites.get( desde )[ 0 ], limites.get( desde )[ 1 ] ) };
+
+            int mitad = ( desde + hasta ) >>> 1;
+            TareaSeparar izquierda = new TareaSeparar( datos, limites, desde, mitad );
+            TareaSeparar derecha = new TareaSeparar( datos, limites, mitad, hasta );
+            izquierda.fork( );
+            Trozo[] resultadoDerecha = derecha.compute( );
+            Trozo[] resultadoIzquierda = izquierda.join( );
+
+            Trozo[] resultado = new Trozo[hasta - desde];
+            System.arraycopy( resultadoIzquierda, 0, resultado, 0, resultadoIzquierda.length );
+            System.arraycopy( resultadoDerecha, 0, resultado, resultadoIzquierda.length, resultadoDerecha.length );
+            return resultado;
+        }
+    }
+
+    /**
+     * Lee un campo entero de un registro
+     * @throws NumberFormatException Se lanza si el campo no existe o no es un entero. El mensaje indica la línea.
+     */
+    private static int leerEntero( Registro registro, int campo )
+    {
+        if( campo >= registro.campos.length )
+            throw new NumberFormatException( "Línea " + registro.linea + ": falta el valor" );
+        String texto = registro.campos[ campo ];
+        try
+        {
+            return Integer.parseInt( texto );
+        }
+        catch( NumberFormatException e )
+        {
+            throw new NumberFormatException( "Línea " + registro.linea + ": el valor '" + texto + "' no es un número entero" );
+        }
+    }
+
+    /**
+     * Lee el descuento de un combo, que está en el segundo campo como un porcentaje
+     * @return El descuento como un número entre 0 y 1
+     * @throws NumberFormatException Se lanza si el campo no existe o no es un número. El mensaje indica la línea.
+     */
+    private static double leerDescuento( Registro registro )
+    {
+        if( registro.campos.length < 2 )
+            throw new NumberFormatException( "Línea " + registro.linea + ": falta el descuento" );
+        String texto = registro.campos[ 1 ];
+        try
+        {
+            return Double.parseDouble( texto.replace( "%", "" ) ) / 100;
+        }
+        catch( NumberFormatException e )
+        {
+            throw new NumberFormatException( "Línea " + registro.linea + ": el descuento '" + texto + "' no es un número" );
+        }
+    }
+}
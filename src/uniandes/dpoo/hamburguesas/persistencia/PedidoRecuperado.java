@@ -0,0 +1,142 @@
+package uniandes.dpoo.hamburguesas.persistencia;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Un pedido tal como quedó en la bitácora de pedidos: los datos del cliente, los productos que se le agregaron, por nombre, y si se alcanzó a cerrar.
+ *
+ * Los productos se guardan por nombre y no como objetos del mundo porque el catálogo puede haber cambiado desde que se escribió la bitácora; quien
+ * recupera el pedido los busca en el catálogo actual.
+ */
+public class PedidoRecuperado
+{
+    /**
+     * Un producto agregado a un pedido recuperado
+     */
+    public static class ProductoRecuperado
+    {
+        private final String nombre;
+
+        private final boolean combo;
+
+        private final String[] agregados;
+
+        private final String[] eliminados;
+
+        ProductoRecuperado( String nombre, boolean combo, String[] agregados, String[] eliminados )
+        {
+            this.nombre = nombre;
+            this.combo = combo;
+            this.agregados = agregados;
+            this.eliminados = eliminados;
+        }
+
+        /**
+         * Retorna el nombre del producto del menú o del combo
+         * @return
+         */
+        public String getNombre( )
+        {
+            return nombre;
+        }
+
+        /**
+         * Indica si el producto es un combo
+         * @return
+         */
+        public boolean esCombo( )
+        {
+            return combo;
+        }
+
+        /**
+         * Retorna los nombres de los ingredientes que se le agregaron al producto, en el orden en que se agregaron
+         * @return
+         */
+        public String[] getAgregados( )
+        {
+            return agregados;
+        }
+
+        /**
+         * Retorna los nombres de los ingredientes que se le quitaron al producto, en el orden en que se quitaron
+         * @return
+         */
+        public String[] getEliminados( )
+        {
+            return eliminados;
+        }
+
+        /**
+         * Indica si el producto tenía ajustes
+         * @return
+         */
+        public boolean esAjustado( )
+        {
+            return agregados.length > 0 || eliminados.length > 0;
+        }
+    }
+
+    private final int idPedido;
+
+    private final String nombreCliente;
+
+    private final String direccionCliente;
+
+    private final ArrayList<ProductoRecuperado> productos;
+
+    private boolean cerrado;
+
+    PedidoRecuperado( int idPedido, String nombreCliente, String direccionCliente )
+    {
+        this.idPedido = idPedido;
+        this.nombreCliente = nombreCliente;
+        this.direccionCliente = direccionCliente;
+        productos = new ArrayList<ProductoRecuperado>( );
+    }
+
+    void agregarProducto( ProductoRecuperado producto )
+    {
+        productos.add( producto );
+    }
+
+    void marcarCerrado( )
+    {
+        cerrado = true;
+    }
+
+    public int getIdPedido( )
+    {
+        return idPedido;
+    }
+
+    public String getNombreCliente( )
+    {
+        return nombreCliente;
+    }
+
+    public String getDireccionCliente( )
+    {
+        return direccionCliente;
+    }
+
+    /**
+     * Retorna los productos del pedido en el orden en que se agregaron
+     * @return
+     */
+    public List<ProductoRecuperado> getProductos( )
+    {
+        return productos;
+    }
+
+    /**
+     * Indica si el cierre del pedido alcanzó a quedar en la bitácora. Un pedido cerrado puede no tener su factura en disco si hubo una caída antes de
+     * que se escribiera.
+     * @return
+     */
+    public boolean estaCerrado( )
+    {
+        return cerrado;
+    }
+}
@@ -0,0 +1,281 @@
+package uniandes.dpoo.hamburguesas.persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import uniandes.dpoo.hamburguesas.excepciones.HamburguesaException;
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+
+/**
+ * Vigila los archivos del catálogo y, cuando alguno cambia, recarga el catálogo del restaurante en un hilo aparte.
+ *
+ * Los editores suelen guardar un archivo en varios pasos, así que después del primer cambio el recargador espera a que pasen ESPERA_ESTABLE_MS sin
+ * cambios antes de recargar. La recarga usa Restaurante.recargarCatalogo, que publica el catálogo nuevo de forma atómica; si los archivos tienen un
+ * error, el catálogo anterior sigue publicado y el error queda en getUltimoError.
+ *
+ * Para medir la latencia de recarga se registran dos tiempos de la última recarga exitosa: la duración de construir y publicar el catálogo, y el tiempo
+ * total desde que se detectó el primer cambio hasta que el catálogo nuevo quedó publicado.
+ */
+public class RecargadorCatalogo
+{
+    /**
+     * El tiempo sin cambios que se espera antes de recargar
+     */
+    private static final long ESPERA_ESTABLE_MS = 150;
+
+    private Restaurante restaurante;
+
+    private File archivoIngredientes;
+
+    private File archivoMenu;
+
+    private File archivoCombos;
+
+    /**
+     * Los archivos vigilados, como rutas absolutas
+     */
+    private HashSet<Path> vigilados;
+
+    private WatchService vigilante;
+
+    private Thread hilo;
+
+    /**
+     * El flujo donde el hilo vigilante reporta cada recarga. Puede ser null.
+     */
+    private PrintStream reporte;
+
+    private volatile long recargas;
+
+    private volatile long fallas;
+
+    private volatile long ultimaDuracionNanos;
+
+    private volatile long ultimaLatenciaNanos;
+
+    private volatile String ultimoError;
+
+    /**
+     * Crea un recargador para los archivos del catálogo de un restaurante. No vigila nada hasta que se llame a iniciar.
+     * @param restaurante El restaurante cuyo catálogo se recarga
+     * @param archivoIngredientes El archivo de ingredientes
+     * @param archivoMenu El archivo del menú
+     * @param archivoCombos El archivo de combos
+     */
+    public RecargadorCatalogo( Restaurante restaurante, File archivoIngredientes, File archivoMenu, File archivoCombos )
+    {
+        this.restaurante = restaurante;
+        this.archivoIngredientes = archivoIngredientes;
+        this.archivoMenu = archivoMenu;
+        this.archivoCombos = archivoCombos;
+        vigilados = new HashSet<Path>( );
+        for( File archivo : new File[]{ archivoIngredientes, archivoMenu, archivoCombos } )
+            vigilados.add( archivo.toPath( ).toAbsolutePath( ).normalize( ) );
+    }
+
+    /**
+     * Empieza a vigilar las carpetas de los archivos del catálogo
+     * @param reporte El flujo donde se reporta cada recarga que hace el hilo vigilante, exitosa o no. Puede ser null.
+     * @throws IOException Se lanza si no se pueden vigilar las carpetas
+     */
+    public synchronized void iniciar( PrintStream reporte ) throws IOException
+    {
+        if( vigilante != null )
+            return;
+
+        this.reporte = reporte;
+
+        vigilante = FileSystems.getDefault( ).newWatchService( );
+        HashSet<Path> carpetas = new HashSet<Path>( );
+        for( Path archivo : vigilados )
+            carpetas.add( archivo.getParent( ) );
+        for( Path carpeta : carpetas )
+            carpeta.register( vigilante, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY );
+
+        hilo = new Thread( this::vigilar, "recarga-catalogo" );
+        hilo.setDaemon( true );
+        hilo.start( );
+    }
+
+    /**
+     * Deja de vigilar los archivos y espera a que termine una recarga que esté en curso
+     */
+    public void cerrar( )
+    {
+        Thread vigilanteActual;
+        synchronized( this )
+        {
+            if( vigilante == null )
+                return;
+            try
+            {
+                vigilante.close( );
+            }
+            catch( IOException e )
+            {
+                // Cerrar el servicio de vigilancia no deja nada pendiente
+            }
+            vigilanteActual = hilo;
+            vigilante = null;
+            hilo = null;
+        }
+        try
+        {
+            vigilanteActual.join( );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+
+    /**
+     * Recarga el catálogo ahora, sin esperar un cambio en los archivos
+     * @return true si el catálogo se recargó, false si los archivos tienen un error
+     */
+    public boolean recargar( )
+    {
+        return recargar( System.nanoTime( ) );
+    }
+
+    /**
+     * Recarga el catálogo y registra los tiempos. Es sincronizado para que los contadores sean consistentes si se recarga a mano mientras el hilo
+     * vigilante también recarga.
+     * @param deteccion El momento, según System.nanoTime, en que se detectó el cambio
+     */
+    private synchronized boolean recargar( long deteccion )
+    {
+        long inicio = System.nanoTime( );
+        try
+        {
+            restaurante.recargarCatalogo( archivoIngredientes, archivoMenu, archivoCombos );
+            long fin = System.nanoTime( );
+            ultimaDuracionNanos = fin - inicio;
+            ultimaLatenciaNanos = fin - deteccion;
+            ultimoError = null;
+            recargas++;
+            return true;
+        }
+        catch( HamburguesaException | IOException | NumberFormatException e )
+        {
+            ultimoError = e.getMessage( );
+            fallas++;
+            return false;
+        }
+    }
+
+    /**
+     * El ciclo del hilo vigilante
+     */
+    private void vigilar( )
+    {
+        WatchService servicio;
+        synchronized( this )
+        {
+            servicio = vigilante;
+        }
+        try
+        {
+            while( true )
+            {
+                if( !esCambioVigilado( servicio.take( ) ) )
+                    continue;
+
+                long deteccion = System.nanoTime( );
+                WatchKey siguiente = servicio.poll( ESPERA_ESTABLE_MS, TimeUnit.MILLISECONDS );
+                while( siguiente != null )
+                {
+                    esCambioVigilado( siguiente );
+                    siguiente = servicio.poll( ESPERA_ESTABLE_MS, TimeUnit.MILLISECONDS );
+                }
+
+                boolean recargado = recargar( deteccion );
+                if( reporte == null )
+                    continue;
+                if( recargado )
+                    reporte.println( "Catálogo actualizado (versión " + restaurante.getVersionCatalogo( ) + ")" );
+                else
+                    reporte.println( "No se pudo actualizar el catálogo, se sigue usando el anterior: " + ultimoError );
+            }
+        }
+        catch( ClosedWatchServiceException | InterruptedException e )
+        {
+            // El recargador se cerró
+        }
+    }
+
+    /**
+     * Revisa los eventos de una carpeta y la vuelve a habilitar para recibir eventos
+     * @return true si alguno de los eventos es de un archivo del catálogo
+     */
+    private boolean esCambioVigilado( WatchKey llave )
+    {
+        boolean vigilado = false;
+        Path carpeta = ( Path )llave.watchable( );
+        for( WatchEvent<?> evento : llave.pollEvents( ) )
+        {
+            if( evento.kind( ) == StandardWatchEventKinds.OVERFLOW )
+                vigilado = true;
+            else if( vigilados.contains( carpeta.resolve( ( Path )evento.context( ) ).toAbsolutePath( ).normalize( ) ) )
+                vigilado = true;
+        }
+        llave.reset( );
+        return vigilado;
+    }
+
+    /**
+     * Retorna la cantidad de recargas exitosas
+     * @return
+     */
+    public long getRecargas( )
+    {
+        return recargas;
+    }
+
+    /**
+     * Retorna la cantidad de recargas que fallaron por errores en los archivos
+     * @return
+     */
+    public long getFallas( )
+    {
+        return fallas;
+    }
+
+    /**
+     * Retorna cuánto tardó la última recarga exitosa en construir y publicar el catálogo
+     * @return La duración en nanosegundos, o 0 si no ha habido recargas
+     */
+    public long getUltimaDuracionNanos( )
+    {
+        return ultimaDuracionNanos;
+    }
+
+    /**
+     * Retorna el tiempo entre la detección del cambio y la publicación del catálogo en la última recarga exitosa, incluyendo la espera a que los
+     * archivos dejen de cambiar
+     * @return La latencia en nanosegundos, o 0 si no ha habido recargas
+     */
+    public long getUltimaLatenciaNanos( )
+    {
+        return ultimaLatenciaNanos;
+    }
+
+    /**
+     * Retorna el mensaje del error de la última recarga, si falló
+     * @return El mensaje, o null si la última recarga fue exitosa o no ha habido recargas
+     */
+    public String getUltimoError( )
+    {
+        return ultimoError;
+    }
+}
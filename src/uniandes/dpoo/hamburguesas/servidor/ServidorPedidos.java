@@ -0,0 +1,527 @@
+package uniandes.dpoo.hamburguesas.servidor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import uniandes.dpoo.hamburguesas.excepciones.HamburguesaException;
+import uniandes.dpoo.hamburguesas.excepciones.NoHayPedidoEnCursoException;
+import uniandes.dpoo.hamburguesas.mundo.Catalogo;
+import uniandes.dpoo.hamburguesas.mundo.Combo;
+import uniandes.dpoo.hamburguesas.mundo.Ingrediente;
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.Producto;
+import uniandes.dpoo.hamburguesas.mundo.ProductoAjustado;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+
+/**
+ * Un API HTTP local para atender pedidos de muchos clientes a la vez sobre un mismo restaurante, con el servidor HTTP que trae el JDK.
+ *
+ * Las rutas son:
+ * - GET /menu: los productos, combos e ingredientes del catálogo publicado, en JSON.
+ * - POST /pedidos con cliente y direccion: abre un pedido y retorna su identificador.
+ * - POST /pedidos/{id}/productos con producto o combo: agrega un producto al pedido. Con producto se pueden enviar también agregar y quitar, una vez
+ * por ingrediente, y entonces se agrega un producto ajustado.
+ * - POST /pedidos/{id}/cerrar: cierra el pedido y guarda su factura.
+ * - GET /pedidos/{id}/factura: la factura del pedido, en texto. Si el pedido sigue abierto es la factura que tendría si se cerrara ahora.
+ *
+ * Los cuerpos de los POST van como formulario (application/x-www-form-urlencoded) y las respuestas son JSON, salvo la factura. Los errores del cliente
+ * responden 400, los pedidos o productos que no existen 404, los métodos que no corresponden 405 y las facturas que no se pudieron guardar o leer 500.
+ *
+ * Cada petición se atiende en su propio hilo virtual si la JVM los tiene (Java 21 o posterior). En versiones anteriores se usa un grupo fijo de hilos
+ * de plataforma; como las peticiones no esperan a nada lento, unos cientos de hilos bastan para miles de clientes concurrentes.
+ */
+public class ServidorPedidos
+{
+    /**
+     * La cantidad de conexiones que el sistema operativo deja en espera antes de rechazar nuevas
+     */
+    private static final int CONEXIONES_EN_ESPERA = 4096;
+
+    private Restaurante restaurante;
+
+    private HttpServer servidor;
+
+    private ExecutorService ejecutor;
+
+    /**
+     * Indica si las peticiones se atienden con hilos virtuales
+     */
+    private boolean hilosVirtuales;
+
+    /**
+     * Crea un servidor que escucha en la interfaz local. No atiende peticiones hasta que se llame a iniciar.
+     * @param restaurante El restaurante que atiende los pedidos
+     * @param puerto El puerto donde escucha, o 0 para que el sistema elija uno libre
+     * @throws IOException Se lanza si no se puede abrir el puerto
+     */
+    public ServidorPedidos( Restaurante restaurante, int puerto ) throws IOException
+    {
+        this.restaurante = restaurante;
+        servidor = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress( ), puerto ), CONEXIONES_EN_ESPERA );
+        servidor.createContext( "/menu", this::atenderMenu );
+        servidor.createContext( "/pedidos", this::atenderPedidos );
+    }
+
+    /**
+     * Hace que los servidores HTTP del JDK desactiven el algoritmo de Nagle en sus conexiones, salvo que la JVM se haya lanzado con
+     * -Dsun.net.httpserver.nodelay=false. El servidor escribe los encabezados y el cuerpo de cada respuesta por separado, y con Nagle activo, en una
+     * conexión que se reutiliza, el cuerpo espera el ACK retardado del cliente: unos 40 ms por petición.
+     *
+     * La propiedad se lee una sola vez, cuando se crea el primer servidor HTTP de la JVM, así que se debe llamar antes. Quien use esta clase sin pasar
+     * por main puede llamar este método o lanzar la JVM con -Dsun.net.httpserver.nodelay=true.
+     */
+    public static void usarConexionesSinRetardo( )
+    {
+        if( System.getProperty( "sun.net.httpserver.nodelay" ) == null )
+            System.setProperty( "sun.net.httpserver.nodelay", "true" );
+    }
+
+    public static void main( String[] args ) throws Exception
+    {
+        usarConexionesSinRetardo( );
+        int puerto = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 8080;
+        Restaurante restaurante = new Restaurante( );
+        restaurante.cargarInformacionRestaurante( new File( "data/ingredientes.txt" ), new File( "data/menu.txt" ), new File( "data/combos.txt" ) );
+        int recuperados = restaurante.usarBitacoraPedidos( );
+        if( recuperados > 0 )
+            System.out.println( "Se recuperaron " + recuperados + " pedidos abiertos" );
+        ServidorPedidos servidor = new ServidorPedidos( restaurante, puerto );
+        servidor.iniciar( );
+        System.out.println( "Atendiendo pedidos en http://localhost:" + servidor.getPuerto( ) + "/ con " + servidor.getTipoEjecutor( ) );
+
+        Runtime.getRuntime( ).addShutdownHook( new Thread( ( ) -> {
+            servidor.detener( );
+            try
+            {
+                restaurante.cerrar( );
+            }
+            catch( IOException e )
+            {
+                System.out.println( "No fue posible guardar algunas facturas: " + e.getMessage( ) );
+            }
+        } ) );
+    }
+
+    /**
+     * Empieza a atender peticiones
+     */
+    public void iniciar( )
+    {
+        ejecutor = crearEjecutor( );
+        servidor.setExecutor( ejecutor );
+        servidor.start( );
+    }
+
+    /**
+     * Deja de recibir peticiones y espera hasta un segundo a que terminen las que están en curso
+     */
+    public void detener( )
+    {
+        servidor.stop( 1 );
+        if( ejecutor != null )
+        {
+            ejecutor.shutdown( );
+            try
+            {
+                ejecutor.awaitTermination( 5, TimeUnit.SECONDS );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+        }
+    }
+
+    /**
+     * Retorna el puerto donde escucha el servidor
+     * @return
+     */
+    public int getPuerto( )
+    {
+        return servidor.getAddress( ).getPort( );
+    }
+
+    /**
+     * Retorna el tipo de hilos con que se atienden las peticiones
+     * @return "hilos virtuales" o "hilos de plataforma"
+     */
+    public String getTipoEjecutor( )
+    {
+        return hilosVirtuales ? "hilos virtuales" : "hilos de plataforma";
+    }
+
+    /**
+     * Crea el ejecutor de un hilo virtual por petición si la JVM lo tiene. Se busca por reflexión para que el código compile y corra también en
+     * Java 17.
+     */
+    private ExecutorService crearEjecutor( )
+    {
+        try
+        {
+            Method virtual = Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" );
+            ExecutorService creado = ( ExecutorService )virtual.invoke( null );
+            hilosVirtuales = true;
+            return creado;
+        }
+        catch( ReflectiveOperationException e )
+        {
+            return Executors.newFixedThreadPool( Math.max( 64, 8 * Runtime.getRuntime( ).availableProcessors( ) ) );
+        }
+    }
+
+    // ***************************************
+    // Rutas
+    // ***************************************
+
+    private void atenderMenu( HttpExchange intercambio ) throws IOException
+    {
+        try( intercambio )
+        {
+            if( !esMetodo( intercambio, "GET" ) )
+                return;
+
+            Catalogo catalogo = restaurante.getCatalogo( );
+            StringBuilder json = new StringBuilder( "{\"version\":" ).append( catalogo.getVersion( ) ).append( ",\"productos\":[" );
+            List<ProductoMenu> productos = catalogo.getMenuBase( );
+            for( int i = 0; i < productos.size( ); i++ )
+                agregarElemento( json, i, productos.get( i ).getNombre( ), "precio", productos.get( i ).getPrecio( ) );
+            json.append( "],\"combos\":[" );
+            List<Combo> combos = catalogo.getMenuCombos( );
+            for( int i = 0; i < combos.size( ); i++ )
+                agregarElemento( json, i, combos.get( i ).getNombre( ), "precio", combos.get( i ).getPrecio( ) );
+            json.append( "],\"ingredientes\":[" );
+            List<Ingrediente> ingredientes = catalogo.getIngredientes( );
+            for( int i = 0; i < ingredientes.size( ); i++ )
+                agregarElemento( json, i, ingredientes.get( i ).getNombre( ), "costoAdicional", ingredientes.get( i ).getCostoAdicional( ) );
+            json.append( "]}" );
+            responder( intercambio, 200, json.toString( ) );
+        }
+    }
+
+    private void atenderPedidos( HttpExchange intercambio ) throws IOException
+    {
+        try( intercambio )
+        {
+            String[] partes = intercambio.getRequestURI( ).getPath( ).split( "/" );
+            String metodo = intercambio.getRequestMethod( );
+            try
+            {
+                if( partes.length == 2 )
+                {
+                    if( esMetodo( intercambio, "POST" ) )
+                        abrirPedido( intercambio );
+                }
+                else if( partes.length == 4 && partes[ 3 ].equals( "productos" ) )
+                {
+                    if( esMetodo( intercambio, "POST" ) )
+                        agregarProducto( intercambio, buscarPedido( partes[ 2 ] ) );
+                }
+                else if( partes.length == 4 && partes[ 3 ].equals( "cerrar" ) )
+                {
+                    if( esMetodo( intercambio, "POST" ) )
+                        cerrarPedido( intercambio, buscarPedido( partes[ 2 ] ) );
+                }
+                else if( partes.length == 4 && partes[ 3 ].equals( "factura" ) )
+                {
+                    if( esMetodo( intercambio, "GET" ) )
+                        consultarFactura( intercambio, partes[ 2 ] );
+                }
+                else
+                {
+                    responderError( intercambio, 404, "No existe la ruta " + metodo + " " + intercambio.getRequestURI( ).getPath( ) );
+                }
+            }
+            catch( SolicitudInvalida e )
+            {
+                responderError( intercambio, e.codigo, e.getMessage( ) );
+            }
+        }
+    }
+
+    private void abrirPedido( HttpExchange intercambio ) throws IOException, SolicitudInvalida
+    {
+        HashMap<String, List<String>> formulario = leerFormulario( intercambio );
+        Pedido pedido = restaurante.abrirPedido( obligatorio( formulario, "cliente" ), obligatorio( formulario, "direccion" ) );
+        responder( intercambio, 201, "{\"id\":" + pedido.getIdPedido( ) + "}" );
+    }
+
+    private void agregarProducto( HttpExchange intercambio, Pedido pedido ) throws IOException, SolicitudInvalida
+    {
+        HashMap<String, List<String>> formulario = leerFormulario( intercambio );
+        Catalogo catalogo = restaurante.getCatalogo( );
+        Producto producto;
+        String nombreCombo = valor( formulario, "combo" );
+        if( nombreCombo != null )
+        {
+            producto = catalogo.buscarCombo( nombreCombo );
+            if( producto == null )
+                throw new SolicitudInvalida( 404, "No existe el combo " + nombreCombo );
+        }
+        else
+        {
+            String nombre = obligatorio( formulario, "producto" );
+            ProductoMenu base = catalogo.buscarProductoMenu( nombre );
+            if( base == null )
+                throw new SolicitudInvalida( 404, "No existe el producto " + nombre );
+            producto = ajustar( base, catalogo, formulario );
+        }
+
+        int total;
+        synchronized( pedido )
+        {
+            if( restaurante.getPedidoAbierto( pedido.getIdPedido( ) ) != pedido )
+                throw new SolicitudInvalida( 404, "El pedido " + pedido.getIdPedido( ) + " ya se cerró" );
+            pedido.agregarProducto( producto );
+            total = pedido.getPrecioTotalPedido( );
+        }
+        responder( intercambio, 200, "{\"id\":" + pedido.getIdPedido( ) + ",\"total\":" + total + "}" );
+    }
+
+    /**
+     * Crea el producto ajustado que piden los campos agregar y quitar, o retorna el producto base si no hay ajustes
+     */
+    private static Producto ajustar( ProductoMenu base, Catalogo catalogo, HashMap<String, List<String>> formulario ) throws SolicitudInvalida
+    {
+        List<String> agregar = formulario.getOrDefault( "agregar", List.of( ) );
+        List<String> quitar = formulario.getOrDefault( "quitar", List.of( ) );
+        if( agregar.isEmpty( ) && quitar.isEmpty( ) )
+            return base;
+
+        ProductoAjustado ajustado = new ProductoAjustado( base );
+        for( String nombre : agregar )
+            ajustado.agregarIngrediente( buscarIngrediente( catalogo, nombre ) );
+        for( String nombre : quitar )
+            ajustado.eliminarIngrediente( buscarIngrediente( catalogo, nombre ) );
+        return ajustado;
+    }
+
+    private static Ingrediente buscarIngrediente( Catalogo catalogo, String nombre ) throws SolicitudInvalida
+    {
+        Ingrediente ingrediente = catalogo.buscarIngrediente( nombre );
+        if( ingrediente == null )
+            throw new SolicitudInvalida( 404, "No existe el ingrediente " + nombre );
+        return ingrediente;
+    }
+
+    private void cerrarPedido( HttpExchange intercambio, Pedido pedido ) throws IOException, SolicitudInvalida
+    {
+        synchronized( pedido )
+        {
+            try
+            {
+                restaurante.cerrarYGuardarPedido( pedido.getIdPedido( ) );
+            }
+            catch( NoHayPedidoEnCursoException e )
+            {
+                throw new SolicitudInvalida( 404, "El pedido " + pedido.getIdPedido( ) + " ya se cerró" );
+            }
+            catch( IOException e )
+            {
+                // El pedido sigue abierto, así que el cliente puede volver a intentar cerrarlo
+                throw new SolicitudInvalida( 500, "No fue posible guardar la factura del pedido " + pedido.getIdPedido( ) + ": " + e.getMessage( ) );
+            }
+        }
+        responder( intercambio, 200, "{\"id\":" + pedido.getIdPedido( ) + ",\"total\":" + pedido.getPrecioTotalPedido( ) + "}" );
+    }
+
+    private void consultarFactura( HttpExchange intercambio, String id ) throws IOException, SolicitudInvalida
+    {
+        int idPedido = leerId( id );
+        Pedido abierto = restaurante.getPedidoAbierto( idPedido );
+        String factura;
+        if( abierto != null )
+        {
+            synchronized( abierto )
+            {
+                factura = abierto.generarTextoFactura( );
+            }
+        }
+        else
+        {
+            try
+            {
+                factura = restaurante.leerFactura( idPedido );
+            }
+            catch( IOException e )
+            {
+                throw new SolicitudInvalida( 500, "No fue posible leer la factura del pedido " + idPedido + ": " + e.getMessage( ) );
+            }
+            if( factura == null )
+                throw new SolicitudInvalida( 404, "No existe el pedido " + idPedido );
+        }
+        responder( intercambio, 200, "text/plain; charset=utf-8", factura );
+    }
+
+    private Pedido buscarPedido( String id ) throws SolicitudInvalida
+    {
+        int idPedido = leerId( id );
+        Pedido pedido = restaurante.getPedidoAbierto( idPedido );
+        if( pedido == null )
+            throw new SolicitudInvalida( 404, "No hay un pedido abierto con el identificador " + idPedido );
+        return pedido;
+    }
+
+    private static int leerId( String id ) throws SolicitudInvalida
+    {
+        try
+        {
+            return Integer.parseInt( id );
+        }
+        catch( NumberFormatException e )
+        {
+            throw new SolicitudInvalida( 400, "El identificador de pedido no es un número: " + id );
+        }
+    }
+
+    // ***************************************
+    // Peticiones y respuestas
+    // ***************************************
+
+    /**
+     * Un error que se le responde al cliente, con el código HTTP que corresponde: casi siempre un error en la petición, o 500 si falló el almacenamiento
+     */
+    @SuppressWarnings("serial")
+    private static class SolicitudInvalida extends HamburguesaException
+    {
+        private final int codigo;
+
+        private final String mensaje;
+
+        SolicitudInvalida( int codigo, String mensaje )
+        {
+            this.codigo = codigo;
+            this.mensaje = mensaje;
+        }
+
+        @Override
+        public String getMessage( )
+        {
+            return mensaje;
+        }
+    }
+
+    private static boolean esMetodo( HttpExchange intercambio, String metodo ) throws IOException
+    {
+        if( metodo.equals( intercambio.getRequestMethod( ) ) )
+            return true;
+        intercambio.getResponseHeaders( ).set( "Allow", metodo );
+        responderError( intercambio, 405, "Esta ruta sólo acepta " + metodo );
+        return false;
+    }
+
+    /**
+     * Lee el cuerpo de la petición como un formulario. Un campo puede aparecer varias veces.
+     * @throws SolicitudInvalida Se lanza con código 400 si algún campo tiene una secuencia %xx inválida
+     */
+    private static HashMap<String, List<String>> leerFormulario( HttpExchange intercambio ) throws IOException, SolicitudInvalida
+    {
+        String cuerpo;
+        try( InputStream entrada = intercambio.getRequestBody( ) )
+        {
+            cuerpo = new String( entrada.readAllBytes( ), StandardCharsets.UTF_8 );
+        }
+
+        HashMap<String, List<String>> campos = new HashMap<String, List<String>>( );
+        for( String par : cuerpo.split( "&" ) )
+        {
+            if( par.isEmpty( ) )
+                continue;
+            int igual = par.indexOf( '=' );
+            String nombre;
+            String valor;
+            try
+            {
+                nombre = URLDecoder.decode( igual < 0 ? par : par.substring( 0, igual ), StandardCharsets.UTF_8 );
+                valor = igual < 0 ? "" : URLDecoder.decode( par.substring( igual + 1 ), StandardCharsets.UTF_8 );
+            }
+            catch( IllegalArgumentException e )
+            {
+                throw new SolicitudInvalida( 400, "El formulario está mal codificado: " + e.getMessage( ) );
+            }
+            campos.computeIfAbsent( nombre, n -> new ArrayList<String>( ) ).add( valor );
+        }
+        return campos;
+    }
+
+    private static String valor( HashMap<String, List<String>> formulario, String campo )
+    {
+        List<String> valores = formulario.get( campo );
+        return valores == null || valores.get( 0 ).isBlank( ) ? null : valores.get( 0 );
+    }
+
+    private static String obligatorio( HashMap<String, List<String>> formulario, String campo ) throws SolicitudInvalida
+    {
+        String valor = valor( formulario, campo );
+        if( valor == null )
+            throw new SolicitudInvalida( 400, "Falta el campo " + campo );
+        return valor;
+    }
+
+    private static void agregarElemento( StringBuilder json, int indice, String nombre, String campoPrecio, int precio )
+    {
+        if( indice > 0 )
+            json.append( ',' );
+        json.append( "{\"nombre\":" );
+        agregarTexto( json, nombre );
+        json.append( ",\"" ).append( campoPrecio ).append( "\":" ).append( precio ).append( '}' );
+    }
+
+    /**
+     * Agrega un texto como cadena JSON, con las comillas y los caracteres de control escapados
+     */
+    private static void agregarTexto( StringBuilder json, String texto )
+    {
+        json.append( '"' );
+        for( int i = 0; i < texto.length( ); i++ )
+        {
+            char c = texto.charAt( i );
+            if( c == '"' || c == '\\' )
+                json.append( '\\' ).append( c );
+            else if( c < 0x20 )
+                json.append( String.format( "\\u%04x", ( int )c ) );
+            else
+                json.append( c );
+        }
+        json.append( '"' );
+    }
+
+    private static void responderError( HttpExchange intercambio, int codigo, String mensaje ) throws IOException
+    {
+        StringBuilder json = new StringBuilder( "{\"error\":" );
+        agregarTexto( json, mensaje );
+        responder( intercambio, codigo, json.append( '}' ).toString( ) );
+    }
+
+    private static void responder( HttpExchange intercambio, int codigo, String json ) throws IOException
+    {
+        responder( intercambio, codigo, "application/json; charset=utf-8", json );
+    }
+
+    private static void responder( HttpExchange intercambio, int codigo, String tipo, String cuerpo ) throws IOException
+    {
+        byte[] bytes = cuerpo.getBytes( StandardCharsets.UTF_8 );
+        intercambio.getResponseHeaders( ).set( "Content-Type", tipo );
+        intercambio.sendResponseHeaders( codigo, bytes.length );
+        try( OutputStream salida = intercambio.getResponseBody( ) )
+        {
+            salida.write( bytes );
+        }
+    }
+}
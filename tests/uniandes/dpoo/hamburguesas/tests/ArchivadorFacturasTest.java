@@ -0,0 +1,167 @@
+package uniandes.dpoo.hamburguesas.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+import uniandes.dpoo.hamburguesas.mundo.VistaPedido;
+import uniandes.dpoo.hamburguesas.persistencia.ArchivadorFacturas;
+import uniandes.dpoo.hamburguesas.persistencia.ArchivoFacturas;
+import uniandes.dpoo.hamburguesas.persistencia.CarpetaFacturas;
+
+public class ArchivadorFacturasTest
+{
+    private static final ZoneId ZONA = ZoneOffset.UTC;
+
+    private static final LocalDate HOY = LocalDate.of( 2024, 5, 3 );
+
+    @TempDir
+    File temp;
+
+    private String factura( int id )
+    {
+        return "Cliente: cliente ñ " + id + "\nDirección: Calle " + id + "\ncorral\n            14000\n----------------\nPrecio Neto:  " + ( 14000 + id )
+                + "\n";
+    }
+
+    /**
+     * Guarda la factura de un pedido y le pone como fecha de modificación el mediodía del día indicado
+     */
+    private void guardar( CarpetaFacturas carpeta, int id, LocalDate dia ) throws IOException
+    {
+        carpeta.guardar( id, factura( id ) );
+        carpeta.sincronizar( );
+        assertTrue( carpeta.getArchivo( id ).setLastModified( dia.atTime( 12, 0 ).toInstant( ZoneOffset.UTC ).toEpochMilli( ) ) );
+    }
+
+    @Test
+    void archivar_comprimeLosDiasCerradosYLasFacturasSeSiguenLeyendo( ) throws Exception
+    {
+        CarpetaFacturas carpeta = new CarpetaFacturas( temp );
+        for( int id = 0; id < 300; id++ )
+            guardar( carpeta, id, id < 100 ? HOY.minusDays( 2 ) : id < 250 ? HOY.minusDays( 1 ) : HOY );
+
+        ArchivadorFacturas.Resultado resultado = new ArchivadorFacturas( carpeta, ZONA ).archivarAntesDe( HOY );
+
+        assertEquals( 2, resultado.getDias( ) );
+        assertEquals( 250, resultado.getFacturas( ) );
+        assertTrue( resultado.getBytesDespues( ) < resultado.getBytesAntes( ) / 4, resultado.toString( ) );
+        assertTrue( new File( temp, "archivo_2024-05-01.fac" ).isFile( ) );
+        assertTrue( new File( temp, "archivo_2024-05-02.fac" ).isFile( ) );
+        assertEquals( 50, temp.list( ( dir, nombre ) -> nombre.startsWith( "factura_" ) ).length, "Las facturas de hoy no se archivan" );
+
+        for( int id = 0; id < 300; id++ )
+        {
+            assertEquals( factura( id ), carpeta.leer( id ) );
+            assertEquals( factura( id ), StandardCharsets.UTF_8.decode( carpeta.mapear( id ) ).toString( ) );
+        }
+        assertNull( carpeta.leer( 300 ) );
+        assertNull( carpeta.mapear( -1 ) );
+
+        // Otra carpeta sobre los mismos archivos encuentra los archivos comprimidos al leer
+        CarpetaFacturas reabierta = new CarpetaFacturas( temp );
+        assertEquals( factura( 42 ), reabierta.leer( 42 ) );
+        assertEquals( factura( 249 ), reabierta.leer( 249 ) );
+
+        // Una segunda pasada el mismo día no hace nada
+        assertEquals( 0, new ArchivadorFacturas( carpeta, ZONA ).archivarAntesDe( HOY ).getFacturas( ) );
+    }
+
+    @Test
+    void facturaSueltaReescrita_ganaSobreLaArchivada( ) throws Exception
+    {
+        CarpetaFacturas carpeta = new CarpetaFacturas( temp );
+        guardar( carpeta, 7, HOY.minusDays( 1 ) );
+        new ArchivadorFacturas( carpeta, ZONA ).archivarAntesDe( HOY );
+        assertFalse( carpeta.getArchivo( 7 ).exists( ) );
+
+        carpeta.guardar( 7, "nueva" );
+        carpeta.sincronizar( );
+        assertEquals( "nueva", carpeta.leer( 7 ) );
+
+        // Si el archivo suelto del mismo día se vuelve a archivar, queda en un archivo aparte
+        assertTrue( carpeta.getArchivo( 7 ).setLastModified( HOY.minusDays( 1 ).atStartOfDay( ZONA ).toInstant( ).toEpochMilli( ) ) );
+        new ArchivadorFacturas( carpeta, ZONA ).archivarAntesDe( HOY );
+        assertTrue( new File( temp, "archivo_2024-05-02_1.fac" ).isFile( ) );
+    }
+
+    @Test
+    void escrituraFallida_noDejaElArchivoTemporal( ) throws Exception
+    {
+        // Un directorio con contenido en el lugar del archivo hace fallar el renombre final
+        File destino = new File( temp, "ocupado.fac" );
+        assertTrue( new File( destino, "algo" ).mkdirs( ) );
+        byte[][] textos = { factura( 1 ).getBytes( StandardCharsets.UTF_8 ) };
+
+        assertThrows( IOException.class, ( ) -> ArchivoFacturas.escribir( destino, new int[]{ 1 }, textos ) );
+        assertFalse( new File( temp, "ocupado.fac.tmp" ).exists( ) );
+    }
+
+    @Test
+    void archivoDanado_seDetectaConElCrc( ) throws Exception
+    {
+        File destino = new File( temp, "archivo.fac" );
+        byte[][] textos = { factura( 1 ).getBytes( StandardCharsets.UTF_8 ), factura( 5 ).getBytes( StandardCharsets.UTF_8 ) };
+        ArchivoFacturas archivo = ArchivoFacturas.escribir( destino, new int[]{ 1, 5 }, textos );
+        assertEquals( 2, archivo.getCantidad( ) );
+        assertEquals( 1, archivo.getPrimerId( ) );
+        assertEquals( 5, archivo.getUltimoId( ) );
+        assertNull( archivo.leer( 3 ) );
+        assertArrayEquals( textos[ 1 ], archivo.leer( 5 ) );
+        assertThrows( IllegalArgumentException.class, ( ) -> ArchivoFacturas.escribir( new File( temp, "otro.fac" ), new int[]{ 5, 1 }, textos ) );
+
+        // Cambia el último byte de la segunda factura comprimida, justo antes del índice
+        long posicionIndice;
+        try( RandomAccessFile datos = new RandomAccessFile( destino, "rw" ) )
+        {
+            datos.seek( datos.length( ) - 16 );
+            posicionIndice = datos.readLong( );
+            datos.seek( posicionIndice - 1 );
+            int ultimo = datos.read( );
+            datos.seek( posicionIndice - 1 );
+            datos.write( ultimo ^ 0x01 );
+        }
+        ArchivoFacturas danado = ArchivoFacturas.abrir( destino );
+        assertArrayEquals( textos[ 0 ], danado.leer( 1 ) );
+        assertThrows( IOException.class, ( ) -> danado.leer( 5 ) );
+
+        Files.write( destino.toPath( ), new byte[]{ 1, 2, 3 } );
+        assertThrows( IOException.class, ( ) -> ArchivoFacturas.abrir( destino ) );
+    }
+
+    @Test
+    void restaurante_buscaPedidosArchivados( ) throws Exception
+    {
+        Restaurante restaurante = new Restaurante( temp );
+        Pedido pedido = restaurante.abrirPedido( "ana", "Calle 5" );
+        pedido.agregarProducto( new ProductoMenu( "corral", 14000 ) );
+        restaurante.cerrarYGuardarPedido( pedido.getIdPedido( ) );
+        restaurante.cerrar( );
+        CarpetaFacturas carpeta = new CarpetaFacturas( temp );
+        assertTrue( carpeta.getArchivo( pedido.getIdPedido( ) ).setLastModified( System.currentTimeMillis( ) - 3 * 24 * 3600 * 1000L ) );
+
+        Restaurante siguiente = new Restaurante( temp );
+        ArchivadorFacturas archivador = siguiente.iniciarArchivoFacturas( 60_000, null );
+        archivador.archivarDiasCerrados( );
+        assertFalse( carpeta.getArchivo( pedido.getIdPedido( ) ).exists( ) );
+
+        assertEquals( pedido.generarTextoFactura( ), siguiente.leerFactura( pedido.getIdPedido( ) ) );
+        VistaPedido historico = siguiente.buscarPedidoPorId( pedido.getIdPedido( ) );
+        assertEquals( "ana", historico.getNombreCliente( ) );
+        assertEquals( pedido.getPrecioTotalPedido( ), historico.getPrecioTotalPedido( ) );
+        siguiente.cerrar( );
+    }
+}
@@ -0,0 +1,228 @@
+package uniandes.dpoo.hamburguesas.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+import uniandes.dpoo.hamburguesas.persistencia.BitacoraFacturas;
+
+public class BitacoraFacturasTest
+{
+    @TempDir
+    Path temp;
+
+    private String factura( int id )
+    {
+        return "Cliente: cliente " + id + "\nDirección: Calle " + id + "\n";
+    }
+
+    @Test
+    void guardarYLeer_conVariosSegmentos_yDespuesDeReabrir( ) throws Exception
+    {
+        File carpeta = temp.resolve( "segmentos" ).toFile( );
+        BitacoraFacturas bitacora = new BitacoraFacturas( carpeta, 200 );
+        for( int id = 0; id < 50; id++ )
+            bitacora.guardar( id, factura( id ) );
+        bitacora.sincronizar( );
+
+        assertTrue( bitacora.getCantidadSegmentos( ) > 1, "Con segmentos pequeños se debe rotar" );
+        assertEquals( factura( 17 ), bitacora.leer( 17 ) );
+        assertNull( bitacora.leer( 50 ) );
+        bitacora.cerrar( );
+
+        BitacoraFacturas reabierta = new BitacoraFacturas( carpeta, 200 );
+        assertEquals( 50, reabierta.getCantidad( ) );
+        for( int id = 0; id < 50; id++ )
+            assertEquals( factura( id ), reabierta.leer( id ) );
+        reabierta.guardar( 50, factura( 50 ) );
+        assertEquals( factura( 50 ), reabierta.leer( 50 ) );
+        reabierta.cerrar( );
+    }
+
+    @Test
+    void rotacionFallida_laBitacoraSigueUsable( ) throws Exception
+    {
+        File carpeta = temp.resolve( "segmentos" ).toFile( );
+        BitacoraFacturas bitacora = new BitacoraFacturas( carpeta, 200 );
+        // Una carpeta con el nombre del siguiente segmento hace que no se pueda crear
+        File siguiente = new File( carpeta, "segmento_000001.log" );
+        assertTrue( siguiente.mkdir( ) );
+
+        int id = 0;
+        IOException error = null;
+        while( error == null && id < 50 )
+        {
+            try
+            {
+                bitacora.guardar( id, factura( id ) );
+                id++;
+            }
+            catch( IOException e )
+            {
+                error = e;
+            }
+        }
+        assertNotNull( error, "La rotación debía fallar" );
+        assertEquals( 1, bitacora.getCantidadSegmentos( ) );
+
+        assertTrue( siguiente.delete( ) );
+        for( ; id < 50; id++ )
+            bitacora.guardar( id, factura( id ) );
+        bitacora.cerrar( );
+
+        BitacoraFacturas reabierta = new BitacoraFacturas( carpeta, 200 );
+        assertEquals( 50, reabierta.getCantidad( ) );
+        for( int i = 0; i < 50; i++ )
+            assertEquals( factura( i ), reabierta.leer( i ) );
+        reabierta.cerrar( );
+    }
+
+    @Test
+    void registroIncompletoAlFinal_seDescartaAlReabrir( ) throws Exception
+    {
+        File carpeta = temp.resolve( "segmentos" ).toFile( );
+        BitacoraFacturas bitacora = new BitacoraFacturas( carpeta );
+        bitacora.guardar( 1, factura( 1 ) );
+        bitacora.guardar( 2, factura( 2 ) );
+        bitacora.cerrar( );
+
+        File segmento = carpeta.listFiles( ( dir, nombre ) -> nombre.endsWith( ".log" ) )[ 0 ];
+        try( RandomAccessFile archivo = new RandomAccessFile( segmento, "rw" ) )
+        {
+            archivo.setLength( archivo.length( ) - 3 );
+        }
+
+        BitacoraFacturas reabierta = new BitacoraFacturas( carpeta );
+        assertEquals( factura( 1 ), reabierta.leer( 1 ) );
+        assertNull( reabierta.leer( 2 ), "El registro cortado no debe aparecer" );
+        reabierta.guardar( 3, factura( 3 ) );
+        reabierta.cerrar( );
+        assertEquals( factura( 3 ), new BitacoraFacturas( carpeta ).leer( 3 ) );
+    }
+
+    @Test
+    void compactar_dejaSoloLaUltimaVersionDeCadaFactura( ) throws Exception
+    {
+        File carpeta = temp.resolve( "segmentos" ).toFile( );
+        BitacoraFacturas bitacora = new BitacoraFacturas( carpeta, 200 );
+        for( int vuelta = 0; vuelta < 5; vuelta++ )
+        {
+            for( int id = 0; id < 10; id++ )
+                bitacora.guardar( id, factura( id ) + "versión " + vuelta + "\n" );
+        }
+        int segmentosAntes = bitacora.getCantidadSegmentos( );
+
+        bitacora.compactar( );
+
+        assertTrue( bitacora.getCantidadSegmentos( ) < segmentosAntes );
+        assertEquals( 10, bitacora.getCantidad( ) );
+        assertEquals( factura( 4 ) + "versión 4\n", bitacora.leer( 4 ) );
+        bitacora.guardar( 10, factura( 10 ) );
+        bitacora.cerrar( );
+
+        BitacoraFacturas reabierta = new BitacoraFacturas( carpeta, 200 );
+        assertEquals( 11, reabierta.getCantidad( ) );
+        assertEquals( factura( 9 ) + "versión 4\n", reabierta.leer( 9 ) );
+    }
+
+    @Test
+    void caidaAMitadDelReemplazo_noPierdeLosSegmentosCompactados( ) throws Exception
+    {
+        File carpeta = temp.resolve( "segmentos" ).toFile( );
+        File copia = temp.resolve( "copia" ).toFile( );
+        BitacoraFacturas bitacora = new BitacoraFacturas( carpeta, 200 );
+        for( int vuelta = 0; vuelta < 5; vuelta++ )
+        {
+            for( int id = 0; id < 10; id++ )
+                bitacora.guardar( id, factura( id ) + "versión " + vuelta + "\n" );
+        }
+        bitacora.cerrar( );
+
+        // La copia se compacta completa para tener los segmentos que habría dejado la compactación
+        copia.mkdirs( );
+        for( File segmento : carpeta.listFiles( ) )
+            Files.copy( segmento.toPath( ), new File( copia, segmento.getName( ) ).toPath( ) );
+        BitacoraFacturas compactada = new BitacoraFacturas( copia, 200 );
+        compactada.compactar( );
+        compactada.cerrar( );
+        File[] compactados = copia.listFiles( ( dir, nombre ) -> nombre.endsWith( ".log" ) );
+        Arrays.sort( compactados );
+        assertTrue( compactados.length > 1 );
+
+        // Estado de una caída después de borrar los segmentos viejos sobrantes y de mover el primer segmento compactado
+        File temporal = new File( carpeta, "compactando" );
+        temporal.mkdirs( );
+        StringBuilder marca = new StringBuilder( );
+        for( File segmento : compactados )
+            marca.append( segmento.getName( ) ).append( '\n' );
+        Files.writeString( new File( temporal, "completa" ).toPath( ), marca );
+        for( File segmento : carpeta.listFiles( ( dir, nombre ) -> nombre.endsWith( ".log" ) ) )
+        {
+            if( !marca.toString( ).contains( segmento.getName( ) ) )
+                Files.delete( segmento.toPath( ) );
+        }
+        Files.copy( compactados[ 0 ].toPath( ), new File( carpeta, compactados[ 0 ].getName( ) ).toPath( ), StandardCopyOption.REPLACE_EXISTING );
+        for( int i = 1; i < compactados.length; i++ )
+            Files.copy( compactados[ i ].toPath( ), new File( temporal, compactados[ i ].getName( ) ).toPath( ) );
+
+        // Se reabre dos veces: la primera termina el reemplazo y la segunda no debe cambiar nada
+        for( int vez = 0; vez < 2; vez++ )
+        {
+            BitacoraFacturas reabierta = new BitacoraFacturas( carpeta, 200 );
+            assertFalse( temporal.exists( ) );
+            assertEquals( compactados.length, reabierta.getCantidadSegmentos( ) );
+            assertEquals( 10, reabierta.getCantidad( ) );
+            for( int id = 0; id < 10; id++ )
+                assertEquals( factura( id ) + "versión 4\n", reabierta.leer( id ) );
+            reabierta.cerrar( );
+        }
+
+        // Una caída después de mover todos los segmentos deja sólo la marca
+        temporal.mkdirs( );
+        Files.writeString( new File( temporal, "completa" ).toPath( ), marca );
+        BitacoraFacturas reabierta = new BitacoraFacturas( carpeta, 200 );
+        assertEquals( 10, reabierta.getCantidad( ) );
+        assertEquals( factura( 7 ) + "versión 4\n", reabierta.leer( 7 ) );
+        reabierta.cerrar( );
+    }
+
+    @Test
+    void exportarACarpeta_usaElFormatoDeUnArchivoPorFactura( ) throws Exception
+    {
+        BitacoraFacturas bitacora = new BitacoraFacturas( temp.resolve( "segmentos" ).toFile( ) );
+        bitacora.guardar( 3, factura( 3 ) );
+        bitacora.guardar( 8, factura( 8 ) );
+
+        File destino = temp.resolve( "exportadas" ).toFile( );
+        assertEquals( 2, bitacora.exportarACarpeta( destino ) );
+        assertEquals( factura( 8 ), new String( Files.readAllBytes( new File( destino, "factura_8.txt" ).toPath( ) ), StandardCharsets.UTF_8 ) );
+        bitacora.cerrar( );
+    }
+
+    @Test
+    void restaurante_conBitacora_noCreaUnArchivoPorPedido( ) throws Exception
+    {
+        Restaurante restaurante = new Restaurante( temp.toFile( ) );
+        restaurante.usarBitacoraFacturas( );
+        Pedido pedido = restaurante.abrirPedido( "ana", "Calle 5" );
+        pedido.agregarProducto( new ProductoMenu( "corral", 14000 ) );
+        restaurante.cerrarYGuardarPedido( pedido.getIdPedido( ) );
+
+        assertEquals( pedido.generarTextoFactura( ), restaurante.leerFactura( pedido.getIdPedido( ) ) );
+        restaurante.cerrar( );
+        assertEquals( 0, temp.toFile( ).list( ( dir, nombre ) -> nombre.startsWith( "factura_" ) ).length );
+    }
+}
@@ -0,0 +1,241 @@
+package uniandes.dpoo.hamburguesas.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.hamburguesas.mundo.Ingrediente;
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.ProductoAjustado;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+import uniandes.dpoo.hamburguesas.persistencia.BitacoraPedidos;
+import uniandes.dpoo.hamburguesas.persistencia.PedidoRecuperado;
+
+public class BitacoraPedidosTest
+{
+    @TempDir
+    Path temp;
+
+    private File archivo( String nombre, String contenido ) throws IOException
+    {
+        Path ruta = temp.resolve( nombre );
+        Files.write( ruta, contenido.getBytes( StandardCharsets.UTF_8 ) );
+        return ruta.toFile( );
+    }
+
+    private Restaurante crearRestaurante( ) throws Exception
+    {
+        Restaurante restaurante = new Restaurante( temp.resolve( "facturas" ).toFile( ) );
+        restaurante.cargarInformacionRestaurante( archivo( "ingredientes.txt", "queso;1000\ncebolla;500\n" ),
+                archivo( "menu.txt", "corral;14000\npapas medianas;5500\n" ), archivo( "combos.txt", "combo corral;10%;corral;papas medianas\n" ) );
+        return restaurante;
+    }
+
+    @Test
+    void eventosSincronizados_seRecuperanSinCerrarLaBitacora( ) throws Exception
+    {
+        File carpeta = temp.resolve( "pedidos" ).toFile( );
+        BitacoraPedidos bitacora = new BitacoraPedidos( carpeta, null );
+        ProductoAjustado ajustado = new ProductoAjustado( new ProductoMenu( "corral", 14000 ) );
+        ajustado.agregarIngrediente( new Ingrediente( "queso", 1000 ) );
+        ajustado.eliminarIngrediente( new Ingrediente( "cebolla", 500 ) );
+
+        bitacora.registrarApertura( 3, "Ana María", "Cll 19 # 1-10" );
+        bitacora.registrarApertura( 4, "Beto", "Cra 2" );
+        bitacora.registrarProducto( 3, ajustado );
+        bitacora.registrarProducto( 4, new ProductoMenu( "papas medianas", 5500 ) );
+        bitacora.registrarCierre( 4 );
+        bitacora.sincronizar( );
+        assertEquals( 1, bitacora.getCantidadAbiertos( ) );
+
+        // Sin cerrar la primera bitácora, como si el proceso se hubiera caído
+        ArrayList<PedidoRecuperado> recuperados = new BitacoraPedidos( carpeta, null ).getPedidosRecuperados( );
+        assertEquals( 2, recuperados.size( ) );
+        PedidoRecuperado ana = recuperados.get( 0 );
+        assertEquals( 3, ana.getIdPedido( ) );
+        assertEquals( "Ana María", ana.getNombreCliente( ) );
+        assertEquals( "Cll 19 # 1-10", ana.getDireccionCliente( ) );
+        assertFalse( ana.estaCerrado( ) );
+        assertEquals( 1, ana.getProductos( ).size( ) );
+        assertEquals( "corral", ana.getProductos( ).get( 0 ).getNombre( ) );
+        assertArrayEquals( new String[]{ "queso" }, ana.getProductos( ).get( 0 ).getAgregados( ) );
+        assertArrayEquals( new String[]{ "cebolla" }, ana.getProductos( ).get( 0 ).getEliminados( ) );
+        assertTrue( recuperados.get( 1 ).estaCerrado( ) );
+    }
+
+    @Test
+    void rotacionFallida_seReintentaSinPerderEventos( ) throws Exception
+    {
+        File carpeta = temp.resolve( "pedidos" ).toFile( );
+        BitacoraPedidos bitacora = new BitacoraPedidos( carpeta, null, 64 );
+        // Una carpeta con el nombre del siguiente segmento hace que no se pueda abrir
+        File siguiente = new File( carpeta, "pedidos_00000001.wal" );
+        assertTrue( siguiente.mkdir( ) );
+
+        bitacora.registrarApertura( 1, "Ana María con un nombre largo", "Calle 19 # 1-10, apartamento 501" );
+        boolean fallo = false;
+        for( int intento = 0; intento < 50 && !fallo; intento++ )
+        {
+            try
+            {
+                bitacora.sincronizar( );
+                Thread.sleep( 20 );
+            }
+            catch( IOException e )
+            {
+                fallo = true;
+            }
+        }
+        assertTrue( fallo, "La rotación debía fallar" );
+
+        // El cierre se registra aunque haya un error pendiente
+        assertDoesNotThrow( ( ) -> bitacora.registrarCierre( 1 ) );
+        assertTrue( siguiente.delete( ) );
+        bitacora.registrarApertura( 2, "Beto", "Cra 2" );
+        boolean recuperada = false;
+        for( int intento = 0; intento < 50 && !recuperada; intento++ )
+        {
+            try
+            {
+                bitacora.sincronizar( );
+                recuperada = true;
+            }
+            catch( IOException e )
+            {
+                Thread.sleep( 50 );
+            }
+        }
+        assertTrue( recuperada, "La bitácora debía recuperarse cuando se pudo abrir el segmento" );
+        assertTrue( siguiente.isFile( ) );
+
+        ArrayList<PedidoRecuperado> recuperados = new BitacoraPedidos( carpeta, null ).getPedidosRecuperados( );
+        // El pedido 1 quedó cerrado y su segmento se borró: sólo queda abierto el 2
+        assertEquals( 1, recuperados.size( ) );
+        assertEquals( 2, recuperados.get( 0 ).getIdPedido( ) );
+        assertFalse( recuperados.get( 0 ).estaCerrado( ) );
+        bitacora.cerrar( );
+    }
+
+    @Test
+    void registroIncompletoAlFinal_seDescartaAlRecuperar( ) throws Exception
+    {
+        File carpeta = temp.resolve( "pedidos" ).toFile( );
+        BitacoraPedidos bitacora = new BitacoraPedidos( carpeta, null );
+        bitacora.registrarApertura( 1, "Ana", "Cll 1" );
+        bitacora.cerrar( );
+
+        File segmento = carpeta.listFiles( )[ 0 ];
+        long tamano = segmento.length( );
+        try( RandomAccessFile raf = new RandomAccessFile( segmento, "rw" ) )
+        {
+            raf.seek( tamano );
+            raf.write( new byte[]{ 0, 0, 0, 40, 1, 2, 3 } );
+        }
+
+        BitacoraPedidos reabierta = new BitacoraPedidos( carpeta, null );
+        assertEquals( 1, reabierta.getPedidosRecuperados( ).size( ) );
+        assertEquals( tamano, segmento.length( ) );
+        reabierta.registrarProducto( 1, new ProductoMenu( "corral", 14000 ) );
+        reabierta.cerrar( );
+
+        PedidoRecuperado ana = new BitacoraPedidos( carpeta, null ).getPedidosRecuperados( ).get( 0 );
+        assertEquals( 1, ana.getProductos( ).size( ) );
+    }
+
+    @Test
+    void segmentosSinPedidosAbiertos_seBorranAlRotar( ) throws Exception
+    {
+        File carpeta = temp.resolve( "pedidos" ).toFile( );
+        int[] esperas = new int[1];
+        BitacoraPedidos bitacora = new BitacoraPedidos( carpeta, ( ) -> esperas[ 0 ]++, 256 );
+        bitacora.registrarApertura( 0, "Pedido largo", "Cll 1" );
+        for( int id = 1; id <= 200; id++ )
+        {
+            bitacora.registrarApertura( id, "cliente " + id, "Calle " + id );
+            bitacora.registrarProducto( id, new ProductoMenu( "corral", 14000 ) );
+            bitacora.registrarCierre( id );
+            bitacora.sincronizar( );
+        }
+        int conPedidoLargo = bitacora.getCantidadSegmentos( );
+        assertTrue( conPedidoLargo > 10, "El segmento del pedido abierto retiene los siguientes" );
+
+        bitacora.registrarCierre( 0 );
+        for( int id = 201; id <= 220; id++ )
+        {
+            bitacora.registrarApertura( id, "cliente " + id, "Calle " + id );
+            bitacora.registrarCierre( id );
+            bitacora.sincronizar( );
+        }
+        assertTrue( bitacora.getCantidadSegmentos( ) <= 2, "Quedaron " + bitacora.getCantidadSegmentos( ) + " segmentos" );
+        assertTrue( esperas[ 0 ] > 0, "Antes de borrar se debe esperar a las facturas" );
+        bitacora.cerrar( );
+
+        for( PedidoRecuperado pedido : new BitacoraPedidos( carpeta, null ).getPedidosRecuperados( ) )
+            assertTrue( pedido.estaCerrado( ) );
+    }
+
+    @Test
+    void reiniciarElRestaurante_recuperaLosPedidosAbiertos( ) throws Exception
+    {
+        Restaurante restaurante = crearRestaurante( );
+        assertEquals( 0, restaurante.usarBitacoraPedidos( ) );
+        Pedido abierto = restaurante.abrirPedido( "Ana", "Cll 1" );
+        ProductoAjustado ajustado = new ProductoAjustado( restaurante.buscarProductoMenu( "corral" ) );
+        ajustado.agregarIngrediente( restaurante.buscarIngrediente( "queso" ) );
+        abierto.agregarProducto( ajustado );
+        abierto.agregarProducto( restaurante.buscarCombo( "combo corral" ) );
+        Pedido cerrado = restaurante.abrirPedido( "Beto", "Cra 2" );
+        cerrado.agregarProducto( restaurante.buscarProductoMenu( "papas medianas" ) );
+        restaurante.cerrarYGuardarPedido( cerrado.getIdPedido( ) );
+        restaurante.cerrar( );
+
+        Restaurante reiniciado = crearRestaurante( );
+        assertEquals( 1, reiniciado.usarBitacoraPedidos( ) );
+        Pedido recuperado = reiniciado.getPedidoAbierto( abierto.getIdPedido( ) );
+        assertNotNull( recuperado );
+        assertSame( recuperado, reiniciado.getPedidoEnCurso( ) );
+        assertNull( reiniciado.getPedidoAbierto( cerrado.getIdPedido( ) ) );
+        assertEquals( abierto.getPrecioTotalPedido( ), recuperado.getPrecioTotalPedido( ) );
+        assertEquals( abierto.generarTextoFactura( ), recuperado.generarTextoFactura( ) );
+
+        Pedido nuevo = reiniciado.abrirPedido( "Carlos", "Cll 3" );
+        assertTrue( nuevo.getIdPedido( ) > abierto.getIdPedido( ) );
+        recuperado.agregarProducto( reiniciado.buscarProductoMenu( "papas medianas" ) );
+        reiniciado.cerrarYGuardarPedido( );
+        assertTrue( reiniciado.leerFactura( abierto.getIdPedido( ) ).contains( "papas medianas" ) );
+        reiniciado.cerrar( );
+
+        Restaurante otraVez = crearRestaurante( );
+        assertEquals( 1, otraVez.usarBitacoraPedidos( ), "Sólo queda abierto el pedido de Carlos" );
+        assertNotNull( otraVez.getPedidoAbierto( nuevo.getIdPedido( ) ) );
+        otraVez.cerrar( );
+    }
+
+    @Test
+    void pedidoCerradoSinFactura_seGuardaSuFacturaAlRecuperar( ) throws Exception
+    {
+        BitacoraPedidos bitacora = new BitacoraPedidos( temp.resolve( "facturas" ).resolve( "pedidos" ).toFile( ), null );
+        bitacora.registrarApertura( 7, "Ana", "Cll 1" );
+        bitacora.registrarProducto( 7, new ProductoMenu( "corral", 14000 ) );
+        bitacora.registrarCierre( 7 );
+        bitacora.cerrar( );
+
+        Restaurante restaurante = crearRestaurante( );
+        assertEquals( 0, restaurante.usarBitacoraPedidos( ) );
+        String factura = restaurante.leerFactura( 7 );
+        assertNotNull( factura );
+        assertTrue( factura.contains( "corral" ) );
+        assertEquals( 7, restaurante.getPedidos( ).get( 0 ).getIdPedido( ) );
+        restaurante.cerrar( );
+    }
+}
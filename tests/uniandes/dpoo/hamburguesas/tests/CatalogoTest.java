@@ -0,0 +1,106 @@
+package uniandes.dpoo.hamburguesas.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.hamburguesas.excepciones.IngredienteRepetidoException;
+import uniandes.dpoo.hamburguesas.excepciones.ProductoFaltanteException;
+import uniandes.dpoo.hamburguesas.excepciones.ProductoRepetidoException;
+import uniandes.dpoo.hamburguesas.mundo.Catalogo;
+import uniandes.dpoo.hamburguesas.mundo.Combo;
+import uniandes.dpoo.hamburguesas.mundo.Ingrediente;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+
+public class CatalogoTest
+{
+    @TempDir
+    Path temp;
+
+    private Catalogo catalogo;
+
+    @BeforeEach
+    void setUp( )
+    {
+        catalogo = new Catalogo( );
+    }
+
+    private File archivo( String nombre, String contenido ) throws IOException
+    {
+        Path ruta = temp.resolve( nombre );
+        Files.write( ruta, contenido.getBytes( StandardCharsets.UTF_8 ) );
+        return ruta.toFile( );
+    }
+
+    @Test
+    void buscar_usaLosIndicesPorNombre( ) throws Exception
+    {
+        Ingrediente queso = new Ingrediente( "queso", 1000 );
+        ProductoMenu corral = new ProductoMenu( "corral", 14000 );
+        ArrayList<ProductoMenu> items = new ArrayList<>( );
+        items.add( corral );
+        Combo combo = new Combo( "combo corral", 0.1, items );
+
+        catalogo.agregarIngrediente( queso );
+        catalogo.agregarProductoMenu( corral );
+        catalogo.agregarCombo( combo );
+
+        assertSame( queso, catalogo.buscarIngrediente( "queso" ) );
+        assertSame( corral, catalogo.buscarProductoMenu( "corral" ) );
+        assertSame( combo, catalogo.buscarCombo( "combo corral" ) );
+        assertNull( catalogo.buscarProductoMenu( "combo corral" ), "Cada tipo de elemento tiene su propio índice" );
+    }
+
+    @Test
+    void agregarRepetido_lanzaExcepcion_ySinCambiarLasListas( ) throws Exception
+    {
+        catalogo.agregarIngrediente( new Ingrediente( "queso", 1000 ) );
+        catalogo.agregarProductoMenu( new ProductoMenu( "corral", 14000 ) );
+
+        assertThrows( IngredienteRepetidoException.class, ( ) -> catalogo.agregarIngrediente( new Ingrediente( "queso", 2000 ) ) );
+        assertThrows( ProductoRepetidoException.class, ( ) -> catalogo.agregarProductoMenu( new ProductoMenu( "corral", 1 ) ) );
+        assertEquals( 1, catalogo.getIngredientes( ).size( ) );
+        assertEquals( 1000, catalogo.buscarIngrediente( "queso" ).getCostoAdicional( ) );
+        assertEquals( 1, catalogo.getMenuBase( ).size( ) );
+    }
+
+    @Test
+    void cargarInformacion_resuelveLosCombosPorNombre( ) throws Exception
+    {
+        Restaurante restaurante = new Restaurante( temp.toFile( ) );
+        restaurante.cargarInformacionRestaurante( archivo( "ingredientes.txt", "queso;1000\n\ntomate;500\n" ),
+                archivo( "menu.txt", "corral;14000\npapas medianas;5500\n" ), archivo( "combos.txt", "combo corral;10%;corral;papas medianas\n" ) );
+
+        assertEquals( 2, restaurante.getIngredientes( ).size( ) );
+        assertEquals( 2, restaurante.getMenuBase( ).size( ) );
+        Combo combo = restaurante.buscarCombo( "combo corral" );
+        assertNotNull( combo );
+        assertEquals( ( int )( ( 14000 + 5500 ) * ( 1 - 0.1 ) ), combo.getPrecio( ) );
+    }
+
+    @Test
+    void cargarInformacion_conErrores_noReemplazaElCatalogo( ) throws Exception
+    {
+        Restaurante restaurante = new Restaurante( temp.toFile( ) );
+        File ingredientes = archivo( "ingredientes.txt", "queso;1000\n" );
+        File menu = archivo( "menu.txt", "corral;14000\n" );
+        restaurante.cargarInformacionRestaurante( ingredientes, menu, archivo( "combos.txt", "" ) );
+
+        assertThrows( ProductoFaltanteException.class,
+                ( ) -> restaurante.cargarInformacionRestaurante( ingredientes, menu, archivo( "faltante.txt", "combo;10%;corral;no existe\n" ) ) );
+        assertThrows( ProductoRepetidoException.class,
+                ( ) -> restaurante.cargarInformacionRestaurante( ingredientes, archivo( "repetido.txt", "corral;1\ncorral;2\n" ), archivo( "combos.txt", "" ) ) );
+        assertEquals( 1, restaurante.getMenuBase( ).size( ) );
+        assertEquals( 14000, restaurante.buscarProductoMenu( "corral" ).getPrecio( ) );
+    }
+}
@@ -3,6 +3,7 @@ package uniandes.dpoo.hamburguesas.tests;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.ArrayList;
+import java.util.Random;
 
 import org.junit.jupiter.api.Test;
 
@@ -54,4 +55,34 @@ public class ComboTest {
             + "            15000\n";
 
         assertEquals(esperado, c.generarTextoFactura());
-    }}
+    }
+    @Test
+    void getPrecio_noPierdeUnPesoPorRedondeoDeDouble() {
+        // Con double, 1000 * (1 - 0.07) da 929.999... y se truncaba a 929
+        ArrayList<ProductoMenu> items = new ArrayList<>();
+        items.add(pm("Papas", 1000));
+        Combo c = new Combo("Todoterreno", 0.07, items);
+
+        assertEquals(930, c.getPrecio());
+    }
+
+    @Test
+    void precioCalculadoAlConstruir_usaPuntosBasicosYTrunca() {
+        Random random = new Random(22);
+        for (int caso = 0; caso < 1000; caso++) {
+            ArrayList<ProductoMenu> items = new ArrayList<>();
+            long suma = 0;
+            int cantidad = 1 + random.nextInt(5);
+            for (int i = 0; i < cantidad; i++) {
+                ProductoMenu item = pm("item" + i, random.nextInt(40000));
+                items.add(item);
+                suma += item.getPrecio();
+            }
+            int milesimas = random.nextInt(1000);
+
+            Combo c = new Combo("combo" + caso, milesimas / 1000.0, items);
+
+            assertEquals(suma * (1000 - milesimas) / 1000, c.getPrecio(), "Caso " + caso);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package uniandes.dpoo.hamburguesas.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import uniandes.dpoo.hamburguesas.mundo.Dinero;
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+
+public class DineroTest
+{
+    @Test
+    void dividir_redondeaIgualQueBigDecimal( )
+    {
+        Random random = new Random( 23 );
+        RoundingMode[] modos = { RoundingMode.DOWN, RoundingMode.UP, RoundingMode.FLOOR, RoundingMode.CEILING, RoundingMode.HALF_UP,
+                RoundingMode.HALF_DOWN, RoundingMode.HALF_EVEN };
+        for( int caso = 0; caso < 20000; caso++ )
+        {
+            long dividendo = random.nextInt( 2_000_001 ) - 1_000_000;
+            long divisor = caso % 2 == 0 ? 10000 : 1 + random.nextInt( 200 );
+            for( RoundingMode modo : modos )
+            {
+                long esperado = BigDecimal.valueOf( dividendo ).divide( BigDecimal.valueOf( divisor ), 0, modo ).longValueExact( );
+                assertEquals( esperado, Dinero.dividir( dividendo, divisor, modo ), dividendo + " / " + divisor + " " + modo );
+            }
+        }
+    }
+
+    @Test
+    void dividirInexactoSinRedondeo_lanzaExcepcion( )
+    {
+        assertEquals( 3, Dinero.dividir( 300, 100, RoundingMode.UNNECESSARY ) );
+        assertThrows( ArithmeticException.class, ( ) -> Dinero.dividir( 301, 100, RoundingMode.UNNECESSARY ) );
+    }
+
+    @Test
+    void desbordamiento_lanzaExcepcion( )
+    {
+        assertThrows( ArithmeticException.class, ( ) -> Dinero.aplicarTasa( Long.MAX_VALUE / 1000, 1900L, RoundingMode.DOWN ) );
+    }
+
+    @Test
+    void ivaEnPuntoFijo_coincideConElIvaEnDouble( )
+    {
+        Random random = new Random( 19 );
+        for( int caso = 0; caso < 100000; caso++ )
+        {
+            int neto = caso < 50000 ? caso : random.nextInt( Integer.MAX_VALUE / 2 );
+            assertEquals( ( int )( neto * 0.19 ), Dinero.aplicarTasa( neto, 1900, RoundingMode.DOWN ), "Neto " + neto );
+        }
+
+        Pedido pedido = new Pedido( "Ana", "Cll 1" );
+        pedido.agregarProducto( new ProductoMenu( "corral", 14001 ) );
+        assertEquals( 14001 + ( int )( 14001 * 0.19 ), pedido.getPrecioTotalPedido( ) );
+    }
+}
@@ -0,0 +1,236 @@
+package uniandes.dpoo.hamburguesas.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.hamburguesas.persistencia.AlmacenFacturas;
+import uniandes.dpoo.hamburguesas.persistencia.CarpetaFacturas;
+import uniandes.dpoo.hamburguesas.persistencia.EscritorFacturas;
+
+public class EscritorFacturasTest
+{
+    /**
+     * Un almacén en memoria que cuenta las sincronizaciones y que puede detenerse o fallar a voluntad
+     */
+    private static class AlmacenPrueba implements AlmacenFacturas
+    {
+        private final ArrayList<Integer> guardadas = new ArrayList<>( );
+        private final CountDownLatch liberar;
+        private int sincronizaciones;
+        private volatile boolean fallar;
+
+        AlmacenPrueba( CountDownLatch liberar )
+        {
+            this.liberar = liberar;
+        }
+
+        @Override
+        public synchronized void guardar( int idPedido, String factura ) throws IOException
+        {
+            if( fallar )
+                throw new IOException( "disco lleno" );
+            guardadas.add( idPedido );
+        }
+
+        @Override
+        public void sincronizar( ) throws IOException
+        {
+            try
+            {
+                liberar.await( );
+            }
+            catch( InterruptedException e )
+            {
+                throw new IOException( e );
+            }
+            synchronized( this )
+            {
+                sincronizaciones++;
+            }
+        }
+
+        @Override
+        public String leer( int idPedido )
+        {
+            return null;
+        }
+
+        @Override
+        public ByteBuffer mapear( int idPedido )
+        {
+            return null;
+        }
+
+        @Override
+        public void cerrar( )
+        {
+        }
+
+        @Override
+        public String getUbicacion( int idPedido )
+        {
+            return "memoria";
+        }
+    }
+
+    @Test
+    void vaciar_esperaQueTodoQuedeEscrito_enPocosLotes( ) throws Exception
+    {
+        CountDownLatch liberar = new CountDownLatch( 1 );
+        AlmacenPrueba almacen = new AlmacenPrueba( liberar );
+        EscritorFacturas escritor = new EscritorFacturas( almacen, 1000 );
+
+        for( int i = 0; i < 500; i++ )
+            escritor.encolar( i, "factura " + i );
+        liberar.countDown( );
+        escritor.vaciar( );
+
+        assertEquals( 500, almacen.guardadas.size( ) );
+        assertEquals( 0, almacen.guardadas.get( 0 ) );
+        assertEquals( 499, almacen.guardadas.get( 499 ) );
+        assertTrue( almacen.sincronizaciones < 500, "Se debe sincronizar una vez por lote, no una vez por factura" );
+        escritor.cerrar( );
+    }
+
+    @Test
+    void colaLlena_bloqueaAlQueEncola( ) throws Exception
+    {
+        CountDownLatch liberar = new CountDownLatch( 1 );
+        AlmacenPrueba almacen = new AlmacenPrueba( liberar );
+        EscritorFacturas escritor = new EscritorFacturas( almacen, 2 );
+
+        CountDownLatch terminoDeEncolar = new CountDownLatch( 1 );
+        Thread productor = new Thread( ( ) -> {
+            try
+            {
+                for( int i = 0; i < 50; i++ )
+                    escritor.encolar( i, "f" );
+                terminoDeEncolar.countDown( );
+            }
+            catch( IOException e )
+            {
+                fail( e );
+            }
+        } );
+        productor.start( );
+
+        assertFalse( terminoDeEncolar.await( 200, TimeUnit.MILLISECONDS ), "Con el almacén detenido, la cola se debe llenar" );
+        liberar.countDown( );
+        assertTrue( terminoDeEncolar.await( 5, TimeUnit.SECONDS ) );
+        escritor.cerrar( );
+        assertEquals( 50, almacen.guardadas.size( ) );
+    }
+
+    @Test
+    void cerrarMientrasSeEsperaEspacio_rechazaLaFacturaEnVezDePerderla( ) throws Exception
+    {
+        CountDownLatch liberar = new CountDownLatch( 1 );
+        AlmacenPrueba almacen = new AlmacenPrueba( liberar );
+        EscritorFacturas escritor = new EscritorFacturas( almacen, 1 );
+
+        // La primera factura queda en el hilo escritor, que está detenido, y la segunda llena la cola
+        escritor.encolar( 0, "f" );
+        for( int intento = 0; intento < 100 && escritor.getPendientes( ) > 0; intento++ )
+            Thread.sleep( 10 );
+        escritor.encolar( 1, "f" );
+
+        IOException[] rechazo = new IOException[1];
+        Thread productor = new Thread( ( ) -> {
+            try
+            {
+                escritor.encolar( 2, "f" );
+            }
+            catch( IOException e )
+            {
+                rechazo[ 0 ] = e;
+            }
+        } );
+        productor.start( );
+        Thread.sleep( 100 );
+        assertTrue( productor.isAlive( ), "Con la cola llena, el productor debe estar esperando" );
+
+        Thread cierre = new Thread( ( ) -> {
+            try
+            {
+                escritor.cerrar( );
+            }
+            catch( IOException e )
+            {
+                fail( e );
+            }
+        } );
+        cierre.start( );
+        productor.join( 5000 );
+        assertNotNull( rechazo[ 0 ], "La factura que esperaba espacio se debe rechazar al cerrar" );
+
+        liberar.countDown( );
+        cierre.join( 5000 );
+        assertFalse( cierre.isAlive( ) );
+        assertEquals( 2, almacen.guardadas.size( ) );
+    }
+
+    @Test
+    void errorDeEscritura_seReporta_yLasFacturasSeReintentan( ) throws Exception
+    {
+        AlmacenPrueba almacen = new AlmacenPrueba( new CountDownLatch( 0 ) );
+        almacen.fallar = true;
+        EscritorFacturas escritor = new EscritorFacturas( almacen );
+
+        escritor.encolar( 7, "f" );
+        assertThrows( IOException.class, escritor::vaciar );
+
+        almacen.fallar = false;
+        escritor.vaciar( );
+        assertEquals( 1, almacen.guardadas.size( ) );
+        assertEquals( 7, almacen.guardadas.get( 0 ) );
+    }
+
+    @Test
+    void esperarFactura_noEsperaNiReportaLosErroresDeOtrosPedidos( ) throws Exception
+    {
+        AlmacenPrueba almacen = new AlmacenPrueba( new CountDownLatch( 0 ) );
+        EscritorFacturas escritor = new EscritorFacturas( almacen );
+        escritor.encolar( 1, "f" );
+        escritor.esperarFactura( 1 );
+
+        almacen.fallar = true;
+        escritor.encolar( 2, "f" );
+        assertThrows( IOException.class, ( ) -> escritor.esperarFactura( 2 ) );
+        escritor.esperarFactura( 1 );
+        escritor.esperarFactura( 3 );
+        assertThrows( IOException.class, escritor::vaciar, "El error se le debe seguir reportando a quien vacía el escritor" );
+
+        almacen.fallar = false;
+        escritor.vaciar( );
+        escritor.esperarFactura( 2 );
+        assertEquals( 2, almacen.guardadas.size( ) );
+        escritor.cerrar( );
+    }
+
+    @Test
+    void cerrar_escribeLoPendiente_yNoAceptaMasFacturas( @TempDir Path temp ) throws Exception
+    {
+        CarpetaFacturas carpeta = new CarpetaFacturas( temp.resolve( "facturas" ).toFile( ) );
+        EscritorFacturas escritor = new EscritorFacturas( carpeta );
+        for( int i = 0; i < 20; i++ )
+            escritor.encolar( i, "Cliente: número " + i + "\n" );
+        escritor.cerrar( );
+
+        for( int i = 0; i < 20; i++ )
+        {
+            assertEquals( "Cliente: número " + i + "\n", new String( Files.readAllBytes( carpeta.getArchivo( i ).toPath( ) ), StandardCharsets.UTF_8 ) );
+        }
+        assertThrows( IOException.class, ( ) -> escritor.encolar( 20, "tarde" ) );
+    }
+}
@@ -0,0 +1,127 @@
+package uniandes.dpoo.hamburguesas.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.hamburguesas.mundo.Combo;
+import uniandes.dpoo.hamburguesas.mundo.Ingrediente;
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.ProductoAjustado;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+import uniandes.dpoo.hamburguesas.persistencia.ExportadorFacturas;
+
+public class ExportadorFacturasTest
+{
+    /**
+     * Más de dos lotes, con el último incompleto
+     */
+    private static final int PEDIDOS = ExportadorFacturas.TAMANO_LOTE * 2 + 37;
+
+    @TempDir
+    File temp;
+
+    private List<Pedido> crearPedidos( )
+    {
+        ProductoMenu corral = new ProductoMenu( "corral", 14000 );
+        ProductoMenu papas = new ProductoMenu( "papas medianas", 5500 );
+        ArrayList<ProductoMenu> items = new ArrayList<ProductoMenu>( );
+        items.add( corral );
+        items.add( papas );
+        Combo combo = new Combo( "combo corral", 0.1, items );
+
+        ArrayList<Pedido> pedidos = new ArrayList<Pedido>( );
+        for( int i = 0; i < PEDIDOS; i++ )
+        {
+            Pedido pedido = new Pedido( "Cliente ñandú " + i, "Calle " + i );
+            for( int j = 0; j <= i % 4; j++ )
+                pedido.agregarProducto( combo );
+            ProductoAjustado ajustado = new ProductoAjustado( corral );
+            ajustado.agregarIngrediente( new Ingrediente( "queso", 1000 + i ) );
+            pedido.agregarProducto( ajustado );
+            pedidos.add( pedido );
+        }
+        return pedidos;
+    }
+
+    private ExportadorFacturas.Resultado exportar( ExportadorFacturas.Formato formato, File destino, List<Pedido> pedidos, ByteArrayOutputStream progreso )
+            throws Exception
+    {
+        ExportadorFacturas exportador = new ExportadorFacturas( formato, destino, new PrintStream( progreso, true, StandardCharsets.UTF_8 ) );
+        return exportador.exportar( pedidos );
+    }
+
+    @Test
+    void carpeta_escribeUnArchivoPorFactura( ) throws Exception
+    {
+        List<Pedido> pedidos = crearPedidos( );
+        File carpeta = new File( temp, "regeneradas" );
+        ByteArrayOutputStream progreso = new ByteArrayOutputStream( );
+        ExportadorFacturas.Resultado resultado = exportar( ExportadorFacturas.Formato.CARPETA, carpeta, pedidos, progreso );
+
+        assertEquals( PEDIDOS, resultado.getFacturas( ) );
+        assertEquals( PEDIDOS, carpeta.list( ).length );
+        long bytes = 0;
+        for( Pedido pedido : pedidos )
+        {
+            String contenido = Files.readString( new File( carpeta, "factura_" + pedido.getIdPedido( ) + ".txt" ).toPath( ), StandardCharsets.UTF_8 );
+            assertEquals( pedido.generarTextoFactura( ), contenido );
+            bytes += contenido.getBytes( StandardCharsets.UTF_8 ).length;
+        }
+        assertEquals( bytes, resultado.getBytes( ) );
+        assertTrue( progreso.toString( StandardCharsets.UTF_8 ).contains( PEDIDOS + "/" + PEDIDOS + " facturas" ) );
+    }
+
+    @Test
+    void concatenado_dejaLasFacturasEnOrdenConSuEncabezado( ) throws Exception
+    {
+        List<Pedido> pedidos = crearPedidos( );
+        File archivo = new File( temp, "facturas.txt" );
+        exportar( ExportadorFacturas.Formato.CONCATENADO, archivo, pedidos, new ByteArrayOutputStream( ) );
+
+        StringBuilder esperado = new StringBuilder( );
+        for( Pedido pedido : pedidos )
+            esperado.append( "=== Pedido " ).append( pedido.getIdPedido( ) ).append( " ===\n" ).append( pedido.generarTextoFactura( ) );
+        assertEquals( esperado.toString( ), Files.readString( archivo.toPath( ), StandardCharsets.UTF_8 ) );
+    }
+
+    @Test
+    void zip_tieneUnaEntradaPorFactura( ) throws Exception
+    {
+        List<Pedido> pedidos = crearPedidos( );
+        File archivo = new File( temp, "facturas.zip" );
+        exportar( ExportadorFacturas.Formato.ZIP, archivo, pedidos, new ByteArrayOutputStream( ) );
+
+        try( ZipFile zip = new ZipFile( archivo, StandardCharsets.UTF_8 ) )
+        {
+            assertEquals( PEDIDOS, zip.size( ) );
+            for( Pedido pedido : pedidos )
+            {
+                ZipEntry entrada = zip.getEntry( "factura_" + pedido.getIdPedido( ) + ".txt" );
+                assertNotNull( entrada );
+                assertEquals( pedido.generarTextoFactura( ), new String( zip.getInputStream( entrada ).readAllBytes( ), StandardCharsets.UTF_8 ) );
+            }
+        }
+    }
+
+    @Test
+    void sinPedidos_creaUnDestinoVacio( ) throws Exception
+    {
+        File archivo = new File( temp, "vacio.txt" );
+        ExportadorFacturas.Resultado resultado = exportar( ExportadorFacturas.Formato.CONCATENADO, archivo, new ArrayList<Pedido>( ),
+                new ByteArrayOutputStream( ) );
+        assertEquals( 0, resultado.getFacturas( ) );
+        assertEquals( 0, archivo.length( ) );
+    }
+}
@@ -0,0 +1,83 @@
+package uniandes.dpoo.hamburguesas.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+import uniandes.dpoo.hamburguesas.mundo.VistaPedido;
+import uniandes.dpoo.hamburguesas.persistencia.FacturaHistorica;
+
+public class FacturaHistoricaTest
+{
+    @TempDir
+    Path temp;
+
+    @Test
+    void vista_leeClienteYTotalDesdeElTexto( )
+    {
+        String texto = "Cliente: José Pérez\nDirección: Calle 9\n----------------\nPrecio Neto:  17000\nIVA:          3230\nPrecio Total: 20230\n";
+        FacturaHistorica vista = new FacturaHistorica( 12, ByteBuffer.wrap( texto.getBytes( StandardCharsets.UTF_8 ) ) );
+
+        assertEquals( 12, vista.getIdPedido( ) );
+        assertEquals( "José Pérez", vista.getNombreCliente( ) );
+        assertEquals( 20230, vista.getPrecioTotalPedido( ) );
+        assertEquals( texto, vista.generarTextoFactura( ) );
+    }
+
+    private void verificarLiberacion( Restaurante restaurante ) throws Exception
+    {
+        Pedido viejo = restaurante.abrirPedido( "viejo", "Calle 1" );
+        viejo.agregarProducto( new ProductoMenu( "corral", 14000 ) );
+        restaurante.cerrarYGuardarPedido( viejo.getIdPedido( ) );
+        Pedido nuevo = restaurante.abrirPedido( "nuevo", "Calle 2" );
+        restaurante.cerrarYGuardarPedido( nuevo.getIdPedido( ) );
+
+        assertEquals( 1, restaurante.liberarPedidosCerrados( 1 ) );
+        assertEquals( 1, restaurante.getPedidos( ).size( ) );
+        assertSame( nuevo, restaurante.buscarPedidoPorId( nuevo.getIdPedido( ) ) );
+
+        VistaPedido vista = restaurante.buscarPedidoPorId( viejo.getIdPedido( ) );
+        assertTrue( vista instanceof FacturaHistorica, "El pedido liberado se debe leer de su factura" );
+        assertEquals( "viejo", vista.getNombreCliente( ) );
+        assertEquals( viejo.getPrecioTotalPedido( ), vista.getPrecioTotalPedido( ) );
+        assertEquals( viejo.generarTextoFactura( ), vista.generarTextoFactura( ) );
+        assertNull( restaurante.buscarPedidoPorId( nuevo.getIdPedido( ) + 1000 ) );
+    }
+
+    @Test
+    void pedidosLiberados_seLeenDeLaCarpetaDeFacturas( ) throws Exception
+    {
+        Restaurante restaurante = new Restaurante( temp.toFile( ) );
+        verificarLiberacion( restaurante );
+        restaurante.cerrar( );
+    }
+
+    @Test
+    void pedidosLiberados_seLeenDeLaBitacora( ) throws Exception
+    {
+        Restaurante restaurante = new Restaurante( temp.toFile( ) );
+        restaurante.usarBitacoraFacturas( );
+        verificarLiberacion( restaurante );
+        restaurante.cerrar( );
+    }
+
+    @Test
+    void pedidosDeUnaEjecucionAnterior_seEncuentranPorSuFactura( ) throws Exception
+    {
+        Restaurante anterior = new Restaurante( temp.toFile( ) );
+        Pedido pedido = anterior.abrirPedido( "ayer", "Calle 3" );
+        anterior.cerrarYGuardarPedido( pedido.getIdPedido( ) );
+        anterior.cerrar( );
+
+        Restaurante actual = new Restaurante( temp.toFile( ) );
+        assertEquals( "ayer", actual.buscarPedidoPorId( pedido.getIdPedido( ) ).getNombreCliente( ) );
+    }
+}
@@ -0,0 +1,104 @@
+package uniandes.dpoo.hamburguesas.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.hamburguesas.metricas.HistogramaLatencias;
+import uniandes.dpoo.hamburguesas.metricas.Metricas;
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+
+public class HistogramaLatenciasTest
+{
+    @TempDir
+    Path temp;
+
+    @Test
+    void percentiles_tienenUnErrorRelativoMenorAlSeisPorCiento( )
+    {
+        HistogramaLatencias histograma = new HistogramaLatencias( );
+        for( long valor = 1; valor <= 100_000; valor++ )
+            histograma.registrar( valor * 1000 );
+
+        assertEquals( 100_000, histograma.getCantidad( ) );
+        assertEquals( 100_000_000, histograma.getMaximo( ) );
+        assertEquals( 50_000_500.0, histograma.getPromedio( ), 0.001 );
+        for( double percentil : new double[]{ 1, 50, 90, 99, 99.9 } )
+        {
+            double exacto = percentil * 1000 * 1000;
+            long calculado = histograma.getPercentil( percentil );
+            assertTrue( calculado >= exacto && calculado <= exacto * 1.0625, "p" + percentil + " = " + calculado );
+        }
+        assertEquals( 100_000_000, histograma.getPercentil( 100 ) );
+    }
+
+    @Test
+    void valoresPequenos_seCuentanExactos( )
+    {
+        HistogramaLatencias histograma = new HistogramaLatencias( );
+        for( int i = 0; i < 10; i++ )
+            histograma.registrar( i );
+        histograma.registrar( -5 );
+
+        assertEquals( 0, histograma.getPercentil( 10 ) );
+        assertEquals( 4, histograma.getPercentil( 50 ) );
+        assertEquals( 9, histograma.getPercentil( 100 ) );
+
+        histograma.reiniciar( );
+        assertEquals( 0, histograma.getCantidad( ) );
+        assertEquals( 0, histograma.getPercentil( 99 ) );
+    }
+
+    @Test
+    void registrar_desdeVariosHilosNoPierdeValores( ) throws InterruptedException
+    {
+        HistogramaLatencias histograma = new HistogramaLatencias( );
+        Thread[] hilos = new Thread[8];
+        for( int h = 0; h < hilos.length; h++ )
+        {
+            int semilla = h;
+            hilos[ h ] = new Thread( ( ) -> {
+                Random random = new Random( semilla );
+                for( int i = 0; i < 50_000; i++ )
+                    histograma.registrar( random.nextInt( 1_000_000 ) );
+            } );
+            hilos[ h ].start( );
+        }
+        for( Thread hilo : hilos )
+            hilo.join( );
+
+        assertEquals( 8 * 50_000, histograma.getCantidad( ) );
+        assertEquals( histograma.getMaximo( ), histograma.getPercentil( 100 ) );
+    }
+
+    @Test
+    void restaurante_registraLasOperacionesDeLosPedidos( ) throws Exception
+    {
+        Metricas metricas = Metricas.getInstancia( );
+        long iniciados = metricas.getPedidosIniciados( );
+        long agregados = metricas.getProductosAgregados( );
+        long cerrados = metricas.getPedidosCerrados( );
+        long escritas = metricas.getFacturasEscritas( );
+
+        Restaurante restaurante = new Restaurante( temp.toFile( ) );
+        Pedido pedido = restaurante.abrirPedido( "Ana", "Cll 1" );
+        pedido.agregarProducto( new ProductoMenu( "corral", 14000 ) );
+        pedido.agregarProducto( new ProductoMenu( "papas", 5500 ) );
+        restaurante.cerrarYGuardarPedido( pedido.getIdPedido( ) );
+        restaurante.cerrar( );
+
+        // Otras pruebas pueden estar usando las mismas métricas, así que sólo se revisa que aumenten
+        assertTrue( metricas.getPedidosIniciados( ) >= iniciados + 1 );
+        assertTrue( metricas.getProductosAgregados( ) >= agregados + 2 );
+        assertTrue( metricas.getPedidosCerrados( ) >= cerrados + 1 );
+        assertTrue( metricas.getFacturasEscritas( ) >= escritas + 1 );
+        assertTrue( metricas.getLatenciasCerrarPedido( ).getCantidad( ) > 0 );
+        assertTrue( metricas.getResumen( ).contains( "cerrarPedido" ) );
+    }
+}
@@ -0,0 +1,83 @@
+package uniandes.dpoo.hamburguesas.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uniandes.dpoo.hamburguesas.mundo.IndicePedidos;
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+
+public class IndicePedidosTest
+{
+    private IndicePedidos indice;
+
+    @BeforeEach
+    void setUp( ) throws Exception
+    {
+        indice = new IndicePedidos( );
+    }
+
+    private Pedido pedidoConId( int id ) throws Exception
+    {
+        Field f = Pedido.class.getDeclaredField( "numeroPedidos" );
+        f.setAccessible( true );
+        ( ( AtomicInteger )f.get( null ) ).set( id );
+        return new Pedido( "cliente " + id, "dir" );
+    }
+
+    @Test
+    void buscar_encuentraPedidosEnPaginasDistintas( ) throws Exception
+    {
+        Pedido a = pedidoConId( 3 );
+        Pedido b = pedidoConId( 5000 );
+        Pedido c = pedidoConId( 1_000_000 );
+        indice.agregar( a );
+        indice.agregar( b );
+        indice.agregar( c );
+
+        assertSame( a, indice.buscar( 3 ) );
+        assertSame( b, indice.buscar( 5000 ) );
+        assertSame( c, indice.buscar( 1_000_000 ) );
+        assertNull( indice.buscar( 4 ) );
+        assertNull( indice.buscar( 2_000_000 ) );
+        assertNull( indice.buscar( -1 ) );
+        assertEquals( 3, indice.getCantidad( ) );
+    }
+
+    @Test
+    void buscarEnRango_retornaEnOrdenYRespetaLosLimites( ) throws Exception
+    {
+        // Se agregan en desorden, como cuando varios pedidos se cierran al tiempo
+        int[] ids = { 2050, 10, 1023, 1024, 3000, 11 };
+        for( int id : ids )
+            indice.agregar( pedidoConId( id ) );
+
+        ArrayList<Pedido> rango = indice.buscarEnRango( 11, 2050 );
+        assertEquals( 4, rango.size( ) );
+        assertEquals( 11, rango.get( 0 ).getIdPedido( ) );
+        assertEquals( 1023, rango.get( 1 ).getIdPedido( ) );
+        assertEquals( 1024, rango.get( 2 ).getIdPedido( ) );
+        assertEquals( 2050, rango.get( 3 ).getIdPedido( ) );
+
+        assertTrue( indice.buscarEnRango( 4000, Integer.MAX_VALUE ).isEmpty( ) );
+        assertEquals( 6, indice.buscarEnRango( Integer.MIN_VALUE, Integer.MAX_VALUE ).size( ) );
+        assertTrue( indice.buscarEnRango( 20, 10 ).isEmpty( ) );
+    }
+
+    @Test
+    void retirar_sacaElPedidoDelIndice( ) throws Exception
+    {
+        Pedido a = pedidoConId( 42 );
+        indice.agregar( a );
+
+        assertSame( a, indice.retirar( 42 ) );
+        assertNull( indice.buscar( 42 ) );
+        assertNull( indice.retirar( 42 ) );
+        assertEquals( 0, indice.getCantidad( ) );
+    }
+}
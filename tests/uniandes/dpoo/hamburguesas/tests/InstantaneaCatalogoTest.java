@@ -0,0 +1,130 @@
+package uniandes.dpoo.hamburguesas.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.hamburguesas.mundo.Catalogo;
+import uniandes.dpoo.hamburguesas.mundo.Combo;
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+import uniandes.dpoo.hamburguesas.persistencia.InstantaneaCatalogo;
+import uniandes.dpoo.hamburguesas.persistencia.LectorCatalogo;
+
+public class InstantaneaCatalogoTest
+{
+    @TempDir
+    Path temp;
+
+    private File ingredientes;
+
+    private File menu;
+
+    private File combos;
+
+    @BeforeEach
+    void setUp( ) throws IOException
+    {
+        ingredientes = archivo( "ingredientes.txt", "queso;1000\njalapeño;1500\n" );
+        menu = archivo( "menu.txt", "corral;14000\npapas medianas;5500\ngaseosa;5000\n" );
+        combos = archivo( "combos.txt", "combo corral;10%;corral;papas medianas;gaseosa\ncombo doble;7%;corral;corral\n" );
+    }
+
+    private File archivo( String nombre, String contenido ) throws IOException
+    {
+        Path ruta = temp.resolve( nombre );
+        Files.write( ruta, contenido.getBytes( StandardCharsets.UTF_8 ) );
+        return ruta.toFile( );
+    }
+
+    private Catalogo cargarTexto( ) throws Exception
+    {
+        Catalogo catalogo = new Catalogo( );
+        LectorCatalogo.cargarIngredientes( catalogo, ingredientes );
+        LectorCatalogo.cargarMenu( catalogo, menu );
+        LectorCatalogo.cargarCombos( catalogo, combos );
+        return catalogo;
+    }
+
+    @Test
+    void leer_reconstruyeElMismoCatalogo( ) throws Exception
+    {
+        Catalogo original = cargarTexto( );
+        long[] sumas = InstantaneaCatalogo.calcularSumas( ingredientes, menu, combos );
+        File copia = temp.resolve( "copia" ).toFile( );
+        InstantaneaCatalogo.escribir( original, sumas, copia );
+
+        Catalogo leido = InstantaneaCatalogo.leer( copia, sumas );
+        assertNotNull( leido );
+        assertEquals( original.getIngredientes( ).size( ), leido.getIngredientes( ).size( ) );
+        assertEquals( 1500, leido.buscarIngrediente( "jalapeño" ).getCostoAdicional( ) );
+        assertEquals( original.getMenuBase( ).size( ), leido.getMenuBase( ).size( ) );
+        for( Combo combo : original.getMenuCombos( ) )
+        {
+            Combo otro = leido.buscarCombo( combo.getNombre( ) );
+            assertEquals( combo.getPrecio( ), otro.getPrecio( ) );
+            assertEquals( combo.generarTextoFactura( ), otro.generarTextoFactura( ) );
+        }
+
+        // Los productos de los combos son los mismos objetos del menú, no copias
+        Combo doble = leido.buscarCombo( "combo doble" );
+        assertSame( leido.buscarProductoMenu( "corral" ), doble.getItemsCombo( ).get( 0 ) );
+        assertSame( leido.buscarProductoMenu( "corral" ), doble.getItemsCombo( ).get( 1 ) );
+    }
+
+    @Test
+    void leer_ignoraLaCopiaSiCambianLosArchivosOSiEstaDanada( ) throws Exception
+    {
+        long[] sumas = InstantaneaCatalogo.calcularSumas( ingredientes, menu, combos );
+        File copia = temp.resolve( "copia" ).toFile( );
+        InstantaneaCatalogo.escribir( cargarTexto( ), sumas, copia );
+
+        archivo( "menu.txt", "corral;14500\npapas medianas;5500\ngaseosa;5000\n" );
+        assertNull( InstantaneaCatalogo.leer( copia, InstantaneaCatalogo.calcularSumas( ingredientes, menu, combos ) ) );
+
+        try( RandomAccessFile acceso = new RandomAccessFile( copia, "rw" ) )
+        {
+            acceso.seek( acceso.length( ) / 2 );
+            int valor = acceso.read( );
+            acceso.seek( acceso.length( ) / 2 );
+            acceso.write( valor ^ 0xFF );
+        }
+        assertNull( InstantaneaCatalogo.leer( copia, sumas ) );
+
+        assertNull( InstantaneaCatalogo.leer( temp.resolve( "no existe" ).toFile( ), sumas ) );
+    }
+
+    @Test
+    void cargarInformacionRestaurante_usaLaCopiaYVuelveAlTextoSiNoSirve( ) throws Exception
+    {
+        File carpeta = temp.resolve( "facturas" ).toFile( );
+        Restaurante primero = new Restaurante( carpeta );
+        primero.cargarInformacionRestaurante( ingredientes, menu, combos );
+        File copia = new File( carpeta, ".catalogo_instantanea" );
+        assertTrue( copia.isFile( ) );
+
+        Restaurante segundo = new Restaurante( carpeta );
+        segundo.cargarInformacionRestaurante( ingredientes, menu, combos );
+        assertEquals( 2, segundo.getMenuCombos( ).size( ) );
+        assertEquals( primero.buscarCombo( "combo corral" ).getPrecio( ), segundo.buscarCombo( "combo corral" ).getPrecio( ) );
+
+        Files.write( copia.toPath( ), new byte[]{ 1, 2, 3 } );
+        archivo( "menu.txt", "corral;20000\npapas medianas;5500\ngaseosa;5000\n" );
+        Restaurante tercero = new Restaurante( carpeta );
+        tercero.cargarInformacionRestaurante( ingredientes, menu, combos );
+        assertEquals( 20000, tercero.buscarProductoMenu( "corral" ).getPrecio( ) );
+        assertNotNull( InstantaneaCatalogo.leer( copia, InstantaneaCatalogo.calcularSumas( ingredientes, menu, combos ) ) );
+
+        primero.cerrar( );
+        segundo.cerrar( );
+        tercero.cerrar( );
+    }
+}
@@ -0,0 +1,125 @@
+package uniandes.dpoo.hamburguesas.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.hamburguesas.excepciones.IngredienteRepetidoException;
+import uniandes.dpoo.hamburguesas.excepciones.ProductoFaltanteException;
+import uniandes.dpoo.hamburguesas.excepciones.ProductoRepetidoException;
+import uniandes.dpoo.hamburguesas.mundo.Catalogo;
+import uniandes.dpoo.hamburguesas.mundo.Combo;
+import uniandes.dpoo.hamburguesas.persistencia.LectorCatalogo;
+
+public class LectorCatalogoTest
+{
+    @TempDir
+    Path temp;
+
+    private Catalogo catalogo;
+
+    @BeforeEach
+    void setUp( )
+    {
+        catalogo = new Catalogo( );
+    }
+
+    private File archivo( String nombre, byte[] contenido ) throws IOException
+    {
+        Path ruta = temp.resolve( nombre );
+        Files.write( ruta, contenido );
+        return ruta.toFile( );
+    }
+
+    private File archivo( String nombre, String contenido ) throws IOException
+    {
+        return archivo( nombre, contenido.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    @Test
+    void cargar_leeUtf8ConMarcaDeOrdenYFinesDeLineaDeWindows( ) throws Exception
+    {
+        byte[] texto = "jalapeño;1500\r\nlimón;800\r\n".getBytes( StandardCharsets.UTF_8 );
+        byte[] conMarca = new byte[texto.length + 3];
+        conMarca[ 0 ] = ( byte )0xEF;
+        conMarca[ 1 ] = ( byte )0xBB;
+        conMarca[ 2 ] = ( byte )0xBF;
+        System.arraycopy( texto, 0, conMarca, 3, texto.length );
+
+        LectorCatalogo.cargarIngredientes( catalogo, archivo( "ingredientes.txt", conMarca ) );
+        LectorCatalogo.cargarMenu( catalogo, archivo( "menu.txt", "corral;14000\n\npapas medianas;5500\n" ) );
+        LectorCatalogo.cargarCombos( catalogo, archivo( "combos.txt", "combo corral;10%;corral;papas medianas;\n" ) );
+
+        assertEquals( 2, catalogo.getIngredientes( ).size( ) );
+        assertEquals( 1500, catalogo.buscarIngrediente( "jalapeño" ).getCostoAdicional( ) );
+        assertEquals( 800, catalogo.buscarIngrediente( "limón" ).getCostoAdicional( ) );
+        assertEquals( 2, catalogo.getMenuBase( ).size( ) );
+        Combo combo = catalogo.buscarCombo( "combo corral" );
+        assertNotNull( combo );
+        assertEquals( ( int )( ( 14000 + 5500 ) * 0.9 ), combo.getPrecio( ) );
+    }
+
+    @Test
+    void cargar_reportaLaLineaDeLosRepetidosYFaltantes( ) throws Exception
+    {
+        IngredienteRepetidoException repetido = assertThrows( IngredienteRepetidoException.class,
+                ( ) -> LectorCatalogo.cargarIngredientes( catalogo, archivo( "ingredientes.txt", "queso;1000\n\ncebolla;500\nqueso;1200\n" ) ) );
+        assertEquals( 4, repetido.getLinea( ) );
+        assertTrue( repetido.getMessage( ).contains( "línea 4" ) );
+
+        LectorCatalogo.cargarMenu( catalogo, archivo( "menu.txt", "corral;14000\n" ) );
+        ProductoRepetidoException menuRepetido = assertThrows( ProductoRepetidoException.class,
+                ( ) -> LectorCatalogo.cargarMenu( new Catalogo( ), archivo( "menu2.txt", "corral;14000\ncorral;15000\n" ) ) );
+        assertEquals( 2, menuRepetido.getLinea( ) );
+
+        ProductoFaltanteException faltante = assertThrows( ProductoFaltanteException.class,
+                ( ) -> LectorCatalogo.cargarCombos( catalogo, archivo( "combos.txt", "combo 1;10%;corral\ncombo 2;5%;corral;malteada\n" ) ) );
+        assertEquals( 2, faltante.getLinea( ) );
+        assertTrue( faltante.getMessage( ).contains( "malteada" ) );
+    }
+
+    @Test
+    void cargar_reportaLaLineaDeUnNumeroInvalido( ) throws Exception
+    {
+        NumberFormatException e = assertThrows( NumberFormatException.class,
+                ( ) -> LectorCatalogo.cargarMenu( catalogo, archivo( "menu.txt", "corral;14000\npapas;mil\n" ) ) );
+        assertTrue( e.getMessage( ).contains( "Línea 2" ), e.getMessage( ) );
+    }
+
+    @Test
+    void cargar_archivoGrandeSeParteEnTrozosSinPerderElOrdenNiLasLineas( ) throws Exception
+    {
+        // Unas 100.000 líneas ocupan varios trozos, así que se procesan en paralelo
+        int productos = 100_000;
+        StringBuilder menu = new StringBuilder( );
+        for( int i = 0; i < productos; i++ )
+        {
+            menu.append( "producto número " ).append( i ).append( ';' ).append( 1000 + i ).append( '\n' );
+            if( i % 1000 == 0 )
+                menu.append( '\n' );
+        }
+        LectorCatalogo.cargarMenu( catalogo, archivo( "menu.txt", menu.toString( ) ) );
+
+        assertEquals( productos, catalogo.getMenuBase( ).size( ) );
+        for( int i = 0; i < productos; i += 997 )
+        {
+            assertEquals( "producto número " + i, catalogo.getMenuBase( ).get( i ).getNombre( ) );
+            assertEquals( 1000 + i, catalogo.getMenuBase( ).get( i ).getPrecio( ) );
+        }
+
+        // Un repetido al final del archivo debe reportar la línea real, contando las líneas vacías de todos los trozos
+        menu.append( "producto número 5;1\n" );
+        int lineas = productos + productos / 1000 + 1;
+        ProductoRepetidoException e = assertThrows( ProductoRepetidoException.class,
+                ( ) -> LectorCatalogo.cargarMenu( new Catalogo( ), archivo( "menu2.txt", menu.toString( ) ) ) );
+        assertEquals( lineas, e.getLinea( ) );
+    }
+}
@@ -10,13 +10,21 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import uniandes.dpoo.hamburguesas.mundo.Combo;
+import uniandes.dpoo.hamburguesas.mundo.Ingrediente;
 import uniandes.dpoo.hamburguesas.mundo.Pedido;
 import uniandes.dpoo.hamburguesas.mundo.Producto;
+import uniandes.dpoo.hamburguesas.mundo.ProductoAjustado;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
 
 /**
  * Tests unitarios para la clase Pedido.
@@ -51,7 +59,7 @@ public class PedidoTest {
     void resetNumeroPedidos() throws Exception {
         Field f = Pedido.class.getDeclaredField("numeroPedidos");
         f.setAccessible(true);
-        f.setInt(null, 0);
+        ((AtomicInteger) f.get(null)).set(0);
     }
 
     // Helpers
@@ -73,6 +81,30 @@ public class PedidoTest {
         assertEquals("Bob", b.getNombreCliente());
     }
 
+    @Test
+    void ids_noSeRepitenConVariosHilos() throws Exception {
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        Thread[] hilos = new Thread[8];
+        for (int h = 0; h < hilos.length; h++) {
+            hilos[h] = new Thread(() -> {
+                for (int i = 0; i < 5000; i++) ids.add(new Pedido("c", "d").getIdPedido());
+            });
+            hilos[h].start();
+        }
+        for (Thread hilo : hilos) hilo.join();
+
+        assertEquals(40000, ids.size(), "Cada pedido debe recibir un identificador distinto");
+        assertEquals(40000, new Pedido("c", "d").getIdPedido());
+    }
+
+    @Test
+    void continuarNumeracion_nuncaRetrocede() {
+        Pedido.continuarNumeracionDesde(50);
+        assertEquals(50, new Pedido("a", "b").getIdPedido());
+        Pedido.continuarNumeracionDesde(10);
+        assertEquals(51, new Pedido("a", "b").getIdPedido());
+    }
+
     @Test
     void pedidoVacio_tieneTotalesEnCero_ygeneraFacturasincosas() {
         Pedido p = new Pedido("Cliente", "Dir");
@@ -151,4 +183,155 @@ public class PedidoTest {
         String contenido = Files.readString(out.toPath(), StandardCharsets.UTF_8);
         assertEquals(esperado, contenido);
     }
+
+    @Test
+    void totalesIncrementales_coincidenConRecorrerLosProductos() {
+        Random random = new Random(19);
+        for (int caso = 0; caso < 300; caso++) {
+            Pedido ped = new Pedido("Cliente", "Dir");
+            ArrayList<Producto> agregados = new ArrayList<>();
+            int cantidad = random.nextInt(30);
+            for (int i = 0; i < cantidad; i++) {
+                Producto prod = p("prod" + i, random.nextInt(60000));
+                ped.agregarProducto(prod);
+                agregados.add(prod);
+
+                int neto = 0;
+                for (Producto item : agregados) neto += item.getPrecio();
+                int iva = (int) (neto * 0.19);
+                assertEquals(neto + iva, ped.getPrecioTotalPedido(), "Caso " + caso);
+            }
+
+            int neto = 0;
+            for (Producto item : agregados) neto += item.getPrecio();
+            String factura = ped.generarTextoFactura();
+            assertTrue(factura.endsWith("Precio Neto:  " + neto + "\n" + "IVA:          " + (int) (neto * 0.19) + "\n" + "Precio Total: "
+                    + (neto + (int) (neto * 0.19)) + "\n"), "Caso " + caso);
+        }
+    }
+
+    @Test
+    void escribirFactura_agregaAlBufferElMismoTextoDeLaFactura() {
+        ProductoMenu corral = new ProductoMenu("corral", 14000);
+        ProductoMenu papas = new ProductoMenu("papas medianas", 5500);
+        ArrayList<ProductoMenu> items = new ArrayList<>();
+        items.add(corral);
+        items.add(papas);
+        ProductoAjustado ajustado = new ProductoAjustado(corral);
+        ajustado.agregarIngrediente(new Ingrediente("queso", 2500));
+        ajustado.eliminarIngrediente(new Ingrediente("cebolla", 1000));
+
+        Pedido ped = new Pedido("Ana", "Cll 5 #6-7");
+        ped.agregarProducto(new Combo("combo corral", 0.1, items));
+        ped.agregarProducto(ajustado);
+        ped.agregarProducto(papas);
+        ped.agregarProducto(p("Gaseosa", 3000));
+
+        String esperado =
+            "Cliente: Ana\n" +
+            "Dirección: Cll 5 #6-7\n" +
+            "----------------\n" +
+            "Combo combo corral\n" +
+            " Descuento: 0.1\n" +
+            "            17550\n" +
+            "corral\n" +
+            "            14000\n" +
+            "    +queso\n" +
+            "                2500\n" +
+            "    -cebolla\n" +
+            "            16500\n" +
+            "papas medianas\n" +
+            "            5500\n" +
+            "Gaseosa .... 3000\n" +
+            "----------------\n" +
+            "Precio Neto:  42550\n" +
+            "IVA:          8084\n" +
+            "Precio Total: 50634\n";
+
+        StringBuilder buffer = new StringBuilder("previo|");
+        ped.escribirFactura(buffer);
+        assertEquals("previo|" + esperado, buffer.toString());
+        assertEquals(esperado, ped.generarTextoFactura());
+        // El buffer reutilizado de generarTextoFactura no debe arrastrar la factura anterior
+        assertEquals(esperado, ped.generarTextoFactura());
+    }
+
+    @Test
+    void productosRepetidos_seAgrupanEnUnaLineaConSuCantidad() {
+        ProductoMenu corral = new ProductoMenu("corral", 14000);
+        ProductoMenu papas = new ProductoMenu("papas medianas", 5500);
+        ArrayList<ProductoMenu> items = new ArrayList<>();
+        items.add(corral);
+        items.add(papas);
+        Combo combo = new Combo("combo corral", 0.1, items);
+        Ingrediente queso = new Ingrediente("queso", 2500);
+
+        Pedido ped = new Pedido("Oficina", "Cll 26 #10-20");
+        for (int i = 0; i < 40; i++) {
+            ped.agregarProducto(combo);
+        }
+        for (int i = 0; i < 3; i++) {
+            ProductoAjustado ajustado = new ProductoAjustado(corral);
+            ajustado.agregarIngrediente(queso);
+            ped.agregarProducto(ajustado);
+        }
+        ped.agregarProducto(papas);
+
+        // Neto = 40 * 17550 + 3 * 16500 + 5500 = 757000; IVA = 143830
+        String esperado =
+            "Cliente: Oficina\n" +
+            "Dirección: Cll 26 #10-20\n" +
+            "----------------\n" +
+            "Combo combo corral\n" +
+            " Descuento: 0.1\n" +
+            "            17550\n" +
+            "    x 40\n" +
+            "            702000\n" +
+            "corral\n" +
+            "            14000\n" +
+            "    +queso\n" +
+            "                2500\n" +
+            "            16500\n" +
+            "    x 3\n" +
+            "            49500\n" +
+            "papas medianas\n" +
+            "            5500\n" +
+            "----------------\n" +
+            "Precio Neto:  757000\n" +
+            "IVA:          143830\n" +
+            "Precio Total: 900830\n";
+        assertEquals(esperado, ped.generarTextoFactura());
+        assertEquals(900830, ped.getPrecioTotalPedido());
+    }
+
+    @Test
+    void muchosProductosDistintos_seAgrupanIgualQueUnosPocos() {
+        Random random = new Random(21);
+        ProductoMenu[] menu = new ProductoMenu[30];
+        for (int i = 0; i < menu.length; i++) {
+            menu[i] = new ProductoMenu("prod" + i, 1000 + i);
+        }
+
+        Pedido ped = new Pedido("Cliente", "Dir");
+        int[] cantidades = new int[menu.length];
+        int neto = 0;
+        for (int i = 0; i < 500; i++) {
+            int elegido = random.nextInt(menu.length);
+            ped.agregarProducto(menu[elegido]);
+            cantidades[elegido]++;
+            neto += menu[elegido].getPrecio();
+        }
+
+        String factura = ped.generarTextoFactura();
+        for (int i = 0; i < menu.length; i++) {
+            String bloque = "prod" + i + "\n            " + (1000 + i) + "\n";
+            int primera = factura.indexOf(bloque);
+            assertTrue(primera >= 0, "Falta prod" + i);
+            assertEquals(primera, factura.lastIndexOf(bloque), "prod" + i + " aparece en dos líneas");
+            if (cantidades[i] > 1) {
+                assertTrue(factura.startsWith("    x " + cantidades[i] + "\n            " + cantidades[i] * (1000 + i) + "\n", primera + bloque.length()));
+            }
+        }
+        assertEquals(neto + (int) (neto * 0.19), ped.getPrecioTotalPedido());
+    }
 }
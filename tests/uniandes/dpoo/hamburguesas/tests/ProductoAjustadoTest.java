@@ -2,31 +2,25 @@ package uniandes.dpoo.hamburguesas.tests;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-import java.lang.reflect.Field;
-import java.util.ArrayList;
+import java.util.Random;
 
 import org.junit.jupiter.api.Test;
 
 import uniandes.dpoo.hamburguesas.mundo.Ingrediente;
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
 import uniandes.dpoo.hamburguesas.mundo.ProductoAjustado;
 import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
 
 public class ProductoAjustadoTest {
 
-    // --- helpers para meter ingredientes en las listas privadas ---
-    @SuppressWarnings("unchecked")
-    private ArrayList<Ingrediente> refLista(Object obj, String campo) throws Exception {
-        Field f = obj.getClass().getDeclaredField(campo);
-        f.setAccessible(true);
-        return (ArrayList<Ingrediente>) f.get(obj);
-    }
-
+    // --- helpers para registrar ingredientes ---
+    // El precio se actualiza al registrar cada ingrediente, así que hay que usar los métodos públicos
     private void addAgregado(ProductoAjustado pa, Ingrediente ing) throws Exception {
-        refLista(pa, "agregados").add(ing);
+        pa.agregarIngrediente(ing);
     }
 
     private void addEliminado(ProductoAjustado pa, Ingrediente ing) throws Exception {
-        refLista(pa, "eliminados").add(ing);
+        pa.eliminarIngrediente(ing);
     }
 
     //  TESTSSSSs !!
@@ -109,4 +103,88 @@ public class ProductoAjustadoTest {
         assertTrue(factura.contains("-Cebolla"), "Debe listar eliminados con '-'");
         assertTrue(factura.contains("9700"), "Debe incluir el total correcto");
     }
+
+    @Test
+    void precioIncremental_coincideConLaSumaCompleta() throws Exception {
+        Random random = new Random(8);
+        for (int caso = 0; caso < 500; caso++) {
+            ProductoMenu base = new ProductoMenu("base", random.nextInt(50000));
+            ProductoAjustado pa = new ProductoAjustado(base);
+            int esperado = base.getPrecio();
+            int cambios = random.nextInt(12);
+            for (int i = 0; i < cambios; i++) {
+                Ingrediente ing = new Ingrediente("ing" + i, random.nextInt(5000));
+                if (random.nextBoolean()) {
+                    addAgregado(pa, ing);
+                    esperado += ing.getCostoAdicional();
+                } else {
+                    addEliminado(pa, ing);
+                }
+                assertEquals(esperado, pa.getPrecio(), "Caso " + caso);
+            }
+        }
+    }
+
+    @Test
+    void muchosCambios_seListanEnLaFacturaEnElOrdenEnQueSeHicieron() throws Exception {
+        ProductoAjustado pa = new ProductoAjustado(new ProductoMenu("Hamburguesa", 8000));
+        StringBuilder esperado = new StringBuilder("Hamburguesa\n            8000\n");
+        for (int i = 0; i < 5; i++) {
+            addAgregado(pa, new Ingrediente("extra" + i, 100 * (i + 1)));
+            esperado.append("    +extra").append(i).append('\n');
+            esperado.append("                ").append(100 * (i + 1)).append('\n');
+        }
+        for (int i = 0; i < 5; i++) {
+            addEliminado(pa, new Ingrediente("quitar" + i, 0));
+            esperado.append("    -quitar").append(i).append('\n');
+        }
+        esperado.append("            9500\n");
+
+        assertEquals(esperado.toString(), pa.generarTextoFactura());
+    }
+
+    @Test
+    void ajustadosConLosMismosCambios_sonIguales() {
+        ProductoMenu base = new ProductoMenu("corral", 14000);
+        Ingrediente queso = new Ingrediente("queso", 1000);
+        Ingrediente cebolla = new Ingrediente("cebolla", 500);
+
+        ProductoAjustado a = new ProductoAjustado(base);
+        a.agregarIngrediente(queso);
+        a.eliminarIngrediente(cebolla);
+        ProductoAjustado b = new ProductoAjustado(base);
+        b.agregarIngrediente(queso);
+        b.eliminarIngrediente(cebolla);
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertEquals(new ProductoAjustado(base), new ProductoAjustado(base));
+
+        ProductoAjustado sinEliminar = new ProductoAjustado(base);
+        sinEliminar.agregarIngrediente(queso);
+        assertNotEquals(a, sinEliminar);
+        ProductoAjustado alReves = new ProductoAjustado(base);
+        alReves.agregarIngrediente(cebolla);
+        alReves.eliminarIngrediente(queso);
+        assertNotEquals(a, alReves);
+        assertNotEquals(new ProductoAjustado(base), new ProductoAjustado(new ProductoMenu("corral", 14000)));
+        assertNotEquals(new ProductoAjustado(base), base);
+    }
+
+    @Test
+    void agregadoAUnPedido_yaNoSePuedeAjustar_yElPedidoConservaSuPrecio() {
+        ProductoMenu base = new ProductoMenu("corral", 14000);
+        Ingrediente queso = new Ingrediente("queso", 1000);
+        ProductoAjustado ajustado = new ProductoAjustado(base);
+        ajustado.agregarIngrediente(queso);
+
+        Pedido ped = new Pedido("Ana", "Cll 5 #6-7");
+        ped.agregarProducto(ajustado);
+        ped.agregarProducto(ajustado);
+
+        assertThrows(IllegalStateException.class, () -> ajustado.agregarIngrediente(queso));
+        assertThrows(IllegalStateException.class, () -> ajustado.eliminarIngrediente(queso));
+        assertEquals(15000, ajustado.getPrecio());
+        assertEquals(30000 + 5700, ped.getPrecioTotalPedido());
+        assertTrue(ped.generarTextoFactura().contains("    x 2\n            30000\n"));
+    }
 }
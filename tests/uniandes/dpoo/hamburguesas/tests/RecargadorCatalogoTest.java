@@ -0,0 +1,149 @@
+package uniandes.dpoo.hamburguesas.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.hamburguesas.mundo.Catalogo;
+import uniandes.dpoo.hamburguesas.mundo.Ingrediente;
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+import uniandes.dpoo.hamburguesas.persistencia.RecargadorCatalogo;
+
+public class RecargadorCatalogoTest
+{
+    @TempDir
+    Path temp;
+
+    private File ingredientes;
+
+    private File menu;
+
+    private File combos;
+
+    private Restaurante restaurante;
+
+    private RecargadorCatalogo recargador;
+
+    @BeforeEach
+    void setUp( ) throws Exception
+    {
+        Path datos = Files.createDirectory( temp.resolve( "data" ) );
+        ingredientes = escribir( datos.resolve( "ingredientes.txt" ), "queso;1000\n" );
+        menu = escribir( datos.resolve( "menu.txt" ), "corral;14000\npapas medianas;5500\n" );
+        combos = escribir( datos.resolve( "combos.txt" ), "combo corral;10%;corral;papas medianas\n" );
+        restaurante = new Restaurante( temp.resolve( "facturas" ).toFile( ) );
+        restaurante.cargarInformacionRestaurante( ingredientes, menu, combos );
+        recargador = new RecargadorCatalogo( restaurante, ingredientes, menu, combos );
+    }
+
+    @AfterEach
+    void tearDown( ) throws IOException
+    {
+        recargador.cerrar( );
+        restaurante.cerrar( );
+    }
+
+    private static File escribir( Path ruta, String contenido ) throws IOException
+    {
+        Files.write( ruta, contenido.getBytes( StandardCharsets.UTF_8 ) );
+        return ruta.toFile( );
+    }
+
+    private void esperarVersion( long version ) throws InterruptedException
+    {
+        long limite = System.currentTimeMillis( ) + 20_000;
+        while( restaurante.getVersionCatalogo( ) < version && System.currentTimeMillis( ) < limite )
+            Thread.sleep( 20 );
+        assertTrue( restaurante.getVersionCatalogo( ) >= version, "El catálogo no se recargó a tiempo" );
+    }
+
+    @Test
+    void cambioEnElMenu_publicaUnCatalogoNuevoSinAfectarLosPedidosAbiertos( ) throws Exception
+    {
+        ProductoMenu corralViejo = restaurante.buscarProductoMenu( "corral" );
+        Pedido pedido = restaurante.abrirPedido( "Ana", "Cll 1" );
+        pedido.agregarProducto( corralViejo );
+        long version = restaurante.getVersionCatalogo( );
+
+        recargador.iniciar( null );
+        escribir( menu.toPath( ), "corral;15000\npapas medianas;5500\n" );
+        esperarVersion( version + 1 );
+
+        assertEquals( 15000, restaurante.buscarProductoMenu( "corral" ).getPrecio( ) );
+        assertEquals( 15000 + 5500 - ( 15000 + 5500 ) / 10, restaurante.buscarCombo( "combo corral" ).getPrecio( ) );
+        assertEquals( 14000, corralViejo.getPrecio( ) );
+        assertEquals( 14000 + ( int )( 14000 * 0.19 ), pedido.getPrecioTotalPedido( ) );
+        assertEquals( 1, recargador.getRecargas( ) );
+        assertTrue( recargador.getUltimaLatenciaNanos( ) >= recargador.getUltimaDuracionNanos( ) );
+        assertTrue( recargador.getUltimaDuracionNanos( ) > 0 );
+    }
+
+    @Test
+    void archivoConErrores_mantieneElCatalogoAnterior( ) throws Exception
+    {
+        long version = restaurante.getVersionCatalogo( );
+        Catalogo anterior = restaurante.getCatalogo( );
+        escribir( combos.toPath( ), "combo corral;10%;corral;malteada\n" );
+
+        assertFalse( recargador.recargar( ) );
+        assertEquals( 1, recargador.getFallas( ) );
+        assertTrue( recargador.getUltimoError( ).contains( "malteada" ) );
+        assertSame( anterior, restaurante.getCatalogo( ) );
+        assertEquals( version, restaurante.getVersionCatalogo( ) );
+
+        escribir( combos.toPath( ), "combo corral;20%;corral\n" );
+        assertTrue( recargador.recargar( ) );
+        assertNull( recargador.getUltimoError( ) );
+        assertEquals( version + 1, restaurante.getVersionCatalogo( ) );
+    }
+
+    @Test
+    void catalogoPublicado_noSePuedeModificar( )
+    {
+        Catalogo catalogo = restaurante.getCatalogo( );
+        assertThrows( IllegalStateException.class, ( ) -> catalogo.agregarIngrediente( new Ingrediente( "tomate", 500 ) ) );
+        assertThrows( UnsupportedOperationException.class, ( ) -> catalogo.getMenuBase( ).clear( ) );
+    }
+
+    @Test
+    void lectores_siempreVenUnCatalogoCompletoMientrasSeRecarga( ) throws Exception
+    {
+        AtomicBoolean terminar = new AtomicBoolean( );
+        AtomicReference<String> problema = new AtomicReference<>( );
+        Thread lector = new Thread( ( ) -> {
+            while( !terminar.get( ) )
+            {
+                Catalogo catalogo = restaurante.getCatalogo( );
+                List<ProductoMenu> productos = catalogo.getMenuBase( );
+                if( productos.size( ) != 2 || catalogo.buscarCombo( "combo corral" ) == null || catalogo.buscarIngrediente( "queso" ) == null )
+                    problema.set( "Catálogo incompleto en la versión " + catalogo.getVersion( ) );
+            }
+        } );
+        lector.start( );
+
+        for( int i = 0; i < 50; i++ )
+        {
+            escribir( menu.toPath( ), "corral;" + ( 14000 + i ) + "\npapas medianas;5500\n" );
+            assertTrue( recargador.recargar( ) );
+        }
+        terminar.set( true );
+        lector.join( );
+
+        assertNull( problema.get( ) );
+        assertEquals( 14049, restaurante.buscarProductoMenu( "corral" ).getPrecio( ) );
+    }
+}
@@ -0,0 +1,115 @@
+package uniandes.dpoo.hamburguesas.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.hamburguesas.excepciones.NoHayPedidoEnCursoException;
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+import uniandes.dpoo.hamburguesas.mundo.RegistroPedidos;
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+
+public class RegistroPedidosTest
+{
+    private static final int SESIONES = 4000;
+
+    private static final int HILOS = 16;
+
+    @TempDir
+    Path temp;
+
+    private Restaurante restaurante;
+
+    @BeforeEach
+    void setUp( )
+    {
+        restaurante = new Restaurante( temp.toFile( ) );
+    }
+
+    @Test
+    void registrar_buscar_y_retirar( )
+    {
+        RegistroPedidos registro = new RegistroPedidos( );
+        Pedido pedido = new Pedido( "Ana", "Calle 1" );
+        registro.registrar( pedido );
+
+        assertSame( pedido, registro.buscar( pedido.getIdPedido( ) ) );
+        assertEquals( 1, registro.getCantidadAbiertos( ) );
+        assertSame( pedido, registro.retirar( pedido.getIdPedido( ) ) );
+        assertNull( registro.retirar( pedido.getIdPedido( ) ), "Un pedido sólo se puede retirar una vez" );
+        assertEquals( 0, registro.getCantidadAbiertos( ) );
+    }
+
+    @Test
+    void variosPedidosAbiertos_noAfectanElPedidoEnCurso( ) throws Exception
+    {
+        restaurante.iniciarPedido( "en curso", "Calle 2" );
+        Pedido a = restaurante.abrirPedido( "domicilio", "Calle 3" );
+        Pedido b = restaurante.abrirPedido( "caja 2", "Calle 4" );
+
+        assertEquals( 3, restaurante.getPedidosAbiertos( ).size( ) );
+        assertSame( b, restaurante.getPedidoAbierto( b.getIdPedido( ) ) );
+
+        restaurante.cerrarYGuardarPedido( a.getIdPedido( ) );
+        assertNull( restaurante.getPedidoAbierto( a.getIdPedido( ) ) );
+        assertEquals( "en curso", restaurante.getPedidoEnCurso( ).getNombreCliente( ) );
+        restaurante.vaciarFacturas( );
+        assertTrue( new File( temp.toFile( ), "factura_" + a.getIdPedido( ) + ".txt" ).exists( ) );
+        assertThrows( NoHayPedidoEnCursoException.class, ( ) -> restaurante.cerrarYGuardarPedido( a.getIdPedido( ) ) );
+    }
+
+    @Test
+    void milesDeSesionesConcurrentes_cierranTodosLosPedidos( ) throws Exception
+    {
+        ProductoMenu corral = new ProductoMenu( "corral", 14000 );
+        ProductoMenu papas = new ProductoMenu( "papas medianas", 5500 );
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool( HILOS );
+        List<Callable<Integer>> sesiones = new ArrayList<>( );
+        for( int i = 0; i < SESIONES; i++ )
+        {
+            String cliente = "cliente " + i;
+            sesiones.add( ( ) -> {
+                Pedido pedido = restaurante.abrirPedido( cliente, "Calle " + cliente );
+                pedido.agregarProducto( corral );
+                pedido.agregarProducto( papas );
+                restaurante.cerrarYGuardarPedido( pedido.getIdPedido( ) );
+                return pedido.getIdPedido( );
+            } );
+        }
+
+        List<Future<Integer>> resultados = ejecutor.invokeAll( sesiones );
+        ejecutor.shutdown( );
+        assertTrue( ejecutor.awaitTermination( 1, TimeUnit.MINUTES ) );
+
+        Set<Integer> ids = new HashSet<>( );
+        for( Future<Integer> resultado : resultados )
+        {
+            ids.add( resultado.get( ) );
+        }
+        assertEquals( SESIONES, ids.size( ), "Cada sesión debe tener un pedido con identificador propio" );
+        assertEquals( SESIONES, restaurante.getPedidos( ).size( ) );
+        assertEquals( 0, restaurante.getPedidosAbiertos( ).size( ) );
+        for( int id : ids )
+        {
+            assertNotNull( restaurante.buscarPedidoPorId( id ) );
+        }
+        restaurante.vaciarFacturas( );
+        assertEquals( SESIONES, temp.toFile( ).list( ( carpeta, nombre ) -> nombre.startsWith( "factura_" ) ).length );
+    }
+}
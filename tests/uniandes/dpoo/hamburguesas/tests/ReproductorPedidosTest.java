@@ -0,0 +1,115 @@
+package uniandes.dpoo.hamburguesas.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.hamburguesas.consola.ReproductorPedidos;
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+
+public class ReproductorPedidosTest
+{
+    @TempDir
+    Path temp;
+
+    private Restaurante restaurante;
+
+    private ByteArrayOutputStream errores;
+
+    private ReproductorPedidos reproductor;
+
+    @BeforeEach
+    void setUp( ) throws Exception
+    {
+        restaurante = new Restaurante( temp.resolve( "facturas" ).toFile( ) );
+        restaurante.cargarInformacionRestaurante( archivo( "ingredientes.txt", "queso;1000\ncebolla;500\n" ),
+                archivo( "menu.txt", "corral;14000\npapas medianas;5500\n" ), archivo( "combos.txt", "combo corral;10%;corral;papas medianas\n" ) );
+        errores = new ByteArrayOutputStream( );
+        reproductor = new ReproductorPedidos( restaurante, new PrintStream( errores, true, StandardCharsets.UTF_8 ) );
+    }
+
+    @AfterEach
+    void tearDown( ) throws IOException
+    {
+        restaurante.cerrar( );
+    }
+
+    private File archivo( String nombre, String contenido ) throws IOException
+    {
+        Path ruta = temp.resolve( nombre );
+        Files.write( ruta, contenido.getBytes( StandardCharsets.UTF_8 ) );
+        return ruta.toFile( );
+    }
+
+    private ReproductorPedidos.Resultado reproducir( String guion ) throws IOException
+    {
+        return reproductor.reproducir( new BufferedReader( new StringReader( guion ) ) );
+    }
+
+    @Test
+    void pedidosIntercalados_quedanCerradosConSusFacturas( ) throws Exception
+    {
+        ReproductorPedidos.Resultado resultado = reproducir( "# dos pedidos a la vez\n" + "abrir;a;Ana;Cll 1\n" + "abrir;b;Beto;Cra 2\n"
+                + "producto;a;corral;+queso;-cebolla\n" + "combo;b;combo corral\n" + "cerrar;b\n" + "\n" + "producto;a;papas medianas\n" + "cerrar;a\n" );
+
+        assertEquals( 9, resultado.getLineas( ) );
+        assertEquals( 2, resultado.getPedidosCerrados( ) );
+        assertEquals( 0, resultado.getErrores( ), errores.toString( StandardCharsets.UTF_8 ) );
+        assertEquals( 2, resultado.getLatenciasCierre( ).getCantidad( ) );
+        assertTrue( resultado.getPedidosPorSegundo( ) > 0 );
+
+        assertEquals( 2, restaurante.getPedidos( ).size( ) );
+        Pedido b = restaurante.getPedidos( ).get( 0 );
+        Pedido a = restaurante.getPedidos( ).get( 1 );
+        assertEquals( "Beto", b.getNombreCliente( ) );
+        assertEquals( 17550 + ( int )( 17550 * 0.19 ), b.getPrecioTotalPedido( ) );
+        assertEquals( 20500 + ( int )( 20500 * 0.19 ), a.getPrecioTotalPedido( ) );
+        String factura = restaurante.leerFactura( a.getIdPedido( ) );
+        assertTrue( factura.contains( "+queso" ) );
+        assertTrue( factura.contains( "-cebolla" ) );
+    }
+
+    @Test
+    void lineasConErrores_seReportanYElGuionSigue( ) throws Exception
+    {
+        ReproductorPedidos.Resultado resultado = reproducir( "abrir;a;Ana;Cll 1\n" + "producto;a;malteada\n" + "producto;a;corral;+piña\n"
+                + "producto;z;corral\n" + "pagar;a\n" + "abrir;a;Otra;Cll 2\n" + "producto;a;corral\n" + "cerrar;a\n" + "abrir;c;Carlos;Cll 3\n" );
+
+        assertEquals( 1, resultado.getPedidosCerrados( ) );
+        assertEquals( 5, resultado.getErrores( ) );
+        String reporte = errores.toString( StandardCharsets.UTF_8 );
+        assertTrue( reporte.contains( "Línea 2: " ) && reporte.contains( "malteada" ), reporte );
+        assertTrue( reporte.contains( "Línea 6: " ) && reporte.contains( "ya está abierto" ), reporte );
+        assertTrue( reporte.contains( "El pedido c quedó abierto" ), reporte );
+        assertEquals( "Ana", restaurante.getPedidos( ).get( 0 ).getNombreCliente( ) );
+    }
+
+    @Test
+    void facturaQueNoSePuedeGuardar_cuentaComoErrorYElGuionSigue( ) throws Exception
+    {
+        // Con el escritor de facturas cerrado, cada cierre falla con una IOException
+        restaurante.cerrar( );
+        ReproductorPedidos.Resultado resultado = reproducir( "abrir;a;Ana;Cll 1\n" + "producto;a;corral\n" + "cerrar;a\n" + "abrir;b;Beto;Cll 2\n" );
+
+        assertEquals( 4, resultado.getLineas( ) );
+        assertEquals( 0, resultado.getPedidosCerrados( ) );
+        assertEquals( 1, resultado.getErrores( ) );
+        String reporte = errores.toString( StandardCharsets.UTF_8 );
+        assertTrue( reporte.contains( "Línea 3: " ), reporte );
+        assertTrue( reporte.contains( "El pedido a quedó abierto" ) && reporte.contains( "El pedido b quedó abierto" ), reporte );
+    }
+}
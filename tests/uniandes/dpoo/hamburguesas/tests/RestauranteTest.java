@@ -4,9 +4,11 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,6 +20,8 @@ import uniandes.dpoo.hamburguesas.mundo.Pedido;
 import uniandes.dpoo.hamburguesas.mundo.Producto;
 
 import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+import uniandes.dpoo.hamburguesas.persistencia.ArchivoFacturas;
+import uniandes.dpoo.hamburguesas.persistencia.BitacoraFacturas;
 
 public class RestauranteTest {
 
@@ -208,4 +212,49 @@ public class RestauranteTest {
                 "Si no guarda en lista, debe haberse generado una factura en ./facturas");
         }
     }
+
+    @Test
+    void numeracion_continuaDespuesDeReiniciar(@TempDir Path temp) throws Exception {
+        Restaurante antes = new Restaurante(temp.toFile());
+        antes.recuperarNumeracionPedidos();
+        Pedido cerrado = antes.abrirPedido("lola", "Calle 1");
+        antes.cerrarYGuardarPedido(cerrado.getIdPedido());
+        antes.cerrar();
+
+        // Simula un reinicio de la aplicación: el contador estático vuelve a cero
+        Field f = Pedido.class.getDeclaredField("numeroPedidos");
+        f.setAccessible(true);
+        ((AtomicInteger) f.get(null)).set(0);
+
+        Restaurante despues = new Restaurante(temp.toFile());
+        despues.recuperarNumeracionPedidos();
+        Pedido nuevo = despues.abrirPedido("pepe", "Calle 2");
+
+        assertTrue(nuevo.getIdPedido() > cerrado.getIdPedido(), "No se debe reutilizar el identificador de una factura existente");
+        assertTrue(temp.resolve("factura_" + cerrado.getIdPedido() + ".txt").toFile().exists());
+    }
+
+    @Test
+    void numeracion_sinMarca_continuaDespuesDeLasFacturasExistentes(@TempDir Path temp) throws Exception {
+        Files.writeString(temp.resolve("factura_0.txt"), "vieja");
+        Files.writeString(temp.resolve("factura_41.txt"), "vieja");
+        Files.writeString(temp.resolve("factura_borrador.txt"), "no es una factura");
+        byte[] texto = "archivada".getBytes(StandardCharsets.UTF_8);
+        ArchivoFacturas.escribir(temp.resolve("archivo_2024-01-01.fac").toFile(), new int[] { 50, 57 }, new byte[][] { texto, texto });
+
+        Field f = Pedido.class.getDeclaredField("numeroPedidos");
+        f.setAccessible(true);
+        ((AtomicInteger) f.get(null)).set(0);
+        Restaurante conArchivos = new Restaurante(temp.toFile());
+        conArchivos.recuperarNumeracionPedidos();
+        assertEquals(58, conArchivos.abrirPedido("pepe", "Calle 2").getIdPedido(), "No se deben sobrescribir las facturas existentes");
+
+        BitacoraFacturas bitacora = new BitacoraFacturas(temp.resolve("segmentos").toFile());
+        bitacora.guardar(90, "en la bitácora");
+        bitacora.cerrar();
+        ((AtomicInteger) f.get(null)).set(0);
+        Restaurante conBitacora = new Restaurante(temp.toFile());
+        conBitacora.recuperarNumeracionPedidos();
+        assertEquals(91, conBitacora.abrirPedido("lola", "Calle 1").getIdPedido());
+    }
 }
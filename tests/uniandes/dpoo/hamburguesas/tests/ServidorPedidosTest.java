@@ -0,0 +1,159 @@
+package uniandes.dpoo.hamburguesas.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+import uniandes.dpoo.hamburguesas.servidor.ServidorPedidos;
+
+public class ServidorPedidosTest
+{
+    @TempDir
+    Path temp;
+
+    private Restaurante restaurante;
+
+    private ServidorPedidos servidor;
+
+    private HttpClient cliente;
+
+    @BeforeEach
+    void setUp( ) throws Exception
+    {
+        restaurante = new Restaurante( temp.resolve( "facturas" ).toFile( ) );
+        restaurante.cargarInformacionRestaurante( archivo( "ingredientes.txt", "queso;1000\ncebolla;500\n" ),
+                archivo( "menu.txt", "corral;14000\npapas medianas;5500\n" ), archivo( "combos.txt", "combo corral;10%;corral;papas medianas\n" ) );
+        servidor = new ServidorPedidos( restaurante, 0 );
+        servidor.iniciar( );
+        cliente = HttpClient.newHttpClient( );
+    }
+
+    @AfterEach
+    void tearDown( ) throws IOException
+    {
+        servidor.detener( );
+        restaurante.cerrar( );
+    }
+
+    private File archivo( String nombre, String contenido ) throws IOException
+    {
+        Path ruta = temp.resolve( nombre );
+        Files.write( ruta, contenido.getBytes( StandardCharsets.UTF_8 ) );
+        return ruta.toFile( );
+    }
+
+    private HttpResponse<String> get( String ruta ) throws Exception
+    {
+        HttpRequest peticion = HttpRequest.newBuilder( URI.create( "http://localhost:" + servidor.getPuerto( ) + ruta ) ).GET( ).build( );
+        return cliente.send( peticion, HttpResponse.BodyHandlers.ofString( ) );
+    }
+
+    private HttpResponse<String> post( String ruta, String... campos ) throws Exception
+    {
+        StringBuilder cuerpo = new StringBuilder( );
+        for( int i = 0; i < campos.length; i += 2 )
+        {
+            if( i > 0 )
+                cuerpo.append( '&' );
+            cuerpo.append( campos[ i ] ).append( '=' ).append( URLEncoder.encode( campos[ i + 1 ], StandardCharsets.UTF_8 ) );
+        }
+        HttpRequest peticion = HttpRequest.newBuilder( URI.create( "http://localhost:" + servidor.getPuerto( ) + ruta ) )
+                .header( "Content-Type", "application/x-www-form-urlencoded" ).POST( HttpRequest.BodyPublishers.ofString( cuerpo.toString( ) ) ).build( );
+        return cliente.send( peticion, HttpResponse.BodyHandlers.ofString( ) );
+    }
+
+    private static int numero( String json, String campo )
+    {
+        Matcher m = Pattern.compile( "\"" + campo + "\":(\\d+)" ).matcher( json );
+        assertTrue( m.find( ), json );
+        return Integer.parseInt( m.group( 1 ) );
+    }
+
+    @Test
+    void pedidoCompleto_seAtiendePorHttp( ) throws Exception
+    {
+        HttpResponse<String> menu = get( "/menu" );
+        assertEquals( 200, menu.statusCode( ) );
+        assertTrue( menu.body( ).contains( "{\"nombre\":\"corral\",\"precio\":14000}" ), menu.body( ) );
+        assertTrue( menu.body( ).contains( "\"combo corral\"" ) );
+
+        HttpResponse<String> abierto = post( "/pedidos", "cliente", "Ana María", "direccion", "Cll 19 # 1-10" );
+        assertEquals( 201, abierto.statusCode( ) );
+        int id = numero( abierto.body( ), "id" );
+
+        assertEquals( 200, post( "/pedidos/" + id + "/productos", "combo", "combo corral" ).statusCode( ) );
+        HttpResponse<String> ajustado = post( "/pedidos/" + id + "/productos", "producto", "corral", "agregar", "queso", "quitar", "cebolla" );
+        assertEquals( 200, ajustado.statusCode( ) );
+        int neto = 17550 + 15000;
+        assertEquals( neto + ( int )( neto * 0.19 ), numero( ajustado.body( ), "total" ) );
+
+        HttpResponse<String> cerrado = post( "/pedidos/" + id + "/cerrar" );
+        assertEquals( 200, cerrado.statusCode( ) );
+
+        HttpResponse<String> factura = get( "/pedidos/" + id + "/factura" );
+        assertEquals( 200, factura.statusCode( ) );
+        assertTrue( factura.body( ).contains( "Ana María" ) );
+        assertTrue( factura.body( ).contains( "+queso" ) );
+        assertTrue( factura.body( ).contains( "-cebolla" ) );
+    }
+
+    @Test
+    void errores_respondenConElCodigoQueCorresponde( ) throws Exception
+    {
+        assertEquals( 400, post( "/pedidos", "cliente", "Ana" ).statusCode( ) );
+        assertEquals( 404, post( "/pedidos/999999/productos", "producto", "corral" ).statusCode( ) );
+        assertEquals( 400, post( "/pedidos/abc/cerrar" ).statusCode( ) );
+        assertEquals( 405, get( "/pedidos" ).statusCode( ) );
+        assertEquals( 404, get( "/pedidos/1/otra" ).statusCode( ) );
+
+        int id = numero( post( "/pedidos", "cliente", "Ana", "direccion", "Cll 1" ).body( ), "id" );
+        HttpResponse<String> inexistente = post( "/pedidos/" + id + "/productos", "producto", "malteada" );
+        assertEquals( 404, inexistente.statusCode( ) );
+        assertTrue( inexistente.body( ).contains( "malteada" ) );
+        assertEquals( 404, post( "/pedidos/" + id + "/productos", "producto", "corral", "agregar", "piña" ).statusCode( ) );
+
+        assertEquals( 200, post( "/pedidos/" + id + "/cerrar" ).statusCode( ) );
+        assertEquals( 404, post( "/pedidos/" + id + "/cerrar" ).statusCode( ) );
+    }
+
+    @Test
+    void formularioMalCodificado_respondeBadRequest( ) throws Exception
+    {
+        HttpRequest peticion = HttpRequest.newBuilder( URI.create( "http://localhost:" + servidor.getPuerto( ) + "/pedidos" ) )
+                .header( "Content-Type", "application/x-www-form-urlencoded" ).POST( HttpRequest.BodyPublishers.ofString( "cliente=%zz&direccion=Cll 1" ) )
+                .build( );
+        HttpResponse<String> respuesta = cliente.send( peticion, HttpResponse.BodyHandlers.ofString( ) );
+        assertEquals( 400, respuesta.statusCode( ) );
+        assertTrue( respuesta.body( ).contains( "mal codificado" ), respuesta.body( ) );
+    }
+
+    @Test
+    void facturaQueNoSePuedeGuardar_respondeErrorDelServidor( ) throws Exception
+    {
+        int id = numero( post( "/pedidos", "cliente", "Ana", "direccion", "Cll 1" ).body( ), "id" );
+        // Con el escritor de facturas cerrado, guardar la factura falla con una IOException
+        restaurante.cerrar( );
+
+        HttpResponse<String> respuesta = post( "/pedidos/" + id + "/cerrar" );
+        assertEquals( 500, respuesta.statusCode( ) );
+        assertTrue( respuesta.body( ).contains( "No fue posible guardar la factura" ), respuesta.body( ) );
+        assertNotNull( restaurante.getPedidoAbierto( id ), "El pedido debe seguir abierto para volver a intentarlo" );
+    }
+}
@@ -0,0 +1,165 @@
+package uniandes.dpoo.hamburguesas.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uniandes.dpoo.hamburguesas.mundo.Combo;
+import uniandes.dpoo.hamburguesas.mundo.Ingrediente;
+import uniandes.dpoo.hamburguesas.mundo.Pedido;
+import uniandes.dpoo.hamburguesas.mundo.ProductoAjustado;
+import uniandes.dpoo.hamburguesas.mundo.ProductoMenu;
+import uniandes.dpoo.hamburguesas.mundo.Restaurante;
+import uniandes.dpoo.hamburguesas.mundo.VentasColumnares;
+
+public class VentasColumnaresTest
+{
+    private static final long HORA = 60L * 60 * 1000;
+
+    private final ProductoMenu corral = new ProductoMenu( "corral", 14000 );
+
+    private final ProductoMenu papas = new ProductoMenu( "papas medianas", 5500 );
+
+    private final Combo comboCorral = new Combo( "combo corral", 0.1, new ArrayList<ProductoMenu>( List.of( corral, papas ) ) );
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void consultas_agrupanPorProductoComboYHoraDentroDelIntervalo( )
+    {
+        VentasColumnares ventas = new VentasColumnares( );
+
+        Pedido primero = new Pedido( "Ana", "Cll 1" );
+        primero.agregarProducto( corral );
+        primero.agregarProducto( comboCorral );
+        ventas.registrar( primero, 10 * HORA );
+
+        Pedido segundo = new Pedido( "Luis", "Cll 2" );
+        ProductoAjustado ajustado = new ProductoAjustado( corral );
+        ajustado.agregarIngrediente( new Ingrediente( "queso", 1000 ) );
+        segundo.agregarProducto( ajustado );
+        segundo.agregarProducto( papas );
+        ventas.registrar( segundo, 13 * HORA + 5 );
+
+        Pedido otroDia = new Pedido( "Eva", "Cll 3" );
+        otroDia.agregarProducto( corral );
+        ventas.registrar( otroDia, 30 * HORA );
+
+        assertEquals( 5, ventas.getCantidadLineas( ) );
+        assertEquals( 3, ventas.getCantidadProductos( ) );
+
+        int idCorral = ventas.buscarProducto( "corral" );
+        int idCombo = ventas.buscarProducto( "combo corral" );
+        int idPapas = ventas.buscarProducto( "papas medianas" );
+        assertEquals( -1, ventas.buscarProducto( "malteada" ) );
+        assertTrue( ventas.esCombo( idCombo ) );
+        assertFalse( ventas.esCombo( idCorral ) );
+        assertEquals( "papas medianas", ventas.getNombreProducto( idPapas ) );
+
+        long[] porProducto = ventas.sumarPorProducto( 0, 24 * HORA );
+        assertEquals( 14000 + 15000, porProducto[ idCorral ] );
+        assertEquals( comboCorral.getPrecio( ), porProducto[ idCombo ] );
+        assertEquals( 5500, porProducto[ idPapas ] );
+        assertEquals( 2, ventas.contarPorProducto( 0, 24 * HORA )[ idCorral ] );
+        assertEquals( 3, ventas.contarPorProducto( 0, Long.MAX_VALUE )[ idCorral ] );
+
+        long[] porCombo = ventas.sumarPorCombo( 0, 24 * HORA );
+        assertEquals( comboCorral.getPrecio( ), porCombo[ idCombo ] );
+        assertEquals( 0, porCombo[ idCorral ] );
+
+        long[] porHora = ventas.sumarPorHora( 0, 24 * HORA, ZoneOffset.UTC );
+        assertEquals( primero.getPrecioTotalPedido( ), porHora[ 10 ] );
+        assertEquals( segundo.getPrecioTotalPedido( ), porHora[ 13 ] );
+
+        long[] porHoraBogota = ventas.sumarPorHora( 0, 24 * HORA, ZoneOffset.ofHours( -5 ) );
+        assertEquals( porHora[ 10 ], porHoraBogota[ 5 ] );
+        assertEquals( porHora[ 13 ], porHoraBogota[ 8 ] );
+
+        assertEquals( ( int )( 14000 * 0.19 ), ventas.sumarIVA( 24 * HORA, 48 * HORA ) );
+    }
+
+    @Test
+    void registrar_creceMasAllaDeLaCapacidadInicial( )
+    {
+        VentasColumnares ventas = new VentasColumnares( );
+        long esperado = 0;
+        for( int i = 0; i < 3000; i++ )
+        {
+            Pedido pedido = new Pedido( "cliente", "direccion" );
+            ProductoMenu producto = new ProductoMenu( "producto " + ( i % 40 ), 1000 + i );
+            pedido.agregarProducto( producto );
+            ventas.registrar( pedido, i );
+            esperado += producto.getPrecio( );
+        }
+
+        long total = 0;
+        for( long suma : ventas.sumarPorProducto( 0, Long.MAX_VALUE ) )
+            total += suma;
+        assertEquals( esperado, total );
+        assertEquals( 40, ventas.getCantidadProductos( ) );
+    }
+
+    @Test
+    void cerrarYGuardarPedido_registraLasLineasEnLasVentas( ) throws Exception
+    {
+        Restaurante restaurante = new Restaurante( temp.toFile( ) );
+        Pedido pedido = restaurante.abrirPedido( "Ana", "Cll 1" );
+        pedido.agregarProducto( corral );
+        pedido.agregarProducto( papas );
+        long antes = System.currentTimeMillis( );
+        restaurante.cerrarYGuardarPedido( pedido.getIdPedido( ) );
+        restaurante.cerrar( );
+
+        VentasColumnares ventas = restaurante.getVentas( );
+        assertEquals( 2, ventas.getCantidadLineas( ) );
+        assertEquals( 14000, ventas.sumarPorProducto( antes, Long.MAX_VALUE )[ ventas.buscarProducto( "corral" ) ] );
+    }
+
+    @Test
+    void productosRepetidos_seRegistranEnUnaLineaConSuCantidad( )
+    {
+        VentasColumnares ventas = new VentasColumnares( );
+        Pedido pedido = new Pedido( "Oficina", "Cll 26" );
+        for( int i = 0; i < 40; i++ )
+            pedido.agregarProducto( comboCorral );
+        pedido.agregarProducto( papas );
+        ventas.registrar( pedido, 0 );
+
+        assertEquals( 2, ventas.getCantidadLineas( ) );
+        int idCombo = ventas.buscarProducto( "combo corral" );
+        assertEquals( 40, ventas.contarPorProducto( 0, HORA )[ idCombo ] );
+        assertEquals( 40L * comboCorral.getPrecio( ), ventas.sumarPorProducto( 0, HORA )[ idCombo ] );
+        // El IVA se trunca una vez sobre el neto del pedido, como en la factura, no línea por línea
+        int neto = 40 * comboCorral.getPrecio( ) + 5500;
+        assertEquals( ( int )( neto * 0.19 ), ventas.sumarIVA( 0, HORA ) );
+        assertEquals( pedido.getPrecioTotalPedido( ) - neto, ventas.sumarIVA( 0, HORA ) );
+    }
+
+    @Test
+    void comboYProductoConElMismoNombre_seCuentanAparte( )
+    {
+        VentasColumnares ventas = new VentasColumnares( );
+        Combo comboCorralSolo = new Combo( "corral", 0.1, new ArrayList<ProductoMenu>( List.of( corral ) ) );
+        Pedido pedido = new Pedido( "Ana", "Cll 1" );
+        pedido.agregarProducto( corral );
+        pedido.agregarProducto( comboCorralSolo );
+        ventas.registrar( pedido, 0 );
+
+        assertEquals( 2, ventas.getCantidadProductos( ) );
+        int idProducto = ventas.buscarProducto( "corral" );
+        int idCombo = ventas.buscarCombo( "corral" );
+        assertNotEquals( idProducto, idCombo );
+        assertFalse( ventas.esCombo( idProducto ) );
+        assertTrue( ventas.esCombo( idCombo ) );
+        assertEquals( 14000, ventas.sumarPorProducto( 0, HORA )[ idProducto ] );
+        assertEquals( comboCorralSolo.getPrecio( ), ventas.sumarPorCombo( 0, HORA )[ idCombo ] );
+        assertEquals( -1, ventas.buscarCombo( "papas medianas" ) );
+    }
+}